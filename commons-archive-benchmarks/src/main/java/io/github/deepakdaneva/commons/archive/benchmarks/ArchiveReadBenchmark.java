@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive.benchmarks;
+
+import io.github.deepakdaneva.commons.archive.ArchiveUtil;
+import io.github.deepakdaneva.commons.archive.EntryStreamOptions;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.io.file.PathUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of reading every entry of an archive through the public read paths of {@link ArchiveUtil}. Every
+ * benchmark returns the number of bytes read, run with {@code -prof gc} (the default of {@link BenchmarkRunner}) to
+ * also report the allocation rate per operation.
+ * <p>
+ * The {@code shape} parameter is {@code <entry count>x<entry size in bytes>}.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArchiveReadBenchmark {
+
+    @Param({ "ZIP", "TAR_GZ", "SEVEN_Z", "TAR_XZ", "TAR_BZ2", "TAR_LZ4" })
+    private BenchmarkFixtures.Format format;
+
+    @Param({ "1000x1024", "100x65536", "4x4194304" })
+    private String shape;
+
+    private byte[] archive;
+    private Path tempDirectory;
+    private Path file;
+    private byte[] buffer;
+
+    /**
+     * Generates the archive of the current format and shape.
+     *
+     * @throws IOException io exception
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String[] parts = shape.split("x");
+        tempDirectory = Files.createTempDirectory("commons-archive-benchmarks");
+        archive = BenchmarkFixtures.archive(format, Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), tempDirectory);
+        file = Files.write(tempDirectory.resolve("archive"), archive);
+        buffer = new byte[8192];
+    }
+
+    /**
+     * Deletes the generated files.
+     *
+     * @throws IOException io exception
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        PathUtils.deleteDirectory(tempDirectory);
+    }
+
+    /**
+     * Opens the archive by mime type and streams the entries without copying them.
+     *
+     * @return number of bytes read.
+     * @throws IOException io exception
+     * @throws ArchiveException archive exception
+     * @throws CompressorException compressor exception
+     */
+    @Benchmark
+    public long streaming() throws IOException, ArchiveException, CompressorException {
+        try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(newInputStream(), format.getMimeType())) {
+            long total = 0;
+            while (Objects.nonNull(ais.getNextEntry())) {
+                total += drain(ArchiveUtil.getEntryInputStream(ais, EntryStreamOptions.STREAMING));
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Opens the archive by mime type and buffers every entry into a re-readable stream.
+     *
+     * @return number of bytes read.
+     * @throws IOException io exception
+     * @throws ArchiveException archive exception
+     * @throws CompressorException compressor exception
+     */
+    @Benchmark
+    public long buffered() throws IOException, ArchiveException, CompressorException {
+        try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(newInputStream(), format.getMimeType())) {
+            long total = 0;
+            while (Objects.nonNull(ais.getNextEntry())) {
+                try (InputStream entry = ArchiveUtil.getEntryInputStream(ais)) {
+                    total += drain(entry);
+                }
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Opens the archive by detecting its format from the signature.
+     *
+     * @return number of bytes read.
+     * @throws IOException io exception
+     * @throws ArchiveException archive exception
+     * @throws CompressorException compressor exception
+     */
+    @Benchmark
+    public long detected() throws IOException, ArchiveException, CompressorException {
+        try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(newInputStream())) {
+            return drainEntries(ais);
+        }
+    }
+
+    /**
+     * Opens the archive from the file, 7z archives are read in place.
+     *
+     * @return number of bytes read.
+     * @throws IOException io exception
+     * @throws ArchiveException archive exception
+     * @throws CompressorException compressor exception
+     */
+    @Benchmark
+    public long file() throws IOException, ArchiveException, CompressorException {
+        try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(file, format.getMimeType())) {
+            return drainEntries(ais);
+        }
+    }
+
+    /**
+     * Lists the entries without reading their content.
+     *
+     * @param blackhole consumes the entries.
+     * @throws IOException io exception
+     * @throws ArchiveException archive exception
+     * @throws CompressorException compressor exception
+     */
+    @Benchmark
+    public void entries(final Blackhole blackhole) throws IOException, ArchiveException, CompressorException {
+        try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(newInputStream(), format.getMimeType())) {
+            ArchiveEntry entry;
+            while (Objects.nonNull(entry = ais.getNextEntry())) {
+                blackhole.consume(entry);
+            }
+        }
+    }
+
+    private InputStream newInputStream() {
+        return new BufferedInputStream(new ByteArrayInputStream(archive));
+    }
+
+    private long drainEntries(final ArchiveInputStream ais) throws IOException {
+        long total = 0;
+        while (Objects.nonNull(ais.getNextEntry())) {
+            total += drain(ais);
+        }
+        return total;
+    }
+
+    private long drain(final InputStream in) throws IOException {
+        long total = 0;
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            total += n;
+        }
+        return total;
+    }
+}
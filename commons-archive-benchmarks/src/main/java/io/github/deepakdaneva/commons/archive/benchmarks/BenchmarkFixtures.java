@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZOutputFile;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+
+/**
+ * Generates the archives which are read by the benchmarks, so results do not depend on checked-in files. The content
+ * is made of words drawn from a seeded random generator which compresses about as well as text, every run of the same
+ * shape produces identical bytes.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class BenchmarkFixtures {
+
+    private static final String[] WORDS = { "archive", "entry", "stream", "compress", "buffer", "header", "block", "index", "offset", "length", "deflate", "inflate", "commons", "utility", "java", "byte", "signature", "format", "path", "file" };
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Supported formats of the generated archives.
+     */
+    public enum Format {
+        /** zip archive with deflated entries. */
+        ZIP("application/zip"),
+        /** gzip compressed tar archive. */
+        TAR_GZ("application/gzip"),
+        /** 7z archive with LZMA2 compressed entries. */
+        SEVEN_Z("application/x-7z-compressed"),
+        /** xz compressed tar archive. */
+        TAR_XZ("application/x-xz"),
+        /** bzip2 compressed tar archive. */
+        TAR_BZ2("application/x-bzip2"),
+        /** lz4 framed compressed tar archive. */
+        TAR_LZ4("application/x-lz4");
+
+        private final String mimeType;
+
+        Format(final String mimeType) {
+            this.mimeType = mimeType;
+        }
+
+        /**
+         * @return mime type of the format.
+         */
+        public String getMimeType() {
+            return mimeType;
+        }
+    }
+
+    /**
+     * @param size number of bytes.
+     * @param seed of the random generator.
+     * @return compressible content.
+     */
+    public static byte[] content(final int size, final long seed) {
+        Random random = new Random(seed);
+        byte[] content = new byte[size];
+        int pos = 0;
+        while (pos < size) {
+            byte[] word = WORDS[random.nextInt(WORDS.length)].getBytes(StandardCharsets.US_ASCII);
+            int n = Math.min(word.length, size - pos);
+            System.arraycopy(word, 0, content, pos, n);
+            pos += n;
+            if (pos < size) {
+                content[pos++] = (byte) (random.nextInt(8) == 0 ? '\n' : ' ');
+            }
+        }
+        return content;
+    }
+
+    /**
+     * @param format of the archive.
+     * @param entryCount number of entries.
+     * @param entrySize number of bytes of every entry.
+     * @param tempDirectory in which the 7z archive is written, SevenZOutputFile needs a file.
+     * @return archive bytes.
+     * @throws IOException io exception
+     */
+    public static byte[] archive(final Format format, final int entryCount, final int entrySize, final Path tempDirectory) throws IOException {
+        try {
+            switch (format) {
+                case ZIP:
+                    return zip(entryCount, entrySize);
+                case SEVEN_Z:
+                    return sevenZ(entryCount, entrySize, tempDirectory);
+                case TAR_GZ:
+                    return compress(CompressorStreamFactory.GZIP, tar(entryCount, entrySize));
+                case TAR_XZ:
+                    return compress(CompressorStreamFactory.XZ, tar(entryCount, entrySize));
+                case TAR_BZ2:
+                    return compress(CompressorStreamFactory.BZIP2, tar(entryCount, entrySize));
+                default:
+                    return compress(CompressorStreamFactory.LZ4_FRAMED, tar(entryCount, entrySize));
+            }
+        } catch (CompressorException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static byte[] zip(final int entryCount, final int entrySize) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ArchiveOutputStream aos = newArchiveOutputStream(ArchiveStreamFactory.ZIP, bos)) {
+            for (int i = 0; i < entryCount; i++) {
+                aos.putArchiveEntry(new ZipArchiveEntry(name(i)));
+                aos.write(content(entrySize, i));
+                aos.closeArchiveEntry();
+            }
+        }
+        return bos.toByteArray();
+    }
+
+    private static byte[] tar(final int entryCount, final int entrySize) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ArchiveOutputStream aos = newArchiveOutputStream(ArchiveStreamFactory.TAR, bos)) {
+            for (int i = 0; i < entryCount; i++) {
+                TarArchiveEntry entry = new TarArchiveEntry(name(i));
+                entry.setSize(entrySize);
+                aos.putArchiveEntry(entry);
+                aos.write(content(entrySize, i));
+                aos.closeArchiveEntry();
+            }
+        }
+        return bos.toByteArray();
+    }
+
+    private static byte[] sevenZ(final int entryCount, final int entrySize, final Path tempDirectory) throws IOException {
+        Path file = Files.createTempFile(tempDirectory, "fixture", ".7z");
+        try {
+            try (SevenZOutputFile out = new SevenZOutputFile(file.toFile())) {
+                for (int i = 0; i < entryCount; i++) {
+                    SevenZArchiveEntry entry = new SevenZArchiveEntry();
+                    entry.setName(name(i));
+                    entry.setSize(entrySize);
+                    out.putArchiveEntry(entry);
+                    out.write(content(entrySize, i));
+                    out.closeArchiveEntry();
+                }
+            }
+            return Files.readAllBytes(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static byte[] compress(final String compressorName, final byte[] content) throws IOException, CompressorException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (OutputStream os = CompressorStreamFactory.getSingleton().createCompressorOutputStream(compressorName, bos)) {
+            os.write(content);
+        }
+        return bos.toByteArray();
+    }
+
+    private static ArchiveOutputStream newArchiveOutputStream(final String archiverName, final OutputStream out) throws IOException {
+        try {
+            return ArchiveStreamFactory.DEFAULT.createArchiveOutputStream(archiverName, out);
+        } catch (ArchiveException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static String name(final int index) {
+        return "dir-" + (index % 16) + "/entry-" + index + ".txt";
+    }
+}
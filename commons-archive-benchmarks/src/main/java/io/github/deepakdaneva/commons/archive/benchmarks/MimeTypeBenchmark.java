@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive.benchmarks;
+
+import io.github.deepakdaneva.commons.archive.ArchiveUtil;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Average time of the mime type checks of {@link ArchiveUtil}, which are called for every file by callers deciding
+ * whether to open it as an archive.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MimeTypeBenchmark {
+
+    @Param({ "application/zip", "application/x-7z-compressed", "application/gzip", "Application/X-TAR; charset=binary", "text/plain", "application/vnd.openxmlformats-officedocument.wordprocessingml.document" })
+    private String mimeType;
+
+    /**
+     * @return whether the mime type is any archive or compressor mime type.
+     */
+    @Benchmark
+    public boolean isAnyArchiveMimeType() {
+        return ArchiveUtil.isAnyArchiveMimeType(mimeType);
+    }
+
+    /**
+     * @return whether the mime type is an archive mime type.
+     */
+    @Benchmark
+    public boolean isArchiveMimeType() {
+        return ArchiveUtil.isArchiveMimeType(mimeType);
+    }
+
+    /**
+     * @return whether the mime type is a compressor mime type.
+     */
+    @Benchmark
+    public boolean isCompressorMimeType() {
+        return ArchiveUtil.isCompressorMimeType(mimeType);
+    }
+
+    /**
+     * @return kind of the mime type.
+     */
+    @Benchmark
+    public Object getArchiveKind() {
+        return ArchiveUtil.getArchiveKind(mimeType);
+    }
+}
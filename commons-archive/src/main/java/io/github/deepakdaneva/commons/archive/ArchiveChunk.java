@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.nio.ByteBuffer;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+
+/**
+ * Chunk of the content of an archive entry published by {@link AsyncArchiveReader}. Every entry is published as one or
+ * more consecutive chunks, the first chunk of an entry is marked by {@link #isFirst()} and the last one by
+ * {@link #isLast()}. Directories and empty entries are published as a single empty chunk, the last chunk of an entry may
+ * also be empty if the size of the entry is a multiple of the chunk size.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class ArchiveChunk {
+
+    private final ArchiveEntry entry;
+    private final ByteBuffer data;
+    private final boolean first;
+    private final boolean last;
+
+    ArchiveChunk(final ArchiveEntry entry, final ByteBuffer data, final boolean first, final boolean last) {
+        this.entry = entry;
+        this.data = data;
+        this.first = first;
+        this.last = last;
+    }
+
+    /**
+     * @return entry the chunk belongs to.
+     */
+    public ArchiveEntry getEntry() {
+        return entry;
+    }
+
+    /**
+     * @return read only content of the chunk, the buffer is owned by the subscriber and never reused by the reader.
+     */
+    public ByteBuffer getData() {
+        return data;
+    }
+
+    /**
+     * @return true for the first chunk of the entry.
+     */
+    public boolean isFirst() {
+        return first;
+    }
+
+    /**
+     * @return true for the last chunk of the entry.
+     */
+    public boolean isLast() {
+        return last;
+    }
+}
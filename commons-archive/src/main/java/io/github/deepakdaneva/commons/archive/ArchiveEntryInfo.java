@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.time.Instant;
+
+/**
+ * Metadata of an archive entry as listed by {@link ArchiveUtil#listEntries(java.nio.file.Path)} without reading its
+ * content. Instances are immutable.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class ArchiveEntryInfo {
+
+    /** Size which is not known without reading the content. */
+    public static final long SIZE_UNKNOWN = -1;
+
+    private final String name;
+    private final boolean directory;
+    private final long size;
+    private final long compressedSize;
+    private final Instant lastModified;
+    private final boolean encrypted;
+
+    ArchiveEntryInfo(final String name, final boolean directory, final long size, final long compressedSize, final Instant lastModified, final boolean encrypted) {
+        this.name = name;
+        this.directory = directory;
+        this.size = size;
+        this.compressedSize = compressedSize;
+        this.lastModified = lastModified;
+        this.encrypted = encrypted;
+    }
+
+    /**
+     * @return name of the entry as stored in the archive.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return true if the entry is a directory.
+     */
+    public boolean isDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return uncompressed size of the entry or {@link #SIZE_UNKNOWN}.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return size of the entry as stored in the archive or {@link #SIZE_UNKNOWN}, e.g. for entries of solid 7z
+     * archives and of compressed tar archives.
+     */
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    /**
+     * @return last modification time of the entry or null if the archive does not record it.
+     */
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return true if the content of the entry is encrypted.
+     */
+    public boolean isEncrypted() {
+        return encrypted;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
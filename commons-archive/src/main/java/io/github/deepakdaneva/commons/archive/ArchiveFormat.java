@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.util.Objects;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+
+/**
+ * Archive and compressor formats which can be recognized from their signature, see {@link ArchiveFormatDetector}.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public enum ArchiveFormat {
+    /** Zip archive. */
+    ZIP(ArchiveStreamFactory.ZIP, null, "application/zip"),
+    /** Tar archive. */
+    TAR(ArchiveStreamFactory.TAR, null, "application/x-tar"),
+    /** Unix ar archive. */
+    AR(ArchiveStreamFactory.AR, null, "application/x-archive"),
+    /** Arj archive. */
+    ARJ(ArchiveStreamFactory.ARJ, null, "application/x-arj"),
+    /** Cpio archive. */
+    CPIO(ArchiveStreamFactory.CPIO, null, "application/x-cpio"),
+    /** Unix dump archive. */
+    DUMP(ArchiveStreamFactory.DUMP, null, "application/x-tika-unix-dump"),
+    /** 7z archive. */
+    SEVEN_Z(ArchiveStreamFactory.SEVEN_Z, null, "application/x-7z-compressed"),
+    /** RAR archive. */
+    RAR(null, null, "application/x-rar-compressed"),
+    /** Tar archive compressed with gzip. */
+    TAR_GZIP(ArchiveStreamFactory.TAR, CompressorStreamFactory.GZIP, "application/gzip"),
+    /** Tar archive compressed with bzip2. */
+    TAR_BZIP2(ArchiveStreamFactory.TAR, CompressorStreamFactory.BZIP2, "application/x-bzip2"),
+    /** Tar archive compressed with xz. */
+    TAR_XZ(ArchiveStreamFactory.TAR, CompressorStreamFactory.XZ, "application/x-xz"),
+    /** Gzip compressed stream. */
+    GZIP(null, CompressorStreamFactory.GZIP, "application/gzip"),
+    /** Bzip2 compressed stream. */
+    BZIP2(null, CompressorStreamFactory.BZIP2, "application/x-bzip2"),
+    /** Xz compressed stream. */
+    XZ(null, CompressorStreamFactory.XZ, "application/x-xz"),
+    /** Lzma compressed stream. */
+    LZMA(null, CompressorStreamFactory.LZMA, "application/x-lzma"),
+    /** Framed lz4 compressed stream. */
+    LZ4_FRAMED(null, CompressorStreamFactory.LZ4_FRAMED, "application/x-lz4"),
+    /** Framed snappy compressed stream. */
+    SNAPPY_FRAMED(null, CompressorStreamFactory.SNAPPY_FRAMED, "application/x-snappy"),
+    /** Unix compress (.Z) stream. */
+    Z(null, CompressorStreamFactory.Z, "application/x-compress"),
+    /** Zlib (deflate) compressed stream. */
+    DEFLATE(null, CompressorStreamFactory.DEFLATE, "application/zlib"),
+    /** Pack200 compressed jar. */
+    PACK200(null, CompressorStreamFactory.PACK200, "application/x-java-pack200"),
+    /** Not recognized. */
+    UNKNOWN(null, null, null);
+
+    private final String archiverName;
+    private final String compressorName;
+    private final String mimeType;
+
+    ArchiveFormat(final String archiverName, final String compressorName, final String mimeType) {
+        this.archiverName = archiverName;
+        this.compressorName = compressorName;
+        this.mimeType = mimeType;
+    }
+
+    /**
+     * @return name of the archiver used by {@link ArchiveStreamFactory} or null if the format is not an archive (or not
+     * supported by it).
+     */
+    public String getArchiverName() {
+        return archiverName;
+    }
+
+    /**
+     * @return name of the compressor used by {@link CompressorStreamFactory} or null if the format is not compressed.
+     */
+    public String getCompressorName() {
+        return compressorName;
+    }
+
+    /**
+     * @return mime type of the format or null for {@link #UNKNOWN}.
+     */
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * @return kind of the format as classified from its mime type.
+     */
+    public ArchiveKind getKind() {
+        return ArchiveUtil.getArchiveKind(mimeType);
+    }
+
+    /**
+     * @param mimeType of a stream, parameters and case are ignored.
+     * @return first format with the mime type, for compressor mime types this is the compressed tar format which is
+     * opened by {@link ArchiveUtil#getArchiveInputStream(java.io.InputStream, String)}, {@link #UNKNOWN} if none.
+     */
+    static ArchiveFormat forMimeType(final String mimeType) {
+        if (Objects.isNull(mimeType)) {
+            return UNKNOWN;
+        }
+        int semicolon = mimeType.indexOf(';');
+        String baseType = (semicolon < 0 ? mimeType : mimeType.substring(0, semicolon)).trim();
+        for (ArchiveFormat format : values()) {
+            if (baseType.equalsIgnoreCase(format.mimeType)) {
+                return format;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * @param compressorName name of the compressor used by {@link CompressorStreamFactory}.
+     * @return plain compressed stream format of the compressor, {@link #UNKNOWN} if none.
+     */
+    static ArchiveFormat forCompressorName(final String compressorName) {
+        for (ArchiveFormat format : values()) {
+            if (Objects.isNull(format.archiverName) && Objects.nonNull(format.compressorName) && format.compressorName.equalsIgnoreCase(compressorName)) {
+                return format;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * @return true if the format is an archive which can be read as an archive stream, compressed tar archives included.
+     */
+    public boolean isReadable() {
+        return Objects.nonNull(archiverName);
+    }
+
+    /**
+     * @return true if archives of the format can be written by {@link ArchiveWriter}.
+     */
+    public boolean isWritable() {
+        return this == ZIP || this == TAR || this == SEVEN_Z || isCompressedTar();
+    }
+
+    /**
+     * @return true if the format is a compressed tar archive.
+     */
+    public boolean isCompressedTar() {
+        return this == TAR_GZIP || this == TAR_BZIP2 || this == TAR_XZ;
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+import org.apache.commons.compress.compressors.xz.XZUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.input.MarkShieldInputStream;
+
+/**
+ * Detects the {@link ArchiveFormat} of a stream from its magic bytes without relying on a caller supplied mime type. A
+ * bounded prefix of the stream is peeked with mark/reset and matched in one pass against a lookup table indexed by the
+ * first byte of every signature. Gzip, bzip2 and xz streams are additionally checked for a wrapped tar archive by
+ * decompressing only the first tar header from a bounded window of the stream.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class ArchiveFormatDetector {
+
+    /** Number of bytes peeked from the stream, enough for a complete tar header. */
+    public static final int PREFIX_LENGTH = 512;
+    /**
+     * Default upper bound of compressed bytes which may be read to look for a tar header in a compressed stream. The
+     * window which is actually read is sized per codec so that the first tar header can always be decoded, see
+     * {@link #detect(InputStream, int)}.
+     */
+    public static final int DEFAULT_TAR_PROBE_LIMIT = 2 * 1024 * 1024;
+
+    /** Gzip header with extra field and names plus a stored deflate block of at most 64 KiB. */
+    private static final int GZIP_TAR_WINDOW = 128 * 1024;
+    /** Xz stream and block header plus one LZMA2 chunk of at most 64 KiB compressed data. */
+    private static final int XZ_TAR_WINDOW = 72 * 1024;
+    /** Uncompressed bytes of a bzip2 block per level of the stream, a block is decoded completely before any output. */
+    private static final int BZIP2_BLOCK_SIZE = 100_000;
+    private static final int TAR_MAGIC_OFFSET = 257;
+    private static final byte[] TAR_MAGIC = "ustar".getBytes(StandardCharsets.US_ASCII);
+    private static final int TAR_CHECKSUM_OFFSET = 148;
+    private static final int TAR_CHECKSUM_LENGTH = 8;
+    private static final int DUMP_MAGIC_OFFSET = 24;
+    private static final byte[] DUMP_MAGIC = bytes(0x6C, 0xEA, 0x00, 0x00);
+    /** Signatures at offset zero indexed by their first byte, longest signature first. */
+    private static final Signature[][] SIGNATURES = buildSignatures();
+
+    private ArchiveFormatDetector() {
+    }
+
+    /**
+     * Detects the format of the stream with the {@link #DEFAULT_TAR_PROBE_LIMIT}. The stream is reset to its current
+     * position before this method returns.
+     *
+     * @param inputStream stream which supports mark and reset, recommended BufferedInputStream.
+     * @return detected format or {@link ArchiveFormat#UNKNOWN}.
+     * @throws IOException if reading the stream fails.
+     * @throws IllegalArgumentException if the stream does not support mark.
+     */
+    public static ArchiveFormat detect(final InputStream inputStream) throws IOException {
+        return detect(inputStream, DEFAULT_TAR_PROBE_LIMIT);
+    }
+
+    /**
+     * Detects the format of the stream. The stream is reset to its current position before this method returns.
+     *
+     * @param inputStream stream which supports mark and reset, recommended BufferedInputStream.
+     * @param tarProbeLimit maximum number of compressed bytes read to look for a wrapped tar archive, {@code 0} disables
+     * the check. Only the first tar header (512 decompressed bytes) is decoded, from a window which is sized per codec to
+     * hold the data it needs for that: a deflate block of gzip, one block of the bzip2 level of the stream (up to about
+     * 1.1 MiB at level 9) and one LZMA2 chunk of xz. The window is buffered by the stream to reset it afterwards.
+     * @return detected format or {@link ArchiveFormat#UNKNOWN}.
+     * @throws IOException if reading the stream fails.
+     * @throws IllegalArgumentException if the stream does not support mark.
+     */
+    public static ArchiveFormat detect(final InputStream inputStream, final int tarProbeLimit) throws IOException {
+        if (Objects.isNull(inputStream) || !inputStream.markSupported()) {
+            throw new IllegalArgumentException("Mark is not supported.");
+        }
+        byte[] prefix = new byte[PREFIX_LENGTH];
+        inputStream.mark(PREFIX_LENGTH);
+        int length;
+        try {
+            length = IOUtils.read(inputStream, prefix);
+        } finally {
+            inputStream.reset();
+        }
+        ArchiveFormat format = detect(prefix, length);
+        if (tarProbeLimit > 0 && isTarCompressor(format) && containsTar(inputStream, format, Math.min(tarProbeLimit, window(format, prefix)))) {
+            switch (format) {
+                case GZIP:
+                    return ArchiveFormat.TAR_GZIP;
+                case BZIP2:
+                    return ArchiveFormat.TAR_BZIP2;
+                default:
+                    return ArchiveFormat.TAR_XZ;
+            }
+        }
+        return format;
+    }
+
+    /**
+     * Detects the format from the already read prefix of a stream, compressed tar archives are reported as their
+     * compressor format.
+     *
+     * @param prefix first bytes of the stream, {@link #PREFIX_LENGTH} bytes are required to recognize tar and dump.
+     * @param length number of valid bytes in the prefix.
+     * @return detected format or {@link ArchiveFormat#UNKNOWN}.
+     */
+    public static ArchiveFormat detect(final byte[] prefix, final int length) {
+        if (length <= 0) {
+            return ArchiveFormat.UNKNOWN;
+        }
+        Signature[] candidates = SIGNATURES[prefix[0] & 0xFF];
+        if (Objects.nonNull(candidates)) {
+            for (Signature signature : candidates) {
+                if (matches(prefix, length, 0, signature.magic)) {
+                    return signature.format;
+                }
+            }
+        }
+        if (matches(prefix, length, TAR_MAGIC_OFFSET, TAR_MAGIC) || isTarHeader(prefix, length)) {
+            return ArchiveFormat.TAR;
+        }
+        if (matches(prefix, length, DUMP_MAGIC_OFFSET, DUMP_MAGIC)) {
+            return ArchiveFormat.DUMP;
+        }
+        return ArchiveFormat.UNKNOWN;
+    }
+
+    private static boolean isTarCompressor(final ArchiveFormat format) {
+        return ArchiveFormat.GZIP.equals(format) || ArchiveFormat.BZIP2.equals(format) || (ArchiveFormat.XZ.equals(format) && XZUtils.isXZCompressionAvailable());
+    }
+
+    /**
+     * @return number of compressed bytes which are needed to decode the first tar header of the compressed stream.
+     */
+    private static int window(final ArchiveFormat format, final byte[] prefix) {
+        switch (format) {
+            case GZIP:
+                return GZIP_TAR_WINDOW;
+            case BZIP2:
+                // "BZh" followed by the level '1'..'9', a block may expand slightly when its data is incompressible
+                int level = prefix[3] >= '1' && prefix[3] <= '9' ? prefix[3] - '0' : 9;
+                return level * BZIP2_BLOCK_SIZE * 5 / 4 + 1024;
+            default:
+                return XZ_TAR_WINDOW;
+        }
+    }
+
+    /**
+     * Decompresses only the first tar header of the compressed stream from a window of at most {@code limit} compressed
+     * bytes and resets the stream afterwards.
+     */
+    private static boolean containsTar(final InputStream inputStream, final ArchiveFormat format, final int limit) throws IOException {
+        inputStream.mark(limit);
+        try {
+            // the window shields the caller's stream and its mark from the decompressor
+            InputStream window = new MarkShieldInputStream(new BoundedInputStream(CloseShieldInputStream.wrap(inputStream), limit));
+            InputStream decompressed;
+            switch (format) {
+                case GZIP:
+                    decompressed = new GzipCompressorInputStream(window);
+                    break;
+                case BZIP2:
+                    decompressed = new BZip2CompressorInputStream(window);
+                    break;
+                default:
+                    decompressed = new XZCompressorInputStream(window);
+                    break;
+            }
+            try (InputStream tar = decompressed) {
+                byte[] header = new byte[PREFIX_LENGTH];
+                int length = IOUtils.read(tar, header);
+                return matches(header, length, TAR_MAGIC_OFFSET, TAR_MAGIC) || isTarHeader(header, length);
+            }
+        } catch (IOException | RuntimeException e) {
+            // window exhausted or corrupt stream, report the plain compressor format
+            return false;
+        } finally {
+            inputStream.reset();
+        }
+    }
+
+    /**
+     * Validates the checksum of a pre-POSIX tar header which has no magic.
+     */
+    private static boolean isTarHeader(final byte[] header, final int length) {
+        if (length < PREFIX_LENGTH || header[0] == 0) {
+            return false;
+        }
+        long stored = 0;
+        boolean digits = false;
+        for (int i = TAR_CHECKSUM_OFFSET; i < TAR_CHECKSUM_OFFSET + TAR_CHECKSUM_LENGTH; i++) {
+            byte b = header[i];
+            if (b >= '0' && b <= '7') {
+                stored = (stored << 3) + (b - '0');
+                digits = true;
+            } else if (b == 0 || b == ' ') {
+                if (digits) {
+                    break;
+                }
+            } else {
+                return false;
+            }
+        }
+        if (!digits) {
+            return false;
+        }
+        long computed = 0;
+        for (int i = 0; i < PREFIX_LENGTH; i++) {
+            computed += i >= TAR_CHECKSUM_OFFSET && i < TAR_CHECKSUM_OFFSET + TAR_CHECKSUM_LENGTH ? ' ' : header[i] & 0xFF;
+        }
+        return stored == computed;
+    }
+
+    private static boolean matches(final byte[] prefix, final int length, final int offset, final byte[] magic) {
+        if (length < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (prefix[offset + i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Signature[][] buildSignatures() {
+        List<Signature> signatures = new ArrayList<>();
+        signatures.add(new Signature(ArchiveFormat.ZIP, bytes('P', 'K', 0x03, 0x04)));
+        signatures.add(new Signature(ArchiveFormat.ZIP, bytes('P', 'K', 0x05, 0x06)));
+        signatures.add(new Signature(ArchiveFormat.ZIP, bytes('P', 'K', 0x07, 0x08)));
+        signatures.add(new Signature(ArchiveFormat.ZIP, bytes('P', 'K', '0', '0')));
+        signatures.add(new Signature(ArchiveFormat.SEVEN_Z, bytes('7', 'z', 0xBC, 0xAF, 0x27, 0x1C)));
+        signatures.add(new Signature(ArchiveFormat.RAR, bytes('R', 'a', 'r', '!', 0x1A, 0x07)));
+        signatures.add(new Signature(ArchiveFormat.AR, bytes('!', '<', 'a', 'r', 'c', 'h', '>', '\n')));
+        signatures.add(new Signature(ArchiveFormat.ARJ, bytes(0x60, 0xEA)));
+        signatures.add(new Signature(ArchiveFormat.CPIO, bytes('0', '7', '0', '7', '0', '1')));
+        signatures.add(new Signature(ArchiveFormat.CPIO, bytes('0', '7', '0', '7', '0', '2')));
+        signatures.add(new Signature(ArchiveFormat.CPIO, bytes('0', '7', '0', '7', '0', '7')));
+        signatures.add(new Signature(ArchiveFormat.CPIO, bytes(0x71, 0xC7)));
+        signatures.add(new Signature(ArchiveFormat.CPIO, bytes(0xC7, 0x71)));
+        signatures.add(new Signature(ArchiveFormat.GZIP, bytes(0x1F, 0x8B)));
+        signatures.add(new Signature(ArchiveFormat.Z, bytes(0x1F, 0x9D)));
+        signatures.add(new Signature(ArchiveFormat.BZIP2, bytes('B', 'Z', 'h')));
+        signatures.add(new Signature(ArchiveFormat.XZ, bytes(0xFD, '7', 'z', 'X', 'Z', 0x00)));
+        signatures.add(new Signature(ArchiveFormat.LZMA, bytes(0x5D, 0x00, 0x00)));
+        signatures.add(new Signature(ArchiveFormat.LZ4_FRAMED, bytes(0x04, 0x22, 0x4D, 0x18)));
+        signatures.add(new Signature(ArchiveFormat.SNAPPY_FRAMED, bytes(0xFF, 0x06, 0x00, 0x00, 's', 'N', 'a', 'P', 'p', 'Y')));
+        signatures.add(new Signature(ArchiveFormat.PACK200, bytes(0xCA, 0xFE, 0xD0, 0x0D)));
+        for (int flag : new int[] { 0x01, 0x5E, 0x9C, 0xDA }) {
+            signatures.add(new Signature(ArchiveFormat.DEFLATE, bytes(0x78, flag)));
+        }
+        signatures.sort(Comparator.comparingInt((Signature signature) -> signature.magic.length).reversed());
+        Signature[][] table = new Signature[256][];
+        for (Signature signature : signatures) {
+            int first = signature.magic[0] & 0xFF;
+            Signature[] bucket = Objects.isNull(table[first]) ? new Signature[1] : Arrays.copyOf(table[first], table[first].length + 1);
+            bucket[bucket.length - 1] = signature;
+            table[first] = bucket;
+        }
+        return table;
+    }
+
+    private static byte[] bytes(final int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    /**
+     * Magic bytes of a format at offset zero.
+     */
+    private static final class Signature {
+        private final ArchiveFormat format;
+        private final byte[] magic;
+
+        private Signature(final ArchiveFormat format, final byte[] magic) {
+            this.format = format;
+            this.magic = magic;
+        }
+    }
+}
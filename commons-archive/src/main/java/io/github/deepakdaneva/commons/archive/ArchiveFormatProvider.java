@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorInputStream;
+
+/**
+ * Service provider of an archive or compressor format, see {@link ArchiveFormatRegistry}. Providers are discovered
+ * with {@link java.util.ServiceLoader}, list the implementation class in
+ * {@code META-INF/services/io.github.deepakdaneva.commons.archive.ArchiveFormatProvider}. A provider declares the mime
+ * types and magic signatures it handles and creates the streams, if several providers declare the same mime type or
+ * signature the one with the highest {@link #getPriority()} is used, so a faster implementation can replace a built-in
+ * one. Implementations must be thread safe and have a public no-argument constructor.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public interface ArchiveFormatProvider {
+
+    /** Priority of the built-in providers. */
+    int DEFAULT_PRIORITY = 0;
+
+    /**
+     * @return name of the format, used in messages only.
+     */
+    String getName();
+
+    /**
+     * @return kind of the format, {@link ArchiveKind#COMPRESSOR} providers create compressor streams which are read as
+     * compressed tar archives by {@link ArchiveUtil#getArchiveInputStream(InputStream, String)}, all other kinds create
+     * archive streams. {@link ArchiveKind#NONE} is not allowed.
+     */
+    ArchiveKind getKind();
+
+    /**
+     * @return lower or mixed case base mime types of the format without parameters.
+     */
+    Set<String> getMimeTypes();
+
+    /**
+     * @return magic bytes at the start of a stream of this format, consulted for streams which are not recognized by
+     * {@link ArchiveFormatDetector}. At most {@link ArchiveFormatDetector#PREFIX_LENGTH} bytes are compared.
+     */
+    default List<byte[]> getSignatures() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return priority of this provider, higher values win over lower ones, {@link #DEFAULT_PRIORITY} for the built-in
+     * providers which also win ties.
+     */
+    default int getPriority() {
+        return DEFAULT_PRIORITY;
+    }
+
+    /**
+     * Creates the archive stream of a provider of an archive kind.
+     *
+     * @param inputStream stream of the archive which supports mark and reset.
+     * @return archive stream reading the input stream.
+     * @throws IOException if any IOException is raised.
+     * @throws ArchiveException if any ArchiveException is raised.
+     * @throws CompressorException if any compressor exception is raised.
+     * @throws NotAnArchiveOrSupportedArchiveException if the provider can not read the stream.
+     */
+    default ArchiveInputStream createArchiveInputStream(final InputStream inputStream) throws IOException, ArchiveException, CompressorException {
+        throw ArchiveUtil.notAnArchive(null);
+    }
+
+    /**
+     * Creates the compressor stream of a {@link ArchiveKind#COMPRESSOR} provider.
+     *
+     * @param inputStream compressed stream which supports mark and reset.
+     * @return decompressing stream reading the input stream.
+     * @throws IOException if any IOException is raised.
+     * @throws CompressorException if any compressor exception is raised.
+     * @throws NotAnArchiveOrSupportedArchiveException if the provider can not read the stream.
+     */
+    default CompressorInputStream createCompressorInputStream(final InputStream inputStream) throws IOException, CompressorException {
+        throw ArchiveUtil.notAnArchive(null);
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.ServiceLoader;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Immutable registry of {@link ArchiveFormatProvider}s which {@link ArchiveUtil} dispatches to. Mime types and
+ * signatures are resolved through tables which are precomputed when the registry is built, so every lookup takes
+ * constant time. When several providers declare the same mime type or signature the provider with the highest priority
+ * wins, the built-in providers win ties. Registries are created through {@link #builder()}, the
+ * {@link #getDefault() default registry} contains the built-in providers and all providers found with
+ * {@link ServiceLoader}.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class ArchiveFormatRegistry {
+
+    private final List<ArchiveFormatProvider> providers;
+    private final MimeTypeClassifier<ArchiveFormatProvider> mimeTypes;
+    /** Signatures indexed by their first byte, in the order in which they are matched. */
+    private final Signature[][] signatures;
+
+    private ArchiveFormatRegistry(final List<ArchiveFormatProvider> providers) {
+        List<ArchiveFormatProvider> ordered = new ArrayList<>(providers);
+        // stable, so built-in providers which are added first win ties
+        ordered.sort(Comparator.comparingInt(ArchiveFormatProvider::getPriority).reversed());
+        this.providers = Collections.unmodifiableList(ordered);
+        Map<String, ArchiveFormatProvider> byMimeType = new HashMap<>();
+        List<Signature> all = new ArrayList<>();
+        for (ArchiveFormatProvider provider : ordered) {
+            for (String mimeType : provider.getMimeTypes()) {
+                byMimeType.putIfAbsent(mimeType.trim().toLowerCase(Locale.ROOT), provider);
+            }
+            for (byte[] magic : provider.getSignatures()) {
+                if (magic.length > 0 && magic.length <= ArchiveFormatDetector.PREFIX_LENGTH) {
+                    all.add(new Signature(provider, magic.clone()));
+                }
+            }
+        }
+        this.mimeTypes = new MimeTypeClassifier<>(byMimeType, null);
+        // longest signature first, then by priority
+        all.sort(Comparator.comparingInt((Signature signature) -> signature.magic.length).reversed());
+        this.signatures = new Signature[256][];
+        for (Signature signature : all) {
+            int first = signature.magic[0] & 0xFF;
+            Signature[] bucket = Objects.isNull(signatures[first]) ? new Signature[1] : Arrays.copyOf(signatures[first], signatures[first].length + 1);
+            bucket[bucket.length - 1] = signature;
+            signatures[first] = bucket;
+        }
+    }
+
+    /**
+     * @return registry of the built-in providers and the providers found by {@link ServiceLoader} with the class loader
+     * of this library, it is created on first use.
+     */
+    public static ArchiveFormatRegistry getDefault() {
+        return DefaultHolder.DEFAULT;
+    }
+
+    /**
+     * @return new builder which already contains the built-in providers.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return all providers ordered by descending priority.
+     */
+    public List<ArchiveFormatProvider> getProviders() {
+        return providers;
+    }
+
+    /**
+     * @param mimeType of a stream, parameters, surrounding whitespace and case are ignored.
+     * @return provider with the highest priority for the mime type or null if there is none.
+     */
+    public ArchiveFormatProvider forMimeType(final String mimeType) {
+        return mimeTypes.classify(mimeType);
+    }
+
+    /**
+     * @param prefix first bytes of a stream.
+     * @param length number of valid bytes in the prefix.
+     * @return provider of the longest matching signature or null if none matches.
+     */
+    public ArchiveFormatProvider forSignature(final byte[] prefix, final int length) {
+        if (length <= 0) {
+            return null;
+        }
+        Signature[] candidates = signatures[prefix[0] & 0xFF];
+        if (Objects.nonNull(candidates)) {
+            for (Signature signature : candidates) {
+                if (signature.matches(prefix, length)) {
+                    return signature.provider;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Detects the provider of a stream from the signatures declared by the providers. The stream is reset to its
+     * current position before this method returns.
+     *
+     * @param inputStream stream which supports mark and reset, recommended BufferedInputStream.
+     * @return provider of the longest matching signature or null if none matches.
+     * @throws IOException if reading the stream fails.
+     * @throws IllegalArgumentException if the stream does not support mark.
+     */
+    public ArchiveFormatProvider detect(final InputStream inputStream) throws IOException {
+        if (Objects.isNull(inputStream) || !inputStream.markSupported()) {
+            throw new IllegalArgumentException("Mark is not supported.");
+        }
+        byte[] prefix = new byte[ArchiveFormatDetector.PREFIX_LENGTH];
+        inputStream.mark(prefix.length);
+        try {
+            return forSignature(prefix, IOUtils.read(inputStream, prefix));
+        } finally {
+            inputStream.reset();
+        }
+    }
+
+    /**
+     * Magic bytes of a provider at offset zero.
+     */
+    private static final class Signature {
+        private final ArchiveFormatProvider provider;
+        private final byte[] magic;
+
+        private Signature(final ArchiveFormatProvider provider, final byte[] magic) {
+            this.provider = provider;
+            this.magic = magic;
+        }
+
+        private boolean matches(final byte[] prefix, final int length) {
+            if (length < magic.length) {
+                return false;
+            }
+            for (int i = 0; i < magic.length; i++) {
+                if (prefix[i] != magic[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Lazily created default registry, service providers are loaded on first use.
+     */
+    private static final class DefaultHolder {
+        private static final ArchiveFormatRegistry DEFAULT = builder().loadServices(ArchiveFormatRegistry.class.getClassLoader()).build();
+    }
+
+    /**
+     * Builder of {@link ArchiveFormatRegistry}.
+     */
+    public static final class Builder {
+        private final List<ArchiveFormatProvider> providers = new ArrayList<>(Arrays.asList(BuiltInFormatProvider.values()));
+
+        private Builder() {
+        }
+
+        /**
+         * @param provider to register.
+         * @return this builder.
+         * @throws IllegalArgumentException if the kind of the provider is {@link ArchiveKind#NONE}.
+         */
+        public Builder add(final ArchiveFormatProvider provider) {
+            Objects.requireNonNull(provider, "provider");
+            if (Objects.isNull(provider.getKind()) || ArchiveKind.NONE.equals(provider.getKind())) {
+                throw new IllegalArgumentException("kind of provider " + provider.getName() + " must not be NONE");
+            }
+            providers.add(provider);
+            return this;
+        }
+
+        /**
+         * Registers all providers found by {@link ServiceLoader}.
+         *
+         * @param classLoader used to find the providers, null for the system class loader.
+         * @return this builder.
+         */
+        public Builder loadServices(final ClassLoader classLoader) {
+            for (ArchiveFormatProvider provider : ServiceLoader.load(ArchiveFormatProvider.class, classLoader)) {
+                add(provider);
+            }
+            return this;
+        }
+
+        /**
+         * @return immutable registry.
+         */
+        public ArchiveFormatRegistry build() {
+            return new ArchiveFormatRegistry(providers);
+        }
+    }
+}
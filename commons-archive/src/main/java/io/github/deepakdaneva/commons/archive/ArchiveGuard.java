@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Counters of one archive or compressed stream which are checked against {@link ArchiveLimits} on every read. The
+ * limits are copied into fields so the read path only performs additions and comparisons of primitives. Not thread
+ * safe, a guard belongs to a single stream.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class ArchiveGuard {
+
+    private final LongSupplier compressedBytes;
+    private final double maxCompressionRatio;
+    private final long compressionRatioThreshold;
+    private final long maxEntryBytes;
+    private final long maxArchiveBytes;
+    private final long maxEntries;
+    private long entries;
+    private long entryBytes;
+    private long totalBytes;
+
+    /**
+     * @param limits which are enforced.
+     * @param compressedBytes number of compressed bytes consumed so far, used for the compression ratio.
+     * @param entryLimited false if the maximum entry size does not apply to the guarded stream, for example the
+     * compressed stream below a tar archive which contains many entries.
+     */
+    ArchiveGuard(final ArchiveLimits limits, final LongSupplier compressedBytes, final boolean entryLimited) {
+        this.compressedBytes = compressedBytes;
+        this.maxCompressionRatio = limits.getMaxCompressionRatio();
+        this.compressionRatioThreshold = Math.max(limits.getCompressionRatioThreshold(), 1);
+        this.maxEntryBytes = entryLimited ? limits.getMaxEntryBytes() : Long.MAX_VALUE;
+        this.maxArchiveBytes = limits.getMaxArchiveBytes();
+        this.maxEntries = limits.getMaxEntries();
+    }
+
+    /**
+     * Accounts the start of the next entry.
+     */
+    void startEntry() {
+        entryBytes = 0;
+        if (++entries > maxEntries) {
+            throw new ArchiveLimitExceededException(ArchiveLimitExceededException.Limit.ENTRIES, "Maximum number of entries of " + maxEntries + " exceeded");
+        }
+    }
+
+    /**
+     * Accounts uncompressed bytes which have been read.
+     *
+     * @param n number of bytes.
+     */
+    void count(final long n) {
+        entryBytes += n;
+        totalBytes += n;
+        if (entryBytes > maxEntryBytes) {
+            throw new ArchiveLimitExceededException(ArchiveLimitExceededException.Limit.ENTRY_BYTES, "Maximum entry size of " + maxEntryBytes + " bytes exceeded");
+        }
+        if (totalBytes > maxArchiveBytes) {
+            throw new ArchiveLimitExceededException(ArchiveLimitExceededException.Limit.ARCHIVE_BYTES, "Maximum archive size of " + maxArchiveBytes + " bytes exceeded");
+        }
+        if (totalBytes >= compressionRatioThreshold && totalBytes > maxCompressionRatio * compressedBytes.getAsLong()) {
+            throw new ArchiveLimitExceededException(ArchiveLimitExceededException.Limit.COMPRESSION_RATIO, "Maximum compression ratio of " + maxCompressionRatio + " exceeded, " + totalBytes + " bytes decoded from " + compressedBytes.getAsLong() + " bytes");
+        }
+    }
+}
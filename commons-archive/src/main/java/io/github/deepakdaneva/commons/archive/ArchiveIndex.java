@@ -0,0 +1,724 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+/**
+ * Index of the entries of an archive file which opens any entry by its name with a single seek instead of scanning the
+ * archive from its start. For zip and tar archives the offset of the content of every entry is recorded, for gzip
+ * compressed tar archives additionally seek points of the decompressor (the compressed bit position and the preceding
+ * 32 KiB of decompressed data) are recorded about every {@link #DEFAULT_SPAN} bytes, so at most one span has to be
+ * decompressed and skipped to reach an entry. An index is written to and read from a compact binary format and is
+ * checked against the size of the archive when an entry is opened. Instances are immutable and thread safe.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class ArchiveIndex {
+
+    /** Default number of decompressed bytes between two seek points of a gzip compressed archive. */
+    public static final long DEFAULT_SPAN = 1024 * 1024;
+
+    private static final byte[] MAGIC = {'C', 'A', 'I', 'X'};
+    private static final int VERSION = 1;
+
+    private final ArchiveFormat format;
+    private final long archiveSize;
+    private final List<IndexedEntry> entries;
+    private final Map<String, IndexedEntry> entriesByName;
+    private final List<SeekPoint> seekPoints;
+    private final long[] seekPositions;
+
+    private ArchiveIndex(final ArchiveFormat format, final long archiveSize, final List<IndexedEntry> entries, final List<SeekPoint> seekPoints) {
+        this.format = format;
+        this.archiveSize = archiveSize;
+        this.entries = Collections.unmodifiableList(entries);
+        this.entriesByName = new HashMap<>();
+        for (IndexedEntry entry : entries) {
+            // like extracting the archive the last entry of a name wins
+            entriesByName.put(entry.getName(), entry);
+        }
+        this.seekPoints = seekPoints;
+        this.seekPositions = seekPoints.stream().mapToLong(SeekPoint::getPosition).toArray();
+    }
+
+    /**
+     * Builds the index of a zip, tar or gzip compressed tar archive with the default span.
+     *
+     * @param archive path of the archive file.
+     * @return index of the archive.
+     * @throws IOException if reading the archive fails.
+     * @throws NotAnArchiveOrSupportedArchiveException if the file is not an archive which can be indexed.
+     */
+    public static ArchiveIndex build(final Path archive) throws IOException {
+        return build(archive, DEFAULT_SPAN);
+    }
+
+    /**
+     * Builds the index of a zip, tar or gzip compressed tar archive.
+     *
+     * @param archive path of the archive file.
+     * @param span minimum number of decompressed bytes between two seek points of a gzip compressed archive, smaller
+     * spans make opening entries faster but the index larger.
+     * @return index of the archive.
+     * @throws IOException if reading the archive fails.
+     * @throws NotAnArchiveOrSupportedArchiveException if the file is not an archive which can be indexed.
+     */
+    public static ArchiveIndex build(final Path archive, final long span) throws IOException {
+        if (span <= 0) {
+            throw new IllegalArgumentException("span must be positive");
+        }
+        long size = Files.size(archive);
+        ArchiveFormat format;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(archive))) {
+            format = ArchiveFormatDetector.detect(in);
+        }
+        if (ArchiveFormat.ZIP.equals(format)) {
+            return new ArchiveIndex(format, size, indexZip(archive), Collections.emptyList());
+        } else if (ArchiveFormat.TAR.equals(format)) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(archive))) {
+                return new ArchiveIndex(format, size, indexTar(in), Collections.emptyList());
+            }
+        } else if (ArchiveFormat.TAR_GZIP.equals(format)) {
+            List<SeekPoint> seekPoints = new ArrayList<>();
+            try (InputStream in = new IndexedGzipInputStream(Files.newInputStream(archive), span, (bitPosition, position, window) -> seekPoints.add(new SeekPoint(bitPosition, position, window)))) {
+                return new ArchiveIndex(format, size, indexTar(in), seekPoints);
+            }
+        }
+        throw new NotAnArchiveOrSupportedArchiveException("Not an archive or an archive which can not be indexed.");
+    }
+
+    private static List<IndexedEntry> indexZip(final Path archive) throws IOException {
+        List<IndexedEntry> entries = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            Enumeration<ZipArchiveEntry> zipEntries = zipFile.getEntriesInPhysicalOrder();
+            while (zipEntries.hasMoreElements()) {
+                ZipArchiveEntry entry = zipEntries.nextElement();
+                // resolves the offset of the data behind the local file header
+                zipFile.getRawInputStream(entry).close();
+                int flags = (entry.isDirectory() ? IndexedEntry.DIRECTORY : 0) | (entry.getGeneralPurposeBit().usesEncryption() ? IndexedEntry.ENCRYPTED : 0);
+                entries.add(new IndexedEntry(entry.getName(), flags, entry.getMethod(), entry.getSize(), entry.getCompressedSize(), entry.getDataOffset()));
+            }
+        }
+        return entries;
+    }
+
+    private static List<IndexedEntry> indexTar(final InputStream in) throws IOException {
+        List<IndexedEntry> entries = new ArrayList<>();
+        // tar reads record by record, the count is the offset of the content once the headers have been read
+        ByteCountingInputStream counting = new ByteCountingInputStream(in);
+        TarArchiveInputStream tar = new TarArchiveInputStream(counting);
+        TarArchiveEntry entry;
+        while (Objects.nonNull(entry = tar.getNextTarEntry())) {
+            int flags = (entry.isDirectory() ? IndexedEntry.DIRECTORY : 0) | (entry.isSparse() ? IndexedEntry.SPARSE : 0);
+            entries.add(new IndexedEntry(entry.getName(), flags, ZipEntry.STORED, entry.getSize(), entry.getSize(), counting.getCount()));
+        }
+        return entries;
+    }
+
+    /**
+     * Reads an index written by {@link #write(Path)}.
+     *
+     * @param path of the index file.
+     * @return index.
+     * @throws IOException if reading fails or the file is not an archive index.
+     */
+    public static ArchiveIndex read(final Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads an index written by {@link #write(OutputStream)}, the stream is not closed.
+     *
+     * @param inputStream stream of the index.
+     * @return index.
+     * @throws IOException if reading fails or the stream is not an archive index.
+     */
+    public static ArchiveIndex read(final InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(MAGIC, magic)) {
+            throw new IOException("Not an archive index");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported archive index version " + version);
+        }
+        ArchiveFormat format;
+        try {
+            format = ArchiveFormat.valueOf(new String(readBytes(in), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt archive index", e);
+        }
+        long archiveSize = readVarLong(in);
+        int entryCount = readCount(in);
+        List<IndexedEntry> entries = new ArrayList<>(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            String name = new String(readBytes(in), StandardCharsets.UTF_8);
+            entries.add(new IndexedEntry(name, (int) readVarLong(in), (int) readVarLong(in), readVarLong(in), readVarLong(in), readVarLong(in)));
+        }
+        int seekPointCount = readCount(in);
+        List<SeekPoint> seekPoints = new ArrayList<>(seekPointCount);
+        for (int i = 0; i < seekPointCount; i++) {
+            long bitPosition = readVarLong(in);
+            long position = readVarLong(in);
+            int windowLength = readCount(in) - 1;
+            seekPoints.add(new SeekPoint(bitPosition, position, windowLength < 0 ? null : inflate(readBytes(in), windowLength)));
+        }
+        return new ArchiveIndex(format, archiveSize, entries, seekPoints);
+    }
+
+    /**
+     * Writes the index to a file.
+     *
+     * @param path of the index file, an existing file is replaced.
+     * @throws IOException if writing fails.
+     */
+    public void write(final Path path) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            write(out);
+        }
+    }
+
+    /**
+     * Writes the index to a stream, the stream is flushed but not closed.
+     *
+     * @param outputStream stream to write the index to.
+     * @throws IOException if writing fails.
+     */
+    public void write(final OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        writeBytes(out, format.name().getBytes(StandardCharsets.UTF_8));
+        writeVarLong(out, archiveSize);
+        writeVarLong(out, entries.size());
+        for (IndexedEntry entry : entries) {
+            writeBytes(out, entry.getName().getBytes(StandardCharsets.UTF_8));
+            writeVarLong(out, entry.getFlags());
+            writeVarLong(out, entry.getMethod());
+            writeVarLong(out, entry.getSize());
+            writeVarLong(out, entry.getCompressedSize());
+            writeVarLong(out, entry.getOffset());
+        }
+        writeVarLong(out, seekPoints.size());
+        for (SeekPoint seekPoint : seekPoints) {
+            writeVarLong(out, seekPoint.getBitPosition());
+            writeVarLong(out, seekPoint.getPosition());
+            byte[] window = seekPoint.getWindow();
+            if (Objects.isNull(window)) {
+                writeVarLong(out, 0);
+            } else {
+                writeVarLong(out, window.length + 1L);
+                writeBytes(out, deflate(window));
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * @return format of the indexed archive.
+     */
+    public ArchiveFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return size in bytes of the indexed archive file.
+     */
+    public long getArchiveSize() {
+        return archiveSize;
+    }
+
+    /**
+     * @return unmodifiable list of all entries in the order they are stored in the archive.
+     */
+    public List<IndexedEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @param name of the entry.
+     * @return entry of the name, the last one if the archive contains the name more than once, or null.
+     */
+    public IndexedEntry getEntry(final String name) {
+        return entriesByName.get(name);
+    }
+
+    /**
+     * Opens the content of an entry directly at its recorded offset.
+     *
+     * @param archive path of the indexed archive file.
+     * @param name of the entry.
+     * @return content of the entry which must be closed by the caller.
+     * @throws IOException if reading fails or the index does not match the archive.
+     * @throws NoSuchFileException if the archive does not contain the name.
+     * @throws PasswordProtectedArchiveException if the entry is encrypted.
+     */
+    public InputStream open(final Path archive, final String name) throws IOException {
+        IndexedEntry entry = getEntry(name);
+        if (Objects.isNull(entry)) {
+            throw new NoSuchFileException(name);
+        }
+        return open(archive, entry);
+    }
+
+    /**
+     * Opens the content of an entry directly at its recorded offset.
+     *
+     * @param archive path of the indexed archive file.
+     * @param entry of this index.
+     * @return content of the entry which must be closed by the caller.
+     * @throws IOException if reading fails or the index does not match the archive.
+     * @throws PasswordProtectedArchiveException if the entry is encrypted.
+     */
+    public InputStream open(final Path archive, final IndexedEntry entry) throws IOException {
+        checkArchive(archive);
+        checkEntry(entry);
+        if (ArchiveFormat.TAR_GZIP.equals(format)) {
+            return openCompressed(archive, entry);
+        } else if (ArchiveFormat.TAR.equals(format) || ZipEntry.STORED == entry.getMethod()) {
+            return slice(archive, entry.getOffset(), entry.getCompressedSize());
+        } else if (ZipEntry.DEFLATED == entry.getMethod()) {
+            return new RawInflaterInputStream(slice(archive, entry.getOffset(), entry.getCompressedSize()));
+        }
+        // other zip methods are left to commons-compress, only the central directory is read again
+        ZipFile zipFile = new ZipFile(archive);
+        try {
+            ZipArchiveEntry zipEntry = zipFile.getEntry(entry.getName());
+            if (Objects.isNull(zipEntry)) {
+                throw new IOException("Index does not match the archive " + archive);
+            }
+            return new ZipFileEntryInputStream(zipFile.getInputStream(zipEntry), zipFile);
+        } catch (IOException | RuntimeException e) {
+            zipFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Extracts an entry to a file, stored entries of zip and tar archives are transferred directly from the region of
+     * the archive file to the target file without passing through the Java heap, deflated zip entries are inflated
+     * between direct buffers.
+     *
+     * @param archive path of the indexed archive file.
+     * @param name of the entry.
+     * @param target file which is created or replaced.
+     * @return number of bytes written.
+     * @throws IOException if reading or writing fails or the index does not match the archive.
+     * @throws NoSuchFileException if the archive does not contain the name.
+     * @throws PasswordProtectedArchiveException if the entry is encrypted.
+     */
+    public long extractTo(final Path archive, final String name, final Path target) throws IOException {
+        IndexedEntry entry = getEntry(name);
+        if (Objects.isNull(entry)) {
+            throw new NoSuchFileException(name);
+        }
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return extractTo(archive, entry, out);
+        }
+    }
+
+    /**
+     * Extracts an entry to a channel, see {@link #extractTo(Path, String, Path)}.
+     *
+     * @param archive path of the indexed archive file.
+     * @param entry of this index.
+     * @param target channel the content is written to, it is not closed.
+     * @return number of bytes written.
+     * @throws IOException if reading or writing fails or the index does not match the archive.
+     * @throws PasswordProtectedArchiveException if the entry is encrypted.
+     */
+    public long extractTo(final Path archive, final IndexedEntry entry, final WritableByteChannel target) throws IOException {
+        checkArchive(archive);
+        try (FileChannel source = FileChannel.open(archive, StandardOpenOption.READ)) {
+            return extract(archive, source, entry, target, new TransferBuffers());
+        }
+    }
+
+    /**
+     * Extracts all entries below a directory, the archive file is opened once and stored entries are transferred
+     * without passing through the Java heap, see {@link #extractTo(Path, String, Path)}. Gzip compressed tar archives
+     * are decompressed once from the start instead of resuming at a seek point for every entry.
+     *
+     * @param archive path of the indexed archive file.
+     * @param directory target directory which is created if needed, existing files are replaced, directory entries
+     * naming the directory itself such as {@code ./} are skipped.
+     * @return number of bytes written.
+     * @throws IOException if reading or writing fails, the index does not match the archive or an entry would be
+     * extracted outside of the directory.
+     * @throws PasswordProtectedArchiveException if an entry is encrypted.
+     */
+    public long extractAll(final Path archive, final Path directory) throws IOException {
+        checkArchive(archive);
+        Path root = directory.toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        TransferBuffers buffers = new TransferBuffers();
+        long total = 0;
+        try (FileChannel source = FileChannel.open(archive, StandardOpenOption.READ); ByteCountingInputStream tar = ArchiveFormat.TAR_GZIP.equals(format) ? new ByteCountingInputStream(new IndexedGzipInputStream(new BufferedInputStream(Files.newInputStream(archive)), Long.MAX_VALUE, null)) : null) {
+            for (IndexedEntry entry : entries) {
+                Path target = root.resolve(entry.getName()).normalize();
+                if (entry.isDirectory() && target.equals(root)) {
+                    // "./" written by tar -C dir .
+                    continue;
+                }
+                if (!target.startsWith(root) || target.equals(root)) {
+                    throw new IOException("Entry is outside of the target directory: " + entry.getName());
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(target);
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    total += Objects.isNull(tar) ? extract(archive, source, entry, out, buffers) : extractNext(tar, entry, out);
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Extracts the next entry of a decompressed tar stream which is read forward only, entries are indexed in the
+     * order of their offsets.
+     */
+    private long extractNext(final ByteCountingInputStream tar, final IndexedEntry entry, final WritableByteChannel target) throws IOException {
+        checkEntry(entry);
+        if (entry.getOffset() < tar.getCount()) {
+            throw new IOException("Index does not match the archive, entry overlaps the previous one: " + entry.getName());
+        }
+        IOUtils.skipFully(tar, entry.getOffset() - tar.getCount());
+        long written = ArchiveUtil.extractTo(new BoundedInputStream(tar, entry.getSize()), target);
+        if (written != entry.getSize()) {
+            throw new EOFException("Unexpected end of the archive");
+        }
+        return written;
+    }
+
+    private long extract(final Path archive, final FileChannel source, final IndexedEntry entry, final WritableByteChannel target, final TransferBuffers buffers) throws IOException {
+        checkEntry(entry);
+        if (ArchiveFormat.TAR.equals(format) || (ArchiveFormat.ZIP.equals(format) && ZipEntry.STORED == entry.getMethod())) {
+            return transfer(source, entry.getOffset(), entry.getCompressedSize(), target);
+        } else if (ArchiveFormat.ZIP.equals(format) && ZipEntry.DEFLATED == entry.getMethod()) {
+            return inflate(source, entry.getOffset(), entry.getCompressedSize(), target, buffers);
+        }
+        try (InputStream in = open(archive, entry)) {
+            return ArchiveUtil.extractTo(in, target);
+        }
+    }
+
+    /**
+     * Transfers a region of the archive file, the operating system copies it directly where supported.
+     */
+    private static long transfer(final FileChannel source, final long offset, final long length, final WritableByteChannel target) throws IOException {
+        long transferred = 0;
+        while (transferred < length) {
+            long n = source.transferTo(offset + transferred, length - transferred, target);
+            if (n <= 0 && offset + transferred >= source.size()) {
+                throw new EOFException("Unexpected end of the archive");
+            }
+            transferred += n;
+        }
+        return transferred;
+    }
+
+    /**
+     * Inflates raw deflate data of the archive file between two direct buffers.
+     */
+    private static long inflate(final FileChannel source, final long offset, final long length, final WritableByteChannel target, final TransferBuffers buffers) throws IOException {
+        ByteBuffer input = buffers.input;
+        ByteBuffer output = buffers.output;
+        Inflater inflater = new Inflater(true);
+        try {
+            long position = offset;
+            long end = offset + length;
+            long written = 0;
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    if (position >= end) {
+                        throw new EOFException("Unexpected end of deflate data");
+                    }
+                    input.clear();
+                    input.limit((int) Math.min(input.capacity(), end - position));
+                    int n = source.read(input, position);
+                    if (n < 0) {
+                        throw new EOFException("Unexpected end of the archive");
+                    }
+                    position += n;
+                    input.flip();
+                    inflater.setInput(input);
+                }
+                output.clear();
+                int n = inflater.inflate(output);
+                if (n == 0 && inflater.needsDictionary()) {
+                    throw new IOException("Preset dictionaries are not supported");
+                }
+                output.flip();
+                while (output.hasRemaining()) {
+                    target.write(output);
+                }
+                written += n;
+            }
+            return written;
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid deflate data", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private void checkArchive(final Path archive) throws IOException {
+        if (Files.size(archive) != archiveSize) {
+            throw new IOException("Index does not match the archive " + archive);
+        }
+    }
+
+    private void checkEntry(final IndexedEntry entry) throws IOException {
+        if (entry.isEncrypted()) {
+            throw ArchiveUtil.passwordProtected(format, null);
+        }
+        if (entry.isSparse()) {
+            throw new IOException("Sparse tar entries can not be opened from an index: " + entry.getName());
+        }
+    }
+
+    private InputStream openCompressed(final Path archive, final IndexedEntry entry) throws IOException {
+        int index = Arrays.binarySearch(seekPositions, entry.getOffset());
+        SeekPoint seekPoint = seekPoints.get(index < 0 ? -index - 2 : index);
+        FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ);
+        InputStream in = null;
+        try {
+            channel.position(seekPoint.getBitPosition() >>> 3);
+            in = new IndexedGzipInputStream(Channels.newInputStream(channel), seekPoint.getBitPosition(), seekPoint.getPosition(), seekPoint.getWindow());
+            IOUtils.skipFully(in, entry.getOffset() - seekPoint.getPosition());
+            return new BoundedInputStream(in, entry.getSize());
+        } catch (IOException | RuntimeException e) {
+            if (Objects.nonNull(in)) {
+                in.close();
+            }
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static InputStream slice(final Path archive, final long offset, final long length) throws IOException {
+        FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ);
+        try {
+            channel.position(offset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new BoundedInputStream(Channels.newInputStream(channel), length);
+    }
+
+    private static byte[] deflate(final byte[] window) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(window);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(window.length / 2);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(final byte[] compressed, final int length) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] window = new byte[length];
+            int n = 0;
+            while (n < length && !inflater.finished()) {
+                int inflated = inflater.inflate(window, n, length - n);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += inflated;
+            }
+            if (n != length) {
+                throw new IOException("Corrupt archive index");
+            }
+            return window;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt archive index", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeBytes(final DataOutputStream out, final byte[] bytes) throws IOException {
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(final DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readCount(in)];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeVarLong(final DataOutputStream out, final long value) throws IOException {
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) (v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(final DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt archive index");
+    }
+
+    private static int readCount(final DataInputStream in) throws IOException {
+        long count = readVarLong(in);
+        if (count < 0 || count > Integer.MAX_VALUE - 8) {
+            throw new IOException("Corrupt archive index");
+        }
+        return (int) count;
+    }
+
+    /**
+     * Direct buffers reused for all entries of one extraction.
+     */
+    private static final class TransferBuffers {
+        private final ByteBuffer input = ByteBuffer.allocateDirect(BufferPool.DEFAULT_CHUNK_SIZE);
+        private final ByteBuffer output = ByteBuffer.allocateDirect(BufferPool.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Position at which decompression of a gzip compressed archive can be resumed.
+     */
+    private static final class SeekPoint {
+        private final long bitPosition;
+        private final long position;
+        private final byte[] window;
+
+        private SeekPoint(final long bitPosition, final long position, final byte[] window) {
+            this.bitPosition = bitPosition;
+            this.position = position;
+            this.window = window;
+        }
+
+        long getBitPosition() {
+            return bitPosition;
+        }
+
+        long getPosition() {
+            return position;
+        }
+
+        /**
+         * @return preceding decompressed bytes, null at the start of a gzip member.
+         */
+        byte[] getWindow() {
+            return window;
+        }
+    }
+
+    /**
+     * Inflates the raw deflate data of a zip entry and releases the inflater when closed.
+     */
+    private static final class RawInflaterInputStream extends InflaterInputStream {
+
+        private RawInflaterInputStream(final InputStream in) {
+            super(in, new Inflater(true), 8192);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                inf.end();
+            }
+        }
+    }
+
+    /**
+     * Entry content of a zip file which closes the zip file with it.
+     */
+    private static final class ZipFileEntryInputStream extends FilterInputStream {
+        private final ZipFile zipFile;
+
+        private ZipFileEntryInputStream(final InputStream in, final ZipFile zipFile) {
+            super(in);
+            this.zipFile = zipFile;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                zipFile.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+/**
+ * Kind of archive a mime type stands for, see {@link ArchiveUtil#getArchiveKind(String)}.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public enum ArchiveKind {
+    /** Archive mime type other than 7z and rar, e.g. {@code application/zip}. */
+    ARCHIVE,
+    /** 7z archive mime type. */
+    SEVENZ,
+    /** RAR archive mime type. */
+    RAR,
+    /** Compressor mime type, e.g. {@code application/gzip}. */
+    COMPRESSOR,
+    /** Not an archive or compressor mime type. */
+    NONE;
+
+    /**
+     * @return true for {@link #ARCHIVE}, {@link #SEVENZ} and {@link #RAR}.
+     */
+    public boolean isArchive() {
+        return this == ARCHIVE || this == SEVENZ || this == RAR;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+/**
+ * Raised while reading an archive or compressed stream as soon as one of the configured {@link ArchiveLimits} is
+ * exceeded.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public class ArchiveLimitExceededException extends RuntimeException {
+
+    /**
+     * Limits which can be exceeded.
+     */
+    public enum Limit {
+        /** {@link ArchiveLimits#getMaxCompressionRatio()} */
+        COMPRESSION_RATIO,
+        /** {@link ArchiveLimits#getMaxEntryBytes()} */
+        ENTRY_BYTES,
+        /** {@link ArchiveLimits#getMaxArchiveBytes()} */
+        ARCHIVE_BYTES,
+        /** {@link ArchiveLimits#getMaxEntries()} */
+        ENTRIES,
+        /** {@link ArchiveLimits#getMaxDepth()} */
+        DEPTH
+    }
+
+    private final Limit limit;
+
+    /**
+     * Constructor with the exceeded limit and exception message as a argument
+     * 
+     * @param limit which has been exceeded
+     * @param message message of the exception
+     */
+    public ArchiveLimitExceededException(Limit limit, String message) {
+        super(message);
+        this.limit = limit;
+    }
+
+    /**
+     * @return limit which has been exceeded.
+     */
+    public Limit getLimit() {
+        return limit;
+    }
+}
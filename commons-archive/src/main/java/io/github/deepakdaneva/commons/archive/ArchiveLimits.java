@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+/**
+ * Immutable resource limits enforced while archives and compressed streams are read, see
+ * {@link ArchiveUtil#getArchiveInputStream(java.io.InputStream, ArchiveFormat, ArchiveLimits)}. Limits are checked
+ * inline on every read so a decompression bomb is stopped as soon as a limit is crossed, a violation raises
+ * {@link ArchiveLimitExceededException}. Instances are created through {@link #builder()}, all limits are disabled by
+ * default.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class ArchiveLimits {
+
+    /** Default number of uncompressed bytes read before the compression ratio is enforced (1 MiB). */
+    public static final long DEFAULT_COMPRESSION_RATIO_THRESHOLD = 1024L * 1024;
+    /** Limits which never fail. */
+    public static final ArchiveLimits UNLIMITED = builder().build();
+
+    private final double maxCompressionRatio;
+    private final long compressionRatioThreshold;
+    private final long maxEntryBytes;
+    private final long maxArchiveBytes;
+    private final long maxEntries;
+    private final int maxDepth;
+
+    private ArchiveLimits(final Builder builder) {
+        this.maxCompressionRatio = builder.maxCompressionRatio;
+        this.compressionRatioThreshold = builder.compressionRatioThreshold;
+        this.maxEntryBytes = builder.maxEntryBytes;
+        this.maxArchiveBytes = builder.maxArchiveBytes;
+        this.maxEntries = builder.maxEntries;
+        this.maxDepth = builder.maxDepth;
+    }
+
+    /**
+     * @return new builder initialized with the default values.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return maximum ratio of uncompressed bytes to compressed bytes read.
+     */
+    public double getMaxCompressionRatio() {
+        return maxCompressionRatio;
+    }
+
+    /**
+     * @return number of uncompressed bytes read before the compression ratio is enforced.
+     */
+    public long getCompressionRatioThreshold() {
+        return compressionRatioThreshold;
+    }
+
+    /**
+     * @return maximum number of uncompressed bytes of a single entry.
+     */
+    public long getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    /**
+     * @return maximum number of uncompressed bytes of all entries of an archive together.
+     */
+    public long getMaxArchiveBytes() {
+        return maxArchiveBytes;
+    }
+
+    /**
+     * @return maximum number of entries of an archive.
+     */
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return maximum nesting depth of archives, only enforced by {@link ArchiveWalker}.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Builder of {@link ArchiveLimits}.
+     */
+    public static final class Builder {
+        private double maxCompressionRatio = Double.POSITIVE_INFINITY;
+        private long compressionRatioThreshold = DEFAULT_COMPRESSION_RATIO_THRESHOLD;
+        private long maxEntryBytes = Long.MAX_VALUE;
+        private long maxArchiveBytes = Long.MAX_VALUE;
+        private long maxEntries = Long.MAX_VALUE;
+        private int maxDepth = Integer.MAX_VALUE;
+
+        private Builder() {
+        }
+
+        /**
+         * @param maxCompressionRatio maximum ratio of uncompressed bytes to compressed bytes, for example {@code 100}.
+         * @return this builder.
+         */
+        public Builder maxCompressionRatio(final double maxCompressionRatio) {
+            if (!(maxCompressionRatio >= 1)) {
+                throw new IllegalArgumentException("maxCompressionRatio must be at least 1");
+            }
+            this.maxCompressionRatio = maxCompressionRatio;
+            return this;
+        }
+
+        /**
+         * @param compressionRatioThreshold number of uncompressed bytes read before the compression ratio is enforced,
+         * small inputs such as a file of zeros legitimately have a high ratio. Default is
+         * {@link #DEFAULT_COMPRESSION_RATIO_THRESHOLD}.
+         * @return this builder.
+         */
+        public Builder compressionRatioThreshold(final long compressionRatioThreshold) {
+            if (compressionRatioThreshold < 0) {
+                throw new IllegalArgumentException("compressionRatioThreshold must not be negative");
+            }
+            this.compressionRatioThreshold = compressionRatioThreshold;
+            return this;
+        }
+
+        /**
+         * @param maxEntryBytes maximum number of uncompressed bytes of a single entry.
+         * @return this builder.
+         */
+        public Builder maxEntryBytes(final long maxEntryBytes) {
+            if (maxEntryBytes < 0) {
+                throw new IllegalArgumentException("maxEntryBytes must not be negative");
+            }
+            this.maxEntryBytes = maxEntryBytes;
+            return this;
+        }
+
+        /**
+         * @param maxArchiveBytes maximum number of uncompressed bytes of all entries of an archive together.
+         * @return this builder.
+         */
+        public Builder maxArchiveBytes(final long maxArchiveBytes) {
+            if (maxArchiveBytes < 0) {
+                throw new IllegalArgumentException("maxArchiveBytes must not be negative");
+            }
+            this.maxArchiveBytes = maxArchiveBytes;
+            return this;
+        }
+
+        /**
+         * @param maxEntries maximum number of entries of an archive.
+         * @return this builder.
+         */
+        public Builder maxEntries(final long maxEntries) {
+            if (maxEntries < 0) {
+                throw new IllegalArgumentException("maxEntries must not be negative");
+            }
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * @param maxDepth maximum nesting depth of archives, {@code 0} rejects any nested archive.
+         * @return this builder.
+         */
+        public Builder maxDepth(final int maxDepth) {
+            if (maxDepth < 0) {
+                throw new IllegalArgumentException("maxDepth must not be negative");
+            }
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        /**
+         * @return immutable limits.
+         */
+        public ArchiveLimits build() {
+            return new ArchiveLimits(this);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+/**
+ * Receives metrics of archive processing, register an implementation with {@link ArchiveUtil#setMetrics(ArchiveMetrics)}.
+ * All methods have empty default implementations so implementations only override what they need. Streams are only
+ * instrumented while an implementation other than {@link #NOOP} is registered, with {@link #NOOP} no stream is wrapped
+ * and no time is measured.
+ * <p>
+ * Stream metrics are aggregated by the stream itself and reported once when it is closed, so the read path only adds
+ * to fields and implementations are called at most a few times per archive. Implementations must be thread safe.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public interface ArchiveMetrics {
+
+    /** Metrics which are discarded, this is the default. */
+    ArchiveMetrics NOOP = new ArchiveMetrics() {
+    };
+
+    /**
+     * Called when an archive or compressor stream opened through {@link ArchiveUtil} is closed.
+     *
+     * @param format in which the stream has been opened, {@link ArchiveFormat#UNKNOWN} if it is not known.
+     * @param bytesIn number of compressed bytes consumed from the source.
+     * @param bytesOut number of uncompressed bytes read by the caller.
+     * @param entries number of entries read, {@code 0} for compressor streams.
+     * @param decompressionNanos time spent inside the stream reading and decoding.
+     * @param consumerNanos time between opening and closing the stream spent outside of it, by the caller.
+     */
+    default void archiveRead(ArchiveFormat format, long bytesIn, long bytesOut, long entries, long decompressionNanos, long consumerNanos) {
+    }
+
+    /**
+     * Called when the buffer of an entry or of a random access archive is released.
+     *
+     * @param length number of bytes which have been buffered.
+     * @param spilled true if the buffer has been spilled to a temporary file.
+     */
+    default void bufferReleased(long length, boolean spilled) {
+    }
+
+    /**
+     * Called when the format of a stream could not be detected or is not a supported archive.
+     */
+    default void detectionFailed() {
+    }
+
+    /**
+     * Called when a password protected archive or entry is found.
+     *
+     * @param format of the archive.
+     */
+    default void passwordProtected(ArchiveFormat format) {
+    }
+}
@@ -0,0 +1,438 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.ZipEntry;
+import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZMethod;
+import org.apache.commons.compress.archivers.sevenz.SevenZMethodConfiguration;
+import org.apache.commons.compress.archivers.sevenz.SevenZOutputFile;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.function.IOSupplier;
+import org.apache.commons.io.input.CloseShieldInputStream;
+
+/**
+ * Archive which is being written, created by {@link ArchiveWriter}. Entries are added one after the other and are
+ * stored in that order, their content is streamed into the archive unless it has to be buffered: tar entries of
+ * unknown size and zip entries which are compressed in parallel are buffered in pooled memory up to the spill threshold
+ * and in a temporary file above it. Closing the archive writes the remaining entries and the end of the archive and
+ * closes the target. Instances are not thread safe.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class ArchiveOutput implements Closeable {
+
+    private final Sink sink;
+    private boolean closed;
+
+    private ArchiveOutput(final Sink sink) {
+        this.sink = sink;
+    }
+
+    static ArchiveOutput create(final ArchiveWriter writer, final OutputStream outputStream, final Path path) throws IOException {
+        ArchiveFormat format = writer.getFormat();
+        if (ArchiveFormat.SEVEN_Z.equals(format)) {
+            return new ArchiveOutput(new SevenZSink(writer, outputStream, path));
+        }
+        if (ArchiveFormat.ZIP.equals(format)) {
+            ZipArchiveOutputStream zos = Objects.nonNull(path) ? new ZipArchiveOutputStream(path) : new ZipArchiveOutputStream(outputStream);
+            zos.setLevel(writer.getCompressionLevel());
+            return new ArchiveOutput(writer.getParallelism() > 1 ? new ParallelZipSink(writer, zos) : new StreamSink(writer, zos));
+        }
+        OutputStream out = Objects.nonNull(path) ? Files.newOutputStream(path) : outputStream;
+        try {
+            if (format.isCompressedTar()) {
+                out = writer.openCompressor(out);
+            }
+            TarArchiveOutputStream tar = new TarArchiveOutputStream(new BufferedOutputStream(out));
+            tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+            return new ArchiveOutput(new StreamSink(writer, tar));
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(out);
+            throw e;
+        }
+    }
+
+    /**
+     * Adds a directory entry.
+     *
+     * @param name of the directory, a trailing {@code /} is added if missing.
+     * @throws IOException if writing fails.
+     */
+    public void addDirectory(final String name) throws IOException {
+        checkOpen();
+        sink.add(name.endsWith("/") ? name : name + "/", 0, System.currentTimeMillis(), null, true);
+    }
+
+    /**
+     * Adds a file entry.
+     *
+     * @param name of the entry.
+     * @param content of the entry.
+     * @throws IOException if writing fails.
+     */
+    public void addEntry(final String name, final byte[] content) throws IOException {
+        checkOpen();
+        sink.add(name, content.length, System.currentTimeMillis(), () -> new ByteArrayInputStream(content), true);
+    }
+
+    /**
+     * Adds a file entry with the content and modification time of a file.
+     *
+     * @param name of the entry.
+     * @param file whose content is added, it is read when the entry is written.
+     * @throws IOException if the file can not be read or writing fails.
+     */
+    public void addEntry(final String name, final Path file) throws IOException {
+        checkOpen();
+        sink.add(name, Files.size(file), Files.getLastModifiedTime(file).toMillis(), () -> Files.newInputStream(file), true);
+    }
+
+    /**
+     * Adds a file entry of known size whose content is streamed into the archive.
+     *
+     * @param name of the entry.
+     * @param size exact number of bytes of the content.
+     * @param content which is read until its end, it is not closed.
+     * @throws IOException if reading the content or writing fails or the content does not match the size.
+     */
+    public void addEntry(final String name, final long size, final InputStream content) throws IOException {
+        checkOpen();
+        if (size < 0) {
+            throw new IllegalArgumentException("size must not be negative");
+        }
+        sink.add(name, size, System.currentTimeMillis(), () -> CloseShieldInputStream.wrap(content), false);
+    }
+
+    /**
+     * Adds a file entry of unknown size whose content is streamed into the archive, formats which need the size up
+     * front (tar) buffer the content first.
+     *
+     * @param name of the entry.
+     * @param content which is read until its end, it is not closed.
+     * @throws IOException if reading the content or writing fails.
+     */
+    public void addEntry(final String name, final InputStream content) throws IOException {
+        checkOpen();
+        sink.add(name, ArchiveEntryInfo.SIZE_UNKNOWN, System.currentTimeMillis(), () -> CloseShieldInputStream.wrap(content), false);
+    }
+
+    /**
+     * Writes the remaining entries and the end of the archive and closes the target.
+     *
+     * @throws IOException if writing fails.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            sink.close();
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Archive closed");
+        }
+    }
+
+    private static SpillBuffer buffer(final ArchiveWriter writer, final InputStream in) throws IOException {
+        SpillBuffer buffer = new SpillBuffer(writer.getSpillThreshold(), writer.getTempDirectory(), BufferPool.DEFAULT);
+        try {
+            buffer.transferFrom(in);
+            return buffer;
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(buffer);
+            throw e;
+        }
+    }
+
+    /**
+     * Format specific writing of the entries.
+     */
+    private interface Sink extends Closeable {
+
+        /**
+         * @param name of the entry.
+         * @param size of the content or {@link ArchiveEntryInfo#SIZE_UNKNOWN}.
+         * @param lastModified modification time in milliseconds.
+         * @param content opener of the content, null for directories.
+         * @param reopenable true if the content can still be opened after the entry has been added.
+         */
+        void add(String name, long size, long lastModified, IOSupplier<InputStream> content, boolean reopenable) throws IOException;
+    }
+
+    /**
+     * Writes the entries sequentially to a zip or tar archive stream.
+     */
+    private static final class StreamSink implements Sink {
+        private final ArchiveWriter writer;
+        private final ArchiveOutputStream out;
+
+        private StreamSink(final ArchiveWriter writer, final ArchiveOutputStream out) {
+            this.writer = writer;
+            this.out = out;
+        }
+
+        @Override
+        public void add(final String name, final long size, final long lastModified, final IOSupplier<InputStream> content, final boolean reopenable) throws IOException {
+            if (out instanceof TarArchiveOutputStream && Objects.nonNull(content) && size < 0) {
+                // tar records the size in front of the content
+                SpillBuffer buffer;
+                try (InputStream in = content.get()) {
+                    buffer = buffer(writer, in);
+                }
+                try (SpillableEntryInputStream buffered = new SpillableEntryInputStream(buffer)) {
+                    add(name, buffer.length(), lastModified, () -> CloseShieldInputStream.wrap(buffered), true);
+                }
+                return;
+            }
+            if (out instanceof TarArchiveOutputStream) {
+                TarArchiveEntry entry = new TarArchiveEntry(name);
+                entry.setSize(Objects.isNull(content) ? 0 : size);
+                entry.setModTime(lastModified);
+                out.putArchiveEntry(entry);
+            } else {
+                ZipArchiveEntry entry = new ZipArchiveEntry(name);
+                if (size >= 0) {
+                    entry.setSize(size);
+                }
+                entry.setTime(lastModified);
+                out.putArchiveEntry(entry);
+            }
+            if (Objects.nonNull(content)) {
+                try (InputStream in = content.get()) {
+                    IOUtils.copyLarge(in, out);
+                }
+            }
+            out.closeArchiveEntry();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.finish();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Deflates the entries of a zip archive concurrently and writes them in order as raw entries.
+     */
+    private static final class ParallelZipSink implements Sink {
+        private final ArchiveWriter writer;
+        private final ZipArchiveOutputStream out;
+        private final ArrayDeque<CompletableFuture<DeflatedEntry>> pending = new ArrayDeque<>();
+
+        private ParallelZipSink(final ArchiveWriter writer, final ZipArchiveOutputStream out) {
+            this.writer = writer;
+            this.out = out;
+        }
+
+        @Override
+        public void add(final String name, final long size, final long lastModified, final IOSupplier<InputStream> content, final boolean reopenable) throws IOException {
+            ZipArchiveEntry entry = new ZipArchiveEntry(name);
+            entry.setTime(lastModified);
+            if (Objects.isNull(content)) {
+                pending.add(CompletableFuture.completedFuture(new DeflatedEntry(entry, null)));
+            } else {
+                IOSupplier<InputStream> source = content;
+                if (!reopenable) {
+                    // the caller owns the stream, it has to be consumed before returning
+                    SpillBuffer raw;
+                    try (InputStream in = content.get()) {
+                        raw = buffer(writer, in);
+                    }
+                    source = () -> new SpillableEntryInputStream(raw);
+                }
+                pending.add(submit(entry, source));
+            }
+            while (pending.size() > writer.getParallelism()) {
+                writeNext();
+            }
+        }
+
+        private CompletableFuture<DeflatedEntry> submit(final ZipArchiveEntry entry, final IOSupplier<InputStream> source) {
+            CompletableFuture<DeflatedEntry> future = new CompletableFuture<>();
+            writer.getExecutor().execute(() -> {
+                try {
+                    future.complete(deflate(entry, source));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+            return future;
+        }
+
+        private DeflatedEntry deflate(final ZipArchiveEntry entry, final IOSupplier<InputStream> source) throws IOException {
+            CRC32 crc = new CRC32();
+            Deflater deflater = new Deflater(writer.getCompressionLevel(), true);
+            SpillBuffer compressed = new SpillBuffer(writer.getSpillThreshold(), writer.getTempDirectory(), BufferPool.DEFAULT);
+            try (ByteCountingInputStream in = new ByteCountingInputStream(new CheckedInputStream(source.get(), crc))) {
+                compressed.transferFrom(new DeflaterInputStream(in, deflater, 64 * 1024));
+                entry.setMethod(ZipEntry.DEFLATED);
+                entry.setCrc(crc.getValue());
+                entry.setSize(in.getCount());
+                entry.setCompressedSize(compressed.length());
+                return new DeflatedEntry(entry, compressed);
+            } catch (IOException | RuntimeException e) {
+                IOUtils.closeQuietly(compressed);
+                throw e;
+            } finally {
+                deflater.end();
+            }
+        }
+
+        private void writeNext() throws IOException {
+            DeflatedEntry deflated = await(pending.poll());
+            if (Objects.isNull(deflated.compressed)) {
+                out.putArchiveEntry(deflated.entry);
+                out.closeArchiveEntry();
+                return;
+            }
+            try (InputStream raw = new SpillableEntryInputStream(deflated.compressed)) {
+                out.addRawArchiveEntry(deflated.entry, raw);
+            }
+        }
+
+        private static DeflatedEntry await(final CompletableFuture<DeflatedEntry> future) throws IOException {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a deflated entry");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                while (!pending.isEmpty()) {
+                    writeNext();
+                }
+                out.finish();
+            } finally {
+                // release the buffers of entries which have not been written after a failure
+                pending.forEach(future -> future.thenAccept(deflated -> IOUtils.closeQuietly(deflated.compressed)));
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Entry of a zip archive with its deflated content, null for directories.
+     */
+    private static final class DeflatedEntry {
+        private final ZipArchiveEntry entry;
+        private final SpillBuffer compressed;
+
+        private DeflatedEntry(final ZipArchiveEntry entry, final SpillBuffer compressed) {
+            this.entry = entry;
+            this.compressed = compressed;
+        }
+    }
+
+    /**
+     * Writes a 7z archive, which needs random access, to the file or to a temporary file which is copied to the stream
+     * when the archive is closed.
+     */
+    private static final class SevenZSink implements Sink {
+        private final OutputStream target;
+        private final Path file;
+        private final SevenZOutputFile out;
+
+        private SevenZSink(final ArchiveWriter writer, final OutputStream target, final Path path) throws IOException {
+            this.target = target;
+            this.file = Objects.nonNull(path) ? path : Files.createTempFile(Objects.requireNonNullElse(writer.getTempDirectory(), Path.of(System.getProperty("java.io.tmpdir"))), "archive", ".7z");
+            try {
+                this.out = new SevenZOutputFile(file.toFile());
+            } catch (IOException | RuntimeException e) {
+                if (Objects.nonNull(target)) {
+                    Files.deleteIfExists(file);
+                }
+                throw e;
+            }
+            if (writer.getCompressionLevel() == 0) {
+                out.setContentMethods(Collections.singletonList(new SevenZMethodConfiguration(SevenZMethod.COPY)));
+            }
+        }
+
+        @Override
+        public void add(final String name, final long size, final long lastModified, final IOSupplier<InputStream> content, final boolean reopenable) throws IOException {
+            SevenZArchiveEntry entry = new SevenZArchiveEntry();
+            entry.setName(Objects.isNull(content) && name.endsWith("/") ? name.substring(0, name.length() - 1) : name);
+            entry.setDirectory(Objects.isNull(content));
+            entry.setLastModifiedDate(new Date(lastModified));
+            out.putArchiveEntry(entry);
+            if (Objects.nonNull(content)) {
+                try (InputStream in = content.get()) {
+                    out.write(in);
+                }
+            }
+            out.closeArchiveEntry();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.close();
+                if (Objects.nonNull(target)) {
+                    try (OutputStream copy = target) {
+                        Files.copy(file, copy);
+                    }
+                }
+            } finally {
+                if (Objects.nonNull(target)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.util.Objects;
+
+/**
+ * Outcome of probing a stream for an archive or compressed format with {@link ArchiveUtil#probe(java.io.InputStream)}.
+ * Streams which are not recognized are a regular outcome and not an exception. Instances are immutable.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class ArchiveProbe {
+
+    /** Probe result of a stream which is neither a known archive nor a known compressed stream. */
+    public static final ArchiveProbe UNRECOGNIZED = new ArchiveProbe(ArchiveFormat.UNKNOWN, null);
+
+    private final ArchiveFormat format;
+    private final ArchiveFormatProvider provider;
+
+    private ArchiveProbe(final ArchiveFormat format, final ArchiveFormatProvider provider) {
+        this.format = format;
+        this.provider = provider;
+    }
+
+    /**
+     * @param format detected from the signature of the stream.
+     * @param provider registered provider which matched the signature if the format is {@link ArchiveFormat#UNKNOWN}.
+     * @return probe result, {@link #UNRECOGNIZED} if neither is known.
+     */
+    static ArchiveProbe of(final ArchiveFormat format, final ArchiveFormatProvider provider) {
+        if (ArchiveFormat.UNKNOWN.equals(format) && Objects.isNull(provider)) {
+            return UNRECOGNIZED;
+        }
+        return new ArchiveProbe(format, provider);
+    }
+
+    /**
+     * @return built-in format detected from the signature, {@link ArchiveFormat#UNKNOWN} if none or if the stream was
+     * recognized by a registered provider.
+     */
+    public ArchiveFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return provider of the {@link ArchiveFormatRegistry} which recognized the signature or null if the stream is of
+     * a built-in format or not recognized.
+     */
+    public ArchiveFormatProvider getProvider() {
+        return provider;
+    }
+
+    /**
+     * @return true if the stream is of any known archive or compressed format.
+     */
+    public boolean isRecognized() {
+        return this != UNRECOGNIZED;
+    }
+
+    /**
+     * @return true if the stream can be read as an archive stream, compressed tar archives included. Gzip, bzip2 and xz
+     * streams are archives if their first tar header has been decoded, see
+     * {@link ArchiveFormatDetector#detect(java.io.InputStream, int)}, compressed streams which do not wrap a tar archive
+     * are not archives.
+     */
+    public boolean isArchive() {
+        return Objects.nonNull(provider) ? !ArchiveKind.COMPRESSOR.equals(provider.getKind()) : format.isReadable();
+    }
+
+    /**
+     * @return true if the stream is compressed, compressed tar archives included.
+     */
+    public boolean isCompressed() {
+        return Objects.nonNull(provider) ? ArchiveKind.COMPRESSOR.equals(provider.getKind()) : Objects.nonNull(format.getCompressorName());
+    }
+
+    @Override
+    public String toString() {
+        return Objects.nonNull(provider) ? provider.getName() : format.toString();
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.IOException;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.compressors.CompressorException;
+
+/**
+ * Opens an archive for {@link AsyncArchiveReader}, for example {@code () -> ArchiveUtil.getArchiveInputStream(in)}. A
+ * source is opened once for every subscription of a publisher, the returned stream is closed by the reader.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+@FunctionalInterface
+public interface ArchiveSource {
+
+    /**
+     * @return archive stream positioned before its first entry.
+     * @throws IOException if any IOException is raised.
+     * @throws ArchiveException if any ArchiveException is raised.
+     * @throws CompressorException if any compressor exception is raised.
+     */
+    ArchiveInputStream open() throws IOException, ArchiveException, CompressorException;
+}
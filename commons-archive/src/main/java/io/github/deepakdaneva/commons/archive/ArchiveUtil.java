@@ -14,23 +14,44 @@ package io.github.deepakdaneva.commons.archive;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.LongSupplier;
 import org.apache.commons.compress.PasswordRequiredException;
+import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZMethod;
+import org.apache.commons.compress.archivers.sevenz.SevenZMethodConfiguration;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.archivers.zip.UnsupportedZipFeatureException;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.apache.commons.compress.compressors.CompressorException;
 import org.apache.commons.compress.compressors.CompressorInputStream;
 import org.apache.commons.compress.compressors.CompressorStreamFactory;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.function.IOSupplier;
 
 /**
  * @author Deepak Kumar Jangir
@@ -41,14 +62,26 @@ public class ArchiveUtil {
 
     /** Split Delimiter for mime type */
     public static final String SEMICOLON = ";";
-    /** List of COMPRESSOR FILE Mime-Types. */
-    public static final Set<String> COMPRESSOR_MIME_TYPES = Set.of("application/zlib", "application/x-gzip", "application/x-bzip2", "application/x-compress", "application/x-java-pack200", "application/x-lzma", "application/deflate64", "application/x-lz4", "application/x-snappy", "application/x-brotli", "application/gzip", "application/x-bzip", "application/x-xz");
-    /** 7z File Mime-Type. */
-    private static final String SEVENZ_MIME_TYPE = "application/x-7z-compressed";
-    /** RAR File Mime-Type. */
-    private static final String RAR_MIME_TYPE = "application/x-rar-compressed";
-    /** List of ARCHIVE File Mime-Types. */
-    private static final Set<String> ARCHIVE_MIME_TYPES = Set.of("application/x-tar", "application/x-gtar", "application/java-archive", "application/x-arj", "application/x-archive", "application/zip", "application/x-cpio", "application/x-tika-unix-dump", SEVENZ_MIME_TYPE, RAR_MIME_TYPE);
+    /** List of COMPRESSOR FILE Mime-Types handled by the built-in providers. */
+    public static final Set<String> COMPRESSOR_MIME_TYPES = BuiltInFormatProvider.COMPRESSOR.getMimeTypes();
+    /** Message of CompressorException if the signature is not known. */
+    private static final String NO_COMPRESSOR_FOUND = "No Compressor found for the stream signature.";
+    /** Metrics which the streams report to. */
+    private static volatile ArchiveMetrics metrics = ArchiveMetrics.NOOP;
+    /** Registry which mime types and formats are dispatched through, null for the default registry. */
+    private static volatile ArchiveFormatRegistry formatRegistry;
+
+    /**
+     * This method classifies the provided mime type in a single pass without allocating through the registered
+     * {@link ArchiveFormatRegistry}. Parameters, surrounding whitespace and the case of the mime type are ignored.
+     *
+     * @param mimeType which needs to be classified.
+     * @return kind of the mime type, {@link ArchiveKind#NONE} if it is null or not an archive/compressor mime type.
+     */
+    public static ArchiveKind getArchiveKind(final String mimeType) {
+        ArchiveFormatProvider provider = getFormatRegistry().forMimeType(mimeType);
+        return Objects.isNull(provider) ? ArchiveKind.NONE : provider.getKind();
+    }
 
     /**
      * This method validates whether the provided mime type is an archive/compressed/rar mime type
@@ -59,51 +92,51 @@ public class ArchiveUtil {
      * false.
      */
     public static boolean isAnyArchiveMimeType(final String mimeType) {
-        return isArchiveMimeType(mimeType) || isCompressorMimeType(mimeType) || isRarMimeType(mimeType);
+        return !ArchiveKind.NONE.equals(getArchiveKind(mimeType));
     }
 
     /**
-     * This method validates whether the provided mime type is an compressed mime type or not.
-     * {@link ArchiveUtil#ARCHIVE_MIME_TYPES}
+     * This method validates whether the provided mime type is an archive mime type or not, see
+     * {@link ArchiveFormatRegistry}.
      *
      * @param mimeType which needs to be validated.
      * @return true if provided mime-type is an archive file mime type else false.
      */
     public static boolean isArchiveMimeType(final String mimeType) {
-        return ARCHIVE_MIME_TYPES.contains(Objects.nonNull(mimeType) ? mimeType.split(SEMICOLON)[0] : null);
+        return getArchiveKind(mimeType).isArchive();
     }
 
     /**
-     * This method validates whether the provided mime type is an compressed mime type or not.
-     * {@link ArchiveUtil#COMPRESSOR_MIME_TYPES}
+     * This method validates whether the provided mime type is an compressed mime type or not, see
+     * {@link ArchiveFormatRegistry}.
      *
      * @param mimeType which needs to be validated.
      * @return true if provided mime-type is an compressed file mime type else false.
      */
     public static boolean isCompressorMimeType(final String mimeType) {
-        return COMPRESSOR_MIME_TYPES.contains(Objects.nonNull(mimeType) ? mimeType.split(SEMICOLON)[0] : null);
+        return ArchiveKind.COMPRESSOR.equals(getArchiveKind(mimeType));
     }
 
     /**
-     * This method validates whether the provided mime type is an rar mime type or not. {@link
-     * ArchiveUtil#RAR_MIME_TYPE}
+     * This method validates whether the provided mime type is an rar mime type or not, see
+     * {@link ArchiveFormatRegistry}.
      *
      * @param mimeType which needs to be validated.
      * @return true if provided mime-type is a rar file mime type else false.
      */
     public static boolean isRarMimeType(final String mimeType) {
-        return RAR_MIME_TYPE.equals(Objects.nonNull(mimeType) ? mimeType.split(SEMICOLON)[0] : null);
+        return ArchiveKind.RAR.equals(getArchiveKind(mimeType));
     }
 
     /**
-     * This method validates whether the provided mime type is an 7z mime type or not. {@link
-     * ArchiveUtil#SEVENZ_MIME_TYPE}
+     * This method validates whether the provided mime type is an 7z mime type or not, see
+     * {@link ArchiveFormatRegistry}.
      *
      * @param mimeType which needs to be validated.
      * @return true if provided mime-type is a 7z file mime type else false.
      */
     public static boolean is7zMimeType(final String mimeType) {
-        return SEVENZ_MIME_TYPE.equals(Objects.nonNull(mimeType) ? mimeType.split(SEMICOLON)[0] : null);
+        return ArchiveKind.SEVENZ.equals(getArchiveKind(mimeType));
     }
 
     /**
@@ -141,34 +174,498 @@ public class ArchiveUtil {
      * exception raised.
      */
     public static ArchiveInputStream getArchiveInputStream(final InputStream inputStream, final String mimeType) throws ArchiveException, IOException, CompressorException, NotAnArchiveOrSupportedArchiveException {
+        return open(inputStream, ArchiveFormat.forMimeType(mimeType), in -> openArchive(in, mimeType, null));
+    }
+
+    /**
+     * This method provides the {@link ArchiveInputStream} of the InputStream, gzip and zlib compressed tarballs are
+     * inflated with inflaters and buffers borrowed from the pool, see {@link DecompressionPool}.
+     *
+     * @param inputStream InputStream of the archive file which supports mark and reset, recommended
+     * BufferedInputStream.
+     * @param mimeType of the inputStream, which will be used create proper archive input stream.
+     * @param pool from which inflaters and buffers are borrowed, they are returned when the stream is closed.
+     * @return {@link ArchiveInputStream} instance to work with the archive file.
+     * @throws CompressorException is any compressor exception is raised.
+     * @throws IOException if any IOException is raised.
+     * @throws ArchiveException if any ArchiveException is raised.
+     * @throws NotAnArchiveOrSupportedArchiveException RuntimeException if provided inputStream is not an archive.
+     * @throws PasswordProtectedArchiveException RuntimeException if any password protected archive exception raised.
+     */
+    public static ArchiveInputStream getArchiveInputStream(final InputStream inputStream, final String mimeType, final DecompressionPool pool) throws ArchiveException, IOException, CompressorException, NotAnArchiveOrSupportedArchiveException {
+        Objects.requireNonNull(pool, "pool");
+        return open(inputStream, ArchiveFormat.forMimeType(mimeType), in -> openArchive(in, mimeType, pooled(pool)));
+    }
+
+    /**
+     * This method provides the {@link ArchiveInputStream} of the InputStream, compressed tarballs are decompressed in
+     * parallel where the format allows it, see {@link ParallelDecompression}.
+     *
+     * @param inputStream InputStream of the archive file which supports mark and reset, recommended
+     * BufferedInputStream.
+     * @param mimeType of the inputStream, which will be used create proper archive input stream.
+     * @param parallel configuration of the parallel decompression.
+     * @return {@link ArchiveInputStream} instance to work with the archive file.
+     * @throws CompressorException is any compressor exception is raised.
+     * @throws IOException if any IOException is raised.
+     * @throws ArchiveException if any ArchiveException is raised.
+     * @throws NotAnArchiveOrSupportedArchiveException RuntimeException if provided inputStream is not an archive.
+     * @throws PasswordProtectedArchiveException RuntimeException if any password protected archive exception raised.
+     */
+    public static ArchiveInputStream getArchiveInputStream(final InputStream inputStream, final String mimeType, final ParallelDecompression parallel) throws ArchiveException, IOException, CompressorException, NotAnArchiveOrSupportedArchiveException {
+        Objects.requireNonNull(parallel, "parallel");
+        return open(inputStream, ArchiveFormat.forMimeType(mimeType), in -> openArchive(in, mimeType, parallel::open));
+    }
+
+    /**
+     * Creates the archive stream for the mime type through the provider registered for it, compressors of the built-in
+     * provider are opened by the opener if it is not null.
+     */
+    private static ArchiveInputStream openArchive(final InputStream inputStream, final String mimeType, final CompressorOpener compressors) throws ArchiveException, IOException, CompressorException {
+        ArchiveFormatProvider provider = getFormatRegistry().forMimeType(mimeType);
+        if (Objects.isNull(provider)) {
+            throw notAnArchive(null);
+        } else if (BuiltInFormatProvider.COMPRESSOR.equals(provider)) {
+            return new TarArchiveInputStream(openCompressor(inputStream, getBrotliOrLzmaName(mimeType), compressors));
+        }
+        return openArchive(inputStream, provider);
+    }
+
+    /**
+     * Creates the archive stream through the provider, compressed streams are read as tar archives.
+     */
+    private static ArchiveInputStream openArchive(final InputStream inputStream, final ArchiveFormatProvider provider) throws ArchiveException, IOException, CompressorException {
+        if (ArchiveKind.COMPRESSOR.equals(provider.getKind())) {
+            return new TarArchiveInputStream(provider.createCompressorInputStream(inputStream));
+        }
+        return provider.createArchiveInputStream(inputStream);
+    }
+
+    /**
+     * This method detects the format of the InputStream from its signature, see {@link ArchiveFormatDetector}.
+     *
+     * @param inputStream InputStream which supports mark and reset, recommended BufferedInputStream. The stream is
+     * reset to its current position before this method returns.
+     * @return detected format or {@link ArchiveFormat#UNKNOWN}.
+     * @throws IOException if any IOException is raised.
+     */
+    public static ArchiveFormat detectFormat(final InputStream inputStream) throws IOException {
+        ArchiveFormat format = ArchiveFormatDetector.detect(inputStream);
+        if (ArchiveFormat.UNKNOWN.equals(format)) {
+            metrics.detectionFailed();
+        }
+        return format;
+    }
+
+    /**
+     * This method provides the {@link ArchiveInputStream} of the InputStream without relying on a mime type, the format
+     * is detected from the signature of the stream and the matching archive stream is created directly.
+     *
+     * @param inputStream InputStream of the archive file which supports mark and reset, recommended
+     * BufferedInputStream.
+     * @return {@link ArchiveInputStream} instance to work with the archive file.
+     * @throws CompressorException is any compressor exception is raised.
+     * @throws IOException if any IOException is raised.
+     * @throws ArchiveException if any ArchiveException is raised.
+     * @throws NotAnArchiveOrSupportedArchiveException RuntimeException if provided inputStream is not an archive.
+     * @throws PasswordProtectedArchiveException RuntimeException if any password protected archive exception raised.
+     */
+    public static ArchiveInputStream getArchiveInputStream(final InputStream inputStream) throws ArchiveException, IOException, CompressorException, NotAnArchiveOrSupportedArchiveException {
+        // failures are recorded once when the stream is opened, not by the detection
+        return openProbed(inputStream, detect(inputStream));
+    }
+
+    /**
+     * This method probes the InputStream for an archive or compressed format from its signature without throwing for
+     * streams which are not recognized, it is cheaper than opening the stream when most inputs are not archives.
+     * Registered providers of the {@link ArchiveFormatRegistry} are consulted if no built-in format matches.
+     *
+     * @param inputStream InputStream which supports mark and reset, recommended BufferedInputStream. The stream is
+     * reset to its current position before this method returns.
+     * @return probe result, {@link ArchiveProbe#UNRECOGNIZED} if the stream is neither an archive nor compressed.
+     * @throws IOException if any IOException is raised.
+     */
+    public static ArchiveProbe probe(final InputStream inputStream) throws IOException {
+        ArchiveProbe probe = detect(inputStream);
+        if (!probe.isRecognized()) {
+            metrics.detectionFailed();
+        }
+        return probe;
+    }
+
+    /**
+     * This method provides the {@link ArchiveInputStream} of the InputStream if it is an archive, see
+     * {@link #probe(InputStream)}. Unlike {@link #getArchiveInputStream(InputStream)} no exception is raised for
+     * streams which are not archives, compressed streams which do not wrap a tar archive included.
+     *
+     * @param inputStream InputStream of the archive file which supports mark and reset, recommended
+     * BufferedInputStream.
+     * @return {@link ArchiveInputStream} instance to work with the archive file or empty if the stream is not an
+     * archive.
+     * @throws CompressorException is any compressor exception is raised.
+     * @throws IOException if any IOException is raised.
+     * @throws ArchiveException if any ArchiveException is raised.
+     * @throws PasswordProtectedArchiveException RuntimeException if any password protected archive exception raised.
+     */
+    public static Optional<ArchiveInputStream> tryGetArchiveInputStream(final InputStream inputStream) throws ArchiveException, IOException, CompressorException {
+        ArchiveProbe probe = probe(inputStream);
+        if (!probe.isArchive()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(openProbed(inputStream, probe));
+        } catch (NotAnArchiveOrSupportedArchiveException e) {
+            // the signature matched but the stream is truncated or not readable after all
+            return Optional.empty();
+        }
+    }
+
+    private static ArchiveProbe detect(final InputStream inputStream) throws IOException {
+        ArchiveFormat format = ArchiveFormatDetector.detect(inputStream);
+        return ArchiveProbe.of(format, ArchiveFormat.UNKNOWN.equals(format) ? getFormatRegistry().detect(inputStream) : null);
+    }
+
+    /**
+     * Creates the archive stream of a probed format or provider, measured if metrics are enabled.
+     */
+    private static ArchiveInputStream openProbed(final InputStream inputStream, final ArchiveProbe probe) throws ArchiveException, IOException, CompressorException {
+        ArchiveFormatProvider provider = probe.getProvider();
+        if (Objects.isNull(provider)) {
+            return getArchiveInputStream(inputStream, probe.getFormat());
+        }
+        return open(inputStream, probe.getFormat(), in -> openArchive(in, provider));
+    }
+
+    /**
+     * This method provides the {@link ArchiveInputStream} of the InputStream for an already known format.
+     *
+     * @param inputStream InputStream of the archive file.
+     * @param format of the inputStream, for example as detected by {@link #detectFormat(InputStream)}.
+     * @return {@link ArchiveInputStream} instance to work with the archive file.
+     * @throws CompressorException is any compressor exception is raised.
+     * @throws IOException if any IOException is raised.
+     * @throws ArchiveException if any ArchiveException is raised.
+     * @throws NotAnArchiveOrSupportedArchiveException RuntimeException if the format is not a supported archive.
+     * @throws PasswordProtectedArchiveException RuntimeException if any password protected archive exception raised.
+     */
+    public static ArchiveInputStream getArchiveInputStream(final InputStream inputStream, final ArchiveFormat format) throws ArchiveException, IOException, CompressorException, NotAnArchiveOrSupportedArchiveException {
+        return open(inputStream, format, in -> openArchive(in, format, null));
+    }
+
+    /**
+     * This method provides the {@link ArchiveInputStream} of the InputStream for an already known format, gzip and zlib
+     * compressed tarballs are inflated with inflaters and buffers borrowed from the pool, see {@link DecompressionPool}.
+     *
+     * @param inputStream InputStream of the archive file.
+     * @param format of the inputStream, for example as detected by {@link #detectFormat(InputStream)}.
+     * @param pool from which inflaters and buffers are borrowed, they are returned when the stream is closed.
+     * @return {@link ArchiveInputStream} instance to work with the archive file.
+     * @throws CompressorException is any compressor exception is raised.
+     * @throws IOException if any IOException is raised.
+     * @throws ArchiveException if any ArchiveException is raised.
+     * @throws NotAnArchiveOrSupportedArchiveException RuntimeException if the format is not a supported archive.
+     * @throws PasswordProtectedArchiveException RuntimeException if any password protected archive exception raised.
+     */
+    public static ArchiveInputStream getArchiveInputStream(final InputStream inputStream, final ArchiveFormat format, final DecompressionPool pool) throws ArchiveException, IOException, CompressorException, NotAnArchiveOrSupportedArchiveException {
+        Objects.requireNonNull(pool, "pool");
+        return open(inputStream, format, in -> openArchive(in, format, pooled(pool)));
+    }
+
+    /**
+     * This method provides the {@link ArchiveInputStream} of the InputStream for an already known format, compressed
+     * tarballs are decompressed in parallel where the format allows it, see {@link ParallelDecompression}.
+     *
+     * @param inputStream InputStream of the archive file.
+     * @param format of the inputStream, for example as detected by {@link #detectFormat(InputStream)}.
+     * @param parallel configuration of the parallel decompression.
+     * @return {@link ArchiveInputStream} instance to work with the archive file.
+     * @throws CompressorException is any compressor exception is raised.
+     * @throws IOException if any IOException is raised.
+     * @throws ArchiveException if any ArchiveException is raised.
+     * @throws NotAnArchiveOrSupportedArchiveException RuntimeException if the format is not a supported archive.
+     * @throws PasswordProtectedArchiveException RuntimeException if any password protected archive exception raised.
+     */
+    public static ArchiveInputStream getArchiveInputStream(final InputStream inputStream, final ArchiveFormat format, final ParallelDecompression parallel) throws ArchiveException, IOException, CompressorException, NotAnArchiveOrSupportedArchiveException {
+        Objects.requireNonNull(parallel, "parallel");
+        return open(inputStream, format, in -> openArchive(in, format, parallel::open));
+    }
+
+    /**
+     * Creates the archive stream for the format, a provider registered with a higher priority than the built-in one for
+     * the mime type of the format replaces it. Compressors of the built-in providers are opened by the opener if it is
+     * not null.
+     */
+    private static ArchiveInputStream openArchive(final InputStream inputStream, final ArchiveFormat format, final CompressorOpener compressors) throws ArchiveException, IOException, CompressorException {
+        ArchiveFormatProvider provider = getFormatRegistry().forMimeType(format.getMimeType());
+        if (Objects.nonNull(provider) && !(provider instanceof BuiltInFormatProvider)) {
+            return openArchive(inputStream, provider);
+        } else if (ArchiveFormat.SEVEN_Z.equals(format)) {
+            return open7z(() -> new SevenZArchiveInputStream(inputStream));
+        } else if (Objects.nonNull(format.getCompressorName())) {
+            return new TarArchiveInputStream(openCompressor(inputStream, format.getCompressorName(), compressors));
+        } else if (Objects.nonNull(format.getArchiverName())) {
+            return ArchiveStreamFactory.DEFAULT.createArchiveInputStream(format.getArchiverName(), inputStream);
+        }
+        throw notAnArchive(null);
+    }
+
+    /**
+     * This method provides the {@link ArchiveInputStream} of the InputStream which enforces the provided limits while it
+     * is read, see {@link #getArchiveInputStream(InputStream, ArchiveFormat, ArchiveLimits)}.
+     *
+     * @param inputStream InputStream of the archive file which supports mark and reset, recommended
+     * BufferedInputStream.
+     * @param mimeType of the inputStream, which will be used create proper archive input stream.
+     * @param limits which are enforced while the archive is read.
+     * @return {@link ArchiveInputStream} instance to work with the archive file.
+     * @throws CompressorException is any compressor exception is raised.
+     * @throws IOException if any IOException is raised.
+     * @throws ArchiveException if any ArchiveException is raised.
+     * @throws NotAnArchiveOrSupportedArchiveException RuntimeException if provided inputStream is not an archive.
+     * @throws PasswordProtectedArchiveException RuntimeException if any password protected archive exception raised.
+     * @throws ArchiveLimitExceededException RuntimeException while reading if any limit is exceeded.
+     */
+    public static ArchiveInputStream getArchiveInputStream(final InputStream inputStream, final String mimeType, final ArchiveLimits limits) throws ArchiveException, IOException, CompressorException, NotAnArchiveOrSupportedArchiveException {
+        if (ArchiveLimits.UNLIMITED.equals(limits)) {
+            return getArchiveInputStream(inputStream, mimeType);
+        }
+        ByteCountingInputStream raw = new ByteCountingInputStream(inputStream);
+        ArchiveFormatProvider provider = getFormatRegistry().forMimeType(mimeType);
+        ArchiveInputStream ais;
+        if (Objects.nonNull(provider) && ArchiveKind.COMPRESSOR.equals(provider.getKind())) {
+            ais = open(raw, ArchiveFormat.forMimeType(mimeType), in -> new TarArchiveInputStream(guard(openCompressor(in, provider, getBrotliOrLzmaName(mimeType)), raw, limits, false)));
+        } else {
+            ais = getArchiveInputStream(raw, mimeType);
+        }
+        return new GuardedArchiveInputStream(ais, new ArchiveGuard(limits, raw::getCount, true));
+    }
+
+    /**
+     * This method provides the {@link ArchiveInputStream} of the InputStream for an already known format which enforces
+     * the provided limits while it is read. The number of entries is checked whenever the next entry is requested, the
+     * uncompressed bytes of the entry and of the archive as well as the ratio to the compressed bytes consumed are
+     * checked on every read, so a decompression bomb fails with {@link ArchiveLimitExceededException} before it is
+     * expanded. For compressed tarballs the decompressed tar stream is guarded as well so skipped entries cannot bypass
+     * the archive limits.
+     *
+     * @param inputStream InputStream of the archive file.
+     * @param format of the inputStream, for example as detected by {@link #detectFormat(InputStream)}.
+     * @param limits which are enforced while the archive is read.
+     * @return {@link ArchiveInputStream} instance to work with the archive file.
+     * @throws CompressorException is any compressor exception is raised.
+     * @throws IOException if any IOException is raised.
+     * @throws ArchiveException if any ArchiveException is raised.
+     * @throws NotAnArchiveOrSupportedArchiveException RuntimeException if the format is not a supported archive.
+     * @throws PasswordProtectedArchiveException RuntimeException if any password protected archive exception raised.
+     * @throws ArchiveLimitExceededException RuntimeException while reading if any limit is exceeded.
+     */
+    public static ArchiveInputStream getArchiveInputStream(final InputStream inputStream, final ArchiveFormat format, final ArchiveLimits limits) throws ArchiveException, IOException, CompressorException, NotAnArchiveOrSupportedArchiveException {
+        if (ArchiveLimits.UNLIMITED.equals(limits)) {
+            return getArchiveInputStream(inputStream, format);
+        }
+        ByteCountingInputStream raw = new ByteCountingInputStream(inputStream);
+        ArchiveFormatProvider provider = getFormatRegistry().forMimeType(format.getMimeType());
+        boolean compressed = Objects.nonNull(provider) && !(provider instanceof BuiltInFormatProvider) ? ArchiveKind.COMPRESSOR.equals(provider.getKind()) : !ArchiveFormat.SEVEN_Z.equals(format) && Objects.nonNull(format.getCompressorName());
+        ArchiveInputStream ais;
+        if (compressed) {
+            ais = open(raw, format, in -> new TarArchiveInputStream(guard(openCompressor(in, provider, format.getCompressorName()), raw, limits, false)));
+        } else {
+            ais = getArchiveInputStream(raw, format);
+        }
+        return new GuardedArchiveInputStream(ais, new ArchiveGuard(limits, raw::getCount, true));
+    }
+
+    /**
+     * Creates the compressor stream of a compressed tarball through the provider, the built-in provider or no provider
+     * opens the compressor of the name.
+     */
+    private static CompressorInputStream openCompressor(final InputStream inputStream, final ArchiveFormatProvider provider, final String compressorName) throws IOException, CompressorException {
+        if (Objects.isNull(provider) || provider instanceof BuiltInFormatProvider) {
+            return openCompressor(inputStream, compressorName, null);
+        }
+        return provider.createCompressorInputStream(inputStream);
+    }
+
+    /**
+     * This method provides the {@link ArchiveInputStream} of the file. 7z archives are read in place through a
+     * {@link FileChannel} instead of being loaded into memory, all other formats are streamed from the file. Closing the
+     * returned stream closes the file.
+     *
+     * @param path of the archive file.
+     * @param mimeType of the file, which will be used create proper archive input stream.
+     * @return {@link ArchiveInputStream} instance to work with the archive file.
+     * @throws CompressorException is any compressor exception is raised.
+     * @throws IOException if any IOException is raised.
+     * @throws ArchiveException if any ArchiveException is raised.
+     * @throws NotAnArchiveOrSupportedArchiveException RuntimeException if provided file is not an archive.
+     * @throws PasswordProtectedArchiveException RuntimeException if any password protected archive exception raised.
+     */
+    public static ArchiveInputStream getArchiveInputStream(final Path path, final String mimeType) throws ArchiveException, IOException, CompressorException, NotAnArchiveOrSupportedArchiveException {
         if (is7zMimeType(mimeType)) {
-            try {
-                return new SevenZArchiveInputStream(inputStream);
-            } catch (PasswordRequiredException e) {
-                throw new PasswordProtectedArchiveException("Password protected archive/entries not supported", e);
-            } catch (EOFException eofe) {
-                throw new NotAnArchiveOrSupportedArchiveException("Not an archive or an unsupported archive file.", eofe);
-            } catch (IOException ioe) {
-                if ("Bad 7z signature".equalsIgnoreCase(ioe.getMessage())) {
-                    throw new NotAnArchiveOrSupportedArchiveException("Not an archive or an unsupported archive file.", ioe);
-                } else {
-                    throw ioe;
+            long size = Files.size(path);
+            return meteredSevenZ(open7z(() -> new SevenZArchiveInputStream(path)), () -> size);
+        }
+        return openOwned(new BufferedInputStream(Files.newInputStream(path)), mimeType);
+    }
+
+    /**
+     * This method provides the {@link ArchiveInputStream} of the channel, for example a {@link FileChannel}. 7z archives
+     * are read in place through the channel instead of being loaded into memory, all other formats are streamed from
+     * the current position of the channel. Closing the returned stream closes the channel.
+     *
+     * @param channel of the archive.
+     * @param mimeType of the channel content, which will be used create proper archive input stream.
+     * @return {@link ArchiveInputStream} instance to work with the archive.
+     * @throws CompressorException is any compressor exception is raised.
+     * @throws IOException if any IOException is raised.
+     * @throws ArchiveException if any ArchiveException is raised.
+     * @throws NotAnArchiveOrSupportedArchiveException RuntimeException if provided channel is not an archive.
+     * @throws PasswordProtectedArchiveException RuntimeException if any password protected archive exception raised.
+     */
+    public static ArchiveInputStream getArchiveInputStream(final SeekableByteChannel channel, final String mimeType) throws ArchiveException, IOException, CompressorException, NotAnArchiveOrSupportedArchiveException {
+        if (is7zMimeType(mimeType)) {
+            long size = channel.size();
+            return meteredSevenZ(open7z(() -> new SevenZArchiveInputStream(channel)), () -> size);
+        }
+        return openOwned(new BufferedInputStream(Channels.newInputStream(channel)), mimeType);
+    }
+
+    /**
+     * This method lists the metadata of all entries of the archive file as cheaply as the format allows, the content of
+     * the entries is never decoded. Zip archives are listed from the central directory and 7z archives from their
+     * header, plain tar archives seek over the content of the entries using the sizes of their headers. Other archives,
+     * e.g. compressed tar archives, can only be listed by streaming them, their content is skipped but still
+     * decompressed.
+     *
+     * @param path of the archive file.
+     * @return entries in the order they are listed by the archive.
+     * @throws CompressorException is any compressor exception is raised.
+     * @throws IOException if any IOException is raised.
+     * @throws ArchiveException if any ArchiveException is raised.
+     * @throws NotAnArchiveOrSupportedArchiveException RuntimeException if provided file is not an archive.
+     * @throws PasswordProtectedArchiveException RuntimeException if the headers of the archive are encrypted.
+     */
+    public static List<ArchiveEntryInfo> listEntries(final Path path) throws ArchiveException, IOException, CompressorException, NotAnArchiveOrSupportedArchiveException {
+        ArchiveFormat format;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            format = ArchiveFormatDetector.detect(in);
+        }
+        List<ArchiveEntryInfo> entries = new ArrayList<>();
+        if (ArchiveFormat.ZIP.equals(format)) {
+            try (ZipFile zipFile = new ZipFile(path)) {
+                for (ZipArchiveEntry entry : Collections.list(zipFile.getEntries())) {
+                    entries.add(entryInfo(entry, entry.getCompressedSize(), entry.getGeneralPurposeBit().usesEncryption()));
                 }
             }
-        } else if (!isRarMimeType(mimeType) && isArchiveMimeType(mimeType)) {
-            try {
-                return ArchiveStreamFactory.DEFAULT.createArchiveInputStream(inputStream);
-            } catch (ArchiveException ae) {
-                if ("No Archiver found for the stream signature".equalsIgnoreCase(ae.getMessage())) {
-                    throw new NotAnArchiveOrSupportedArchiveException("Not an archive or an unsupported archive file.", ae);
-                } else {
-                    throw ae;
+        } else if (ArchiveFormat.SEVEN_Z.equals(format)) {
+            try (ArchiveInputStream ais = open7z(() -> new SevenZArchiveInputStream(path))) {
+                ArchiveEntry entry;
+                while (Objects.nonNull(entry = ais.getNextEntry())) {
+                    SevenZArchiveEntry sevenZEntry = (SevenZArchiveEntry) entry;
+                    entries.add(entryInfo(entry, ArchiveEntryInfo.SIZE_UNKNOWN, isEncrypted(sevenZEntry)));
+                }
+            }
+        } else if (ArchiveFormat.TAR.equals(format)) {
+            // the file stream is not buffered so skipping the content of an entry seeks
+            try (TarArchiveInputStream tar = new TarArchiveInputStream(Files.newInputStream(path))) {
+                TarArchiveEntry entry;
+                while (Objects.nonNull(entry = tar.getNextTarEntry())) {
+                    entries.add(entryInfo(entry, entry.getSize(), false));
                 }
             }
-        } else if (isCompressorMimeType(mimeType)) {
-            return new TarArchiveInputStream(getCompressorInputStream(inputStream, getBrotliOrLzmaName(mimeType)));
+        } else {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(path)); ArchiveInputStream ais = getArchiveInputStream(in, format)) {
+                ArchiveEntry entry;
+                while (Objects.nonNull(entry = ais.getNextEntry())) {
+                    entries.add(entryInfo(entry, ArchiveEntryInfo.SIZE_UNKNOWN, false));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static ArchiveEntryInfo entryInfo(final ArchiveEntry entry, final long compressedSize, final boolean encrypted) {
+        Instant lastModified = null;
+        if (!(entry instanceof SevenZArchiveEntry) || ((SevenZArchiveEntry) entry).getHasLastModifiedDate()) {
+            Date date = entry.getLastModifiedDate();
+            lastModified = Objects.isNull(date) ? null : date.toInstant();
+        }
+        return new ArchiveEntryInfo(entry.getName(), entry.isDirectory(), entry.getSize(), compressedSize, lastModified, encrypted);
+    }
+
+    /**
+     * @return true if the content of the 7z entry is AES encrypted.
+     */
+    static boolean isEncrypted(final SevenZArchiveEntry entry) {
+        Iterable<? extends SevenZMethodConfiguration> methods = entry.getContentMethods();
+        if (Objects.nonNull(methods)) {
+            for (SevenZMethodConfiguration method : methods) {
+                if (SevenZMethod.AES256SHA256.equals(method.getMethod())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates the archive stream of a source stream which is owned by the returned archive stream, the source is closed
+     * if the archive stream could not be created.
+     */
+    private static ArchiveInputStream openOwned(final InputStream source, final String mimeType) throws ArchiveException, IOException, CompressorException {
+        try {
+            return getArchiveInputStream(source, mimeType);
+        } catch (IOException | ArchiveException | CompressorException | RuntimeException e) {
+            IOUtils.closeQuietly(source);
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the archive stream through the opener, measured from the counted input stream if metrics are enabled.
+     */
+    private static ArchiveInputStream open(final InputStream inputStream, final ArchiveFormat format, final ArchiveOpener opener) throws ArchiveException, IOException, CompressorException {
+        ArchiveMetrics archiveMetrics = metrics;
+        if (ArchiveMetrics.NOOP.equals(archiveMetrics)) {
+            return opener.open(inputStream);
+        }
+        ByteCountingInputStream raw = new ByteCountingInputStream(inputStream);
+        try {
+            return new MeteredArchiveInputStream(opener.open(raw), format, raw::getCount, archiveMetrics);
+        } catch (NotAnArchiveOrSupportedArchiveException e) {
+            archiveMetrics.detectionFailed();
+            throw e;
+        }
+    }
+
+    /**
+     * Measures a 7z archive stream read in place if metrics are enabled.
+     */
+    static ArchiveInputStream meteredSevenZ(final ArchiveInputStream ais, final LongSupplier size) {
+        ArchiveMetrics archiveMetrics = metrics;
+        if (ArchiveMetrics.NOOP.equals(archiveMetrics)) {
+            return ais;
+        }
+        return new MeteredArchiveInputStream(ais, ArchiveFormat.SEVEN_Z, size, archiveMetrics);
+    }
+
+    /**
+     * Opens a 7z archive stream and translates the 7z specific exceptions.
+     */
+    static ArchiveInputStream open7z(final IOSupplier<SevenZArchiveInputStream> opener) throws IOException {
+        try {
+            return opener.get();
+        } catch (PasswordRequiredException e) {
+            throw passwordProtected(ArchiveFormat.SEVEN_Z, e);
+        } catch (EOFException eofe) {
+            throw notAnArchive(eofe);
+        } catch (IOException ioe) {
+            if ("Bad 7z signature".equalsIgnoreCase(ioe.getMessage())) {
+                throw notAnArchive(ioe);
+            } else {
+                throw ioe;
+            }
         }
-        throw new NotAnArchiveOrSupportedArchiveException("Not an archive or an unsupported archive file.");
     }
 
     /**
@@ -184,21 +681,213 @@ public class ArchiveUtil {
      * @throws CompressorException if any compressor exception is raised.
      */
     public static CompressorInputStream getCompressorInputStream(final InputStream inputStream, final String archiverName) throws CompressorException {
+        return compressorInputStream(inputStream, archiverName, null);
+    }
+
+    /**
+     * This method provides the {@link CompressorInputStream} of the InputStream, gzip and zlib streams are inflated with
+     * an inflater and a buffer borrowed from the pool, see {@link DecompressionPool}. Other formats are created as by
+     * {@link #getCompressorInputStream(InputStream, String)}.
+     *
+     * @param inputStream InputStream of the compressed file which supports mark and reset, recommended
+     * BufferedInputStream.
+     * @param archiverName which is optional, see {@link #getCompressorInputStream(InputStream, String)}.
+     * @param pool from which the inflater and the buffer are borrowed, they are returned when the stream is closed.
+     * @return {@link CompressorInputStream} instance to work with the compressed file.
+     * @throws NotAnArchiveOrSupportedArchiveException RuntimeException if provided inputStream is not compressed.
+     * @throws CompressorException if any compressor exception is raised.
+     */
+    public static CompressorInputStream getCompressorInputStream(final InputStream inputStream, final String archiverName, final DecompressionPool pool) throws CompressorException {
+        return compressorInputStream(inputStream, archiverName, pooled(Objects.requireNonNull(pool, "pool")));
+    }
+
+    /**
+     * This method provides the {@link CompressorInputStream} of the InputStream which decodes independent members or
+     * blocks of gzip, bzip2 and xz streams in parallel and delivers them in order, see {@link ParallelDecompression}.
+     * Streams which can not be split are decoded sequentially. All members and concatenated streams are read.
+     *
+     * @param inputStream InputStream of the compressed file which supports mark and reset, recommended
+     * BufferedInputStream.
+     * @param archiverName which is optional, see {@link #getCompressorInputStream(InputStream, String)}.
+     * @param parallel configuration of the parallel decompression.
+     * @return {@link CompressorInputStream} instance to work with the compressed file.
+     * @throws NotAnArchiveOrSupportedArchiveException RuntimeException if provided inputStream is not compressed.
+     * @throws CompressorException if any compressor exception is raised.
+     */
+    public static CompressorInputStream getCompressorInputStream(final InputStream inputStream, final String archiverName, final ParallelDecompression parallel) throws CompressorException {
+        Objects.requireNonNull(parallel, "parallel");
+        return compressorInputStream(inputStream, archiverName, parallel::open);
+    }
+
+    /**
+     * This method provides the {@link CompressorInputStream} of the InputStream if it is compressed, see
+     * {@link #probe(InputStream)}. Unlike {@link #getCompressorInputStream(InputStream, String)} no exception is raised
+     * for streams which are not compressed.
+     *
+     * @param inputStream InputStream of the compressed file which supports mark and reset, recommended
+     * BufferedInputStream.
+     * @return {@link CompressorInputStream} instance to work with the compressed file or empty if the stream is not
+     * compressed.
+     * @throws IOException if any IOException is raised.
+     * @throws CompressorException if any compressor exception is raised.
+     */
+    public static Optional<CompressorInputStream> tryGetCompressorInputStream(final InputStream inputStream) throws IOException, CompressorException {
+        ArchiveProbe probe = probe(inputStream);
+        if (!probe.isCompressed()) {
+            return Optional.empty();
+        }
+        try {
+            ArchiveFormatProvider provider = probe.getProvider();
+            if (Objects.isNull(provider)) {
+                return Optional.of(getCompressorInputStream(inputStream, probe.getFormat().getCompressorName()));
+            }
+            ArchiveMetrics archiveMetrics = metrics;
+            if (ArchiveMetrics.NOOP.equals(archiveMetrics)) {
+                return Optional.of(provider.createCompressorInputStream(inputStream));
+            }
+            ByteCountingInputStream raw = new ByteCountingInputStream(inputStream);
+            return Optional.of(new MeteredCompressorInputStream(provider.createCompressorInputStream(raw), probe.getFormat(), raw::getCount, archiveMetrics));
+        } catch (NotAnArchiveOrSupportedArchiveException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Creates the compressor stream, measured if metrics are enabled. A compressor provider registered with a higher
+     * priority than the built-in one for the compressor name, or for the signature if no name is given, replaces it.
+     */
+    private static CompressorInputStream compressorInputStream(final InputStream inputStream, final String archiverName, final CompressorOpener compressors) throws CompressorException {
+        ArchiveFormatProvider provider = registeredCompressor(inputStream, archiverName);
+        ArchiveMetrics archiveMetrics = metrics;
+        if (ArchiveMetrics.NOOP.equals(archiveMetrics)) {
+            return Objects.isNull(provider) ? openCompressor(inputStream, archiverName, compressors) : createCompressor(inputStream, provider);
+        }
+        ByteCountingInputStream raw = new ByteCountingInputStream(inputStream);
+        if (Objects.nonNull(provider)) {
+            return new MeteredCompressorInputStream(createCompressor(raw, provider), ArchiveFormat.forCompressorName(archiverName), raw::getCount, archiveMetrics);
+        }
+        try {
+            String compressorName = Objects.nonNull(archiverName) ? archiverName : CompressorStreamFactory.detect(raw);
+            return new MeteredCompressorInputStream(openCompressor(raw, compressorName, compressors), ArchiveFormat.forCompressorName(compressorName), raw::getCount, archiveMetrics);
+        } catch (CompressorException ce) {
+            if (NO_COMPRESSOR_FOUND.equalsIgnoreCase(ce.getMessage())) {
+                archiveMetrics.detectionFailed();
+                throw notAnArchive(ce);
+            }
+            throw ce;
+        } catch (NotAnArchiveOrSupportedArchiveException e) {
+            archiveMetrics.detectionFailed();
+            throw e;
+        }
+    }
+
+    /**
+     * Looks up the compressor provider which replaces the built-in compressor of the name or of the signature.
+     *
+     * @return provider or null if the built-in compressor is used.
+     */
+    private static ArchiveFormatProvider registeredCompressor(final InputStream inputStream, final String archiverName) throws CompressorException {
+        ArchiveFormatProvider provider;
+        if (Objects.nonNull(archiverName)) {
+            ArchiveFormat format = ArchiveFormat.forCompressorName(archiverName);
+            provider = ArchiveFormat.UNKNOWN.equals(format) ? null : getFormatRegistry().forMimeType(format.getMimeType());
+        } else {
+            try {
+                provider = inputStream.markSupported() ? getFormatRegistry().detect(inputStream) : null;
+            } catch (IOException e) {
+                throw new CompressorException("Could not create CompressorInputStream.", e);
+            }
+        }
+        return Objects.nonNull(provider) && !(provider instanceof BuiltInFormatProvider) && ArchiveKind.COMPRESSOR.equals(provider.getKind()) ? provider : null;
+    }
+
+    /**
+     * Creates the compressor stream through the provider.
+     */
+    private static CompressorInputStream createCompressor(final InputStream inputStream, final ArchiveFormatProvider provider) throws CompressorException {
         try {
-            if (Objects.nonNull(archiverName)) {
+            return provider.createCompressorInputStream(inputStream);
+        } catch (IOException e) {
+            throw new CompressorException("Could not create CompressorInputStream.", e);
+        }
+    }
+
+    /**
+     * Creates the compressor stream and translates unknown signatures, the stream is created by the opener if it is not
+     * null.
+     */
+    private static CompressorInputStream openCompressor(final InputStream inputStream, final String archiverName, final CompressorOpener compressors) throws CompressorException {
+        try {
+            if (Objects.nonNull(compressors)) {
+                String compressorName = Objects.nonNull(archiverName) ? archiverName : CompressorStreamFactory.detect(inputStream);
+                try {
+                    return compressors.open(inputStream, compressorName);
+                } catch (IOException e) {
+                    throw new CompressorException("Could not create CompressorInputStream.", e);
+                }
+            } else if (Objects.nonNull(archiverName)) {
                 return CompressorStreamFactory.getSingleton().createCompressorInputStream(archiverName, inputStream);
             } else {
                 return CompressorStreamFactory.getSingleton().createCompressorInputStream(inputStream);
             }
         } catch (CompressorException ce) {
-            if ("No Compressor found for the stream signature.".equalsIgnoreCase(ce.getMessage())) {
-                throw new NotAnArchiveOrSupportedArchiveException("Not an archive or an unsupported archive file.", ce);
+            if (NO_COMPRESSOR_FOUND.equalsIgnoreCase(ce.getMessage())) {
+                CompressorInputStream provided = openProvidedCompressor(inputStream);
+                if (Objects.nonNull(provided)) {
+                    return provided;
+                }
+                throw notAnArchive(ce);
             } else {
                 throw ce;
             }
         }
     }
 
+    /**
+     * Opens a stream with an unknown signature through a compressor provider of the registry.
+     *
+     * @return compressor stream or null if no compressor provider matches the signature.
+     */
+    private static CompressorInputStream openProvidedCompressor(final InputStream inputStream) throws CompressorException {
+        try {
+            ArchiveFormatProvider provider = inputStream.markSupported() ? getFormatRegistry().detect(inputStream) : null;
+            if (Objects.nonNull(provider) && ArchiveKind.COMPRESSOR.equals(provider.getKind())) {
+                return provider.createCompressorInputStream(inputStream);
+            }
+            return null;
+        } catch (IOException e) {
+            throw new CompressorException("Could not create CompressorInputStream.", e);
+        }
+    }
+
+    /**
+     * This method provides the {@link CompressorInputStream} of the InputStream which enforces the provided limits while
+     * it is read, the decompressed content is treated as a single entry.
+     *
+     * @param inputStream InputStream of the compressed file which supports mark and reset, recommended
+     * BufferedInputStream.
+     * @param archiverName which is optional, see {@link #getCompressorInputStream(InputStream, String)}.
+     * @param limits which are enforced while the stream is read.
+     * @return {@link CompressorInputStream} instance to work with the compressed file.
+     * @throws NotAnArchiveOrSupportedArchiveException RuntimeException if provided inputStream is not compressed.
+     * @throws CompressorException if any compressor exception is raised.
+     * @throws ArchiveLimitExceededException RuntimeException while reading if any limit is exceeded.
+     */
+    public static CompressorInputStream getCompressorInputStream(final InputStream inputStream, final String archiverName, final ArchiveLimits limits) throws CompressorException {
+        if (ArchiveLimits.UNLIMITED.equals(limits)) {
+            return getCompressorInputStream(inputStream, archiverName);
+        }
+        ByteCountingInputStream raw = new ByteCountingInputStream(inputStream);
+        return guard(getCompressorInputStream(raw, archiverName), raw, limits, true);
+    }
+
+    /**
+     * Wraps the compressor stream which reads from raw into a stream enforcing the limits.
+     */
+    private static CompressorInputStream guard(final CompressorInputStream cis, final ByteCountingInputStream raw, final ArchiveLimits limits, final boolean entryLimited) {
+        return new GuardedCompressorInputStream(cis, new ArchiveGuard(limits, raw::getCount, entryLimited));
+    }
+
     /**
      * This method provides the ArchiveInputStream of the InputStream.
      *
@@ -218,6 +907,9 @@ public class ArchiveUtil {
      */
     public static ArchiveInputStream getArchiveInputStream(final InputStream inputStream, final String mimeType, final boolean ignoreException) throws CompressorException, IOException, ArchiveException {
         try {
+            if (ignoreException && isUnrecognized(inputStream, mimeType)) {
+                return null;
+            }
             return getArchiveInputStream(inputStream, mimeType);
         } catch (Exception e) {
             if (!ignoreException) throw e;
@@ -226,25 +918,290 @@ public class ArchiveUtil {
     }
 
     /**
-     * This method creates an input stream of the current entry of the provided ArchiveInputStream.
+     * Probes the stream before it is opened for a built-in mime type so that streams without a matching signature are
+     * rejected without raising and discarding exceptions. Mime types served by registered providers or without a
+     * detectable signature (brotli) are not probed.
+     *
+     * @return true if the stream is certainly not readable as the mime type.
+     */
+    private static boolean isUnrecognized(final InputStream inputStream, final String mimeType) throws IOException {
+        if (!inputStream.markSupported() || ArchiveFormat.UNKNOWN.equals(ArchiveFormat.forMimeType(mimeType))) {
+            return false;
+        }
+        return getFormatRegistry().forMimeType(mimeType) instanceof BuiltInFormatProvider && !probe(inputStream).isRecognized();
+    }
+
+    /**
+     * This method creates an input stream of the current entry of the provided ArchiveInputStream. The entry is buffered
+     * completely in an array of its exact size which is left to the garbage collector, so the returned stream does not
+     * need to be closed. Use {@link #getEntryInputStream(InputStream, EntryStreamOptions)} to stream or spill large
+     * entries instead.
      *
      * @param currentArcInStream which is already iterated and is at the position of the current
      * entry.
-     * @return InputStream (BufferedInputStream) of the current entry of the provided
-     * ArchiveInputStream or null.
+     * @return re-readable InputStream of the current entry of the provided ArchiveInputStream.
      * @throws IOException in case of any exception during the creation of InputStream.
      * @throws PasswordProtectedArchiveException if password protected entry is found.
      */
     public static InputStream getEntryInputStream(final InputStream currentArcInStream) throws IOException {
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
         try {
-            IOUtils.copy(currentArcInStream, byteArrayOutputStream);
+            return new ByteArrayInputStream(currentArcInStream.readAllBytes());
         } catch (UnsupportedZipFeatureException e) {
-            if (UnsupportedZipFeatureException.Feature.ENCRYPTION.equals(e.getFeature())) {
-                throw new PasswordProtectedArchiveException("Password protected archive/entries not supported", e);
+            throw translate(e);
+        }
+    }
+
+    /**
+     * This method creates an input stream of the current entry of the provided ArchiveInputStream according to the
+     * provided options. With {@link EntryStreamMode#STREAMING} the entry content is passed through without any copy and
+     * the returned stream is only valid until the next entry is requested. With {@link EntryStreamMode#BUFFERED} and
+     * {@link EntryStreamMode#MAPPED} a {@link SpillableEntryInputStream} is returned which keeps entries up to the spill
+     * threshold in pooled memory and spills larger entries to a temporary file.
+     *
+     * @param currentArcInStream which is already iterated and is at the position of the current entry.
+     * @param options defining how the entry content is exposed.
+     * @return InputStream of the current entry, buffered streams must be closed to release their resources.
+     * @throws IOException in case of any exception during the creation of InputStream.
+     * @throws PasswordProtectedArchiveException if password protected entry is found.
+     */
+    public static InputStream getEntryInputStream(final InputStream currentArcInStream, final EntryStreamOptions options) throws IOException {
+        return getEntryInputStream(currentArcInStream, null, options);
+    }
+
+    /**
+     * This method creates an input stream of the current entry of the provided ArchiveInputStream according to the
+     * provided options, see {@link #getEntryInputStream(InputStream, EntryStreamOptions)}. Digests requested by the
+     * options are computed while the content streams through, in {@link EntryStreamMode#STREAMING} mode a
+     * {@link DigestingInputStream} is returned which provides them once the entry has been read completely, buffered
+     * streams provide them right away. The provided entry is used to verify its stored CRC if requested.
+     *
+     * @param currentArcInStream which is already iterated and is at the position of the current entry.
+     * @param entry current entry of the archive stream, null if its stored CRC is not verified.
+     * @param options defining how the entry content is exposed and digested.
+     * @return InputStream of the current entry, buffered streams must be closed to release their resources.
+     * @throws IOException in case of any exception during the creation of InputStream.
+     * @throws PasswordProtectedArchiveException if password protected entry is found.
+     * @throws ChecksumMismatchException if a buffered entry does not match its stored CRC.
+     */
+    public static InputStream getEntryInputStream(final InputStream currentArcInStream, final ArchiveEntry entry, final EntryStreamOptions options) throws IOException {
+        if (EntryStreamMode.STREAMING.equals(options.getMode())) {
+            InputStream streaming = new StreamingEntryInputStream(currentArcInStream);
+            return options.isDigesting() ? new DigestingInputStream(streaming, digester(entry, options)) : streaming;
+        }
+        SpillBuffer buffer = new SpillBuffer(options.getSpillThreshold(), options.getTempDirectory(), BufferPool.DEFAULT);
+        EntryDigests digests = null;
+        try {
+            if (options.isDigesting()) {
+                DigestingInputStream digesting = new DigestingInputStream(currentArcInStream, digester(entry, options));
+                buffer.transferFrom(digesting);
+                digests = digesting.getDigests();
+            } else {
+                buffer.transferFrom(currentArcInStream);
             }
+            if (EntryStreamMode.MAPPED.equals(options.getMode())) {
+                buffer.map();
+            }
+        } catch (UnsupportedZipFeatureException e) {
+            IOUtils.closeQuietly(buffer);
+            throw translate(e);
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(buffer);
+            throw e;
+        }
+        return new SpillableEntryInputStream(buffer, digests);
+    }
+
+    /**
+     * This method writes the current entry of the provided ArchiveInputStream to a file without buffering the entry,
+     * the content is copied through a single pooled chunk.
+     *
+     * @param currentArcInStream which is already iterated and is at the position of the current entry.
+     * @param target file which is created or replaced.
+     * @return number of bytes written.
+     * @throws IOException in case of any exception while reading the entry or writing the file.
+     * @throws PasswordProtectedArchiveException if password protected entry is found.
+     */
+    public static long extractTo(final InputStream currentArcInStream, final Path target) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return extractTo(currentArcInStream, out);
+        }
+    }
+
+    /**
+     * This method writes the current entry of the provided ArchiveInputStream to a channel without buffering the entry,
+     * the content is copied through a single pooled chunk.
+     *
+     * @param currentArcInStream which is already iterated and is at the position of the current entry.
+     * @param target channel the content is written to, it is not closed.
+     * @return number of bytes written.
+     * @throws IOException in case of any exception while reading the entry or writing the channel.
+     * @throws PasswordProtectedArchiveException if password protected entry is found.
+     */
+    public static long extractTo(final InputStream currentArcInStream, final WritableByteChannel target) throws IOException {
+        byte[] chunk = BufferPool.DEFAULT.acquire();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(chunk);
+            long total = 0;
+            int n;
+            while ((n = currentArcInStream.read(chunk, 0, chunk.length)) >= 0) {
+                buffer.clear().limit(n);
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                total += n;
+            }
+            return total;
+        } catch (UnsupportedZipFeatureException e) {
+            throw translate(e);
+        } finally {
+            BufferPool.DEFAULT.release(chunk);
+        }
+    }
+
+    /**
+     * This method writes the current entry of the provided ArchiveInputStream to a file without buffering the entry and
+     * computes the digests requested by the options while the content streams through, see
+     * {@link #extractTo(InputStream, ArchiveEntry, WritableByteChannel, EntryStreamOptions)}.
+     *
+     * @param currentArcInStream which is already iterated and is at the position of the current entry.
+     * @param entry current entry of the archive stream, null if its stored CRC is not verified.
+     * @param target file which is created or replaced.
+     * @param options defining the digests and the verification, the mode and spilling are ignored.
+     * @return digests of the entry content.
+     * @throws IOException in case of any exception while reading the entry or writing the file.
+     * @throws PasswordProtectedArchiveException if password protected entry is found.
+     * @throws ChecksumMismatchException if the entry does not match its stored CRC.
+     */
+    public static EntryDigests extractTo(final InputStream currentArcInStream, final ArchiveEntry entry, final Path target, final EntryStreamOptions options) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return extractTo(currentArcInStream, entry, out, options);
+        }
+    }
+
+    /**
+     * This method writes the current entry of the provided ArchiveInputStream to a channel without buffering the entry
+     * and computes the digests requested by the options while the content streams through, so integrity and dedup
+     * checks need no second pass over the content.
+     *
+     * @param currentArcInStream which is already iterated and is at the position of the current entry.
+     * @param entry current entry of the archive stream, null if its stored CRC is not verified.
+     * @param target channel the content is written to, it is not closed.
+     * @param options defining the digests and the verification, the mode and spilling are ignored.
+     * @return digests of the entry content.
+     * @throws IOException in case of any exception while reading the entry or writing the channel.
+     * @throws PasswordProtectedArchiveException if password protected entry is found.
+     * @throws ChecksumMismatchException if the entry does not match its stored CRC.
+     */
+    public static EntryDigests extractTo(final InputStream currentArcInStream, final ArchiveEntry entry, final WritableByteChannel target, final EntryStreamOptions options) throws IOException {
+        DigestingInputStream digesting = new DigestingInputStream(currentArcInStream, digester(entry, options));
+        extractTo(digesting, target);
+        return digesting.getDigests();
+    }
+
+    private static EntryDigester digester(final ArchiveEntry entry, final EntryStreamOptions options) {
+        return new EntryDigester(options.getDigests(), entry, options.isVerifyChecksums());
+    }
+
+    /**
+     * Translates the encryption feature of {@link UnsupportedZipFeatureException} to
+     * {@link PasswordProtectedArchiveException}.
+     *
+     * @param e exception raised while reading a zip entry.
+     * @return the provided exception if it is not about encryption.
+     * @throws PasswordProtectedArchiveException if the exception is about encryption.
+     */
+    static UnsupportedZipFeatureException translate(final UnsupportedZipFeatureException e) {
+        if (UnsupportedZipFeatureException.Feature.ENCRYPTION.equals(e.getFeature())) {
+            throw passwordProtected(ArchiveFormat.ZIP, e);
         }
-        return new BufferedInputStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()));
+        return e;
+    }
+
+    /**
+     * Creates the exception for a stream which is not an archive. Such streams are an expected outcome when inputs are
+     * probed, the exception is therefore created without the cost of a stack trace.
+     *
+     * @param cause raised by commons-compress or null.
+     * @return exception to throw.
+     */
+    static NotAnArchiveOrSupportedArchiveException notAnArchive(final Throwable cause) {
+        return new NotAnArchiveOrSupportedArchiveException("Not an archive or an unsupported archive file.", cause, false);
+    }
+
+    /**
+     * Creates the exception for a password protected archive or entry and records it in the metrics.
+     *
+     * @param format of the archive.
+     * @param cause raised by the archive stream.
+     * @return exception to throw.
+     */
+    static PasswordProtectedArchiveException passwordProtected(final ArchiveFormat format, final Throwable cause) {
+        metrics.passwordProtected(format);
+        return new PasswordProtectedArchiveException("Password protected archive/entries not supported", cause);
+    }
+
+    /**
+     * This method registers the metrics which all archive and compressor streams created by this class report to, see
+     * {@link ArchiveMetrics}. Streams are only instrumented while metrics other than {@link ArchiveMetrics#NOOP} are
+     * registered, streams which are already open keep reporting to the metrics they were opened with.
+     *
+     * @param archiveMetrics metrics to report to, {@link ArchiveMetrics#NOOP} disables the instrumentation.
+     */
+    public static void setMetrics(final ArchiveMetrics archiveMetrics) {
+        metrics = Objects.requireNonNull(archiveMetrics, "archiveMetrics");
+    }
+
+    /**
+     * @return currently registered metrics, {@link ArchiveMetrics#NOOP} by default.
+     */
+    public static ArchiveMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * This method registers the registry through which mime types and formats are dispatched to their providers, see
+     * {@link ArchiveFormatRegistry}.
+     *
+     * @param registry to dispatch through, {@link ArchiveFormatRegistry#getDefault()} restores the default.
+     */
+    public static void setFormatRegistry(final ArchiveFormatRegistry registry) {
+        formatRegistry = Objects.requireNonNull(registry, "registry");
+    }
+
+    /**
+     * @return currently registered format registry, {@link ArchiveFormatRegistry#getDefault()} by default.
+     */
+    public static ArchiveFormatRegistry getFormatRegistry() {
+        ArchiveFormatRegistry registry = formatRegistry;
+        return Objects.isNull(registry) ? ArchiveFormatRegistry.getDefault() : registry;
+    }
+
+    /**
+     * Creates an archive stream from an input stream.
+     */
+    @FunctionalInterface
+    private interface ArchiveOpener {
+        ArchiveInputStream open(InputStream inputStream) throws ArchiveException, IOException, CompressorException;
+    }
+
+    /**
+     * Creates a compressor stream for a known compressor name.
+     */
+    @FunctionalInterface
+    private interface CompressorOpener {
+        CompressorInputStream open(InputStream inputStream, String compressorName) throws IOException, CompressorException;
+    }
+
+    /**
+     * Opener which inflates gzip and zlib streams with inflaters and buffers borrowed from the pool.
+     */
+    private static CompressorOpener pooled(final DecompressionPool pool) {
+        return (inputStream, compressorName) -> {
+            if (CompressorStreamFactory.GZIP.equalsIgnoreCase(compressorName) || CompressorStreamFactory.DEFLATE.equalsIgnoreCase(compressorName)) {
+                return new PooledInflaterInputStream(inputStream, pool, CompressorStreamFactory.GZIP.equalsIgnoreCase(compressorName), false);
+            }
+            return CompressorStreamFactory.getSingleton().createCompressorInputStream(compressorName, inputStream);
+        };
     }
 
     /**
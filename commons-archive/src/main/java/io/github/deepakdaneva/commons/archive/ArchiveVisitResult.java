@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+/**
+ * Result of the {@link ArchiveVisitor} methods which controls how {@link ArchiveWalker} continues.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public enum ArchiveVisitResult {
+    /** Continue with the next entry, nested archives are walked. */
+    CONTINUE,
+    /**
+     * Returned by {@link ArchiveVisitor#preVisitArchive(ArchiveWalkEntry, ArchiveFormat)} to not walk into the nested
+     * archive, the entry is then visited like any other entry.
+     */
+    SKIP_SUBTREE,
+    /** Skip the remaining entries of the archive containing the current entry. */
+    SKIP_SIBLINGS,
+    /** Stop walking. */
+    TERMINATE
+}
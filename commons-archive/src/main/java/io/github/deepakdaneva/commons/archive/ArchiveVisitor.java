@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Visitor of the entries of an archive and all archives nested in it, see {@link ArchiveWalker}.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public interface ArchiveVisitor {
+
+    /**
+     * Invoked for every entry which is not walked into as a nested archive.
+     *
+     * @param entry current entry and its position in the archive tree.
+     * @param content streaming content of the entry, only valid during this call and must not be closed by the
+     * visitor. Unread content is skipped.
+     * @return how to continue.
+     * @throws IOException if processing the entry fails, walking stops with this exception.
+     */
+    ArchiveVisitResult visitEntry(ArchiveWalkEntry entry, InputStream content) throws IOException;
+
+    /**
+     * Invoked for an entry which was detected as an archive before walking into it.
+     *
+     * @param entry entry containing the nested archive.
+     * @param format detected format of the nested archive.
+     * @return {@link ArchiveVisitResult#CONTINUE} to walk into the nested archive or
+     * {@link ArchiveVisitResult#SKIP_SUBTREE} to visit the entry with {@link #visitEntry(ArchiveWalkEntry, InputStream)}.
+     * @throws IOException if processing fails, walking stops with this exception.
+     */
+    default ArchiveVisitResult preVisitArchive(final ArchiveWalkEntry entry, final ArchiveFormat format) throws IOException {
+        return ArchiveVisitResult.CONTINUE;
+    }
+
+    /**
+     * Invoked after all entries of a nested archive have been visited.
+     *
+     * @param entry entry containing the nested archive.
+     * @param format format of the nested archive.
+     * @throws IOException if processing fails, walking stops with this exception.
+     */
+    default void postVisitArchive(final ArchiveWalkEntry entry, final ArchiveFormat format) throws IOException {
+    }
+}
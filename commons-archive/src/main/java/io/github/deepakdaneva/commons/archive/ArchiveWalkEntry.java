@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.util.Objects;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+
+/**
+ * Entry visited by {@link ArchiveWalker} together with its position in the tree of nested archives.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class ArchiveWalkEntry {
+
+    /** Separator between the names of nested archives in {@link #getPath()}. */
+    public static final String PATH_SEPARATOR = "!/";
+
+    private final ArchiveWalkEntry parent;
+    private final ArchiveEntry archiveEntry;
+    private final ArchiveFormat containerFormat;
+    private final int depth;
+
+    ArchiveWalkEntry(final ArchiveWalkEntry parent, final ArchiveEntry archiveEntry, final ArchiveFormat containerFormat, final int depth) {
+        this.parent = parent;
+        this.archiveEntry = archiveEntry;
+        this.containerFormat = containerFormat;
+        this.depth = depth;
+    }
+
+    /**
+     * @return entry of the nested archive containing this entry or null for entries of the outermost archive.
+     */
+    public ArchiveWalkEntry getParent() {
+        return parent;
+    }
+
+    /**
+     * @return underlying entry as read from the containing archive.
+     */
+    public ArchiveEntry getArchiveEntry() {
+        return archiveEntry;
+    }
+
+    /**
+     * @return name of the entry inside its containing archive.
+     */
+    public String getName() {
+        return archiveEntry.getName();
+    }
+
+    /**
+     * @return names of all containing archive entries and this entry joined by {@link #PATH_SEPARATOR}, e.g.
+     * {@code inner.tar.gz!/dir/file.txt}.
+     */
+    public String getPath() {
+        return Objects.isNull(parent) ? getName() : parent.getPath() + PATH_SEPARATOR + getName();
+    }
+
+    /**
+     * @return format of the archive containing this entry.
+     */
+    public ArchiveFormat getContainerFormat() {
+        return containerFormat;
+    }
+
+    /**
+     * @return nesting depth of the containing archive, {@code 0} for entries of the outermost archive.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public String toString() {
+        return getPath();
+    }
+}
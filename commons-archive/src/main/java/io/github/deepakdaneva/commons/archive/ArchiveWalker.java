@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.io.input.CloseShieldInputStream;
+
+/**
+ * Walks an archive and recursively all archives nested in it, e.g. zip files containing tar.gz files containing 7z
+ * files. Nested archives are streamed directly from the entry of their parent, only formats which need random access
+ * (7z) are buffered and those spill to a temporary file above a threshold. Every level is closed automatically once
+ * it has been walked. Optional {@link ArchiveLimits} are enforced on every level, exceeding the maximum depth of the
+ * limits fails instead of silently not descending. Instances are immutable and thread safe, they are created through
+ * {@link #builder()}.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class ArchiveWalker {
+
+    /** Default maximum nesting depth of archives which are walked into. */
+    public static final int DEFAULT_MAX_DEPTH = 8;
+
+    private final int maxDepth;
+    private final long maxTotalBytes;
+    private final long inMemoryThreshold;
+    private final ArchiveLimits limits;
+
+    private ArchiveWalker(final Builder builder) {
+        this.maxDepth = builder.maxDepth;
+        this.maxTotalBytes = builder.maxTotalBytes;
+        this.inMemoryThreshold = builder.inMemoryThreshold;
+        this.limits = builder.limits;
+    }
+
+    /**
+     * @return new builder initialized with the default values.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Walks the archive file and all archives nested in it.
+     *
+     * @param path of the archive file, 7z files are read in place.
+     * @param visitor which is invoked for the entries.
+     * @throws IOException if reading fails or the visitor throws.
+     * @throws ArchiveException if any ArchiveException is raised.
+     * @throws CompressorException if any compressor exception is raised.
+     * @throws NotAnArchiveOrSupportedArchiveException if the file is not a supported archive.
+     * @throws PasswordProtectedArchiveException if a password protected archive or entry is found.
+     * @throws ArchiveLimitExceededException if any limit is exceeded.
+     */
+    public void walk(final Path path, final ArchiveVisitor visitor) throws IOException, ArchiveException, CompressorException {
+        ArchiveFormat format;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            format = ArchiveFormatDetector.detect(in);
+            if (!ArchiveFormat.SEVEN_Z.equals(format)) {
+                walk(in, format, visitor);
+                return;
+            }
+        }
+        long size = Files.size(path);
+        try (ArchiveInputStream ais = guard(ArchiveUtil.meteredSevenZ(ArchiveUtil.open7z(() -> new SevenZArchiveInputStream(path)), () -> size), () -> size)) {
+            walkArchive(ais, format, null, 0, visitor, new WalkState());
+        }
+    }
+
+    /**
+     * Walks the archive stream and all archives nested in it, the stream is not closed.
+     *
+     * @param inputStream stream of the archive which supports mark and reset, recommended BufferedInputStream.
+     * @param visitor which is invoked for the entries.
+     * @throws IOException if reading fails or the visitor throws.
+     * @throws ArchiveException if any ArchiveException is raised.
+     * @throws CompressorException if any compressor exception is raised.
+     * @throws NotAnArchiveOrSupportedArchiveException if the stream is not a supported archive.
+     * @throws PasswordProtectedArchiveException if a password protected archive or entry is found.
+     * @throws ArchiveLimitExceededException if any limit is exceeded.
+     */
+    public void walk(final InputStream inputStream, final ArchiveVisitor visitor) throws IOException, ArchiveException, CompressorException {
+        walk(inputStream, ArchiveFormatDetector.detect(inputStream), visitor);
+    }
+
+    private void walk(final InputStream inputStream, final ArchiveFormat format, final ArchiveVisitor visitor) throws IOException, ArchiveException, CompressorException {
+        if (!isWalkable(format)) {
+            throw ArchiveUtil.notAnArchive(null);
+        }
+        try (ArchiveInputStream ais = open(CloseShieldInputStream.wrap(inputStream), format)) {
+            walkArchive(ais, format, null, 0, visitor, new WalkState());
+        }
+    }
+
+    /**
+     * Walks the entries of one archive level.
+     *
+     * @return false if walking has been terminated.
+     */
+    private boolean walkArchive(final ArchiveInputStream ais, final ArchiveFormat format, final ArchiveWalkEntry parent, final int depth, final ArchiveVisitor visitor, final WalkState state) throws IOException, ArchiveException, CompressorException {
+        ArchiveEntry archiveEntry;
+        while (Objects.nonNull(archiveEntry = ais.getNextEntry())) {
+            ArchiveWalkEntry entry = new ArchiveWalkEntry(parent, archiveEntry, format, depth);
+            InputStream content = new BufferedInputStream(new CountingEntryInputStream(ais, state));
+            ArchiveVisitResult result = null;
+            if (!archiveEntry.isDirectory() && depth < maxDepth) {
+                ArchiveFormat nested = ArchiveFormatDetector.detect(content);
+                if (isWalkable(nested)) {
+                    result = visitor.preVisitArchive(entry, nested);
+                    if (ArchiveVisitResult.CONTINUE.equals(result)) {
+                        if (depth >= limits.getMaxDepth()) {
+                            throw new ArchiveLimitExceededException(ArchiveLimitExceededException.Limit.DEPTH, "Maximum nesting depth of " + limits.getMaxDepth() + " exceeded at " + entry.getPath());
+                        }
+                        boolean completed;
+                        try (ArchiveInputStream nestedAis = open(content, nested)) {
+                            completed = walkArchive(nestedAis, nested, entry, depth + 1, visitor, state);
+                        }
+                        if (!completed) {
+                            return false;
+                        }
+                        visitor.postVisitArchive(entry, nested);
+                    }
+                }
+            }
+            if (Objects.isNull(result) || ArchiveVisitResult.SKIP_SUBTREE.equals(result)) {
+                result = visitor.visitEntry(entry, content);
+            }
+            if (ArchiveVisitResult.TERMINATE.equals(result)) {
+                return false;
+            } else if (ArchiveVisitResult.SKIP_SIBLINGS.equals(result)) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    private ArchiveInputStream open(final InputStream content, final ArchiveFormat format) throws IOException, ArchiveException, CompressorException {
+        if (ArchiveFormat.SEVEN_Z.equals(format)) {
+            // 7z needs random access, buffer it with bounded memory
+            ByteCountingInputStream raw = new ByteCountingInputStream(content);
+            return guard(ArchiveUtil.meteredSevenZ(ArchiveUtil.open7z(() -> new SevenZArchiveInputStream(raw, inMemoryThreshold)), raw::getCount), raw::getCount);
+        }
+        return ArchiveUtil.getArchiveInputStream(content, format, limits);
+    }
+
+    private ArchiveInputStream guard(final ArchiveInputStream ais, final LongSupplier compressedBytes) {
+        if (ArchiveLimits.UNLIMITED.equals(limits)) {
+            return ais;
+        }
+        return new GuardedArchiveInputStream(ais, new ArchiveGuard(limits, compressedBytes, true));
+    }
+
+    private static boolean isWalkable(final ArchiveFormat format) {
+        return format.isReadable();
+    }
+
+    /**
+     * Mutable state shared by all levels of one walk.
+     */
+    private static final class WalkState {
+        private long totalBytes;
+    }
+
+    /**
+     * Entry content which accounts every byte read against the total byte limit of the walk and leaves the archive
+     * stream open when closed.
+     */
+    private final class CountingEntryInputStream extends FilterInputStream {
+        private final WalkState state;
+
+        private CountingEntryInputStream(final InputStream in, final WalkState state) {
+            super(new StreamingEntryInputStream(in));
+            this.state = state;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            long skipped = in.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public void close() {
+            // the archive stream is closed by the walker
+        }
+
+        private void count(final long n) {
+            state.totalBytes += n;
+            if (state.totalBytes > maxTotalBytes) {
+                throw new ArchiveLimitExceededException(ArchiveLimitExceededException.Limit.ARCHIVE_BYTES, "Maximum total bytes of " + maxTotalBytes + " exceeded while walking the archive");
+            }
+        }
+    }
+
+    /**
+     * Builder of {@link ArchiveWalker}.
+     */
+    public static final class Builder {
+        private int maxDepth = DEFAULT_MAX_DEPTH;
+        private long maxTotalBytes = Long.MAX_VALUE;
+        private long inMemoryThreshold = SevenZArchiveInputStream.DEFAULT_IN_MEMORY_THRESHOLD;
+        private ArchiveLimits limits = ArchiveLimits.UNLIMITED;
+
+        private Builder() {
+        }
+
+        /**
+         * @param maxDepth maximum nesting depth of archives walked into, {@code 0} only walks the outermost archive.
+         * @return this builder.
+         */
+        public Builder maxDepth(final int maxDepth) {
+            if (maxDepth < 0) {
+                throw new IllegalArgumentException("maxDepth must not be negative");
+            }
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        /**
+         * @param maxTotalBytes maximum number of bytes decoded from the entries of all levels together.
+         * @return this builder.
+         */
+        public Builder maxTotalBytes(final long maxTotalBytes) {
+            if (maxTotalBytes < 0) {
+                throw new IllegalArgumentException("maxTotalBytes must not be negative");
+            }
+            this.maxTotalBytes = maxTotalBytes;
+            return this;
+        }
+
+        /**
+         * @param inMemoryThreshold maximum number of bytes of a nested archive which needs random access (7z) kept in
+         * memory before it is spilled to a temporary file.
+         * @return this builder.
+         */
+        public Builder inMemoryThreshold(final long inMemoryThreshold) {
+            if (inMemoryThreshold < 0) {
+                throw new IllegalArgumentException("inMemoryThreshold must not be negative");
+            }
+            this.inMemoryThreshold = inMemoryThreshold;
+            return this;
+        }
+
+        /**
+         * @param limits enforced on every level of the walk, default is {@link ArchiveLimits#UNLIMITED}.
+         * @return this builder.
+         */
+        public Builder limits(final ArchiveLimits limits) {
+            this.limits = Objects.requireNonNull(limits, "limits");
+            return this;
+        }
+
+        /**
+         * @return immutable walker.
+         */
+        public ArchiveWalker build() {
+            return new ArchiveWalker(this);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import org.apache.commons.compress.compressors.CompressorOutputStream;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+
+/**
+ * Configuration for writing archives and compressed streams, the write side counterpart of {@link ArchiveUtil}. The
+ * format is one of the {@link ArchiveFormat} constants which are also used for reading, archives are written for the
+ * formats which are {@link ArchiveFormat#isWritable() writable} (zip, tar, compressed tar and 7z) and plain compressed
+ * streams for gzip, bzip2 and xz. With a parallelism above {@code 1}:
+ * <ul>
+ * <li>zip: entries are deflated concurrently and written in the order they were added.</li>
+ * <li>gzip: blocks are deflated concurrently into a single member, like pigz.</li>
+ * <li>xz: blocks are compressed concurrently into a multi block stream which records the block sizes, like
+ * {@code xz -T}, and can itself be decompressed in parallel.</li>
+ * </ul>
+ * Other formats are always written sequentially. Instances are immutable and thread safe, they are created through
+ * {@link #builder()}.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class ArchiveWriter {
+
+    /** Compression level which selects the default level of the format. */
+    public static final int DEFAULT_COMPRESSION_LEVEL = -1;
+    /** Default number of uncompressed bytes of a block compressed in parallel (1 MiB). */
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    private final ArchiveFormat format;
+    private final int compressionLevel;
+    private final int parallelism;
+    private final Executor executor;
+    private final int blockSize;
+    private final long spillThreshold;
+    private final Path tempDirectory;
+
+    private ArchiveWriter(final Builder builder) {
+        this.format = builder.format;
+        this.compressionLevel = builder.compressionLevel;
+        this.parallelism = builder.parallelism;
+        this.executor = builder.executor;
+        this.blockSize = builder.blockSize;
+        this.spillThreshold = builder.spillThreshold;
+        this.tempDirectory = builder.tempDirectory;
+    }
+
+    /**
+     * @return new builder initialized with the default values.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Starts writing an archive to the stream.
+     *
+     * @param outputStream stream the archive is written to, it is closed when the archive is closed.
+     * @return archive to add entries to.
+     * @throws IOException if the archive can not be started.
+     * @throws IllegalStateException if the format is not a writable archive format.
+     */
+    public ArchiveOutput open(final OutputStream outputStream) throws IOException {
+        checkArchiveFormat();
+        return ArchiveOutput.create(this, Objects.requireNonNull(outputStream, "outputStream"), null);
+    }
+
+    /**
+     * Starts writing an archive to the file, zip and 7z archives use random access to the file.
+     *
+     * @param path of the archive file, an existing file is replaced.
+     * @return archive to add entries to.
+     * @throws IOException if the archive can not be started.
+     * @throws IllegalStateException if the format is not a writable archive format.
+     */
+    public ArchiveOutput open(final Path path) throws IOException {
+        checkArchiveFormat();
+        return ArchiveOutput.create(this, null, Objects.requireNonNull(path, "path"));
+    }
+
+    /**
+     * Starts writing a compressed stream, for compressed tar formats the compressor of the tar archive is used.
+     *
+     * @param outputStream stream the compressed data is written to, it is closed when the returned stream is closed.
+     * @return stream compressing everything written to it.
+     * @throws IOException if the compressed stream can not be started.
+     * @throws IllegalStateException if the format is not compressed with gzip, bzip2 or xz.
+     */
+    public CompressorOutputStream openCompressor(final OutputStream outputStream) throws IOException {
+        String compressorName = format.getCompressorName();
+        if (CompressorStreamFactory.GZIP.equals(compressorName)) {
+            if (parallelism > 1) {
+                return new ParallelGzipOutputStream(outputStream, executor, parallelism, blockSize, compressionLevel);
+            }
+            GzipParameters parameters = new GzipParameters();
+            parameters.setCompressionLevel(compressionLevel);
+            return new GzipCompressorOutputStream(outputStream, parameters);
+        } else if (CompressorStreamFactory.XZ.equals(compressorName)) {
+            if (parallelism > 1) {
+                return new ParallelXZOutputStream(outputStream, executor, parallelism, blockSize, compressionLevel);
+            }
+            return compressionLevel < 0 ? new XZCompressorOutputStream(outputStream) : new XZCompressorOutputStream(outputStream, compressionLevel);
+        } else if (CompressorStreamFactory.BZIP2.equals(compressorName)) {
+            // the level selects the block size of 100 to 900 KB
+            return new BZip2CompressorOutputStream(outputStream, compressionLevel < 1 ? BZip2CompressorOutputStream.MAX_BLOCKSIZE : compressionLevel);
+        }
+        throw new IllegalStateException("Compressed streams can not be written for format " + format);
+    }
+
+    private void checkArchiveFormat() {
+        if (!format.isWritable()) {
+            throw new IllegalStateException("Archives can not be written for format " + format);
+        }
+    }
+
+    /**
+     * @return format which is written.
+     */
+    public ArchiveFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return compression level from {@code 0} to {@code 9} or {@link #DEFAULT_COMPRESSION_LEVEL}.
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * @return maximum number of entries or blocks compressed concurrently, {@code 1} writes sequentially.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return number of uncompressed bytes of a gzip or xz block compressed in parallel.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    Executor getExecutor() {
+        return executor;
+    }
+
+    long getSpillThreshold() {
+        return spillThreshold;
+    }
+
+    Path getTempDirectory() {
+        return tempDirectory;
+    }
+
+    /**
+     * Builder of {@link ArchiveWriter}.
+     */
+    public static final class Builder {
+        private ArchiveFormat format = ArchiveFormat.ZIP;
+        private int compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+        private int parallelism = 1;
+        private Executor executor = ParallelArchiveExtractor.DEFAULT_EXECUTOR;
+        private int blockSize = DEFAULT_BLOCK_SIZE;
+        private long spillThreshold = EntryStreamOptions.DEFAULT_SPILL_THRESHOLD;
+        private Path tempDirectory;
+
+        private Builder() {
+        }
+
+        /**
+         * @param format to write, default is {@link ArchiveFormat#ZIP}.
+         * @return this builder.
+         */
+        public Builder format(final ArchiveFormat format) {
+            this.format = Objects.requireNonNull(format, "format");
+            return this;
+        }
+
+        /**
+         * @param mimeType of the format to write, compressor mime types select the compressed tar format, see
+         * {@link ArchiveUtil#getArchiveInputStream(java.io.InputStream, String)}.
+         * @return this builder.
+         */
+        public Builder mimeType(final String mimeType) {
+            ArchiveFormat mimeFormat = ArchiveFormat.forMimeType(mimeType);
+            if (ArchiveFormat.UNKNOWN.equals(mimeFormat)) {
+                throw new IllegalArgumentException("Unknown archive mime type " + mimeType);
+            }
+            this.format = mimeFormat;
+            return this;
+        }
+
+        /**
+         * @param compressionLevel from {@code 0} (fastest) to {@code 9} (smallest) or
+         * {@link #DEFAULT_COMPRESSION_LEVEL}. For bzip2 the level selects the block size, for 7z level {@code 0} stores
+         * the entries uncompressed.
+         * @return this builder.
+         */
+        public Builder compressionLevel(final int compressionLevel) {
+            if (compressionLevel < DEFAULT_COMPRESSION_LEVEL || compressionLevel > 9) {
+                throw new IllegalArgumentException("compressionLevel must be between -1 and 9");
+            }
+            this.compressionLevel = compressionLevel;
+            return this;
+        }
+
+        /**
+         * @param parallelism maximum number of entries or blocks compressed concurrently, default is {@code 1} which
+         * writes sequentially.
+         * @return this builder.
+         */
+        public Builder parallelism(final int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism must be positive");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * @param executor on which entries and blocks are compressed in parallel, default uses virtual threads on Java
+         * 21+ and the common {@link ForkJoinPool} otherwise.
+         * @return this builder.
+         */
+        public Builder executor(final Executor executor) {
+            this.executor = Objects.requireNonNull(executor, "executor");
+            return this;
+        }
+
+        /**
+         * @param blockSize number of uncompressed bytes of a gzip or xz block compressed in parallel, default is
+         * {@link #DEFAULT_BLOCK_SIZE}.
+         * @return this builder.
+         */
+        public Builder blockSize(final int blockSize) {
+            if (blockSize <= 0) {
+                throw new IllegalArgumentException("blockSize must be positive");
+            }
+            this.blockSize = blockSize;
+            return this;
+        }
+
+        /**
+         * @param spillThreshold maximum number of bytes of an entry kept in memory when it has to be buffered, e.g. tar
+         * entries of unknown size or zip entries compressed in parallel. Default is
+         * {@link EntryStreamOptions#DEFAULT_SPILL_THRESHOLD}.
+         * @return this builder.
+         */
+        public Builder spillThreshold(final long spillThreshold) {
+            if (spillThreshold < 0) {
+                throw new IllegalArgumentException("spillThreshold must not be negative");
+            }
+            this.spillThreshold = spillThreshold;
+            return this;
+        }
+
+        /**
+         * @param tempDirectory directory of spill files or null for the default temporary directory.
+         * @return this builder.
+         */
+        public Builder tempDirectory(final Path tempDirectory) {
+            this.tempDirectory = tempDirectory;
+            return this;
+        }
+
+        /**
+         * @return immutable configuration.
+         */
+        public ArchiveWriter build() {
+            return new ArchiveWriter(this);
+        }
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Reads archives asynchronously on an {@link Executor}, either as a {@link Flow.Publisher} of {@link ArchiveChunk}s
+ * or through a {@link CompletableFuture}. Archives are opened with the same format support as
+ * {@link ArchiveUtil#getArchiveInputStream(InputStream)}.
+ * <p>
+ * Publishers honour the demand of their subscriber: a chunk is only read from the archive when it has been requested,
+ * while there is no demand no thread is occupied by the subscription. The reads of the underlying streams are still
+ * blocking, so sources should be local files or already received data to keep the executor threads from waiting on the
+ * network. Instances are immutable and thread safe, they are created through {@link #builder()}.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class AsyncArchiveReader {
+
+    /** Default maximum number of bytes of a published chunk. */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private final Executor executor;
+    private final int chunkSize;
+
+    private AsyncArchiveReader(final Builder builder) {
+        this.executor = builder.executor;
+        this.chunkSize = builder.chunkSize;
+    }
+
+    /**
+     * @return new builder initialized with the default values.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Publishes the entries of the archive, every subscription opens the source again.
+     *
+     * @param source of the archive.
+     * @return cold publisher of the chunks of all entries in archive order.
+     */
+    public Flow.Publisher<ArchiveChunk> publish(final ArchiveSource source) {
+        Objects.requireNonNull(source, "source");
+        return subscriber -> {
+            ChunkSubscription subscription = new ChunkSubscription(source, Objects.requireNonNull(subscriber, "subscriber"));
+            try {
+                subscriber.onSubscribe(subscription);
+            } finally {
+                subscription.start();
+            }
+        };
+    }
+
+    /**
+     * Publishes the entries of the archive file, the format is detected from its content.
+     *
+     * @param path of the archive file, 7z files are read in place.
+     * @return cold publisher of the chunks of all entries in archive order.
+     */
+    public Flow.Publisher<ArchiveChunk> publish(final Path path) {
+        return publish(source(path));
+    }
+
+    /**
+     * Processes the entries of the archive one after another on the executor.
+     *
+     * @param source of the archive.
+     * @param processor invoked for every entry.
+     * @param consumer invoked for every result on the thread which processed the entry.
+     * @param <R> type of the results.
+     * @return future of the number of processed entries, cancelling it stops the processing before the next entry.
+     */
+    public <R> CompletableFuture<Long> process(final ArchiveSource source, final EntryProcessor<R> processor, final EntryResultConsumer<? super R> consumer) {
+        Objects.requireNonNull(source, "source");
+        Objects.requireNonNull(processor, "processor");
+        Objects.requireNonNull(consumer, "consumer");
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                long count = 0;
+                try (ArchiveInputStream ais = source.open()) {
+                    ArchiveEntry entry;
+                    while (!future.isDone() && Objects.nonNull(entry = ais.getNextEntry())) {
+                        consumer.accept(entry, processor.process(entry, new StreamingEntryInputStream(ais)));
+                        count++;
+                    }
+                    future.complete(count);
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Processes the entries of the archive file one after another on the executor, the format is detected from its
+     * content.
+     *
+     * @param path of the archive file, 7z files are read in place.
+     * @param processor invoked for every entry.
+     * @param consumer invoked for every result on the thread which processed the entry.
+     * @param <R> type of the results.
+     * @return future of the number of processed entries, cancelling it stops the processing before the next entry.
+     */
+    public <R> CompletableFuture<Long> process(final Path path, final EntryProcessor<R> processor, final EntryResultConsumer<? super R> consumer) {
+        return process(source(path), processor, consumer);
+    }
+
+    /**
+     * @param path of the archive file, 7z files are read in place.
+     * @return source which detects the format of the file from its content every time it is opened.
+     */
+    static ArchiveSource source(final Path path) {
+        Objects.requireNonNull(path, "path");
+        return () -> {
+            ArchiveFormat format;
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+                format = ArchiveFormatDetector.detect(in);
+            }
+            if (!format.isReadable()) {
+                throw ArchiveUtil.notAnArchive(null);
+            }
+            return ArchiveUtil.getArchiveInputStream(path, format.getMimeType());
+        };
+    }
+
+    /**
+     * Subscription which reads the archive in a drain loop, at most one drain runs at a time so all signals to the
+     * subscriber are serialized. The subscribing thread holds the drain until {@code onSubscribe} has returned, so
+     * requests made within it are not served before. The state other than the demand, the work counter and the
+     * cancelled flag is only accessed by the drain loop.
+     */
+    private final class ChunkSubscription implements Flow.Subscription, Runnable {
+        private final ArchiveSource source;
+        private final Flow.Subscriber<? super ArchiveChunk> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger(1);
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        private ArchiveInputStream ais;
+        private ArchiveEntry entry;
+        private boolean terminated;
+
+        private ChunkSubscription(final ArchiveSource source, final Flow.Subscriber<? super ArchiveChunk> subscriber) {
+            this.source = source;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("non-positive subscription request: " + n);
+            } else {
+                demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        /**
+         * Releases the hold of the subscribing thread and drains the signals received during {@code onSubscribe}.
+         */
+        private void start() {
+            if (work.decrementAndGet() != 0) {
+                execute();
+            }
+        }
+
+        private void schedule() {
+            if (work.getAndIncrement() == 0) {
+                execute();
+            }
+        }
+
+        private void execute() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // no drain is running, this thread owns the subscription
+                terminate(e);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = work.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (terminated) {
+                return;
+            }
+            if (cancelled) {
+                terminated = true;
+                IOUtils.closeQuietly(ais);
+                return;
+            }
+            if (Objects.nonNull(invalidRequest)) {
+                terminate(invalidRequest);
+                return;
+            }
+            try {
+                if (Objects.isNull(ais)) {
+                    ais = source.open();
+                }
+                while (demand.get() > 0 && !cancelled) {
+                    ArchiveChunk chunk = next();
+                    if (Objects.isNull(chunk)) {
+                        terminated = true;
+                        ais.close();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    demand.decrementAndGet();
+                    subscriber.onNext(chunk);
+                }
+            } catch (Throwable t) {
+                terminate(t);
+            }
+        }
+
+        /**
+         * @return next chunk of the current or the next entry, null after the last entry.
+         */
+        private ArchiveChunk next() throws IOException {
+            boolean first = false;
+            if (Objects.isNull(entry)) {
+                entry = ais.getNextEntry();
+                if (Objects.isNull(entry)) {
+                    return null;
+                }
+                first = true;
+            }
+            byte[] data = new byte[chunkSize];
+            int n = IOUtils.read(ais, data);
+            ArchiveChunk chunk = new ArchiveChunk(entry, ByteBuffer.wrap(n < chunkSize ? Arrays.copyOf(data, n) : data).asReadOnlyBuffer(), first, n < chunkSize);
+            if (chunk.isLast()) {
+                entry = null;
+            }
+            return chunk;
+        }
+
+        private void terminate(final Throwable error) {
+            terminated = true;
+            IOUtils.closeQuietly(ais);
+            if (!cancelled) {
+                cancelled = true;
+                subscriber.onError(error);
+            }
+        }
+    }
+
+    /**
+     * Builder of {@link AsyncArchiveReader}.
+     */
+    public static final class Builder {
+        private Executor executor = ParallelArchiveExtractor.DEFAULT_EXECUTOR;
+        private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+        private Builder() {
+        }
+
+        /**
+         * @param executor on which archives are read, default uses virtual threads on Java 21+ and the common
+         * {@link ForkJoinPool} otherwise.
+         * @return this builder.
+         */
+        public Builder executor(final Executor executor) {
+            this.executor = Objects.requireNonNull(executor, "executor");
+            return this;
+        }
+
+        /**
+         * @param chunkSize maximum number of bytes of a published chunk.
+         * @return this builder.
+         */
+        public Builder chunkSize(final int chunkSize) {
+            if (chunkSize <= 0) {
+                throw new IllegalArgumentException("chunkSize must be positive");
+            }
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * @return immutable reader.
+         */
+        public AsyncArchiveReader build() {
+            return new AsyncArchiveReader(this);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+
+/**
+ * Splits a bzip2 stream, including concatenated streams as written by parallel compressors, into frames of single
+ * blocks. Blocks are located by their 48 bit magic which is not byte aligned. A frame is decoded as a synthetic stream
+ * consisting of a stream header, the block and an end of stream marker whose combined CRC is the CRC of the block, so
+ * the block CRC is verified by the regular decoder.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class BZip2FrameSplitter implements FrameSplitter {
+
+    private static final long BLOCK_MAGIC = 0x314159265359L;
+    private static final long EOS_MAGIC = 0x177245385090L;
+    private static final long MAGIC_MASK = (1L << 48) - 1;
+    private static final int MAGIC_BITS = 48;
+    private static final int CRC_BITS = 32;
+    private static final byte[] STREAM_HEADER = { 'B', 'Z', 'h', '9' };
+
+    private final InputStream in;
+    private final int maxFrameSize;
+    private byte[] buffer = new byte[64 * 1024];
+    private int limit;
+    private long base;
+    private long keepFrom;
+    private boolean eof;
+    private boolean started;
+    private long blockStart = -1;
+    private long scanFrom;
+    private boolean foundBlock;
+
+    /**
+     * @param in bzip2 stream.
+     * @param maxFrameSize maximum number of compressed bytes of a block, larger blocks are treated as corrupt.
+     */
+    BZip2FrameSplitter(final InputStream in, final int maxFrameSize) {
+        this.in = in;
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    @Override
+    public Frame next() throws IOException {
+        if (!started) {
+            started = true;
+            if (!fill(STREAM_HEADER.length) || buffer[0] != 'B' || buffer[1] != 'Z' || buffer[2] != 'h') {
+                throw new IOException("Stream is not in the BZip2 format");
+            }
+            scanFrom = STREAM_HEADER.length * 8L;
+        }
+        while (blockStart < 0) {
+            keepFrom = scanFrom >>> 3;
+            long magic = find(scanFrom);
+            if (magic < 0) {
+                return null;
+            }
+            if (foundBlock) {
+                blockStart = magic;
+            } else {
+                // end of stream marker and combined CRC, a further stream may follow
+                scanFrom = magic + MAGIC_BITS + CRC_BITS;
+            }
+        }
+        keepFrom = blockStart >>> 3;
+        long end = find(blockStart + MAGIC_BITS);
+        if (end < 0) {
+            throw new EOFException("Truncated bzip2 stream");
+        }
+        Frame frame = new Frame(Arrays.copyOfRange(buffer, (int) ((blockStart >>> 3) - base), (int) (((end + 7) >>> 3) - base)), blockStart, end, false);
+        if (foundBlock) {
+            blockStart = end;
+        } else {
+            blockStart = -1;
+            scanFrom = end + MAGIC_BITS + CRC_BITS;
+        }
+        return frame;
+    }
+
+    @Override
+    public InputStream decode(final Frame frame) throws IOException {
+        BitWriter out = new BitWriter(frame.getData().length + 16);
+        for (byte b : STREAM_HEADER) {
+            out.write(8, b & 0xff);
+        }
+        byte[] data = frame.getData();
+        int offset = (int) (frame.getStartBit() & 7);
+        long bits = frame.getEndBit() - frame.getStartBit();
+        long bit = 0;
+        for (; bit + 8 <= bits; bit += 8) {
+            out.write(8, readByte(data, offset + bit));
+        }
+        for (; bit < bits; bit++) {
+            out.write(1, readBits(data, offset + bit, 1));
+        }
+        out.write(MAGIC_BITS, EOS_MAGIC);
+        // combined CRC of a stream with a single block is the CRC of the block
+        out.write(CRC_BITS, readBits(data, offset + MAGIC_BITS, CRC_BITS));
+        return new BZip2CompressorInputStream(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Override
+    public Frame merge(final Frame first, final Frame second, final IOException failure) throws IOException {
+        if (first.getEndBit() != second.getStartBit()) {
+            throw failure;
+        }
+        int shared = (int) ((second.getStartBit() >>> 3) - (first.getStartBit() >>> 3));
+        if (shared + second.getData().length > maxFrameSize) {
+            throw failure;
+        }
+        byte[] data = Arrays.copyOf(first.getData(), shared + second.getData().length);
+        System.arraycopy(second.getData(), 0, data, shared, second.getData().length);
+        return new Frame(data, first.getStartBit(), second.getEndBit(), false);
+    }
+
+    @Override
+    public InputStream sequential(final List<Frame> frames) {
+        throw new IllegalStateException("bzip2 blocks are always decoded in parallel");
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Finds the next block or end of stream magic, {@link #foundBlock} tells which one has been found.
+     *
+     * @return bit position of the magic or -1 if the stream ended before.
+     */
+    private long find(final long fromBit) throws IOException {
+        long register = 0;
+        long position = fromBit;
+        long first = fromBit >>> 3;
+        for (long index = first;; index++) {
+            if (!fill(index + 1)) {
+                return -1;
+            }
+            if (index - first > maxFrameSize) {
+                throw new IOException("BZip2 block exceeds the maximum frame size of " + maxFrameSize + " bytes");
+            }
+            int b = buffer[(int) (index - base)] & 0xff;
+            for (int i = (int) (position & 7); i < 8; i++, position++) {
+                register = (register << 1 | (b >>> (7 - i)) & 1) & MAGIC_MASK;
+                if (position - fromBit >= MAGIC_BITS - 1) {
+                    if (register == BLOCK_MAGIC || register == EOS_MAGIC) {
+                        foundBlock = register == BLOCK_MAGIC;
+                        return position - (MAGIC_BITS - 1);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return false if the stream ended before the byte preceding the absolute end position is buffered.
+     */
+    private boolean fill(final long end) throws IOException {
+        while (base + limit < end) {
+            if (eof) {
+                return false;
+            }
+            if (limit == buffer.length) {
+                int discard = (int) Math.max(0, Math.min(keepFrom - base, limit));
+                if (discard > 0) {
+                    System.arraycopy(buffer, discard, buffer, 0, limit - discard);
+                    limit -= discard;
+                    base += discard;
+                } else {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+            }
+            int n = in.read(buffer, limit, buffer.length - limit);
+            if (n < 0) {
+                eof = true;
+            } else {
+                limit += n;
+            }
+        }
+        return true;
+    }
+
+    private static int readByte(final byte[] data, final long bit) {
+        int index = (int) (bit >>> 3);
+        int value = (data[index] & 0xff) << 8 | (index + 1 < data.length ? data[index + 1] & 0xff : 0);
+        return value >>> (8 - (int) (bit & 7)) & 0xff;
+    }
+
+    private static int readBits(final byte[] data, final long bit, final int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            long position = bit + i;
+            value = value << 1 | (data[(int) (position >>> 3)] >>> (7 - (int) (position & 7))) & 1;
+        }
+        return value;
+    }
+
+    /**
+     * Writes bits most significant first.
+     */
+    private static final class BitWriter {
+        private final ByteArrayOutputStream out;
+        private long pending;
+        private int pendingBits;
+
+        private BitWriter(final int size) {
+            this.out = new ByteArrayOutputStream(size);
+        }
+
+        private void write(final int count, final long value) {
+            if (count == 8 && pendingBits == 0) {
+                out.write((int) value);
+                return;
+            }
+            for (int i = count - 1; i >= 0; i--) {
+                pending = pending << 1 | (value >>> i) & 1;
+                if (++pendingBits == 8) {
+                    out.write((int) pending);
+                    pending = 0;
+                    pendingBits = 0;
+                }
+            }
+        }
+
+        private byte[] toByteArray() {
+            if (pendingBits > 0) {
+                out.write((int) (pending << (8 - pendingBits)));
+                pending = 0;
+                pendingBits = 0;
+            }
+            return out.toByteArray();
+        }
+    }
+}
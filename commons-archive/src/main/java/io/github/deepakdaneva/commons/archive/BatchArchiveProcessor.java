@@ -0,0 +1,573 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipException;
+import org.apache.commons.compress.MemoryLimitException;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.sevenz.SevenZFileOptions;
+import org.apache.commons.compress.compressors.CompressorException;
+
+/**
+ * Processes many archive files concurrently on an executor, every archive is read sequentially by one task and its
+ * entries are handed to an {@link EntryProcessor} as by {@link ArchiveUtil#getEntryInputStream(InputStream, ArchiveEntry,
+ * EntryStreamOptions)}. A failing archive does not stop the batch, its failure is recorded in the
+ * {@link BatchArchiveReport} together with the timing of every archive.
+ * <p>
+ * Archives are started smallest first. Before an archive is started it reserves the memory it may buffer from a global
+ * memory budget, which is one copy buffer plus the spill threshold of the entry options unless entries are streamed,
+ * and at most {@code parallelism} archives run at the same time. The archives waiting for a worker or for memory are
+ * not submitted to the executor yet, so neither the queue of the executor nor the heap grows with the size of the batch.
+ * <p>
+ * The reservation also covers the decoder of the archive, which is sized from the header of the file: the block size of
+ * bzip2, the LZMA2 dictionary of the first xz block and the inflater of gzip and zip. The dictionaries of a 7z archive
+ * are stored in its usually compressed header, so every 7z archive reserves {@link Builder#sevenZMemoryLimit(long)}
+ * and is opened with that limit, archives whose decoders need more fail with a {@link MemoryLimitException}. 7z
+ * archives are read in place and not buffered. The budget does not cover the memory of the processor and the consumer,
+ * the metadata of the archives, e.g. the zip central directory or the 7z header, nor zip entries compressed with other
+ * methods than deflate.
+ * <p>
+ * Transient I/O failures are retried with a linearly growing delay. A retry reopens the archive and skips the entries
+ * which were already delivered, so the consumer receives every entry at most once. Instances are immutable and thread
+ * safe, they are created through {@link #builder()}.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class BatchArchiveProcessor {
+
+    /** Default number of bytes which all running archives may buffer and decode with together. */
+    public static final long DEFAULT_MEMORY_BUDGET = 256L * 1024 * 1024;
+    /** Default maximum number of times an archive is opened when transient failures occur. */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    /** Default delay before the first retry, further retries wait a multiple of it. */
+    public static final long DEFAULT_RETRY_DELAY_MILLIS = 100;
+    /** Default memory reserved for and allowed to the decoders of a 7z archive, the dictionary of 7-Zip's ultra level. */
+    public static final long DEFAULT_SEVEN_Z_MEMORY_LIMIT = 64L * 1024 * 1024;
+
+    /** Unit in which the memory budget is reserved. */
+    private static final int PERMIT_SIZE = BufferPool.DEFAULT_CHUNK_SIZE;
+    /** Memory of a bzip2 decoder per 100 kB of block size, the block is held in an int and a byte array. */
+    private static final int BZIP2_BLOCK_MEMORY = 5 * 100_000;
+    /** Memory of an LZMA2 decoder besides its dictionary. */
+    private static final int LZMA_STATE_MEMORY = 104 * 1024;
+    /** Dictionary of the default xz preset, assumed if the first block header can not be read. */
+    private static final long XZ_DEFAULT_DICTIONARY = 8L * 1024 * 1024;
+    /** Length of the xz stream header. */
+    private static final int XZ_STREAM_HEADER_SIZE = 12;
+    /** Bytes read to size the decoder, the xz stream header and the largest block header. */
+    private static final int HEADER_SIZE = XZ_STREAM_HEADER_SIZE + 1024;
+    private static final int LZMA2_FILTER_ID = 0x21;
+
+    private final Executor executor;
+    private final int parallelism;
+    private final int memoryPermits;
+    private final long bufferPermits;
+    private final long sevenZMemoryLimit;
+    private final EntryStreamOptions entryOptions;
+    private final int maxAttempts;
+    private final long retryDelayMillis;
+    private final Predicate<? super IOException> retryOn;
+
+    private BatchArchiveProcessor(final Builder builder) {
+        this.executor = builder.executor;
+        this.parallelism = builder.parallelism;
+        this.memoryPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, builder.memoryBudget / PERMIT_SIZE));
+        long buffered = EntryStreamMode.STREAMING.equals(builder.entryOptions.getMode()) ? 0 : builder.entryOptions.getSpillThreshold();
+        this.bufferPermits = 1 + permits(buffered);
+        this.sevenZMemoryLimit = builder.sevenZMemoryLimit;
+        this.entryOptions = builder.entryOptions;
+        this.maxAttempts = builder.maxAttempts;
+        this.retryDelayMillis = builder.retryDelayMillis;
+        this.retryOn = builder.retryOn;
+    }
+
+    /**
+     * @return new builder initialized with the default values.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Processes all regular files of the directory, subdirectories are not descended into.
+     *
+     * @param directory containing the archive files.
+     * @param processor invoked for every entry, concurrently for entries of different archives.
+     * @param consumer invoked for every result on the thread which processed the entry.
+     * @param <R> type of the results.
+     * @return report of the batch.
+     * @throws IOException if the directory can not be listed.
+     * @throws InterruptedIOException if the calling thread is interrupted, running archives stop before their next entry.
+     */
+    public <R> BatchArchiveReport process(final Path directory, final EntryProcessor<R> processor, final EntryResultConsumer<? super R> consumer) throws IOException {
+        List<Path> archives;
+        try (Stream<Path> files = Files.list(directory)) {
+            archives = files.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        return process(archives, processor, consumer);
+    }
+
+    /**
+     * Processes the archive files and waits until all of them are completed.
+     *
+     * @param archives paths of the archive files, 7z files are read in place.
+     * @param processor invoked for every entry, concurrently for entries of different archives.
+     * @param consumer invoked for every result on the thread which processed the entry.
+     * @param <R> type of the results.
+     * @return report of the batch.
+     * @throws InterruptedIOException if the calling thread is interrupted, running archives stop before their next entry.
+     */
+    public <R> BatchArchiveReport process(final Collection<Path> archives, final EntryProcessor<R> processor, final EntryResultConsumer<? super R> consumer) throws InterruptedIOException {
+        Objects.requireNonNull(processor, "processor");
+        Objects.requireNonNull(consumer, "consumer");
+        long start = System.nanoTime();
+        List<Job> jobs = new ArrayList<>(archives.size());
+        for (Path archive : archives) {
+            jobs.add(new Job(Objects.requireNonNull(archive, "archive"), size(archive)));
+        }
+        for (Job job : jobs) {
+            // an archive which needs more than the whole budget still runs, but alone
+            job.permits = (int) Math.min(memoryPermits, bufferPermits + permits(decoderMemory(job)));
+        }
+        // smallest first, archives of unknown size last
+        jobs.sort(Comparator.comparingLong(job -> job.size < 0 ? Long.MAX_VALUE : job.size));
+        Batch batch = new Batch(start);
+        for (Job job : jobs) {
+            batch.acquire(job.permits);
+            try {
+                executor.execute(() -> run(job, batch, processor, consumer));
+            } catch (RejectedExecutionException e) {
+                job.failure = e;
+                batch.release(job.permits);
+            }
+        }
+        batch.await();
+        List<BatchArchiveResult> results = new ArrayList<>(jobs.size());
+        for (Job job : jobs) {
+            results.add(new BatchArchiveResult(job.archive, job.size, job.entries, job.attempts, job.waitNanos, job.durationNanos, job.failure));
+        }
+        return new BatchArchiveReport(results, System.nanoTime() - start, batch.peakReserved.get());
+    }
+
+    private <R> void run(final Job job, final Batch batch, final EntryProcessor<R> processor, final EntryResultConsumer<? super R> consumer) {
+        long started = System.nanoTime();
+        job.waitNanos = started - batch.start;
+        try {
+            while (true) {
+                job.attempts++;
+                try {
+                    processArchive(job, batch, processor, consumer);
+                    job.failure = null;
+                    return;
+                } catch (IOException e) {
+                    job.failure = e;
+                    if (job.attempts >= maxAttempts || batch.cancelled || !retryOn.test(e)) {
+                        return;
+                    }
+                    Thread.sleep(retryDelayMillis * job.attempts);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+            job.failure = t;
+        } finally {
+            job.durationNanos = System.nanoTime() - started;
+            batch.release(job.permits);
+        }
+    }
+
+    private <R> void processArchive(final Job job, final Batch batch, final EntryProcessor<R> processor, final EntryResultConsumer<? super R> consumer) throws IOException, ArchiveException, CompressorException {
+        try (ArchiveInputStream ais = open(job)) {
+            long index = 0;
+            ArchiveEntry entry = null;
+            EntryDigests previous = null;
+            while (!batch.cancelled && Objects.nonNull(entry = ais.getNextEntry())) {
+                verifyChecksum(previous);
+                previous = null;
+                if (index++ < job.entries) {
+                    // delivered by an earlier attempt
+                    continue;
+                }
+                try (InputStream content = ArchiveUtil.getEntryInputStream(ais, entry, entryOptions)) {
+                    consumer.accept(entry, processor.process(entry, content));
+                    previous = digests(content);
+                }
+                job.entries++;
+            }
+            if (Objects.isNull(entry)) {
+                verifyChecksum(previous);
+            }
+        }
+    }
+
+    /**
+     * Verifies the stored CRC of the previous entry once the archive stream has moved past it, see
+     * {@link EntryDigests#isChecksumPending()}.
+     */
+    private static void verifyChecksum(final EntryDigests digests) {
+        if (Objects.nonNull(digests)) {
+            digests.verifyChecksum();
+        }
+    }
+
+    /**
+     * @return digests of entry content which has been read completely or null.
+     */
+    private static EntryDigests digests(final InputStream content) {
+        if (content instanceof SpillableEntryInputStream) {
+            return ((SpillableEntryInputStream) content).getDigests();
+        } else if (content instanceof DigestingInputStream && ((DigestingInputStream) content).isComplete()) {
+            return ((DigestingInputStream) content).getDigests();
+        }
+        return null;
+    }
+
+    private ArchiveInputStream open(final Job job) throws IOException, ArchiveException, CompressorException {
+        if (ArchiveFormat.SEVEN_Z.equals(job.format)) {
+            SevenZFileOptions options = SevenZFileOptions.builder().withMaxMemoryLimitInKb((int) Math.min(Integer.MAX_VALUE, sevenZMemoryLimit / 1024)).build();
+            return ArchiveUtil.meteredSevenZ(ArchiveUtil.open7z(() -> new SevenZArchiveInputStream(job.archive, options)), () -> job.size);
+        }
+        return AsyncArchiveReader.source(job.archive).open();
+    }
+
+    /**
+     * Reads the header of the archive and returns the memory its decoder allocates, the format of the job is set
+     * as far as it can be told from the header.
+     */
+    private long decoderMemory(final Job job) {
+        byte[] header = new byte[HEADER_SIZE];
+        int length;
+        try (InputStream in = Files.newInputStream(job.archive)) {
+            length = in.readNBytes(header, 0, header.length);
+        } catch (IOException e) {
+            // reported when the archive is opened
+            return 0;
+        }
+        job.format = ArchiveFormatDetector.detect(header, length);
+        switch (job.format) {
+            case SEVEN_Z:
+                return sevenZMemoryLimit;
+            case XZ:
+                return xzDictionary(header, length) + LZMA_STATE_MEMORY;
+            case BZIP2:
+                // "BZh" followed by the block size in 100 kB
+                int level = header[3] >= '1' && header[3] <= '9' ? header[3] - '0' : 9;
+                return level * BZIP2_BLOCK_MEMORY + PERMIT_SIZE;
+            case GZIP:
+            case ZIP:
+                // 32 KiB window and the state of the inflater
+                return PERMIT_SIZE;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Reads the dictionary size from the LZMA2 filter of the first block header which follows the stream header.
+     */
+    private static long xzDictionary(final byte[] header, final int length) {
+        if (length <= XZ_STREAM_HEADER_SIZE) {
+            return XZ_DEFAULT_DICTIONARY;
+        }
+        if (header[XZ_STREAM_HEADER_SIZE] == 0) {
+            // no block, the index follows the stream header
+            return 0;
+        }
+        int end = XZ_STREAM_HEADER_SIZE + ((header[XZ_STREAM_HEADER_SIZE] & 0xFF) + 1) * 4;
+        if (length < end) {
+            return XZ_DEFAULT_DICTIONARY;
+        }
+        int flags = header[XZ_STREAM_HEADER_SIZE + 1] & 0xFF;
+        int[] position = {XZ_STREAM_HEADER_SIZE + 2};
+        // compressed and uncompressed size
+        if ((flags & 0x40) != 0 && vli(header, position, end) < 0 || (flags & 0x80) != 0 && vli(header, position, end) < 0) {
+            return XZ_DEFAULT_DICTIONARY;
+        }
+        for (int filter = flags & 0x03; filter >= 0; filter--) {
+            long id = vli(header, position, end);
+            long propertiesSize = vli(header, position, end);
+            if (id < 0 || propertiesSize < 0 || propertiesSize > end - position[0]) {
+                break;
+            }
+            if (id == LZMA2_FILTER_ID && propertiesSize == 1) {
+                int bits = header[position[0]] & 0x3F;
+                return bits >= 40 ? 0xFFFFFFFFL : (2L | (bits & 1)) << (bits / 2 + 11);
+            }
+            position[0] += (int) propertiesSize;
+        }
+        return XZ_DEFAULT_DICTIONARY;
+    }
+
+    /**
+     * @return variable length integer at the position which is advanced past it, or {@code -1} if it is malformed.
+     */
+    private static long vli(final byte[] header, final int[] position, final int end) {
+        long value = 0;
+        for (int shift = 0; shift < 63 && position[0] < end; shift += 7) {
+            int b = header[position[0]++] & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        return -1;
+    }
+
+    private static long permits(final long bytes) {
+        return (bytes + PERMIT_SIZE - 1) / PERMIT_SIZE;
+    }
+
+    private static long size(final Path archive) {
+        try {
+            return Files.size(archive);
+        } catch (IOException e) {
+            // reported when the archive is opened
+            return -1;
+        }
+    }
+
+    /**
+     * Default classification of retryable failures: I/O failures which are not caused by missing or inaccessible
+     * files, truncated or malformed content, decoders exceeding their memory limit or an interruption.
+     *
+     * @param e failure of an attempt.
+     * @return true if the failure may not occur again.
+     */
+    public static boolean isTransient(final IOException e) {
+        return !(e instanceof EOFException || e instanceof InterruptedIOException || e instanceof MemoryLimitException || e instanceof FileNotFoundException || e instanceof NoSuchFileException || e instanceof AccessDeniedException || e instanceof ZipException || e instanceof CharacterCodingException);
+    }
+
+    /**
+     * Archive of a batch and its statistics, written by the task which processes it and read by the calling thread
+     * after the task released its worker.
+     */
+    private static final class Job {
+        private final Path archive;
+        private final long size;
+        private ArchiveFormat format = ArchiveFormat.UNKNOWN;
+        private int permits;
+        private long entries;
+        private int attempts;
+        private long waitNanos;
+        private long durationNanos;
+        private Throwable failure;
+
+        private Job(final Path archive, final long size) {
+            this.archive = archive;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Workers and memory of one batch run.
+     */
+    private final class Batch {
+        private final long start;
+        private final Semaphore workers = new Semaphore(parallelism);
+        private final Semaphore memory = new Semaphore(memoryPermits);
+        private final AtomicLong reserved = new AtomicLong();
+        private final AtomicLong peakReserved = new AtomicLong();
+        private volatile boolean cancelled;
+
+        private Batch(final long start) {
+            this.start = start;
+        }
+
+        private void acquire(final int permits) throws InterruptedIOException {
+            try {
+                workers.acquire();
+                try {
+                    memory.acquire(permits);
+                } catch (InterruptedException e) {
+                    workers.release();
+                    throw e;
+                }
+            } catch (InterruptedException e) {
+                throw interrupted(e);
+            }
+            long bytes = reserved.addAndGet((long) permits * PERMIT_SIZE);
+            peakReserved.accumulateAndGet(bytes, Math::max);
+        }
+
+        private void release(final int permits) {
+            reserved.addAndGet(-(long) permits * PERMIT_SIZE);
+            memory.release(permits);
+            workers.release();
+        }
+
+        /**
+         * Waits until every worker has been released, i.e. all archives are completed.
+         */
+        private void await() throws InterruptedIOException {
+            try {
+                workers.acquire(parallelism);
+            } catch (InterruptedException e) {
+                throw interrupted(e);
+            }
+        }
+
+        private InterruptedIOException interrupted(final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+            InterruptedIOException interrupted = new InterruptedIOException("Interrupted while processing the archives");
+            interrupted.initCause(e);
+            return interrupted;
+        }
+    }
+
+    /**
+     * Builder of {@link BatchArchiveProcessor}.
+     */
+    public static final class Builder {
+        private Executor executor = ParallelArchiveExtractor.DEFAULT_EXECUTOR;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+        private long sevenZMemoryLimit = DEFAULT_SEVEN_Z_MEMORY_LIMIT;
+        private EntryStreamOptions entryOptions = EntryStreamOptions.DEFAULT;
+        private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+        private long retryDelayMillis = DEFAULT_RETRY_DELAY_MILLIS;
+        private Predicate<? super IOException> retryOn = BatchArchiveProcessor::isTransient;
+
+        private Builder() {
+        }
+
+        /**
+         * @param executor on which archives are processed, default uses virtual threads on Java 21+ and the common
+         * {@link ForkJoinPool} otherwise.
+         * @return this builder.
+         */
+        public Builder executor(final Executor executor) {
+            this.executor = Objects.requireNonNull(executor, "executor");
+            return this;
+        }
+
+        /**
+         * @param parallelism maximum number of archives processed at the same time, default is the number of available
+         * processors.
+         * @return this builder.
+         */
+        public Builder parallelism(final int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism must be positive");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * @param memoryBudget maximum number of bytes all running archives may buffer and decode with together, reserved
+         * in units of 64 KiB. Default is {@link #DEFAULT_MEMORY_BUDGET}.
+         * @return this builder.
+         */
+        public Builder memoryBudget(final long memoryBudget) {
+            if (memoryBudget <= 0) {
+                throw new IllegalArgumentException("memoryBudget must be positive");
+            }
+            this.memoryBudget = memoryBudget;
+            return this;
+        }
+
+        /**
+         * @param sevenZMemoryLimit memory reserved for the decoders of every 7z archive, 7z archives whose decoders need
+         * more fail with a {@link MemoryLimitException}. Default is {@link #DEFAULT_SEVEN_Z_MEMORY_LIMIT}.
+         * @return this builder.
+         */
+        public Builder sevenZMemoryLimit(final long sevenZMemoryLimit) {
+            if (sevenZMemoryLimit <= 0) {
+                throw new IllegalArgumentException("sevenZMemoryLimit must be positive");
+            }
+            this.sevenZMemoryLimit = sevenZMemoryLimit;
+            return this;
+        }
+
+        /**
+         * @param entryOptions how entry content is passed to the processor, default is {@link EntryStreamOptions#DEFAULT}.
+         * Every running archive reserves the spill threshold of buffered entries from the memory budget,
+         * {@link EntryStreamOptions#STREAMING} buffers nothing.
+         * @return this builder.
+         */
+        public Builder entryOptions(final EntryStreamOptions entryOptions) {
+            this.entryOptions = Objects.requireNonNull(entryOptions, "entryOptions");
+            return this;
+        }
+
+        /**
+         * @param maxAttempts maximum number of times an archive is opened, {@code 1} disables retries.
+         * @return this builder.
+         */
+        public Builder maxAttempts(final int maxAttempts) {
+            if (maxAttempts <= 0) {
+                throw new IllegalArgumentException("maxAttempts must be positive");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * @param retryDelayMillis delay before the first retry, the n-th retry waits n times as long.
+         * @return this builder.
+         */
+        public Builder retryDelayMillis(final long retryDelayMillis) {
+            if (retryDelayMillis < 0) {
+                throw new IllegalArgumentException("retryDelayMillis must not be negative");
+            }
+            this.retryDelayMillis = retryDelayMillis;
+            return this;
+        }
+
+        /**
+         * @param retryOn decides whether an attempt which failed with an I/O failure is retried, default is
+         * {@link BatchArchiveProcessor#isTransient(IOException)}. Other failures are never retried.
+         * @return this builder.
+         */
+        public Builder retryOn(final Predicate<? super IOException> retryOn) {
+            this.retryOn = Objects.requireNonNull(retryOn, "retryOn");
+            return this;
+        }
+
+        /**
+         * @return immutable processor.
+         */
+        public BatchArchiveProcessor build() {
+            return new BatchArchiveProcessor(this);
+        }
+    }
+}
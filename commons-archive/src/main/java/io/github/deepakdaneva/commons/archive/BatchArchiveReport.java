@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics of a batch run of {@link BatchArchiveProcessor} with the result of every archive. Instances are immutable.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class BatchArchiveReport {
+
+    private final List<BatchArchiveResult> results;
+    private final long durationNanos;
+    private final long peakReservedBytes;
+
+    BatchArchiveReport(final List<BatchArchiveResult> results, final long durationNanos, final long peakReservedBytes) {
+        this.results = Collections.unmodifiableList(results);
+        this.durationNanos = durationNanos;
+        this.peakReservedBytes = peakReservedBytes;
+    }
+
+    /**
+     * @return unmodifiable results of the archives in the order they were started, smallest archives first.
+     */
+    public List<BatchArchiveResult> getResults() {
+        return results;
+    }
+
+    /**
+     * @return number of archives which were processed successfully.
+     */
+    public int getSucceeded() {
+        return (int) results.stream().filter(BatchArchiveResult::isSucceeded).count();
+    }
+
+    /**
+     * @return number of archives which failed.
+     */
+    public int getFailed() {
+        return results.size() - getSucceeded();
+    }
+
+    /**
+     * @return number of entries delivered to the consumer from all archives.
+     */
+    public long getEntries() {
+        return results.stream().mapToLong(BatchArchiveResult::getEntries).sum();
+    }
+
+    /**
+     * @return total size in bytes of the archives which were processed successfully.
+     */
+    public long getBytes() {
+        return results.stream().filter(BatchArchiveResult::isSucceeded).mapToLong(result -> Math.max(result.getSize(), 0)).sum();
+    }
+
+    /**
+     * @return wall clock nanoseconds of the whole batch.
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return archive bytes processed per second by the whole batch.
+     */
+    public double getThroughput() {
+        return durationNanos <= 0 ? 0 : getBytes() * (double) TimeUnit.SECONDS.toNanos(1) / durationNanos;
+    }
+
+    /**
+     * @return highest number of bytes of the memory budget which were reserved at the same time.
+     */
+    public long getPeakReservedBytes() {
+        return peakReservedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return results.size() + " archives (" + getFailed() + " failed), " + getEntries() + " entries in " + TimeUnit.NANOSECONDS.toMillis(durationNanos) + " ms";
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome and statistics of processing a single archive with {@link BatchArchiveProcessor}. Instances are immutable.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class BatchArchiveResult {
+
+    private final Path archive;
+    private final long size;
+    private final long entries;
+    private final int attempts;
+    private final long waitNanos;
+    private final long durationNanos;
+    private final Throwable failure;
+
+    BatchArchiveResult(final Path archive, final long size, final long entries, final int attempts, final long waitNanos, final long durationNanos, final Throwable failure) {
+        this.archive = archive;
+        this.size = size;
+        this.entries = entries;
+        this.attempts = attempts;
+        this.waitNanos = waitNanos;
+        this.durationNanos = durationNanos;
+        this.failure = failure;
+    }
+
+    /**
+     * @return path of the archive file.
+     */
+    public Path getArchive() {
+        return archive;
+    }
+
+    /**
+     * @return size of the archive file in bytes, {@code -1} if it could not be determined.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return number of entries delivered to the consumer, entries delivered before a retry are counted once.
+     */
+    public long getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return number of times the archive was opened, {@code 0} if it was never started.
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return nanoseconds the archive waited for a worker and its memory reservation.
+     */
+    public long getWaitNanos() {
+        return waitNanos;
+    }
+
+    /**
+     * @return nanoseconds spent processing the archive, all attempts and the delays between them included.
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return archive bytes processed per second, {@code 0} if nothing was measured.
+     */
+    public double getThroughput() {
+        return durationNanos <= 0 || size <= 0 ? 0 : size * (double) TimeUnit.SECONDS.toNanos(1) / durationNanos;
+    }
+
+    /**
+     * @return true if all entries of the archive were processed.
+     */
+    public boolean isSucceeded() {
+        return Objects.isNull(failure);
+    }
+
+    /**
+     * @return failure of the last attempt or null if the archive was processed successfully.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return archive + (isSucceeded() ? ": " + entries + " entries in " + TimeUnit.NANOSECONDS.toMillis(durationNanos) + " ms" : ": failed after " + attempts + " attempts with " + failure);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.util.Objects;
+
+/**
+ * Bounded pool of fixed size byte array chunks which are reused across entry buffers instead of allocating fresh arrays
+ * for every entry. Chunks are kept in a {@link StripedPool} so concurrent threads neither contend nor allocate queue
+ * nodes.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class BufferPool {
+
+    /** Size of each pooled chunk. */
+    static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    /** Maximum number of chunks retained by the default pool (16 MiB). */
+    static final int DEFAULT_MAX_POOLED = 256;
+    /** Shared pool used when no other pool is provided. */
+    static final BufferPool DEFAULT = new BufferPool(DEFAULT_CHUNK_SIZE, DEFAULT_MAX_POOLED);
+
+    private final int chunkSize;
+    private final StripedPool<byte[]> chunks;
+
+    /**
+     * @param chunkSize size of each chunk handed out by this pool.
+     * @param maxPooled maximum number of released chunks kept for reuse.
+     */
+    BufferPool(final int chunkSize, final int maxPooled) {
+        this(chunkSize, maxPooled, StripedPool.defaultStripes());
+    }
+
+    /**
+     * @param chunkSize size of each chunk handed out by this pool.
+     * @param maxPooled maximum number of released chunks kept for reuse.
+     * @param stripes number of stripes the chunks are split into.
+     */
+    BufferPool(final int chunkSize, final int maxPooled, final int stripes) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.chunkSize = chunkSize;
+        this.chunks = new StripedPool<>(stripes, maxPooled);
+    }
+
+    /**
+     * @return size of the chunks handed out by this pool.
+     */
+    int chunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Takes a chunk from the pool or allocates a new one if the pool is empty.
+     *
+     * @return chunk of {@link #chunkSize()} bytes, contents are undefined.
+     */
+    byte[] acquire() {
+        byte[] chunk = chunks.poll();
+        if (Objects.isNull(chunk)) {
+            return new byte[chunkSize];
+        }
+        return chunk;
+    }
+
+    /**
+     * Returns the chunk to the pool, chunks of a foreign size or chunks exceeding the pool capacity are left to the
+     * garbage collector.
+     *
+     * @param chunk which is not used by the caller anymore.
+     */
+    void release(final byte[] chunk) {
+        if (Objects.isNull(chunk) || chunk.length != chunkSize) {
+            return;
+        }
+        chunks.offer(chunk);
+    }
+}
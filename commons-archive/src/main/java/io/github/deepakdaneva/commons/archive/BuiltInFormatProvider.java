@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorInputStream;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+
+/**
+ * Providers of the formats supported by Apache Commons Compress, they are always registered in an
+ * {@link ArchiveFormatRegistry}. Their streams are detected from the signature by Commons Compress itself, so they do
+ * not declare signatures of their own.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+enum BuiltInFormatProvider implements ArchiveFormatProvider {
+    /** Archives read by {@link ArchiveStreamFactory}. */
+    ARCHIVE(ArchiveKind.ARCHIVE, Set.of("application/x-tar", "application/x-gtar", "application/java-archive", "application/x-arj", "application/x-archive", "application/zip", "application/x-cpio", "application/x-tika-unix-dump")) {
+        @Override
+        public ArchiveInputStream createArchiveInputStream(final InputStream inputStream) throws ArchiveException {
+            try {
+                return ArchiveStreamFactory.DEFAULT.createArchiveInputStream(inputStream);
+            } catch (ArchiveException ae) {
+                if ("No Archiver found for the stream signature".equalsIgnoreCase(ae.getMessage())) {
+                    throw ArchiveUtil.notAnArchive(ae);
+                } else {
+                    throw ae;
+                }
+            }
+        }
+    },
+    /** 7z archives, buffered in memory when read from a stream. */
+    SEVEN_Z(ArchiveKind.SEVENZ, Set.of("application/x-7z-compressed")) {
+        @Override
+        public ArchiveInputStream createArchiveInputStream(final InputStream inputStream) throws IOException {
+            return ArchiveUtil.open7z(() -> new SevenZArchiveInputStream(inputStream));
+        }
+    },
+    /** RAR archives, they are recognized but not read. */
+    RAR(ArchiveKind.RAR, Set.of("application/x-rar-compressed")),
+    /** Compressed streams read by {@link CompressorStreamFactory}. */
+    COMPRESSOR(ArchiveKind.COMPRESSOR, Set.of("application/zlib", "application/x-gzip", "application/x-bzip2", "application/x-compress", "application/x-java-pack200", "application/x-lzma", "application/deflate64", "application/x-lz4", "application/x-snappy", "application/x-brotli", "application/gzip", "application/x-bzip", "application/x-xz")) {
+        @Override
+        public CompressorInputStream createCompressorInputStream(final InputStream inputStream) throws CompressorException {
+            return CompressorStreamFactory.getSingleton().createCompressorInputStream(inputStream);
+        }
+    };
+
+    private final ArchiveKind kind;
+    private final Set<String> mimeTypes;
+
+    BuiltInFormatProvider(final ArchiveKind kind, final Set<String> mimeTypes) {
+        this.kind = kind;
+        this.mimeTypes = mimeTypes;
+    }
+
+    @Override
+    public String getName() {
+        return name();
+    }
+
+    @Override
+    public ArchiveKind getKind() {
+        return kind;
+    }
+
+    @Override
+    public Set<String> getMimeTypes() {
+        return mimeTypes;
+    }
+}
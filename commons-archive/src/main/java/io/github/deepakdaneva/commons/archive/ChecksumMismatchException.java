@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+/**
+ * Raised when the CRC computed over the content of an archive entry does not match the CRC stored in the archive.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public class ChecksumMismatchException extends RuntimeException {
+
+    private final String entryName;
+    private final long expected;
+    private final long actual;
+
+    /**
+     * Constructor with the entry and both checksums as arguments
+     *
+     * @param entryName name of the corrupt entry
+     * @param expected CRC stored in the archive
+     * @param actual CRC of the content which has been read
+     */
+    public ChecksumMismatchException(String entryName, long expected, long actual) {
+        super(String.format("Checksum mismatch of entry %s, expected %08x but was %08x", entryName, expected, actual));
+        this.entryName = entryName;
+        this.expected = expected;
+        this.actual = actual;
+    }
+
+    /**
+     * @return name of the corrupt entry.
+     */
+    public String getEntryName() {
+        return entryName;
+    }
+
+    /**
+     * @return CRC stored in the archive.
+     */
+    public long getExpected() {
+        return expected;
+    }
+
+    /**
+     * @return CRC of the content which has been read.
+     */
+    public long getActual() {
+        return actual;
+    }
+}
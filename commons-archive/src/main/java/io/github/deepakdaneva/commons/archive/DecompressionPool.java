@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.util.Objects;
+import java.util.zip.Inflater;
+
+/**
+ * Pool of {@link Inflater}s and input buffers which are reused by gzip and zlib streams created through
+ * {@link ArchiveUtil#getCompressorInputStream(java.io.InputStream, String, DecompressionPool)} and the matching
+ * {@code getArchiveInputStream} overloads, instead of allocating a new native inflater and fresh buffers for every
+ * stream. This removes most of the allocation and native memory churn of workloads reading many small compressed
+ * files. Formats which are not inflated by this library, such as zip entries or xz, are read exactly as without a pool.
+ * <p>
+ * The pool is lock-free and safe to share between threads, objects are striped by thread and limited to the
+ * configured counts, objects released to a full pool are discarded. Inflaters are pooled per stream, a stream which is
+ * never closed does not return its inflater. Instances are created through {@link #builder()}.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class DecompressionPool {
+
+    /** Default size of the pooled input buffers (16 KiB). */
+    public static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+    /** Pool shared by all callers, sized by the number of available processors. */
+    public static final DecompressionPool DEFAULT = builder().build();
+
+    private final int bufferSize;
+    private final int maxInflaters;
+    private final int maxBuffers;
+    private final StripedPool<Inflater> gzipInflaters;
+    private final StripedPool<Inflater> zlibInflaters;
+    private final BufferPool buffers;
+
+    private DecompressionPool(final Builder builder) {
+        this.bufferSize = builder.bufferSize;
+        this.maxInflaters = builder.maxInflaters;
+        this.maxBuffers = builder.maxBuffers;
+        this.gzipInflaters = new StripedPool<>(builder.stripes, builder.maxInflaters);
+        this.zlibInflaters = new StripedPool<>(builder.stripes, builder.maxInflaters);
+        this.buffers = new BufferPool(builder.bufferSize, builder.maxBuffers, builder.stripes);
+    }
+
+    /**
+     * @return new builder initialized with the default values.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return size of the pooled input buffers.
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return maximum number of pooled inflaters of each kind (raw deflate for gzip and zlib).
+     */
+    public int getMaxInflaters() {
+        return maxInflaters;
+    }
+
+    /**
+     * @return maximum number of pooled input buffers.
+     */
+    public int getMaxBuffers() {
+        return maxBuffers;
+    }
+
+    /**
+     * @param nowrap true for raw deflate data as in gzip, false for zlib data.
+     * @return pooled or new inflater.
+     */
+    Inflater acquireInflater(final boolean nowrap) {
+        Inflater inflater = inflaters(nowrap).poll();
+        return Objects.nonNull(inflater) ? inflater : new Inflater(nowrap);
+    }
+
+    /**
+     * Resets the inflater and returns it to the pool, the native memory of the inflater is released if the pool is full.
+     *
+     * @param inflater acquired with the same nowrap value.
+     * @param nowrap with which the inflater has been acquired.
+     */
+    void releaseInflater(final Inflater inflater, final boolean nowrap) {
+        inflater.reset();
+        if (!inflaters(nowrap).offer(inflater)) {
+            inflater.end();
+        }
+    }
+
+    /**
+     * @return pooled or new buffer of {@link #getBufferSize()} bytes, contents are undefined.
+     */
+    byte[] acquireBuffer() {
+        return buffers.acquire();
+    }
+
+    /**
+     * @param buffer which is not used by the caller anymore.
+     */
+    void releaseBuffer(final byte[] buffer) {
+        buffers.release(buffer);
+    }
+
+    private StripedPool<Inflater> inflaters(final boolean nowrap) {
+        return nowrap ? gzipInflaters : zlibInflaters;
+    }
+
+    /**
+     * Builder of {@link DecompressionPool}.
+     */
+    public static final class Builder {
+        private int bufferSize = DEFAULT_BUFFER_SIZE;
+        private int stripes = StripedPool.defaultStripes();
+        private int maxInflaters = 4 * Runtime.getRuntime().availableProcessors();
+        private int maxBuffers = 4 * Runtime.getRuntime().availableProcessors();
+
+        private Builder() {
+        }
+
+        /**
+         * @param bufferSize size of the pooled input buffers, default is {@link #DEFAULT_BUFFER_SIZE}.
+         * @return this builder.
+         */
+        public Builder bufferSize(final int bufferSize) {
+            if (bufferSize <= 0) {
+                throw new IllegalArgumentException("bufferSize must be positive");
+            }
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * @param stripes number of stripes the pooled objects are split into to reduce contention, rounded up to a
+         * power of two. Default is the number of available processors.
+         * @return this builder.
+         */
+        public Builder stripes(final int stripes) {
+            if (stripes <= 0) {
+                throw new IllegalArgumentException("stripes must be positive");
+            }
+            this.stripes = stripes;
+            return this;
+        }
+
+        /**
+         * @param maxInflaters maximum number of pooled inflaters of each kind, {@code 0} disables pooling of inflaters.
+         * Default is four per available processor.
+         * @return this builder.
+         */
+        public Builder maxInflaters(final int maxInflaters) {
+            if (maxInflaters < 0) {
+                throw new IllegalArgumentException("maxInflaters must not be negative");
+            }
+            this.maxInflaters = maxInflaters;
+            return this;
+        }
+
+        /**
+         * @param maxBuffers maximum number of pooled input buffers, {@code 0} disables pooling of buffers. Default is
+         * four per available processor.
+         * @return this builder.
+         */
+        public Builder maxBuffers(final int maxBuffers) {
+            if (maxBuffers < 0) {
+                throw new IllegalArgumentException("maxBuffers must not be negative");
+            }
+            this.maxBuffers = maxBuffers;
+            return this;
+        }
+
+        /**
+         * @return pool.
+         */
+        public DecompressionPool build() {
+            return new DecompressionPool(this);
+        }
+    }
+}
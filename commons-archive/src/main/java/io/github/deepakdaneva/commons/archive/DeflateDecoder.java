@@ -0,0 +1,449 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Decoder of raw deflate data (RFC 1951) which, unlike {@link java.util.zip.Inflater}, can start at any bit of the
+ * compressed stream with a preset window and reports the position of every block boundary. This makes it possible to
+ * record seek points while a stream is decoded once and to resume decoding at such a point later, see
+ * {@link ArchiveIndex}.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class DeflateDecoder {
+
+    /** Maximum distance of a back reference, the size of the window needed to resume decoding. */
+    static final int WINDOW_SIZE = 32 * 1024;
+
+    private static final int RING_SIZE = 64 * 1024;
+    private static final int RING_MASK = RING_SIZE - 1;
+    private static final int MAX_MATCH = 258;
+    private static final int MAX_PENDING = RING_SIZE - WINDOW_SIZE - MAX_MATCH;
+    private static final int END_OF_BLOCK = 256;
+    private static final int[] LENGTH_BASE = { 3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31, 35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258 };
+    private static final int[] LENGTH_EXTRA = { 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0 };
+    private static final int[] DISTANCE_BASE = { 1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193, 257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577 };
+    private static final int[] DISTANCE_EXTRA = { 0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13 };
+    private static final int[] CODE_LENGTH_ORDER = { 16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15 };
+    private static final Huffman FIXED_LITERALS;
+    private static final Huffman FIXED_DISTANCES;
+
+    static {
+        byte[] lengths = new byte[288];
+        Arrays.fill(lengths, 0, 144, (byte) 8);
+        Arrays.fill(lengths, 144, 256, (byte) 9);
+        Arrays.fill(lengths, 256, 280, (byte) 7);
+        Arrays.fill(lengths, 280, 288, (byte) 8);
+        byte[] distances = new byte[30];
+        Arrays.fill(distances, (byte) 5);
+        try {
+            FIXED_LITERALS = new Huffman(lengths, 0, lengths.length);
+            FIXED_DISTANCES = new Huffman(distances, 0, distances.length);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private enum State {
+        HEADER, STORED, HUFFMAN, DONE
+    }
+
+    /**
+     * Receives the block boundaries of the decoded stream.
+     */
+    @FunctionalInterface
+    interface BlockListener {
+
+        /**
+         * Called before the header of every block except the first one of the stream.
+         *
+         * @param decoder positioned at the boundary, {@link #window()} returns the window needed to resume here.
+         * @throws IOException if the listener fails.
+         */
+        void blockBoundary(DeflateDecoder decoder) throws IOException;
+    }
+
+    private final BitReader bits;
+    private final byte[] ring = new byte[RING_SIZE];
+    private final int presetLength;
+    private final BlockListener listener;
+    private State state = State.HEADER;
+    private boolean lastBlock;
+    private boolean firstBlock = true;
+    private int storedRemaining;
+    private Huffman literals;
+    private Huffman distances;
+    private long written;
+    private long delivered;
+
+    /**
+     * @param bits from which the compressed data is read, positioned at the start of a block.
+     * @param window output preceding the start position, at most {@link #WINDOW_SIZE} bytes are used.
+     * @param listener of the block boundaries, may be null.
+     */
+    DeflateDecoder(final BitReader bits, final byte[] window, final BlockListener listener) {
+        this.bits = bits;
+        this.listener = listener;
+        int length = Math.min(window.length, WINDOW_SIZE);
+        for (int i = 0; i < length; i++) {
+            ring[(RING_SIZE - length + i) & RING_MASK] = window[window.length - length + i];
+        }
+        this.presetLength = length;
+    }
+
+    /**
+     * @return number of bytes decoded since the start position.
+     */
+    long getOutputPosition() {
+        return written;
+    }
+
+    /**
+     * @return bit position in the compressed stream.
+     */
+    long getBitPosition() {
+        return bits.getBitPosition();
+    }
+
+    /**
+     * @return true once the last block has been decoded and delivered.
+     */
+    boolean isFinished() {
+        return State.DONE.equals(state) && written == delivered;
+    }
+
+    /**
+     * @return the last decoded bytes, at most {@link #WINDOW_SIZE}, including the preset window.
+     */
+    byte[] window() {
+        int length = (int) Math.min(WINDOW_SIZE, written + presetLength);
+        byte[] window = new byte[length];
+        for (int i = 0; i < length; i++) {
+            window[i] = ring[(int) (written - length + i) & RING_MASK];
+        }
+        return window;
+    }
+
+    /**
+     * @return number of bytes read or -1 after the last block.
+     */
+    int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (written == delivered) {
+            if (State.DONE.equals(state)) {
+                return -1;
+            }
+            step();
+        }
+        int n = (int) Math.min(len, written - delivered);
+        int start = (int) delivered & RING_MASK;
+        int first = Math.min(n, RING_SIZE - start);
+        System.arraycopy(ring, start, b, off, first);
+        System.arraycopy(ring, 0, b, off + first, n - first);
+        delivered += n;
+        return n;
+    }
+
+    private void step() throws IOException {
+        if (State.HEADER.equals(state)) {
+            if (lastBlock) {
+                state = State.DONE;
+                return;
+            }
+            if (!firstBlock && listener != null) {
+                listener.blockBoundary(this);
+            }
+            firstBlock = false;
+            readBlockHeader();
+        } else if (State.STORED.equals(state)) {
+            int n = (int) Math.min(storedRemaining, MAX_PENDING - (written - delivered));
+            for (int i = 0; i < n; i++) {
+                ring[(int) written++ & RING_MASK] = (byte) bits.bits(8);
+            }
+            storedRemaining -= n;
+            if (storedRemaining == 0) {
+                state = State.HEADER;
+            }
+        } else {
+            decodeSymbols();
+        }
+    }
+
+    private void readBlockHeader() throws IOException {
+        lastBlock = bits.bits(1) == 1;
+        int type = bits.bits(2);
+        if (type == 0) {
+            bits.alignToByte();
+            int length = bits.bits(16);
+            if ((length ^ 0xffff) != bits.bits(16)) {
+                throw new IOException("Invalid stored block lengths");
+            }
+            storedRemaining = length;
+            state = length == 0 ? State.HEADER : State.STORED;
+        } else if (type == 1) {
+            literals = FIXED_LITERALS;
+            distances = FIXED_DISTANCES;
+            state = State.HUFFMAN;
+        } else if (type == 2) {
+            readDynamicTables();
+            state = State.HUFFMAN;
+        } else {
+            throw new IOException("Invalid block type");
+        }
+    }
+
+    private void readDynamicTables() throws IOException {
+        int literalCount = bits.bits(5) + 257;
+        int distanceCount = bits.bits(5) + 1;
+        int codeLengthCount = bits.bits(4) + 4;
+        if (literalCount > 286 || distanceCount > 30) {
+            throw new IOException("Invalid dynamic block code counts");
+        }
+        byte[] codeLengths = new byte[19];
+        for (int i = 0; i < codeLengthCount; i++) {
+            codeLengths[CODE_LENGTH_ORDER[i]] = (byte) bits.bits(3);
+        }
+        Huffman codeLengthCode = new Huffman(codeLengths, 0, codeLengths.length);
+        byte[] lengths = new byte[literalCount + distanceCount];
+        int index = 0;
+        while (index < lengths.length) {
+            int symbol = codeLengthCode.decode(bits);
+            if (symbol < 16) {
+                lengths[index++] = (byte) symbol;
+                continue;
+            }
+            int repeat;
+            byte value = 0;
+            if (symbol == 16) {
+                if (index == 0) {
+                    throw new IOException("Invalid repeat of a missing code length");
+                }
+                value = lengths[index - 1];
+                repeat = 3 + bits.bits(2);
+            } else if (symbol == 17) {
+                repeat = 3 + bits.bits(3);
+            } else {
+                repeat = 11 + bits.bits(7);
+            }
+            if (index + repeat > lengths.length) {
+                throw new IOException("Too many code lengths");
+            }
+            Arrays.fill(lengths, index, index + repeat, value);
+            index += repeat;
+        }
+        if (lengths[END_OF_BLOCK] == 0) {
+            throw new IOException("Missing end of block code");
+        }
+        literals = new Huffman(lengths, 0, literalCount);
+        distances = new Huffman(lengths, literalCount, distanceCount);
+    }
+
+    private void decodeSymbols() throws IOException {
+        while (written - delivered < MAX_PENDING) {
+            int symbol = literals.decode(bits);
+            if (symbol < END_OF_BLOCK) {
+                ring[(int) written++ & RING_MASK] = (byte) symbol;
+            } else if (symbol == END_OF_BLOCK) {
+                state = State.HEADER;
+                return;
+            } else {
+                symbol -= 257;
+                if (symbol >= LENGTH_BASE.length) {
+                    throw new IOException("Invalid length code");
+                }
+                int length = LENGTH_BASE[symbol] + bits.bits(LENGTH_EXTRA[symbol]);
+                int distanceSymbol = distances.decode(bits);
+                if (distanceSymbol >= DISTANCE_BASE.length) {
+                    throw new IOException("Invalid distance code");
+                }
+                int distance = DISTANCE_BASE[distanceSymbol] + bits.bits(DISTANCE_EXTRA[distanceSymbol]);
+                if (distance > written + presetLength) {
+                    throw new IOException("Invalid distance too far back");
+                }
+                for (int i = 0; i < length; i++, written++) {
+                    ring[(int) written & RING_MASK] = ring[(int) (written - distance) & RING_MASK];
+                }
+            }
+        }
+    }
+
+    /**
+     * Canonical Huffman code with a lookup table for short codes.
+     */
+    private static final class Huffman {
+        private static final int FAST_BITS = 9;
+        private final short[] fast = new short[1 << FAST_BITS];
+        private final int[] counts = new int[16];
+        private final int[] symbols;
+
+        private Huffman(final byte[] lengths, final int offset, final int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                counts[lengths[offset + i]]++;
+            }
+            int left = 1;
+            for (int length = 1; length < counts.length; length++) {
+                left = (left << 1) - counts[length];
+                if (left < 0) {
+                    throw new IOException("Invalid Huffman code lengths");
+                }
+            }
+            int[] offsets = new int[16];
+            for (int length = 1; length < 15; length++) {
+                offsets[length + 1] = offsets[length] + counts[length];
+            }
+            symbols = new int[count];
+            for (int i = 0; i < count; i++) {
+                if (lengths[offset + i] != 0) {
+                    symbols[offsets[lengths[offset + i]]++] = i;
+                }
+            }
+            Arrays.fill(fast, (short) -1);
+            int code = 0;
+            int index = 0;
+            for (int length = 1; length <= FAST_BITS; length++) {
+                for (int i = 0; i < counts[length]; i++, code++) {
+                    int reversed = Integer.reverse(code) >>> (32 - length);
+                    for (int k = reversed; k < fast.length; k += 1 << length) {
+                        fast[k] = (short) (symbols[index + i] << 4 | length);
+                    }
+                }
+                index += counts[length];
+                code <<= 1;
+            }
+        }
+
+        private int decode(final BitReader bits) throws IOException {
+            int entry = fast[bits.peek(FAST_BITS)];
+            if (entry >= 0) {
+                bits.consume(entry & 0xf);
+                return entry >>> 4;
+            }
+            int code = 0;
+            int first = 0;
+            int index = 0;
+            for (int length = 1; length < counts.length; length++) {
+                code |= bits.bits(1);
+                int count = counts[length];
+                if (code - count < first) {
+                    return symbols[index + code - first];
+                }
+                index += count;
+                first = (first + count) << 1;
+                code <<= 1;
+            }
+            throw new IOException("Invalid Huffman code");
+        }
+    }
+
+    /**
+     * Reads bits least significant first as used by deflate, the position is counted in bits of the whole compressed
+     * stream.
+     */
+    static final class BitReader {
+        private final InputStream in;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+        private int limit;
+        private long bitBuffer;
+        private int bitCount;
+        private long bytesLoaded;
+        private final long startByte;
+
+        /**
+         * @param in compressed stream positioned at the byte which contains the start bit.
+         * @param startBit position of the first bit to read in the whole compressed stream.
+         * @throws IOException if the start byte can not be read.
+         */
+        BitReader(final InputStream in, final long startBit) throws IOException {
+            this.in = in;
+            this.startByte = startBit >>> 3;
+            int skip = (int) (startBit & 7);
+            if (skip > 0) {
+                bits(skip);
+            }
+        }
+
+        /**
+         * @return position of the next bit in the whole compressed stream.
+         */
+        long getBitPosition() {
+            return (startByte + bytesLoaded) * 8 - bitCount;
+        }
+
+        int bits(final int n) throws IOException {
+            if (n == 0) {
+                return 0;
+            }
+            fill(n);
+            if (bitCount < n) {
+                throw new EOFException("Unexpected end of deflate data");
+            }
+            int value = (int) (bitBuffer & ((1L << n) - 1));
+            bitBuffer >>>= n;
+            bitCount -= n;
+            return value;
+        }
+
+        /**
+         * @return next n bits padded with zero bits at the end of the stream.
+         */
+        int peek(final int n) throws IOException {
+            fill(n);
+            return (int) (bitBuffer & ((1L << n) - 1));
+        }
+
+        void consume(final int n) throws IOException {
+            if (bitCount < n) {
+                throw new EOFException("Unexpected end of deflate data");
+            }
+            bitBuffer >>>= n;
+            bitCount -= n;
+        }
+
+        void alignToByte() throws IOException {
+            consume(bitCount & 7);
+        }
+
+        /**
+         * @return next byte at a byte boundary or -1 at the end of the stream.
+         */
+        int readAlignedByte() throws IOException {
+            fill(8);
+            return bitCount < 8 ? -1 : bits(8);
+        }
+
+        private void fill(final int n) throws IOException {
+            while (bitCount < n) {
+                if (position == limit) {
+                    limit = Math.max(in.read(buffer, 0, buffer.length), 0);
+                    position = 0;
+                    if (limit == 0) {
+                        return;
+                    }
+                }
+                bitBuffer |= (long) (buffer[position++] & 0xff) << bitCount;
+                bitCount += 8;
+                bytesLoaded++;
+            }
+        }
+    }
+}
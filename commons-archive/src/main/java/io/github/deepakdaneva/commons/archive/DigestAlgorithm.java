@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+/**
+ * Checksums and message digests which can be computed while the content of an archive entry streams through, see
+ * {@link EntryStreamOptions.Builder#digests(DigestAlgorithm...)}. Checksums are reported as 4 byte big endian values.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public enum DigestAlgorithm {
+    /** CRC-32 as stored by zip and 7z archives. */
+    CRC32("CRC32"),
+    /** CRC-32C (Castagnoli), intrinsic accelerated on most platforms. */
+    CRC32C("CRC32C"),
+    /** MD5 message digest. */
+    MD5("MD5"),
+    /** SHA-1 message digest. */
+    SHA_1("SHA-1"),
+    /** SHA-256 message digest. */
+    SHA_256("SHA-256"),
+    /** SHA-512 message digest. */
+    SHA_512("SHA-512");
+
+    private final String algorithmName;
+
+    DigestAlgorithm(final String algorithmName) {
+        this.algorithmName = algorithmName;
+    }
+
+    /**
+     * @return standard name of the algorithm, e.g. {@code SHA-256}.
+     */
+    public String getAlgorithmName() {
+        return algorithmName;
+    }
+
+    /**
+     * @return true for the CRC checksums, false for the message digests.
+     */
+    public boolean isChecksum() {
+        return CRC32.equals(this) || CRC32C.equals(this);
+    }
+}
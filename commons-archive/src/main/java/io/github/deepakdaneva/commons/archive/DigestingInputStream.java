@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * Entry content which computes checksums and message digests inline while it is read, so no second pass over the
+ * content is needed. The digests are available from {@link #getDigests()} once the end of the entry has been reached,
+ * at that point the CRC stored in the archive is verified if requested.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class DigestingInputStream extends FilterInputStream {
+
+    private final EntryDigester digester;
+    private EntryDigests digests;
+
+    /**
+     * @param in content of the entry.
+     * @param digester which is updated with every byte read.
+     */
+    DigestingInputStream(final InputStream in, final EntryDigester digester) {
+        super(in);
+        this.digester = digester;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n > 0) {
+            digester.update(b, off, n);
+        } else if (n < 0 && Objects.isNull(digests)) {
+            digests = digester.finish();
+        }
+        return n;
+    }
+
+    /**
+     * Skipped content is read and digested as well.
+     *
+     * @param n number of bytes to skip.
+     * @return number of bytes skipped.
+     * @throws IOException if reading fails.
+     */
+    @Override
+    public long skip(final long n) throws IOException {
+        final byte[] skipBuffer = new byte[(int) Math.min(8192, Math.max(n, 0))];
+        long remaining = n;
+        while (remaining > 0) {
+            int read = read(skipBuffer, 0, (int) Math.min(skipBuffer.length, remaining));
+            if (read < 0) {
+                break;
+            }
+            remaining -= read;
+        }
+        return n - Math.max(remaining, 0);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * @return true once the end of the entry has been reached and the digests are available.
+     */
+    public boolean isComplete() {
+        return Objects.nonNull(digests);
+    }
+
+    /**
+     * @return digests of the complete entry content.
+     * @throws IllegalStateException if the end of the entry has not been reached yet.
+     */
+    public EntryDigests getDigests() {
+        if (Objects.isNull(digests)) {
+            throw new IllegalStateException("Entry has not been read completely");
+        }
+        return digests;
+    }
+}
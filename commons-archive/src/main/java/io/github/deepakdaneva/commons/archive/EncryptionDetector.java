@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import org.apache.commons.compress.PasswordRequiredException;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+/**
+ * Detects password protected archives and entries from the archive headers only, no entry is decompressed. Zip
+ * archives are checked through the general purpose flags of the central directory, 7z archives through an encrypted
+ * header or AES coders of the entries and RAR archives through their block headers. Archives of other formats and
+ * compressed streams (gzip, bzip2, xz, ...) can not be encrypted and are reported as not encrypted without being read.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class EncryptionDetector {
+
+    private EncryptionDetector() {
+    }
+
+    /**
+     * Scans the headers of the archive file for encryption.
+     *
+     * @param path of the archive file.
+     * @return encryption status of the archive and its entries.
+     * @throws IOException if reading the headers fails.
+     * @throws NotAnArchiveOrSupportedArchiveException if the file is not an archive.
+     */
+    public static EncryptionReport scan(final Path path) throws IOException {
+        ArchiveFormat format;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            format = ArchiveFormatDetector.detect(in);
+        }
+        if (ArchiveFormat.ZIP.equals(format)) {
+            return scanZip(path);
+        } else if (ArchiveFormat.SEVEN_Z.equals(format)) {
+            return scanSevenZ(path);
+        } else if (ArchiveFormat.RAR.equals(format)) {
+            return scanRar(path);
+        } else if (Objects.nonNull(format.getArchiverName()) || Objects.nonNull(format.getCompressorName())) {
+            // compressed streams are reported as such even if the tar they wrap was not recognized
+            return new EncryptionReport(format, false, Collections.emptyList());
+        }
+        throw ArchiveUtil.notAnArchive(null);
+    }
+
+    private static EncryptionReport scanZip(final Path path) throws IOException {
+        List<String> encrypted = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(path)) {
+            for (ZipArchiveEntry entry : Collections.list(zipFile.getEntries())) {
+                if (entry.getGeneralPurposeBit().usesEncryption()) {
+                    encrypted.add(entry.getName());
+                }
+            }
+        }
+        return new EncryptionReport(ArchiveFormat.ZIP, false, encrypted);
+    }
+
+    private static EncryptionReport scanSevenZ(final Path path) throws IOException {
+        List<String> encrypted = new ArrayList<>();
+        try (SevenZArchiveInputStream ais = new SevenZArchiveInputStream(path)) {
+            ArchiveEntry entry;
+            while (Objects.nonNull(entry = ais.getNextEntry())) {
+                if (ArchiveUtil.isEncrypted((SevenZArchiveEntry) entry)) {
+                    encrypted.add(entry.getName());
+                }
+            }
+        } catch (PasswordRequiredException e) {
+            return new EncryptionReport(ArchiveFormat.SEVEN_Z, true, Collections.emptyList());
+        }
+        return new EncryptionReport(ArchiveFormat.SEVEN_Z, false, encrypted);
+    }
+
+    private static EncryptionReport scanRar(final Path path) throws IOException {
+        List<String> encrypted = new ArrayList<>();
+        try (SeekableByteChannel channel = Files.newByteChannel(path)) {
+            RarHeaderParser parser = new RarHeaderParser(channel);
+            RarHeaderParser.Entry entry;
+            while (Objects.nonNull(entry = parser.next())) {
+                if (entry.isEncrypted()) {
+                    encrypted.add(entry.getName());
+                }
+            }
+            return new EncryptionReport(ArchiveFormat.RAR, parser.isHeaderEncrypted(), encrypted);
+        }
+    }
+}
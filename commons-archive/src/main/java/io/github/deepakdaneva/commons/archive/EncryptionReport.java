@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Encryption status of an archive as reported by {@link EncryptionDetector}. Instances are immutable.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class EncryptionReport {
+
+    private final ArchiveFormat format;
+    private final boolean headerEncrypted;
+    private final List<String> encryptedEntries;
+
+    EncryptionReport(final ArchiveFormat format, final boolean headerEncrypted, final List<String> encryptedEntries) {
+        this.format = format;
+        this.headerEncrypted = headerEncrypted;
+        this.encryptedEntries = Collections.unmodifiableList(encryptedEntries);
+    }
+
+    /**
+     * @return format of the archive.
+     */
+    public ArchiveFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return true if the archive itself or any of its entries is encrypted.
+     */
+    public boolean isEncrypted() {
+        return headerEncrypted || !encryptedEntries.isEmpty();
+    }
+
+    /**
+     * @return true if the headers of the archive are encrypted, e.g. 7z and RAR archives with encrypted file names, no
+     * entries are known then.
+     */
+    public boolean isHeaderEncrypted() {
+        return headerEncrypted;
+    }
+
+    /**
+     * @return unmodifiable list of the names of the encrypted entries.
+     */
+    public List<String> getEncryptedEntries() {
+        return encryptedEntries;
+    }
+
+    @Override
+    public String toString() {
+        return format + (headerEncrypted ? " with encrypted headers" : " with " + encryptedEntries.size() + " encrypted entries");
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+
+/**
+ * Mutable state of the checksums and message digests of one entry, optionally verifying the CRC stored in the archive
+ * once all content has been digested. Zip entries with a data descriptor only know their CRC once the archive stream
+ * has moved to the next entry, their verification is left pending in the {@link EntryDigests}.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class EntryDigester {
+
+    private final ArchiveEntry entry;
+    private final Map<DigestAlgorithm, Checksum> checksums = new EnumMap<>(DigestAlgorithm.class);
+    private final Map<DigestAlgorithm, MessageDigest> digests = new EnumMap<>(DigestAlgorithm.class);
+    private final Checksum verifyCrc;
+    private final boolean separateVerifyCrc;
+    private long length;
+
+    /**
+     * @param algorithms to compute.
+     * @param entry of which the stored CRC is verified, null if there is nothing to verify.
+     * @param verify true to verify the stored CRC of the entry if the archive format stores one.
+     */
+    EntryDigester(final Set<DigestAlgorithm> algorithms, final ArchiveEntry entry, final boolean verify) {
+        for (DigestAlgorithm algorithm : algorithms) {
+            if (DigestAlgorithm.CRC32.equals(algorithm)) {
+                checksums.put(algorithm, new CRC32());
+            } else if (DigestAlgorithm.CRC32C.equals(algorithm)) {
+                checksums.put(algorithm, new CRC32C());
+            } else {
+                try {
+                    digests.put(algorithm, MessageDigest.getInstance(algorithm.getAlgorithmName()));
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException("Digest algorithm " + algorithm.getAlgorithmName() + " is not available", e);
+                }
+            }
+        }
+        this.entry = verify && hasStoredCrc(entry) ? entry : null;
+        this.separateVerifyCrc = Objects.nonNull(this.entry) && !checksums.containsKey(DigestAlgorithm.CRC32);
+        if (Objects.isNull(this.entry)) {
+            this.verifyCrc = null;
+        } else {
+            this.verifyCrc = separateVerifyCrc ? new CRC32() : checksums.get(DigestAlgorithm.CRC32);
+        }
+    }
+
+    /**
+     * @param b content of the entry.
+     * @param off offset in the content.
+     * @param len number of bytes to digest.
+     */
+    void update(final byte[] b, final int off, final int len) {
+        for (Checksum checksum : checksums.values()) {
+            checksum.update(b, off, len);
+        }
+        for (MessageDigest digest : digests.values()) {
+            digest.update(b, off, len);
+        }
+        if (separateVerifyCrc) {
+            verifyCrc.update(b, off, len);
+        }
+        length += len;
+    }
+
+    /**
+     * Completes the digests, must only be invoked once.
+     *
+     * @return digests of all content passed to {@link #update(byte[], int, int)}.
+     * @throws ChecksumMismatchException if the stored CRC of the entry does not match.
+     */
+    EntryDigests finish() {
+        // ZipArchiveInputStream reads the data descriptor only when the entry is closed by getNextEntry()
+        boolean pending = Objects.nonNull(verifyCrc) && !verify();
+        Map<DigestAlgorithm, byte[]> values = new EnumMap<>(DigestAlgorithm.class);
+        for (Map.Entry<DigestAlgorithm, Checksum> checksum : checksums.entrySet()) {
+            long value = checksum.getValue().getValue();
+            values.put(checksum.getKey(), new byte[] {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value});
+        }
+        for (Map.Entry<DigestAlgorithm, MessageDigest> digest : digests.entrySet()) {
+            values.put(digest.getKey(), digest.getValue().digest());
+        }
+        return new EntryDigests(length, values, pending ? this : null);
+    }
+
+    /**
+     * Verifies the stored CRC against the digested content, must only be invoked after {@link #finish()} if a CRC is
+     * verified at all.
+     *
+     * @return false if the stored CRC is not known yet.
+     * @throws ChecksumMismatchException if the stored CRC of the entry does not match.
+     */
+    boolean verify() {
+        long expected = storedCrc(entry);
+        if (expected < 0) {
+            return false;
+        }
+        if (expected != verifyCrc.getValue()) {
+            throw new ChecksumMismatchException(entry.getName(), expected, verifyCrc.getValue());
+        }
+        return true;
+    }
+
+    /**
+     * @return name of the verified entry.
+     */
+    String getEntryName() {
+        return entry.getName();
+    }
+
+    private static boolean hasStoredCrc(final ArchiveEntry entry) {
+        return entry instanceof ZipArchiveEntry || (entry instanceof SevenZArchiveEntry && ((SevenZArchiveEntry) entry).getHasCrc());
+    }
+
+    /**
+     * @return stored CRC of the entry or -1 if it is unknown.
+     */
+    private static long storedCrc(final ArchiveEntry entry) {
+        if (entry instanceof ZipArchiveEntry) {
+            return ((ZipArchiveEntry) entry).getCrc();
+        }
+        return ((SevenZArchiveEntry) entry).getCrcValue();
+    }
+}
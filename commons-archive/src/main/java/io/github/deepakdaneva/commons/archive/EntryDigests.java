@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable checksums and message digests of the content of one archive entry which have been computed while the
+ * content was read. If the stored CRC of the entry was not known when the end of the content was reached, its
+ * verification is pending until {@link #verifyChecksum()} is invoked.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class EntryDigests {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final long length;
+    private final Map<DigestAlgorithm, byte[]> values;
+    private final EntryDigester pending;
+
+    /**
+     * @param length number of bytes digested.
+     * @param values digest per algorithm which are owned by this instance from now on.
+     * @param pending digester whose stored CRC was not known at the end of the content, null if there is none.
+     */
+    EntryDigests(final long length, final Map<DigestAlgorithm, byte[]> values, final EntryDigester pending) {
+        this.length = length;
+        this.values = Collections.unmodifiableMap(new EnumMap<>(values));
+        this.pending = pending;
+    }
+
+    /**
+     * @return number of bytes of the entry content.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * @return algorithms which have been computed.
+     */
+    public Set<DigestAlgorithm> getAlgorithms() {
+        return values.keySet();
+    }
+
+    /**
+     * @param algorithm of the digest.
+     * @return copy of the digest or null if the algorithm has not been computed.
+     */
+    public byte[] get(final DigestAlgorithm algorithm) {
+        byte[] value = values.get(algorithm);
+        return Objects.isNull(value) ? null : value.clone();
+    }
+
+    /**
+     * @param algorithm of the digest.
+     * @return lower case hexadecimal digest or null if the algorithm has not been computed.
+     */
+    public String getHex(final DigestAlgorithm algorithm) {
+        byte[] value = values.get(algorithm);
+        if (Objects.isNull(value)) {
+            return null;
+        }
+        char[] hex = new char[value.length * 2];
+        for (int i = 0; i < value.length; i++) {
+            hex[i * 2] = HEX[(value[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX[value[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * @return true if the stored CRC was requested to be verified but was not known at the end of the content, as for
+     * zip entries with a data descriptor which is only read once the archive stream moves to the next entry.
+     */
+    public boolean isChecksumPending() {
+        return Objects.nonNull(pending);
+    }
+
+    /**
+     * Verifies a pending stored CRC, see {@link #isChecksumPending()}. To be invoked once the archive stream has moved
+     * past the entry, does nothing if no verification is pending.
+     *
+     * @throws ChecksumMismatchException if the stored CRC of the entry does not match.
+     * @throws IllegalStateException if the stored CRC is still not known.
+     */
+    public void verifyChecksum() {
+        if (Objects.nonNull(pending) && !pending.verify()) {
+            throw new IllegalStateException("Stored CRC of entry " + pending.getEntryName() + " is not known yet");
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("EntryDigests{length=").append(length);
+        for (DigestAlgorithm algorithm : values.keySet()) {
+            sb.append(", ").append(algorithm.getAlgorithmName()).append('=').append(getHex(algorithm));
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+
+/**
+ * Processes the content of a single archive entry, see {@link ParallelArchiveExtractor}. Implementations may be invoked
+ * concurrently for different entries.
+ *
+ * @param <R> type of the result of processing an entry.
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+@FunctionalInterface
+public interface EntryProcessor<R> {
+
+    /**
+     * @param entry which is processed.
+     * @param content of the entry, only valid during this call and closed afterwards.
+     * @return result of processing the entry, may be null.
+     * @throws IOException if processing fails, the extraction is aborted with this exception.
+     */
+    R process(ArchiveEntry entry, InputStream content) throws IOException;
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+
+/**
+ * Receives the results of {@link EntryProcessor} on the thread which started the extraction, see
+ * {@link ParallelArchiveExtractor}.
+ *
+ * @param <R> type of the result of processing an entry.
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+@FunctionalInterface
+public interface EntryResultConsumer<R> {
+
+    /**
+     * @param entry which has been processed.
+     * @param result returned by the {@link EntryProcessor} for the entry.
+     */
+    void accept(ArchiveEntry entry, R result);
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+/**
+ * Defines how {@link ArchiveUtil#getEntryInputStream(java.io.InputStream, EntryStreamOptions)} exposes the content of
+ * the current archive entry.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public enum EntryStreamMode {
+    /**
+     * Entry content is passed through without any copy. The returned stream is only valid until the archive stream is
+     * moved to the next entry and closing it does not close the archive stream.
+     */
+    STREAMING,
+    /**
+     * Entry content is buffered so it can be re-read (mark/reset) after the archive stream has moved on. Entries up to
+     * the spill threshold are kept in pooled memory chunks, larger entries are spilled to a temporary file.
+     */
+    BUFFERED,
+    /**
+     * Same as {@link #BUFFERED} but entries spilled to a temporary file are read back through a memory mapping of the
+     * file.
+     */
+    MAPPED
+}
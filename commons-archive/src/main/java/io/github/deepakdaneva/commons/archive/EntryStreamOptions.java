@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable options used by {@link ArchiveUtil#getEntryInputStream(java.io.InputStream, EntryStreamOptions)}, instances
+ * are created through {@link #builder()}.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class EntryStreamOptions {
+
+    /** Default number of bytes kept in memory before an entry is spilled to a temporary file (8 MiB). */
+    public static final long DEFAULT_SPILL_THRESHOLD = 8L * 1024 * 1024;
+    /** Pass-through options, entry content is never copied. */
+    public static final EntryStreamOptions STREAMING = builder().mode(EntryStreamMode.STREAMING).build();
+    /** Re-readable options which spill entries above {@link #DEFAULT_SPILL_THRESHOLD} to a temporary file. */
+    public static final EntryStreamOptions DEFAULT = builder().build();
+
+    private final EntryStreamMode mode;
+    private final long spillThreshold;
+    private final Path tempDirectory;
+    private final Set<DigestAlgorithm> digests;
+    private final boolean verifyChecksums;
+
+    private EntryStreamOptions(final Builder builder) {
+        this.mode = builder.mode;
+        this.spillThreshold = builder.spillThreshold;
+        this.tempDirectory = builder.tempDirectory;
+        this.digests = Collections.unmodifiableSet(EnumSet.copyOf(builder.digests));
+        this.verifyChecksums = builder.verifyChecksums;
+    }
+
+    /**
+     * @return new builder initialized with the default values.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return mode in which the entry content is exposed.
+     */
+    public EntryStreamMode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return maximum number of bytes of an entry kept in memory before it is spilled to a temporary file.
+     */
+    public long getSpillThreshold() {
+        return spillThreshold;
+    }
+
+    /**
+     * @return directory in which temporary spill files are created or null for the default temporary directory.
+     */
+    public Path getTempDirectory() {
+        return tempDirectory;
+    }
+
+    /**
+     * @return algorithms computed inline while the entry content is read.
+     */
+    public Set<DigestAlgorithm> getDigests() {
+        return digests;
+    }
+
+    /**
+     * @return true if the CRC stored in the archive is verified while the entry content is read.
+     */
+    public boolean isVerifyChecksums() {
+        return verifyChecksums;
+    }
+
+    /**
+     * @return true if the entry content has to pass through an {@link EntryDigester}.
+     */
+    boolean isDigesting() {
+        return verifyChecksums || !digests.isEmpty();
+    }
+
+    /**
+     * Builder of {@link EntryStreamOptions}.
+     */
+    public static final class Builder {
+        private EntryStreamMode mode = EntryStreamMode.BUFFERED;
+        private long spillThreshold = DEFAULT_SPILL_THRESHOLD;
+        private Path tempDirectory;
+        private Set<DigestAlgorithm> digests = EnumSet.noneOf(DigestAlgorithm.class);
+        private boolean verifyChecksums;
+
+        private Builder() {
+        }
+
+        /**
+         * @param mode in which the entry content is exposed, default is {@link EntryStreamMode#BUFFERED}.
+         * @return this builder.
+         */
+        public Builder mode(final EntryStreamMode mode) {
+            this.mode = Objects.requireNonNull(mode, "mode");
+            return this;
+        }
+
+        /**
+         * @param spillThreshold maximum number of bytes kept in memory, {@link Long#MAX_VALUE} never spills and
+         * {@code 0} always spills.
+         * @return this builder.
+         */
+        public Builder spillThreshold(final long spillThreshold) {
+            if (spillThreshold < 0) {
+                throw new IllegalArgumentException("spillThreshold must not be negative");
+            }
+            this.spillThreshold = spillThreshold;
+            return this;
+        }
+
+        /**
+         * @param tempDirectory directory in which spill files are created, null for the default temporary directory.
+         * @return this builder.
+         */
+        public Builder tempDirectory(final Path tempDirectory) {
+            this.tempDirectory = tempDirectory;
+            return this;
+        }
+
+        /**
+         * @param digests algorithms computed inline while the entry content is read, they are available from
+         * {@link DigestingInputStream#getDigests()} in {@link EntryStreamMode#STREAMING} mode and from
+         * {@link SpillableEntryInputStream#getDigests()} otherwise.
+         * @return this builder.
+         */
+        public Builder digests(final DigestAlgorithm... digests) {
+            EnumSet<DigestAlgorithm> set = EnumSet.noneOf(DigestAlgorithm.class);
+            for (DigestAlgorithm digest : digests) {
+                set.add(Objects.requireNonNull(digest, "digest"));
+            }
+            this.digests = set;
+            return this;
+        }
+
+        /**
+         * @param verifyChecksums true to verify the CRC stored in zip and 7z archives while the entry content is read,
+         * a mismatch is raised as {@link ChecksumMismatchException} once the end of the entry is reached. Requires the
+         * entry to be passed to {@link ArchiveUtil#getEntryInputStream(java.io.InputStream,
+         * org.apache.commons.compress.archivers.ArchiveEntry, EntryStreamOptions)}. The CRC of zip entries with a data
+         * descriptor is only known once the archive stream has moved to the next entry, it is verified by
+         * {@link EntryDigests#verifyChecksum()} then, see {@link EntryDigests#isChecksumPending()}.
+         * @return this builder.
+         */
+        public Builder verifyChecksums(final boolean verifyChecksums) {
+            this.verifyChecksums = verifyChecksums;
+            return this;
+        }
+
+        /**
+         * @return immutable options.
+         */
+        public EntryStreamOptions build() {
+            return new EntryStreamOptions(this);
+        }
+    }
+}
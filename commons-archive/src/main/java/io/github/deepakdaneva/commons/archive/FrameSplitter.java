@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Splits a compressed stream into frames which can be decoded independently, see
+ * {@link ParallelDecompressorInputStream}. Frames are read on the consuming thread and decoded concurrently, a frame
+ * which fails to decode is merged with its successor because its end might not have been a real boundary.
+ * {@link #decode(Frame)} is invoked concurrently and must not use the reading state of the splitter, a frame may be
+ * decoded more than once.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+interface FrameSplitter extends Closeable {
+
+    /**
+     * @return next frame or null at the end of the input.
+     * @throws IOException if reading fails or the input is not in the format of the splitter.
+     */
+    Frame next() throws IOException;
+
+    /**
+     * @param frame which is not a tail.
+     * @return stream of the decoded content of the frame, it fails if the frame does not decode to complete members
+     * or blocks.
+     * @throws IOException if the decoder can not be created.
+     */
+    InputStream decode(Frame frame) throws IOException;
+
+    /**
+     * @param first frame which failed to decode.
+     * @param second frame which follows the first frame.
+     * @param failure of the first frame, thrown if the frames can not be merged.
+     * @return frame spanning both frames.
+     * @throws IOException the failure if the frames can not be merged.
+     */
+    Frame merge(Frame first, Frame second, IOException failure) throws IOException;
+
+    /**
+     * @param frames consecutive frames starting with a tail, the rest of the input follows them.
+     * @return sequentially decoded content of the frames and the rest of the input.
+     * @throws IOException if the sequential decoder can not be created.
+     */
+    InputStream sequential(List<Frame> frames) throws IOException;
+
+    /**
+     * Consecutive compressed data, positions are bit offsets in the whole compressed stream.
+     */
+    final class Frame {
+        private final byte[] data;
+        private final long startBit;
+        private final long endBit;
+        private final boolean tail;
+
+        /**
+         * @param data bytes of the frame, starting with the byte which contains the start bit.
+         * @param startBit position of the first bit of the frame.
+         * @param endBit position after the last bit of the frame.
+         * @param tail true if the frame and the rest of the input must be decoded sequentially.
+         */
+        Frame(final byte[] data, final long startBit, final long endBit, final boolean tail) {
+            this.data = data;
+            this.startBit = startBit;
+            this.endBit = endBit;
+            this.tail = tail;
+        }
+
+        byte[] getData() {
+            return data;
+        }
+
+        long getStartBit() {
+            return startBit;
+        }
+
+        long getEndBit() {
+            return endBit;
+        }
+
+        boolean isTail() {
+            return tail;
+        }
+    }
+}
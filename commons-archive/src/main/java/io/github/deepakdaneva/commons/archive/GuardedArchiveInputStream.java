@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.IOException;
+import java.util.Objects;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+
+/**
+ * Archive stream which enforces {@link ArchiveLimits} while the entries of the wrapped archive stream are read. Entry
+ * count is checked in {@link #getNextEntry()}, sizes and the compression ratio are checked on every read, so reading
+ * stops with {@link ArchiveLimitExceededException} as soon as a limit is crossed. Closing this stream closes the
+ * wrapped archive stream.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class GuardedArchiveInputStream extends ArchiveInputStream {
+
+    private final ArchiveInputStream delegate;
+    private final ArchiveGuard guard;
+
+    /**
+     * @param delegate archive stream which is guarded.
+     * @param guard counters of the archive.
+     */
+    GuardedArchiveInputStream(final ArchiveInputStream delegate, final ArchiveGuard guard) {
+        this.delegate = delegate;
+        this.guard = guard;
+    }
+
+    @Override
+    public ArchiveEntry getNextEntry() throws IOException {
+        ArchiveEntry entry = delegate.getNextEntry();
+        if (Objects.nonNull(entry)) {
+            guard.startEntry();
+        }
+        return entry;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        int n = delegate.read(b, off, len);
+        if (n > 0) {
+            guard.count(n);
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        // skipped bytes are decoded as well, they count against the limits
+        long skipped = delegate.skip(n);
+        if (skipped > 0) {
+            guard.count(skipped);
+            count(skipped);
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return delegate.available();
+    }
+
+    @Override
+    public boolean canReadEntryData(final ArchiveEntry archiveEntry) {
+        return delegate.canReadEntryData(archiveEntry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
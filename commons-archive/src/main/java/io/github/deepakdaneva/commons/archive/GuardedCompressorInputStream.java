@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.IOException;
+import org.apache.commons.compress.compressors.CompressorInputStream;
+
+/**
+ * Compressor stream which enforces {@link ArchiveLimits} while the wrapped compressor stream is read, the decompressed
+ * output is treated as a single entry. Closing this stream closes the wrapped compressor stream.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class GuardedCompressorInputStream extends CompressorInputStream {
+
+    private final CompressorInputStream delegate;
+    private final ArchiveGuard guard;
+
+    /**
+     * @param delegate compressor stream which is guarded.
+     * @param guard counters of the decompressed output.
+     */
+    GuardedCompressorInputStream(final CompressorInputStream delegate, final ArchiveGuard guard) {
+        this.delegate = delegate;
+        this.guard = guard;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = delegate.read();
+        if (b >= 0) {
+            guard.count(1);
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        int n = delegate.read(b, off, len);
+        if (n > 0) {
+            guard.count(n);
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        long skipped = delegate.skip(n);
+        if (skipped > 0) {
+            guard.count(skipped);
+            count(skipped);
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return delegate.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+
+/**
+ * Splits a gzip stream into frames of whole members. Member boundaries are not recorded by gzip, so frames end where a
+ * member header might start at least the frame size after the start of the frame. A candidate which is not a real
+ * boundary makes the frame fail to decode and it is merged with its successor. If no candidate is found within the
+ * maximum frame size, for example in a single member stream, the rest of the stream is decoded sequentially.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class GzipFrameSplitter implements FrameSplitter {
+
+    private static final int ID1 = 0x1f;
+    private static final int ID2 = 0x8b;
+    private static final int DEFLATE_METHOD = 8;
+    private static final int RESERVED_FLAGS = 0xe0;
+    private static final int HEADER_PREFIX = 4;
+
+    private final InputStream in;
+    private final int frameSize;
+    private final int maxFrameSize;
+    private byte[] buffer;
+    private int start;
+    private int limit;
+    private long position;
+    private boolean eof;
+    private boolean started;
+    private boolean done;
+
+    /**
+     * @param in gzip stream.
+     * @param frameSize minimum number of compressed bytes of a frame, the last frame may be smaller.
+     * @param maxFrameSize number of compressed bytes searched for a member boundary before falling back to sequential
+     * decoding.
+     */
+    GzipFrameSplitter(final InputStream in, final int frameSize, final int maxFrameSize) {
+        this.in = in;
+        this.frameSize = Math.max(1, frameSize);
+        this.maxFrameSize = Math.max(this.frameSize, maxFrameSize);
+        this.buffer = new byte[Math.min(this.maxFrameSize, 64 * 1024) + HEADER_PREFIX];
+    }
+
+    @Override
+    public Frame next() throws IOException {
+        if (done || !fill(1)) {
+            return null;
+        }
+        if (!started) {
+            started = true;
+            if (!fill(2) || (buffer[start] & 0xff) != ID1 || (buffer[start + 1] & 0xff) != ID2) {
+                throw new IOException("Input is not in the .gz format");
+            }
+        }
+        int scan = frameSize;
+        while (true) {
+            if (!fill(scan + HEADER_PREFIX)) {
+                return take(limit - start, false);
+            }
+            if (scan >= maxFrameSize) {
+                done = true;
+                return take(limit - start, true);
+            }
+            if (isMemberStart(start + scan)) {
+                return take(scan, false);
+            }
+            scan++;
+        }
+    }
+
+    @Override
+    public InputStream decode(final Frame frame) throws IOException {
+        return new GzipCompressorInputStream(new ByteArrayInputStream(frame.getData()), true);
+    }
+
+    @Override
+    public Frame merge(final Frame first, final Frame second, final IOException failure) {
+        byte[] data = Arrays.copyOf(first.getData(), first.getData().length + second.getData().length);
+        System.arraycopy(second.getData(), 0, data, first.getData().length, second.getData().length);
+        return new Frame(data, first.getStartBit(), second.getEndBit(), second.isTail() || data.length > maxFrameSize);
+    }
+
+    @Override
+    public InputStream sequential(final List<Frame> frames) throws IOException {
+        List<InputStream> parts = new ArrayList<>();
+        for (Frame frame : frames) {
+            parts.add(new ByteArrayInputStream(frame.getData()));
+        }
+        // bytes which have been read ahead but not handed out as a frame yet
+        parts.add(new ByteArrayInputStream(Arrays.copyOfRange(buffer, start, limit)));
+        parts.add(in);
+        start = limit;
+        done = true;
+        return new GzipCompressorInputStream(new SequenceInputStream(Collections.enumeration(parts)), true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean isMemberStart(final int index) {
+        return (buffer[index] & 0xff) == ID1 && (buffer[index + 1] & 0xff) == ID2 && buffer[index + 2] == DEFLATE_METHOD && (buffer[index + 3] & RESERVED_FLAGS) == 0;
+    }
+
+    private Frame take(final int length, final boolean tail) {
+        Frame frame = new Frame(Arrays.copyOfRange(buffer, start, start + length), position * 8, (position + length) * 8, tail);
+        start += length;
+        position += length;
+        return frame;
+    }
+
+    /**
+     * @return false if the stream ended before the requested number of bytes is buffered.
+     */
+    private boolean fill(final int length) throws IOException {
+        while (limit - start < length) {
+            if (eof) {
+                return false;
+            }
+            if (limit == buffer.length) {
+                if (start > 0) {
+                    System.arraycopy(buffer, start, buffer, 0, limit - start);
+                    limit -= start;
+                    start = 0;
+                } else {
+                    buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length));
+                }
+            }
+            int n = in.read(buffer, limit, buffer.length - limit);
+            if (n < 0) {
+                eof = true;
+            } else {
+                limit += n;
+            }
+        }
+        return true;
+    }
+}
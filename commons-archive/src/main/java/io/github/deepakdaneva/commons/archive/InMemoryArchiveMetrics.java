@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link ArchiveMetrics} which keeps counters in memory, for tests and to be exported to dashboards. Counters are
+ * {@link LongAdder}s so concurrent archive processing does not contend on them.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class InMemoryArchiveMetrics implements ArchiveMetrics {
+
+    private final Map<ArchiveFormat, FormatCounters> formats;
+    private final LongAccumulator bufferHighWaterMark = new LongAccumulator(Math::max, 0);
+    private final LongAdder spilledBuffers = new LongAdder();
+    private final LongAdder detectionFailures = new LongAdder();
+
+    /**
+     * Creates metrics with all counters at zero.
+     */
+    public InMemoryArchiveMetrics() {
+        Map<ArchiveFormat, FormatCounters> counters = new EnumMap<>(ArchiveFormat.class);
+        for (ArchiveFormat format : ArchiveFormat.values()) {
+            counters.put(format, new FormatCounters());
+        }
+        this.formats = Collections.unmodifiableMap(counters);
+    }
+
+    @Override
+    public void archiveRead(final ArchiveFormat format, final long bytesIn, final long bytesOut, final long entries, final long decompressionNanos, final long consumerNanos) {
+        FormatCounters counters = formats.get(format);
+        counters.archives.increment();
+        counters.bytesIn.add(bytesIn);
+        counters.bytesOut.add(bytesOut);
+        counters.entries.add(entries);
+        counters.decompressionNanos.add(decompressionNanos);
+        counters.consumerNanos.add(consumerNanos);
+    }
+
+    @Override
+    public void bufferReleased(final long length, final boolean spilled) {
+        bufferHighWaterMark.accumulate(length);
+        if (spilled) {
+            spilledBuffers.increment();
+        }
+    }
+
+    @Override
+    public void detectionFailed() {
+        detectionFailures.increment();
+    }
+
+    @Override
+    public void passwordProtected(final ArchiveFormat format) {
+        formats.get(format).passwordProtected.increment();
+    }
+
+    /**
+     * @param format of the archives.
+     * @return number of closed archive and compressor streams of the format.
+     */
+    public long getArchives(final ArchiveFormat format) {
+        return formats.get(format).archives.sum();
+    }
+
+    /**
+     * @param format of the archives.
+     * @return number of compressed bytes consumed.
+     */
+    public long getBytesIn(final ArchiveFormat format) {
+        return formats.get(format).bytesIn.sum();
+    }
+
+    /**
+     * @param format of the archives.
+     * @return number of uncompressed bytes read.
+     */
+    public long getBytesOut(final ArchiveFormat format) {
+        return formats.get(format).bytesOut.sum();
+    }
+
+    /**
+     * @param format of the archives.
+     * @return number of entries read.
+     */
+    public long getEntries(final ArchiveFormat format) {
+        return formats.get(format).entries.sum();
+    }
+
+    /**
+     * @param format of the archives.
+     * @return nanoseconds spent reading and decoding.
+     */
+    public long getDecompressionNanos(final ArchiveFormat format) {
+        return formats.get(format).decompressionNanos.sum();
+    }
+
+    /**
+     * @param format of the archives.
+     * @return nanoseconds spent by the callers between reads.
+     */
+    public long getConsumerNanos(final ArchiveFormat format) {
+        return formats.get(format).consumerNanos.sum();
+    }
+
+    /**
+     * @param format of the archives.
+     * @return number of password protected archives or entries found.
+     */
+    public long getPasswordProtected(final ArchiveFormat format) {
+        return formats.get(format).passwordProtected.sum();
+    }
+
+    /**
+     * @return largest number of bytes held by a single released buffer.
+     */
+    public long getBufferHighWaterMark() {
+        return bufferHighWaterMark.get();
+    }
+
+    /**
+     * @return number of released buffers which had been spilled to a temporary file.
+     */
+    public long getSpilledBuffers() {
+        return spilledBuffers.sum();
+    }
+
+    /**
+     * @return number of streams whose format could not be detected or was not supported.
+     */
+    public long getDetectionFailures() {
+        return detectionFailures.sum();
+    }
+
+    /**
+     * Resets all counters to zero, updates which happen concurrently may be lost.
+     */
+    public void reset() {
+        formats.values().forEach(FormatCounters::reset);
+        bufferHighWaterMark.reset();
+        spilledBuffers.reset();
+        detectionFailures.reset();
+    }
+
+    /**
+     * Counters of one format.
+     */
+    private static final class FormatCounters {
+        private final LongAdder archives = new LongAdder();
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder bytesOut = new LongAdder();
+        private final LongAdder entries = new LongAdder();
+        private final LongAdder decompressionNanos = new LongAdder();
+        private final LongAdder consumerNanos = new LongAdder();
+        private final LongAdder passwordProtected = new LongAdder();
+
+        private void reset() {
+            archives.reset();
+            bytesIn.reset();
+            bytesOut.reset();
+            entries.reset();
+            decompressionNanos.reset();
+            consumerNanos.reset();
+            passwordProtected.reset();
+        }
+    }
+}
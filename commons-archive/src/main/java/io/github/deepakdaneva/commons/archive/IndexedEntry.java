@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+/**
+ * Entry of an {@link ArchiveIndex}, it records where the content of the entry is stored in the archive. Instances are
+ * immutable.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class IndexedEntry {
+
+    static final int DIRECTORY = 1;
+    static final int ENCRYPTED = 1 << 1;
+    static final int SPARSE = 1 << 2;
+
+    private final String name;
+    private final int flags;
+    private final int method;
+    private final long size;
+    private final long compressedSize;
+    private final long offset;
+
+    IndexedEntry(final String name, final int flags, final int method, final long size, final long compressedSize, final long offset) {
+        this.name = name;
+        this.flags = flags;
+        this.method = method;
+        this.size = size;
+        this.compressedSize = compressedSize;
+        this.offset = offset;
+    }
+
+    /**
+     * @return name of the entry as stored in the archive.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return uncompressed size of the entry.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return size of the entry as stored in the archive, equals the size if the entry itself is not compressed.
+     */
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    /**
+     * @return offset of the content of the entry, in the archive file for zip and tar archives and in the decompressed
+     * stream for compressed tar archives.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return true if the entry is a directory.
+     */
+    public boolean isDirectory() {
+        return (flags & DIRECTORY) != 0;
+    }
+
+    boolean isEncrypted() {
+        return (flags & ENCRYPTED) != 0;
+    }
+
+    boolean isSparse() {
+        return (flags & SPARSE) != 0;
+    }
+
+    int getFlags() {
+        return flags;
+    }
+
+    /**
+     * @return zip compression method of the entry, {@code 0} (stored) for tar entries.
+     */
+    int getMethod() {
+        return method;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Gzip stream, including concatenated members, decoded by a {@link DeflateDecoder} so it can either be read from the
+ * start while seek points are recorded or be resumed at a previously recorded seek point. The CRC32 and size of a member
+ * are verified if it has been read from its start.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class IndexedGzipInputStream extends InputStream {
+
+    private static final int ID1 = 0x1f;
+    private static final int ID2 = 0x8b;
+    private static final int DEFLATE_METHOD = 8;
+    private static final int FHCRC = 0x02;
+    private static final int FEXTRA = 0x04;
+    private static final int FNAME = 0x08;
+    private static final int FCOMMENT = 0x10;
+
+    /**
+     * Receives the seek points of the stream.
+     */
+    @FunctionalInterface
+    interface SeekPointListener {
+
+        /**
+         * @param bitPosition position in the compressed stream.
+         * @param position position in the decompressed stream.
+         * @param window preceding decompressed bytes needed to resume, null at the start of a member.
+         * @throws IOException if the listener fails.
+         */
+        void seekPoint(long bitPosition, long position, byte[] window) throws IOException;
+    }
+
+    private final InputStream in;
+    private final DeflateDecoder.BitReader bits;
+    private final long span;
+    private final SeekPointListener listener;
+    private final CRC32 crc = new CRC32();
+    private final byte[] single = new byte[1];
+    private DeflateDecoder decoder;
+    private boolean verify;
+    private long position;
+    private long decoderStart;
+    private long lastSeekPoint;
+    private boolean eof;
+
+    /**
+     * Reads the stream from its start and reports seek points about every span bytes.
+     *
+     * @param in gzip stream.
+     * @param span minimum number of decompressed bytes between two seek points.
+     * @param listener of the seek points, the start of the stream is always reported.
+     * @throws IOException if the stream is not in the gzip format.
+     */
+    IndexedGzipInputStream(final InputStream in, final long span, final SeekPointListener listener) throws IOException {
+        this(in, 0, 0, null, span, listener);
+    }
+
+    /**
+     * Resumes the stream at a seek point.
+     *
+     * @param in compressed stream positioned at the byte which contains the bit position.
+     * @param bitPosition of the seek point.
+     * @param position of the seek point in the decompressed stream.
+     * @param window of the seek point, null at the start of a member.
+     * @throws IOException if the stream can not be resumed.
+     */
+    IndexedGzipInputStream(final InputStream in, final long bitPosition, final long position, final byte[] window) throws IOException {
+        this(in, bitPosition, position, window, Long.MAX_VALUE, null);
+    }
+
+    private IndexedGzipInputStream(final InputStream in, final long bitPosition, final long position, final byte[] window, final long span, final SeekPointListener listener) throws IOException {
+        this.in = in;
+        this.bits = new DeflateDecoder.BitReader(in, bitPosition);
+        this.position = position;
+        this.span = span;
+        this.listener = listener;
+        if (Objects.isNull(window)) {
+            if (!startMember()) {
+                throw new IOException("Input is not in the .gz format");
+            }
+        } else {
+            decoderStart = position;
+            decoder = new DeflateDecoder(bits, window, this::blockBoundary);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int n = read(single, 0, 1);
+        return n <= 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (!eof) {
+            int n = decoder.read(b, off, len);
+            if (n > 0) {
+                if (verify) {
+                    crc.update(b, off, n);
+                }
+                position += n;
+                return n;
+            }
+            finishMember();
+            eof = !startMember();
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void blockBoundary(final DeflateDecoder deflateDecoder) throws IOException {
+        long output = decoderStart + deflateDecoder.getOutputPosition();
+        if (Objects.nonNull(listener) && output - lastSeekPoint >= span) {
+            listener.seekPoint(deflateDecoder.getBitPosition(), output, deflateDecoder.window());
+            lastSeekPoint = output;
+        }
+    }
+
+    /**
+     * @return false at the end of the stream.
+     */
+    private boolean startMember() throws IOException {
+        long bitPosition = bits.getBitPosition();
+        int id1 = bits.readAlignedByte();
+        if (id1 < 0) {
+            return false;
+        }
+        if (id1 != ID1 || readByte() != ID2 || readByte() != DEFLATE_METHOD) {
+            throw new IOException("Input is not in the .gz format");
+        }
+        if (Objects.nonNull(listener) && (position == 0 || position - lastSeekPoint >= span)) {
+            listener.seekPoint(bitPosition, position, null);
+            lastSeekPoint = position;
+        }
+        int flags = readByte();
+        // mtime (4), xfl and os
+        skip(6);
+        if ((flags & FEXTRA) != 0) {
+            skip(readByte() | readByte() << 8);
+        }
+        if ((flags & FNAME) != 0) {
+            skipZeroTerminated();
+        }
+        if ((flags & FCOMMENT) != 0) {
+            skipZeroTerminated();
+        }
+        if ((flags & FHCRC) != 0) {
+            skip(2);
+        }
+        crc.reset();
+        verify = true;
+        decoderStart = position;
+        decoder = new DeflateDecoder(bits, new byte[0], this::blockBoundary);
+        return true;
+    }
+
+    private void finishMember() throws IOException {
+        bits.alignToByte();
+        long storedCrc = readIntLE();
+        long storedSize = readIntLE();
+        if (verify && (storedCrc != crc.getValue() || storedSize != (decoder.getOutputPosition() & 0xffffffffL))) {
+            throw new IOException("Gzip-compressed data is corrupt");
+        }
+    }
+
+    private long readIntLE() throws IOException {
+        return (readByte() | readByte() << 8 | readByte() << 16 | (long) readByte() << 24) & 0xffffffffL;
+    }
+
+    private void skipZeroTerminated() throws IOException {
+        while (readByte() != 0) {
+            // skip
+        }
+    }
+
+    private void skip(final int n) throws IOException {
+        for (int i = 0; i < n; i++) {
+            readByte();
+        }
+    }
+
+    private int readByte() throws IOException {
+        return bits.bits(8);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.IOException;
+import java.util.function.LongSupplier;
+import org.apache.commons.compress.compressors.CompressorInputStream;
+
+/**
+ * Compressor stream which measures the wrapped compressor stream and reports to {@link ArchiveMetrics} once it is
+ * closed, see {@link MeteredArchiveInputStream}.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class MeteredCompressorInputStream extends CompressorInputStream {
+
+    private final CompressorInputStream delegate;
+    private final ArchiveFormat format;
+    private final LongSupplier bytesIn;
+    private final ArchiveMetrics metrics;
+    private final long openedAt;
+    private long bytesOut;
+    private long decompressionNanos;
+    private boolean closed;
+
+    /**
+     * @param delegate compressor stream which is measured.
+     * @param format of the compressed stream.
+     * @param bytesIn number of compressed bytes consumed so far.
+     * @param metrics to report to.
+     */
+    MeteredCompressorInputStream(final CompressorInputStream delegate, final ArchiveFormat format, final LongSupplier bytesIn, final ArchiveMetrics metrics) {
+        this.delegate = delegate;
+        this.format = format;
+        this.bytesIn = bytesIn;
+        this.metrics = metrics;
+        this.openedAt = System.nanoTime();
+    }
+
+    @Override
+    public int read() throws IOException {
+        long start = System.nanoTime();
+        int b = delegate.read();
+        decompressionNanos += System.nanoTime() - start;
+        if (b >= 0) {
+            bytesOut++;
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        long start = System.nanoTime();
+        int n = delegate.read(b, off, len);
+        decompressionNanos += System.nanoTime() - start;
+        if (n > 0) {
+            bytesOut += n;
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        long start = System.nanoTime();
+        long skipped = delegate.skip(n);
+        decompressionNanos += System.nanoTime() - start;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return delegate.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            delegate.close();
+        } finally {
+            if (!closed) {
+                closed = true;
+                metrics.archiveRead(format, bytesIn.getAsLong(), bytesOut, 0, decompressionNanos, Math.max(0, System.nanoTime() - openedAt - decompressionNanos));
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single pass, allocation free lookup table from mime types to values such as {@link ArchiveKind} or
+ * {@link ArchiveFormatProvider}. The base type (everything before the first {@code ';'} without surrounding whitespace)
+ * is matched case insensitively against an open addressing table which is built once, results of raw mime strings are
+ * remembered in a small bounded cache.
+ *
+ * @param <T> type of the values.
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class MimeTypeClassifier<T> {
+
+    /** Maximum number of raw mime strings remembered by the cache. */
+    static final int MAX_CACHE_SIZE = 512;
+
+    /** Cached result of unknown mime types, the cache does not accept null values. */
+    private static final Object MISSING = new Object();
+
+    private final T none;
+    private final int mask;
+    private final int[] hashes;
+    private final String[] names;
+    private final Object[] values;
+    private final Map<String, Object> cache = new ConcurrentHashMap<>();
+
+    /**
+     * @param mimeTypes lower case base mime types and their values.
+     * @param none value of null and unknown mime types, may be null.
+     */
+    MimeTypeClassifier(final Map<String, T> mimeTypes, final T none) {
+        int size = Integer.highestOneBit(Math.max(1, mimeTypes.size()) * 4);
+        this.none = none;
+        this.mask = size - 1;
+        this.hashes = new int[size];
+        this.names = new String[size];
+        this.values = new Object[size];
+        mimeTypes.forEach((name, value) -> {
+            int hash = hash(name, 0, name.length());
+            int index = hash & mask;
+            while (Objects.nonNull(names[index])) {
+                index = (index + 1) & mask;
+            }
+            hashes[index] = hash;
+            names[index] = name;
+            values[index] = value;
+        });
+    }
+
+    /**
+     * @param mimeType raw mime type, may contain parameters, whitespace and upper case characters.
+     * @return value of the mime type, the none value for null or unknown mime types.
+     */
+    @SuppressWarnings("unchecked")
+    T classify(final String mimeType) {
+        if (Objects.isNull(mimeType)) {
+            return none;
+        }
+        Object value = cache.get(mimeType);
+        if (Objects.isNull(value)) {
+            value = lookup(mimeType);
+            if (cache.size() < MAX_CACHE_SIZE) {
+                cache.putIfAbsent(mimeType, value);
+            }
+        }
+        return MISSING == value ? none : (T) value;
+    }
+
+    private Object lookup(final String mimeType) {
+        int length = mimeType.length();
+        int start = 0;
+        while (start < length && Character.isWhitespace(mimeType.charAt(start))) {
+            start++;
+        }
+        int end = start;
+        while (end < length && mimeType.charAt(end) != ';') {
+            end++;
+        }
+        while (end > start && Character.isWhitespace(mimeType.charAt(end - 1))) {
+            end--;
+        }
+        int hash = hash(mimeType, start, end);
+        for (int index = hash & mask; Objects.nonNull(names[index]); index = (index + 1) & mask) {
+            String name = names[index];
+            if (hashes[index] == hash && name.length() == end - start && mimeType.regionMatches(true, start, name, 0, name.length())) {
+                return values[index];
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * ASCII case insensitive hash of a region of the string.
+     */
+    private static int hash(final String s, final int start, final int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            hash = 31 * hash + (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+        }
+        return hash;
+    }
+}
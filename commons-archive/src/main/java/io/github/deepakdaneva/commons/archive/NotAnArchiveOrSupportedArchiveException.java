@@ -13,6 +13,10 @@
 package io.github.deepakdaneva.commons.archive;
 
 /**
+ * Signals that a stream is not an archive or not a supported one. Inputs which are not archives are expected on probing
+ * workloads, the library therefore raises this exception without a stack trace, use
+ * {@link ArchiveUtil#probe(java.io.InputStream)} to detect archives without any exception.
+ *
  * @author Deepak Kumar Jangir
  * @version 1
  * @since 1
@@ -37,4 +41,15 @@ public class NotAnArchiveOrSupportedArchiveException extends RuntimeException {
     public NotAnArchiveOrSupportedArchiveException(String message, Throwable throwable) {
         super(message, throwable);
     }
+
+    /**
+     * Constructor with exception message, throwable instance and whether the stack trace is filled in as arguments
+     *
+     * @param message message of the exception
+     * @param throwable throwable instance of the exception
+     * @param writableStackTrace false to create the exception without a stack trace
+     */
+    protected NotAnArchiveOrSupportedArchiveException(String message, Throwable throwable, boolean writableStackTrace) {
+        super(message, throwable, true, writableStackTrace);
+    }
 }
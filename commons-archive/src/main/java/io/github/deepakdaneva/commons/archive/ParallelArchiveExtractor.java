@@ -0,0 +1,487 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import org.apache.commons.compress.PasswordRequiredException;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZFile;
+import org.apache.commons.compress.archivers.zip.UnsupportedZipFeatureException;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.io.input.NullInputStream;
+
+/**
+ * Extracts the entries of random access archives (zip and 7z) on disk in parallel. Entry decoding and the
+ * {@link EntryProcessor} run on the configured executor, results are handed to the {@link EntryResultConsumer} on the
+ * calling thread either in archive order or as soon as they are available.
+ * <p>
+ * Zip entries are scheduled individually. 7z entries are split into at most one contiguous range of whole folders
+ * (solid blocks) per unit of parallelism and each range is decoded through its own {@link SevenZFile}, so archives of
+ * many folders scale with the cores while every folder is decoded once. At most {@code maxInFlight} entries
+ * are decoded or waiting for delivery at any time, which bounds the memory held by pending results. Other formats are
+ * extracted sequentially on the calling thread.
+ * <p>
+ * By default tasks run on virtual threads when the runtime supports them (Java 21+) and on the common
+ * {@link ForkJoinPool} otherwise. Instances are immutable and thread safe, they are created through {@link #builder()}.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class ParallelArchiveExtractor {
+
+    /** Executor used when none is configured, shared with {@link AsyncArchiveReader}. */
+    static final Executor DEFAULT_EXECUTOR = defaultExecutor();
+
+    private final Executor executor;
+    private final int parallelism;
+    private final int maxInFlight;
+    private final boolean ordered;
+
+    private ParallelArchiveExtractor(final Builder builder) {
+        this.executor = builder.executor;
+        this.parallelism = builder.parallelism;
+        this.maxInFlight = Math.max(builder.maxInFlight, builder.parallelism);
+        this.ordered = builder.ordered;
+    }
+
+    /**
+     * @return new builder initialized with the default values.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Extracts all entries of the archive and processes them with the processor, results are discarded.
+     *
+     * @param archive path of the archive file.
+     * @param processor invoked for every entry, possibly concurrently.
+     * @return number of processed entries.
+     * @throws IOException if reading the archive or processing an entry fails.
+     * @throws ArchiveException if any ArchiveException is raised.
+     * @throws CompressorException if any compressor exception is raised.
+     * @throws NotAnArchiveOrSupportedArchiveException if the file is not a supported archive.
+     * @throws PasswordProtectedArchiveException if a password protected archive or entry is found.
+     */
+    public long extract(final Path archive, final EntryProcessor<?> processor) throws IOException, ArchiveException, CompressorException {
+        return extract(archive, processor, (entry, result) -> {
+        });
+    }
+
+    /**
+     * Extracts all entries of the archive, processes them with the processor and delivers the results to the consumer.
+     * When the first entry fails, no further entries are scheduled, already running entries are awaited and the failure
+     * is thrown.
+     *
+     * @param archive path of the archive file.
+     * @param processor invoked for every entry, possibly concurrently.
+     * @param consumer invoked on the calling thread for every result.
+     * @param <R> type of the results.
+     * @return number of processed entries.
+     * @throws IOException if reading the archive or processing an entry fails.
+     * @throws ArchiveException if any ArchiveException is raised.
+     * @throws CompressorException if any compressor exception is raised.
+     * @throws NotAnArchiveOrSupportedArchiveException if the file is not a supported archive.
+     * @throws PasswordProtectedArchiveException if a password protected archive or entry is found.
+     */
+    public <R> long extract(final Path archive, final EntryProcessor<R> processor, final EntryResultConsumer<? super R> consumer) throws IOException, ArchiveException, CompressorException {
+        ArchiveFormat format;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(archive))) {
+            format = ArchiveFormatDetector.detect(in);
+            if (!ArchiveFormat.ZIP.equals(format) && !ArchiveFormat.SEVEN_Z.equals(format)) {
+                return extractSequentially(in, format, processor, consumer);
+            }
+        }
+        if (ArchiveFormat.ZIP.equals(format)) {
+            return extractZip(archive, processor, consumer);
+        }
+        return extractSevenZ(archive, processor, consumer);
+    }
+
+    private <R> long extractSequentially(final InputStream in, final ArchiveFormat format, final EntryProcessor<R> processor, final EntryResultConsumer<? super R> consumer) throws IOException, ArchiveException, CompressorException {
+        long count = 0;
+        try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(in, format)) {
+            ArchiveEntry entry;
+            while (Objects.nonNull(entry = ais.getNextEntry())) {
+                consumer.accept(entry, processor.process(entry, new StreamingEntryInputStream(ais)));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private <R> long extractZip(final Path archive, final EntryProcessor<R> processor, final EntryResultConsumer<? super R> consumer) throws IOException {
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            List<ZipArchiveEntry> entries = Collections.list(zipFile.getEntriesInPhysicalOrder());
+            Run<R> run = new Run<>(consumer, null, ordered);
+            int next = 0;
+            while (true) {
+                while (!run.failed && next < entries.size() && run.inFlight < maxInFlight) {
+                    int index = next++;
+                    ZipArchiveEntry entry = entries.get(index);
+                    run.inFlight++;
+                    run.outstanding++;
+                    executor.execute(() -> {
+                        try (InputStream content = zipFile.getInputStream(entry)) {
+                            run.completions.add(Completion.success(index, 0, entry, processor.process(entry, content)));
+                        } catch (Throwable t) {
+                            run.completions.add(Completion.failure(t));
+                        }
+                    });
+                }
+                if (run.outstanding == 0) {
+                    break;
+                }
+                Completion<R> completion = run.take();
+                run.outstanding--;
+                run.handle(completion);
+            }
+            run.rethrow();
+            return entries.size();
+        }
+    }
+
+    private <R> long extractSevenZ(final Path archive, final EntryProcessor<R> processor, final EntryResultConsumer<? super R> consumer) throws IOException {
+        int total;
+        int[] bounds;
+        try (SevenZFile sevenZFile = openSevenZ(archive); SeekableByteChannel channel = Files.newByteChannel(archive)) {
+            List<SevenZArchiveEntry> entries = entries(sevenZFile);
+            total = entries.size();
+            bounds = ranges(entries, SevenZHeaderParser.folderIndexes(channel, total), parallelism);
+        }
+        int ranges = bounds.length - 1;
+        int quota = Math.max(1, maxInFlight / ranges);
+        Semaphore[] permits = new Semaphore[ranges];
+        Run<R> run = new Run<>(consumer, permits, ordered);
+        for (int range = 0; range < ranges; range++) {
+            int from = bounds[range];
+            int to = bounds[range + 1];
+            int rangeIndex = range;
+            permits[range] = new Semaphore(quota);
+            run.outstanding++;
+            executor.execute(() -> {
+                try (SevenZFile sevenZFile = openSevenZ(archive)) {
+                    List<SevenZArchiveEntry> entries = entries(sevenZFile);
+                    for (int index = from; index < to && !run.failed; index++) {
+                        permits[rangeIndex].acquire();
+                        SevenZArchiveEntry entry = entries.get(index);
+                        try (InputStream content = entry.hasStream() ? sevenZFile.getInputStream(entry) : new NullInputStream(0)) {
+                            run.completions.add(Completion.success(index, rangeIndex, entry, processor.process(entry, content)));
+                        }
+                    }
+                } catch (Throwable t) {
+                    run.completions.add(Completion.failure(t));
+                } finally {
+                    run.completions.add(Completion.end());
+                }
+            });
+        }
+        while (run.outstanding > 0) {
+            Completion<R> completion = run.take();
+            if (completion.end) {
+                run.outstanding--;
+            } else {
+                run.handle(completion);
+            }
+        }
+        run.rethrow();
+        return total;
+    }
+
+    /**
+     * Splits the entries into contiguous ranges of about the same uncompressed size, a range never starts inside a
+     * folder so no folder is decoded by more than one range. Entries without content stay in the preceding range.
+     *
+     * @param entries of the archive.
+     * @param folders folder index per entry, -1 for entries without content, null if the folders are not known and
+     * every entry may start a range.
+     * @param parallelism maximum number of ranges.
+     * @return start index of every range followed by the number of entries.
+     */
+    static int[] ranges(final List<SevenZArchiveEntry> entries, final int[] folders, final int parallelism) {
+        int total = entries.size();
+        int[] last = new int[Objects.isNull(folders) ? 0 : Arrays.stream(folders).max().orElse(-1) + 1];
+        long sum = 0;
+        for (int i = 0; i < total; i++) {
+            sum += weight(entries.get(i));
+            if (Objects.nonNull(folders) && folders[i] >= 0) {
+                last[folders[i]] = i;
+            }
+        }
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        long done = 0;
+        int open = -1;
+        for (int i = 0; i < total; i++) {
+            if (i > open && i > 0 && entries.get(i).hasStream() && starts.size() < parallelism && (double) done * parallelism >= (double) sum * starts.size()) {
+                starts.add(i);
+            }
+            done += weight(entries.get(i));
+            if (Objects.nonNull(folders) && folders[i] >= 0) {
+                open = Math.max(open, last[folders[i]]);
+            }
+        }
+        int[] bounds = new int[starts.size() + 1];
+        for (int i = 0; i < starts.size(); i++) {
+            bounds[i] = starts.get(i);
+        }
+        bounds[starts.size()] = total;
+        return bounds;
+    }
+
+    private static long weight(final SevenZArchiveEntry entry) {
+        return (entry.hasStream() ? entry.getSize() : 0) + 1;
+    }
+
+    private static SevenZFile openSevenZ(final Path archive) throws IOException {
+        try {
+            return new SevenZFile(archive.toFile());
+        } catch (PasswordRequiredException e) {
+            throw ArchiveUtil.passwordProtected(ArchiveFormat.SEVEN_Z, e);
+        }
+    }
+
+    private static List<SevenZArchiveEntry> entries(final SevenZFile sevenZFile) {
+        List<SevenZArchiveEntry> entries = new ArrayList<>();
+        sevenZFile.getEntries().forEach(entries::add);
+        return entries;
+    }
+
+    private static Executor defaultExecutor() {
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return ForkJoinPool.commonPool();
+        }
+    }
+
+    /**
+     * State of one extraction, all fields except the queue and the failed flag are only accessed by the calling thread.
+     */
+    private static final class Run<R> {
+        private final BlockingQueue<Completion<R>> completions = new LinkedBlockingQueue<>();
+        private final Map<Integer, Completion<R>> pending = new HashMap<>();
+        private final EntryResultConsumer<? super R> consumer;
+        private final Semaphore[] permits;
+        private final boolean ordered;
+        private volatile boolean failed;
+        private Throwable error;
+        private int outstanding;
+        private int inFlight;
+        private int nextDelivery;
+
+        private Run(final EntryResultConsumer<? super R> consumer, final Semaphore[] permits, final boolean ordered) {
+            this.consumer = consumer;
+            this.permits = permits;
+            this.ordered = ordered;
+        }
+
+        private Completion<R> take() throws InterruptedIOException {
+            try {
+                return completions.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // running tasks are not awaited, they stop at their next entry
+                fail(e);
+                InterruptedIOException interrupted = new InterruptedIOException("Interrupted while extracting the archive");
+                interrupted.initCause(e);
+                throw interrupted;
+            }
+        }
+
+        private void handle(final Completion<R> completion) {
+            if (Objects.nonNull(completion.error)) {
+                fail(completion.error);
+            } else if (!failed) {
+                try {
+                    if (ordered) {
+                        pending.put(completion.index, completion);
+                        Completion<R> next;
+                        while (Objects.nonNull(next = pending.remove(nextDelivery))) {
+                            deliver(next);
+                            nextDelivery++;
+                        }
+                    } else {
+                        deliver(completion);
+                    }
+                } catch (RuntimeException e) {
+                    fail(e);
+                }
+            }
+        }
+
+        private void deliver(final Completion<R> completion) {
+            inFlight--;
+            if (Objects.nonNull(permits)) {
+                permits[completion.range].release();
+            }
+            consumer.accept(completion.entry, completion.result);
+        }
+
+        private void fail(final Throwable t) {
+            if (Objects.isNull(error)) {
+                error = t;
+            }
+            failed = true;
+            pending.clear();
+            if (Objects.nonNull(permits)) {
+                // wake up range tasks waiting for delivery so they can observe the failure
+                for (Semaphore semaphore : permits) {
+                    if (Objects.nonNull(semaphore)) {
+                        semaphore.release(Integer.MAX_VALUE / 2);
+                    }
+                }
+            }
+        }
+
+        private void rethrow() throws IOException {
+            if (Objects.isNull(error)) {
+                return;
+            }
+            if (error instanceof UnsupportedZipFeatureException) {
+                throw ArchiveUtil.translate((UnsupportedZipFeatureException) error);
+            } else if (error instanceof IOException) {
+                throw (IOException) error;
+            } else if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            } else if (error instanceof Error) {
+                throw (Error) error;
+            }
+            throw new IOException("Extracting the archive failed", error);
+        }
+    }
+
+    /**
+     * Outcome of a single entry, or the end marker of a 7z range.
+     */
+    private static final class Completion<R> {
+        private final int index;
+        private final int range;
+        private final ArchiveEntry entry;
+        private final R result;
+        private final Throwable error;
+        private final boolean end;
+
+        private Completion(final int index, final int range, final ArchiveEntry entry, final R result, final Throwable error, final boolean end) {
+            this.index = index;
+            this.range = range;
+            this.entry = entry;
+            this.result = result;
+            this.error = error;
+            this.end = end;
+        }
+
+        private static <R> Completion<R> success(final int index, final int range, final ArchiveEntry entry, final R result) {
+            return new Completion<>(index, range, entry, result, null, false);
+        }
+
+        private static <R> Completion<R> failure(final Throwable error) {
+            return new Completion<>(-1, -1, null, null, error, false);
+        }
+
+        private static <R> Completion<R> end() {
+            return new Completion<>(-1, -1, null, null, null, true);
+        }
+    }
+
+    /**
+     * Builder of {@link ParallelArchiveExtractor}.
+     */
+    public static final class Builder {
+        private Executor executor = DEFAULT_EXECUTOR;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int maxInFlight = 2 * Runtime.getRuntime().availableProcessors();
+        private boolean ordered = true;
+
+        private Builder() {
+        }
+
+        /**
+         * @param executor on which entries are decoded and processed, default uses virtual threads on Java 21+ and the
+         * common {@link ForkJoinPool} otherwise.
+         * @return this builder.
+         */
+        public Builder executor(final Executor executor) {
+            this.executor = Objects.requireNonNull(executor, "executor");
+            return this;
+        }
+
+        /**
+         * @param parallelism number of 7z ranges decoded concurrently, default is the number of available processors.
+         * @return this builder.
+         */
+        public Builder parallelism(final int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism must be positive");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * @param maxInFlight maximum number of entries being decoded or waiting for delivery, never less than the
+         * parallelism. Default is twice the number of available processors.
+         * @return this builder.
+         */
+        public Builder maxInFlight(final int maxInFlight) {
+            if (maxInFlight <= 0) {
+                throw new IllegalArgumentException("maxInFlight must be positive");
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * @param ordered true (default) to deliver results in archive order, false to deliver them as soon as they are
+         * available.
+         * @return this builder.
+         */
+        public Builder ordered(final boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+
+        /**
+         * @return immutable extractor.
+         */
+        public ParallelArchiveExtractor build() {
+            return new ParallelArchiveExtractor(this);
+        }
+    }
+}
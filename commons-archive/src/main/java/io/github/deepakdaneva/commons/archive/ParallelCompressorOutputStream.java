@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import org.apache.commons.compress.compressors.CompressorOutputStream;
+
+/**
+ * Compressed stream which splits its input into blocks of a fixed size, compresses the blocks concurrently and writes
+ * them in order. At most parallelism blocks are compressed or waiting to be written, so memory is bounded by about
+ * twice the parallelism times the block size. Subclasses produce a single stream of their format from the blocks.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+abstract class ParallelCompressorOutputStream extends CompressorOutputStream {
+
+    private final OutputStream out;
+    private final Executor executor;
+    private final int parallelism;
+    private final int blockSize;
+    private final ArrayDeque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+    private byte[] block;
+    private int length;
+    private byte[] previous;
+    private boolean started;
+    private boolean closed;
+
+    /**
+     * @param out stream the compressed data is written to.
+     * @param executor on which blocks are compressed.
+     * @param parallelism maximum number of blocks compressed or waiting to be written.
+     * @param blockSize number of uncompressed bytes of a block.
+     */
+    ParallelCompressorOutputStream(final OutputStream out, final Executor executor, final int parallelism, final int blockSize) {
+        this.out = out;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.blockSize = blockSize;
+        this.block = new byte[blockSize];
+    }
+
+    /**
+     * Writes the header of the stream before the first block.
+     *
+     * @param out stream the compressed data is written to.
+     * @throws IOException if writing fails.
+     */
+    abstract void writeHeader(OutputStream out) throws IOException;
+
+    /**
+     * Compresses a block, invoked concurrently.
+     *
+     * @param data uncompressed content of the block.
+     * @param previousData uncompressed content of the previous block or null for the first block.
+     * @param last true for the last block, which may be empty.
+     * @return compressed block.
+     * @throws IOException if compression fails.
+     */
+    abstract byte[] compress(byte[] data, byte[] previousData, boolean last) throws IOException;
+
+    /**
+     * Invoked in order for every compressed block before it is written.
+     *
+     * @param compressed block as returned by {@link #compress(byte[], byte[], boolean)}.
+     * @throws IOException if the block is invalid.
+     */
+    void blockCompressed(final byte[] compressed) throws IOException {
+        // nothing to record by default
+    }
+
+    /**
+     * Invoked in order for all uncompressed bytes, e.g. to compute a checksum of the whole content.
+     *
+     * @param b uncompressed bytes.
+     * @param off offset in b.
+     * @param len number of bytes.
+     */
+    void update(final byte[] b, final int off, final int len) {
+        // no checksum by default
+    }
+
+    /**
+     * Writes the trailer of the stream after the last block.
+     *
+     * @param out stream the compressed data is written to.
+     * @throws IOException if writing fails.
+     */
+    abstract void writeTrailer(OutputStream out) throws IOException;
+
+    @Override
+    public void write(final int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        update(b, off, len);
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            int n = Math.min(remaining, blockSize - length);
+            System.arraycopy(b, offset, block, length, n);
+            length += n;
+            offset += n;
+            remaining -= n;
+            if (length == blockSize) {
+                submit(false);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            submit(true);
+            while (!pending.isEmpty()) {
+                writeNext();
+            }
+            writeTrailer(out);
+        } finally {
+            pending.forEach(future -> future.cancel(false));
+            out.close();
+        }
+    }
+
+    private void submit(final boolean last) throws IOException {
+        if (!started) {
+            started = true;
+            writeHeader(out);
+        }
+        byte[] data = length == blockSize ? block : Arrays.copyOf(block, length);
+        byte[] previousData = previous;
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(compress(data, previousData, last));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        pending.add(future);
+        previous = data;
+        block = new byte[blockSize];
+        length = 0;
+        while (pending.size() > parallelism) {
+            writeNext();
+        }
+    }
+
+    private void writeNext() throws IOException {
+        byte[] compressed = await(pending.poll());
+        out.write(compressed);
+    }
+
+    private byte[] await(final CompletableFuture<byte[]> future) throws IOException {
+        try {
+            byte[] compressed = future.get();
+            blockCompressed(compressed);
+            return compressed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a compressed block");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(Objects.requireNonNullElse(cause, e));
+        }
+    }
+}
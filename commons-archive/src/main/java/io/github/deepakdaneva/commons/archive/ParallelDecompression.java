@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorInputStream;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+
+/**
+ * Configuration of parallel decompression for
+ * {@link ArchiveUtil#getCompressorInputStream(InputStream, String, ParallelDecompression)} and the matching
+ * {@code getArchiveInputStream} overloads. Compressed streams are split into frames which are decoded concurrently and
+ * delivered in order as a regular stream:
+ * <ul>
+ * <li>gzip: consecutive members, as written by block based or parallel compressors and by concatenation. Single member
+ * streams are decoded sequentially once no member boundary is found within the maximum frame size.</li>
+ * <li>bzip2: blocks of all concatenated streams.</li>
+ * <li>xz: blocks which record their sizes, as written by multi threaded compressors. Streams whose first block does not
+ * record its sizes are decoded sequentially.</li>
+ * </ul>
+ * Other formats are decoded sequentially. Unlike the default decoders, all members and concatenated streams are read.
+ * Memory is bounded by the parallelism times the maximum frame size and the maximum decoded frame size. A frame which
+ * decodes to more bytes is verified in the background without keeping its content and decoded again on the consuming
+ * thread while it is read. Instances are immutable and thread safe, they are created through {@link #builder()}.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class ParallelDecompression {
+
+    /** Default minimum number of compressed bytes of a gzip frame (1 MiB). */
+    public static final int DEFAULT_FRAME_SIZE = 1024 * 1024;
+    /** Default maximum number of compressed bytes of a frame (16 MiB). */
+    public static final int DEFAULT_MAX_FRAME_SIZE = 16 * 1024 * 1024;
+    /** Default maximum number of decoded bytes of a frame which are held in memory (32 MiB). */
+    public static final int DEFAULT_MAX_DECODED_FRAME_SIZE = 32 * 1024 * 1024;
+
+    private final Executor executor;
+    private final int parallelism;
+    private final int frameSize;
+    private final int maxFrameSize;
+    private final int maxDecodedFrameSize;
+
+    private ParallelDecompression(final Builder builder) {
+        this.executor = builder.executor;
+        this.parallelism = builder.parallelism;
+        this.frameSize = builder.frameSize;
+        this.maxFrameSize = Math.max(builder.maxFrameSize, builder.frameSize);
+        this.maxDecodedFrameSize = builder.maxDecodedFrameSize;
+    }
+
+    /**
+     * @return new builder initialized with the default values.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return maximum number of frames decoded or waiting to be consumed.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return minimum number of compressed bytes of a gzip frame.
+     */
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    /**
+     * @return maximum number of compressed bytes of a frame.
+     */
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    /**
+     * @return maximum number of decoded bytes of a frame which are held in memory.
+     */
+    public int getMaxDecodedFrameSize() {
+        return maxDecodedFrameSize;
+    }
+
+    /**
+     * @param inputStream compressed stream.
+     * @param compressorName name of the compressor as in {@link CompressorStreamFactory}.
+     * @return stream decoding the frames of the compressed stream concurrently if the format supports it.
+     * @throws IOException if the stream is not in the format of the compressor.
+     * @throws CompressorException if the compressor is not supported.
+     */
+    CompressorInputStream open(final InputStream inputStream, final String compressorName) throws IOException, CompressorException {
+        if (CompressorStreamFactory.GZIP.equalsIgnoreCase(compressorName)) {
+            return new ParallelDecompressorInputStream(new GzipFrameSplitter(inputStream, frameSize, maxFrameSize), executor, parallelism, maxDecodedFrameSize);
+        } else if (CompressorStreamFactory.BZIP2.equalsIgnoreCase(compressorName)) {
+            return new ParallelDecompressorInputStream(new BZip2FrameSplitter(inputStream, maxFrameSize), executor, parallelism, maxDecodedFrameSize);
+        } else if (CompressorStreamFactory.XZ.equalsIgnoreCase(compressorName)) {
+            return new ParallelDecompressorInputStream(new XZFrameSplitter(inputStream, maxFrameSize), executor, parallelism, maxDecodedFrameSize);
+        }
+        return new CompressorStreamFactory(true).createCompressorInputStream(compressorName, inputStream);
+    }
+
+    /**
+     * Builder of {@link ParallelDecompression}.
+     */
+    public static final class Builder {
+        private Executor executor = ParallelArchiveExtractor.DEFAULT_EXECUTOR;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int frameSize = DEFAULT_FRAME_SIZE;
+        private int maxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+        private int maxDecodedFrameSize = DEFAULT_MAX_DECODED_FRAME_SIZE;
+
+        private Builder() {
+        }
+
+        /**
+         * @param executor on which frames are decoded, default uses virtual threads on Java 21+ and the common
+         * {@link ForkJoinPool} otherwise.
+         * @return this builder.
+         */
+        public Builder executor(final Executor executor) {
+            this.executor = Objects.requireNonNull(executor, "executor");
+            return this;
+        }
+
+        /**
+         * @param parallelism maximum number of frames decoded or waiting to be consumed, default is the number of
+         * available processors.
+         * @return this builder.
+         */
+        public Builder parallelism(final int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism must be positive");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * @param frameSize minimum number of compressed bytes of a gzip frame, smaller members are decoded together.
+         * Default is {@link #DEFAULT_FRAME_SIZE}.
+         * @return this builder.
+         */
+        public Builder frameSize(final int frameSize) {
+            if (frameSize <= 0) {
+                throw new IllegalArgumentException("frameSize must be positive");
+            }
+            this.frameSize = frameSize;
+            return this;
+        }
+
+        /**
+         * @param maxFrameSize maximum number of compressed bytes of a frame, never less than the frame size. Default is
+         * {@link #DEFAULT_MAX_FRAME_SIZE}.
+         * @return this builder.
+         */
+        public Builder maxFrameSize(final int maxFrameSize) {
+            if (maxFrameSize <= 0) {
+                throw new IllegalArgumentException("maxFrameSize must be positive");
+            }
+            this.maxFrameSize = maxFrameSize;
+            return this;
+        }
+
+        /**
+         * @param maxDecodedFrameSize maximum number of decoded bytes of a frame which are held in memory, larger frames
+         * are decoded again while they are consumed. Default is {@link #DEFAULT_MAX_DECODED_FRAME_SIZE}.
+         * @return this builder.
+         */
+        public Builder maxDecodedFrameSize(final int maxDecodedFrameSize) {
+            if (maxDecodedFrameSize <= 0) {
+                throw new IllegalArgumentException("maxDecodedFrameSize must be positive");
+            }
+            this.maxDecodedFrameSize = maxDecodedFrameSize;
+            return this;
+        }
+
+        /**
+         * @return immutable configuration.
+         */
+        public ParallelDecompression build() {
+            return new ParallelDecompression(this);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import org.apache.commons.compress.compressors.CompressorInputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+/**
+ * Decompresses the frames of a {@link FrameSplitter} concurrently on an executor and delivers their content in order.
+ * Frames are read ahead on the consuming thread while at most the configured number of frames is being decoded or
+ * waiting to be consumed, which bounds the memory held by the stream. The content of a frame is only collected up to
+ * the maximum decoded frame size, a larger frame is verified by decoding the rest without keeping it and decoded again
+ * while it is consumed. A tail frame switches the stream to the sequential decoder of the splitter for the rest of the
+ * input.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class ParallelDecompressorInputStream extends CompressorInputStream {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final FrameSplitter splitter;
+    private final Executor executor;
+    private final int maxInFlight;
+    private final int maxDecodedFrameSize;
+    private final Deque<Pending> pending = new ArrayDeque<>();
+    private final byte[] single = new byte[1];
+    private byte[] current = EMPTY;
+    private int position;
+    private InputStream oversized;
+    private InputStream sequential;
+    private boolean exhausted;
+    private boolean closed;
+
+    /**
+     * @param splitter of the compressed stream.
+     * @param executor on which frames are decoded.
+     * @param maxInFlight maximum number of frames decoded or waiting to be consumed.
+     * @param maxDecodedFrameSize maximum number of decoded bytes of a frame which are held in memory.
+     * @throws IOException if the stream is not in the format of the splitter.
+     */
+    ParallelDecompressorInputStream(final FrameSplitter splitter, final Executor executor, final int maxInFlight, final int maxDecodedFrameSize) throws IOException {
+        this.splitter = splitter;
+        this.executor = executor;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.maxDecodedFrameSize = Math.max(1, maxDecodedFrameSize);
+        // read ahead right away, like the sequential decoders this validates the header
+        schedule();
+    }
+
+    @Override
+    public int read() throws IOException {
+        int n = read(single, 0, 1);
+        return n <= 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (true) {
+            if (Objects.nonNull(sequential)) {
+                int n = sequential.read(b, off, len);
+                count(n);
+                return n;
+            }
+            if (Objects.nonNull(oversized)) {
+                int n = oversized.read(b, off, len);
+                if (n >= 0) {
+                    count(n);
+                    return n;
+                }
+                oversized.close();
+                oversized = null;
+                continue;
+            }
+            if (position < current.length) {
+                int n = Math.min(len, current.length - position);
+                System.arraycopy(current, position, b, off, n);
+                position += n;
+                count(n);
+                return n;
+            }
+            if (!advance()) {
+                return -1;
+            }
+        }
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (Objects.nonNull(sequential)) {
+            return sequential.available();
+        } else if (Objects.nonNull(oversized)) {
+            return oversized.available();
+        }
+        return current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Pending p : pending) {
+            p.cancel();
+        }
+        pending.clear();
+        current = EMPTY;
+        try {
+            if (Objects.nonNull(oversized)) {
+                oversized.close();
+            }
+            if (Objects.nonNull(sequential)) {
+                sequential.close();
+            }
+        } finally {
+            splitter.close();
+        }
+    }
+
+    /**
+     * Moves to the content of the next frame, failed frames are merged with their successors.
+     *
+     * @return false at the end of the input.
+     */
+    private boolean advance() throws IOException {
+        schedule();
+        Pending head = pending.poll();
+        if (Objects.isNull(head)) {
+            return false;
+        }
+        while (!head.frame.isTail()) {
+            try {
+                byte[] content = await(head.result);
+                position = 0;
+                if (Objects.isNull(content)) {
+                    // verified but too large to be held, decoded again while it is consumed
+                    current = EMPTY;
+                    oversized = splitter.decode(head.frame);
+                } else {
+                    current = content;
+                }
+                schedule();
+                return true;
+            } catch (IOException e) {
+                schedule();
+                Pending next = pending.poll();
+                if (Objects.isNull(next)) {
+                    throw e;
+                }
+                next.cancel();
+                FrameSplitter.Frame merged = splitter.merge(head.frame, next.frame, e);
+                head = new Pending(merged, merged.isTail() ? null : submit(merged));
+            }
+        }
+        List<FrameSplitter.Frame> frames = new ArrayList<>();
+        frames.add(head.frame);
+        for (Pending p : pending) {
+            p.cancel();
+            frames.add(p.frame);
+        }
+        pending.clear();
+        exhausted = true;
+        current = EMPTY;
+        position = 0;
+        sequential = splitter.sequential(frames);
+        return true;
+    }
+
+    private void schedule() throws IOException {
+        while (!exhausted && pending.size() < maxInFlight) {
+            FrameSplitter.Frame frame = splitter.next();
+            if (Objects.isNull(frame)) {
+                exhausted = true;
+            } else if (frame.isTail()) {
+                exhausted = true;
+                pending.add(new Pending(frame, null));
+            } else {
+                pending.add(new Pending(frame, submit(frame)));
+            }
+        }
+    }
+
+    private CompletableFuture<byte[]> submit(final FrameSplitter.Frame frame) {
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(decode(frame));
+            } catch (IOException e) {
+                future.completeExceptionally(e);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(new IOException("Invalid compressed data", e));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @return decoded content of the frame or null if it exceeds the maximum decoded frame size.
+     */
+    private byte[] decode(final FrameSplitter.Frame frame) throws IOException {
+        try (InputStream in = splitter.decode(frame)) {
+            byte[] content = IOUtils.toByteArray(new BoundedInputStream(in, maxDecodedFrameSize + 1L));
+            if (content.length <= maxDecodedFrameSize) {
+                return content;
+            }
+            // decode the rest so a frame which fails is still merged before any of its content is delivered
+            IOUtils.consume(in);
+            return null;
+        }
+    }
+
+    private static byte[] await(final CompletableFuture<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a decompressed frame");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Frame which has been read and its decoding, which is null for a tail.
+     */
+    private static final class Pending {
+        private final FrameSplitter.Frame frame;
+        private final CompletableFuture<byte[]> result;
+
+        private Pending(final FrameSplitter.Frame frame, final CompletableFuture<byte[]> result) {
+            this.frame = frame;
+            this.result = result;
+        }
+
+        private void cancel() {
+            if (Objects.nonNull(result)) {
+                result.cancel(false);
+            }
+        }
+    }
+}
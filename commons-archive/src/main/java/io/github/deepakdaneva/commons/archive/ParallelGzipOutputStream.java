@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip stream whose blocks are deflated concurrently like pigz does: every block is deflated with the last 32 KiB of
+ * the previous block as preset dictionary and ends with a sync flush, so the blocks form a single regular gzip member
+ * which every gzip decoder reads. The CRC32 is computed in order while the content is written.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class ParallelGzipOutputStream extends ParallelCompressorOutputStream {
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final int level;
+    private final CRC32 crc = new CRC32();
+    private long size;
+
+    /**
+     * @param out stream the gzip data is written to.
+     * @param executor on which blocks are deflated.
+     * @param parallelism maximum number of blocks deflated or waiting to be written.
+     * @param blockSize number of uncompressed bytes of a block.
+     * @param level deflate compression level.
+     */
+    ParallelGzipOutputStream(final OutputStream out, final Executor executor, final int parallelism, final int blockSize, final int level) {
+        super(out, executor, parallelism, blockSize);
+        this.level = level;
+    }
+
+    @Override
+    void writeHeader(final OutputStream out) throws IOException {
+        out.write(HEADER);
+    }
+
+    @Override
+    byte[] compress(final byte[] data, final byte[] previousData, final boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (Objects.nonNull(previousData) && previousData.length > 0) {
+                int dictionaryLength = Math.min(DICTIONARY_SIZE, previousData.length);
+                deflater.setDictionary(previousData, previousData.length - dictionaryLength, dictionaryLength);
+            }
+            deflater.setInput(data);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 64);
+            byte[] buffer = new byte[16 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    compressed.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                int n;
+                do {
+                    n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, n);
+                } while (n == buffer.length);
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    void update(final byte[] b, final int off, final int len) {
+        crc.update(b, off, len);
+        size += len;
+    }
+
+    @Override
+    void writeTrailer(final OutputStream out) throws IOException {
+        long value = crc.getValue();
+        byte[] trailer = new byte[8];
+        for (int i = 0; i < 4; i++) {
+            trailer[i] = (byte) (value >>> (i * 8));
+            trailer[i + 4] = (byte) (size >>> (i * 8));
+        }
+        out.write(trailer);
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+
+/**
+ * Xz stream whose blocks are compressed concurrently into a single multi block stream like {@code xz -T} does. Every
+ * block is compressed as an independent xz stream, its block is taken over with a block header which records the
+ * compressed and uncompressed size, so the stream can itself be decompressed in parallel, see
+ * {@link ParallelDecompression}. The index and the footer are written once all blocks are written.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class ParallelXZOutputStream extends ParallelCompressorOutputStream {
+
+    private static final byte[] HEADER_MAGIC = {(byte) 0xfd, '7', 'z', 'X', 'Z', 0};
+    private static final byte[] FOOTER_MAGIC = {'Y', 'Z'};
+    private static final int STREAM_HEADER_SIZE = 12;
+    private static final int CHECK_CRC64 = 4;
+    private static final int CHECK_SIZE = 8;
+    private static final int COMPRESSED_SIZE_PRESENT = 0x40;
+    private static final int UNCOMPRESSED_SIZE_PRESENT = 0x80;
+    private static final int DEFAULT_PRESET = 6;
+
+    private final int preset;
+    private final List<long[]> records = new ArrayList<>();
+
+    /**
+     * @param out stream the xz data is written to.
+     * @param executor on which blocks are compressed.
+     * @param parallelism maximum number of blocks compressed or waiting to be written.
+     * @param blockSize number of uncompressed bytes of a block.
+     * @param level xz preset from 0 to 9, a negative level selects the default preset.
+     */
+    ParallelXZOutputStream(final OutputStream out, final Executor executor, final int parallelism, final int blockSize, final int level) {
+        super(out, executor, parallelism, blockSize);
+        this.preset = level < 0 ? DEFAULT_PRESET : level;
+    }
+
+    @Override
+    void writeHeader(final OutputStream out) throws IOException {
+        byte[] flags = {0, CHECK_CRC64};
+        out.write(HEADER_MAGIC);
+        out.write(flags);
+        writeIntLE(out, crc32(flags, 0, flags.length));
+    }
+
+    @Override
+    byte[] compress(final byte[] data, final byte[] previousData, final boolean last) throws IOException {
+        if (data.length == 0) {
+            return data;
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 2 + 128);
+        try (XZCompressorOutputStream xz = new XZCompressorOutputStream(bos, preset)) {
+            xz.write(data);
+        }
+        byte[] stream = bos.toByteArray();
+        if ((stream[7] & 0x0f) != CHECK_CRC64) {
+            throw new IOException("Unexpected xz check type");
+        }
+        int headerSize = ((stream[STREAM_HEADER_SIZE] & 0xff) + 1) * 4;
+        int blockFlags = stream[STREAM_HEADER_SIZE + 1] & 0xff;
+        int[] offset = {STREAM_HEADER_SIZE + 2};
+        if ((blockFlags & COMPRESSED_SIZE_PRESENT) != 0) {
+            readVarLong(stream, offset);
+        }
+        if ((blockFlags & UNCOMPRESSED_SIZE_PRESENT) != 0) {
+            readVarLong(stream, offset);
+        }
+        int filtersStart = offset[0];
+        for (int i = 0; i <= (blockFlags & 0x03); i++) {
+            readVarLong(stream, offset);
+            long propertiesSize = readVarLong(stream, offset);
+            offset[0] += (int) propertiesSize;
+        }
+        int filtersEnd = offset[0];
+        // the index of the single block stream holds its unpadded size
+        int footer = stream.length - STREAM_HEADER_SIZE;
+        int index = footer - (int) ((readIntLE(stream, footer + 4) + 1) * 4);
+        int[] indexOffset = {index + 2};
+        long unpaddedSize = readVarLong(stream, indexOffset);
+        long uncompressedSize = readVarLong(stream, indexOffset);
+        long compressedSize = unpaddedSize - headerSize - CHECK_SIZE;
+        if (uncompressedSize != data.length || compressedSize <= 0) {
+            throw new IOException("Unexpected xz block layout");
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        header.write(0);
+        header.write((blockFlags & 0x03) | COMPRESSED_SIZE_PRESENT | UNCOMPRESSED_SIZE_PRESENT);
+        writeVarLong(header, compressedSize);
+        writeVarLong(header, uncompressedSize);
+        header.write(stream, filtersStart, filtersEnd - filtersStart);
+        while ((header.size() + 4) % 4 != 0) {
+            header.write(0);
+        }
+        byte[] newHeader = header.toByteArray();
+        newHeader[0] = (byte) ((newHeader.length + 4) / 4 - 1);
+        int dataStart = STREAM_HEADER_SIZE + headerSize;
+        int dataLength = (int) ((compressedSize + 3) & ~3L) + CHECK_SIZE;
+        ByteArrayOutputStream block = new ByteArrayOutputStream(newHeader.length + 4 + dataLength);
+        block.write(newHeader);
+        writeIntLE(block, crc32(newHeader, 0, newHeader.length));
+        block.write(stream, dataStart, dataLength);
+        return block.toByteArray();
+    }
+
+    @Override
+    void blockCompressed(final byte[] compressed) throws IOException {
+        if (compressed.length == 0) {
+            return;
+        }
+        int headerSize = ((compressed[0] & 0xff) + 1) * 4;
+        int[] offset = {2};
+        long compressedSize = readVarLong(compressed, offset);
+        long uncompressedSize = readVarLong(compressed, offset);
+        records.add(new long[] {headerSize + compressedSize + CHECK_SIZE, uncompressedSize});
+    }
+
+    @Override
+    void writeTrailer(final OutputStream out) throws IOException {
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        index.write(0);
+        writeVarLong(index, records.size());
+        for (long[] record : records) {
+            writeVarLong(index, record[0]);
+            writeVarLong(index, record[1]);
+        }
+        while (index.size() % 4 != 0) {
+            index.write(0);
+        }
+        byte[] indexBytes = index.toByteArray();
+        out.write(indexBytes);
+        writeIntLE(out, crc32(indexBytes, 0, indexBytes.length));
+        ByteArrayOutputStream footer = new ByteArrayOutputStream();
+        writeIntLE(footer, (indexBytes.length + 4) / 4 - 1);
+        footer.write(0);
+        footer.write(CHECK_CRC64);
+        byte[] footerBytes = footer.toByteArray();
+        writeIntLE(out, crc32(footerBytes, 0, footerBytes.length));
+        out.write(footerBytes);
+        out.write(FOOTER_MAGIC);
+    }
+
+    private static long readVarLong(final byte[] data, final int[] offset) throws IOException {
+        long value = 0;
+        for (int i = 0; i < 9 && offset[0] < data.length; i++) {
+            int b = data[offset[0]++] & 0xff;
+            value |= (long) (b & 0x7f) << (i * 7);
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid XZ variable length integer");
+    }
+
+    private static void writeVarLong(final ByteArrayOutputStream out, final long value) {
+        long remaining = value;
+        while (remaining >= 0x80) {
+            out.write((int) (remaining & 0x7f | 0x80));
+            remaining >>>= 7;
+        }
+        out.write((int) remaining);
+    }
+
+    private static void writeIntLE(final OutputStream out, final long value) throws IOException {
+        for (int i = 0; i < 4; i++) {
+            out.write((int) (value >>> (i * 8)));
+        }
+    }
+
+    private static long readIntLE(final byte[] data, final int offset) {
+        return (data[offset] & 0xffL) | (data[offset + 1] & 0xffL) << 8 | (data[offset + 2] & 0xffL) << 16 | (data[offset + 3] & 0xffL) << 24;
+    }
+
+    private static long crc32(final byte[] data, final int offset, final int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return crc.getValue();
+    }
+}
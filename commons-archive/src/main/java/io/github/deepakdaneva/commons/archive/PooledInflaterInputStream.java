@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import org.apache.commons.compress.compressors.CompressorInputStream;
+
+/**
+ * Gzip (RFC 1952) or zlib (RFC 1950) stream which inflates with an {@link Inflater} and an input buffer borrowed from a
+ * {@link DecompressionPool}, both are returned to the pool when the stream is closed. Output is inflated directly into
+ * the buffer of the caller. Like the streams created by the default {@code CompressorStreamFactory} only the first gzip
+ * member is read unless concatenated members are requested, the CRC32 and size of every member are verified.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class PooledInflaterInputStream extends CompressorInputStream {
+
+    private static final int GZIP_ID1 = 0x1f;
+    private static final int GZIP_ID2 = 0x8b;
+    private static final int DEFLATE_METHOD = 8;
+    private static final int FHCRC = 0x02;
+    private static final int FEXTRA = 0x04;
+    private static final int FNAME = 0x08;
+    private static final int FCOMMENT = 0x10;
+
+    private final InputStream in;
+    private final DecompressionPool pool;
+    private final boolean gzip;
+    private final boolean decompressConcatenated;
+    private final CRC32 crc = new CRC32();
+    private final byte[] single = new byte[1];
+    private Inflater inflater;
+    private byte[] buffer;
+    private int bufferPos;
+    private int bufferLength;
+    private boolean endReached;
+
+    /**
+     * @param in compressed stream.
+     * @param pool from which the inflater and the input buffer are borrowed.
+     * @param gzip true for gzip, false for zlib data.
+     * @param decompressConcatenated true to read all members of a gzip stream, false to stop after the first one.
+     * @throws IOException if the gzip header is invalid.
+     */
+    PooledInflaterInputStream(final InputStream in, final DecompressionPool pool, final boolean gzip, final boolean decompressConcatenated) throws IOException {
+        this.in = in;
+        this.pool = pool;
+        this.gzip = gzip;
+        this.decompressConcatenated = decompressConcatenated;
+        this.inflater = pool.acquireInflater(gzip);
+        this.buffer = pool.acquireBuffer();
+        if (gzip) {
+            try {
+                readHeader(true);
+            } catch (IOException | RuntimeException e) {
+                release();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int n = read(single, 0, 1);
+        return n <= 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (Objects.isNull(inflater)) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (!endReached) {
+            int n;
+            try {
+                n = inflater.inflate(b, off, len);
+            } catch (DataFormatException e) {
+                throw new IOException("Invalid deflate data", e);
+            }
+            if (n > 0) {
+                if (gzip) {
+                    crc.update(b, off, n);
+                }
+                count(n);
+                return n;
+            }
+            if (inflater.finished()) {
+                // give back the input which belongs to the trailer or the next member
+                bufferPos = bufferLength - inflater.getRemaining();
+                if (gzip) {
+                    readTrailer();
+                    if (decompressConcatenated && readHeader(false)) {
+                        inflater.reset();
+                        crc.reset();
+                        continue;
+                    }
+                }
+                endReached = true;
+            } else if (inflater.needsDictionary()) {
+                throw new IOException("Preset dictionaries are not supported");
+            } else if (inflater.needsInput()) {
+                if (bufferPos == bufferLength && fill() < 0) {
+                    throw new EOFException("Unexpected end of compressed stream");
+                }
+                inflater.setInput(buffer, bufferPos, bufferLength - bufferPos);
+                bufferPos = bufferLength;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return endReached || Objects.isNull(inflater) ? 0 : 1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (Objects.nonNull(inflater)) {
+            release();
+        }
+        in.close();
+    }
+
+    private void release() {
+        pool.releaseInflater(inflater, gzip);
+        pool.releaseBuffer(buffer);
+        inflater = null;
+        buffer = null;
+    }
+
+    /**
+     * Reads a gzip member header.
+     *
+     * @param first true for the first member which must exist.
+     * @return false if the stream ended before a further member.
+     */
+    private boolean readHeader(final boolean first) throws IOException {
+        if (!first && bufferPos == bufferLength && fill() < 0) {
+            return false;
+        }
+        if (readByte() != GZIP_ID1 || readByte() != GZIP_ID2) {
+            throw new IOException(first ? "Input is not in the .gz format" : "Garbage after a valid .gz stream");
+        }
+        if (readByte() != DEFLATE_METHOD) {
+            throw new IOException("Unsupported compression method in .gz header");
+        }
+        int flags = readByte();
+        // mtime (4), xfl and os
+        skipBytes(6);
+        if ((flags & FEXTRA) != 0) {
+            skipBytes(readByte() | readByte() << 8);
+        }
+        if ((flags & FNAME) != 0) {
+            skipZeroTerminated();
+        }
+        if ((flags & FCOMMENT) != 0) {
+            skipZeroTerminated();
+        }
+        if ((flags & FHCRC) != 0) {
+            skipBytes(2);
+        }
+        return true;
+    }
+
+    private void readTrailer() throws IOException {
+        long crc32 = readIntLE();
+        long isize = readIntLE();
+        if (crc32 != crc.getValue() || isize != (inflater.getBytesWritten() & 0xffffffffL)) {
+            throw new IOException("Gzip-compressed data is corrupt");
+        }
+    }
+
+    private long readIntLE() throws IOException {
+        return (readByte() | readByte() << 8 | readByte() << 16 | (long) readByte() << 24) & 0xffffffffL;
+    }
+
+    private void skipZeroTerminated() throws IOException {
+        while (readByte() != 0) {
+            // skip
+        }
+    }
+
+    private void skipBytes(final int n) throws IOException {
+        for (int i = 0; i < n; i++) {
+            readByte();
+        }
+    }
+
+    /**
+     * @return next byte of the header or trailer.
+     */
+    private int readByte() throws IOException {
+        if (bufferPos == bufferLength && fill() < 0) {
+            throw new EOFException("Unexpected end of .gz header or trailer");
+        }
+        return buffer[bufferPos++] & 0xff;
+    }
+
+    private int fill() throws IOException {
+        int n = in.read(buffer, 0, buffer.length);
+        bufferPos = 0;
+        bufferLength = Math.max(n, 0);
+        return n;
+    }
+}
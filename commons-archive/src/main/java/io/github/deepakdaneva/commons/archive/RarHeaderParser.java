@@ -0,0 +1,407 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Objects;
+
+/**
+ * Reads the block headers of a RAR 4 or RAR 5 archive from a channel without reading any file data, the data of every
+ * file is skipped by seeking. Reading stops at the end of archive block or if the headers are encrypted.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class RarHeaderParser {
+
+    private static final byte[] RAR4_SIGNATURE = {'R', 'a', 'r', '!', 0x1A, 0x07, 0x00};
+    private static final byte[] RAR5_SIGNATURE = {'R', 'a', 'r', '!', 0x1A, 0x07, 0x01, 0x00};
+
+    private static final int RAR4_MAIN_HEADER = 0x73;
+    private static final int RAR4_FILE_HEADER = 0x74;
+    private static final int RAR4_SERVICE_HEADER = 0x7A;
+    private static final int RAR4_END_HEADER = 0x7B;
+    private static final int RAR4_BASE_HEADER_SIZE = 7;
+    private static final int RAR4_MAIN_ENCRYPTED = 0x0080;
+    private static final int RAR4_MAIN_SOLID = 0x0008;
+    private static final int RAR4_ADD_SIZE = 0x8000;
+    private static final int RAR4_FILE_ENCRYPTED = 0x0004;
+    private static final int RAR4_FILE_SPLIT = 0x0001 | 0x0002;
+    private static final int RAR4_FILE_DIRECTORY = 0x00E0;
+    private static final int RAR4_FILE_LARGE = 0x0100;
+    private static final int RAR4_METHOD_STORE = 0x30;
+
+    private static final int RAR5_MAIN_HEADER = 1;
+    private static final int RAR5_FILE_HEADER = 2;
+    private static final int RAR5_ENCRYPTION_HEADER = 4;
+    private static final int RAR5_END_HEADER = 5;
+    private static final int RAR5_EXTRA_AREA = 0x0001;
+    private static final int RAR5_DATA_AREA = 0x0002;
+    private static final int RAR5_SPLIT = 0x0008 | 0x0010;
+    private static final int RAR5_MAIN_SOLID = 0x0004;
+    private static final int RAR5_FILE_DIRECTORY = 0x0001;
+    private static final int RAR5_FILE_MTIME = 0x0002;
+    private static final int RAR5_FILE_CRC = 0x0004;
+    private static final int RAR5_FILE_UNKNOWN_SIZE = 0x0008;
+    private static final int RAR5_EXTRA_ENCRYPTION = 1;
+    private static final int RAR5_MAX_HEADER_SIZE = 2 * 1024 * 1024;
+
+    private final SeekableByteChannel channel;
+    private final int version;
+    private long position;
+    private boolean solid;
+    private boolean headerEncrypted;
+    private boolean end;
+
+    /**
+     * @param channel of the archive positioned anywhere, the archive must start at position {@code 0}.
+     * @throws IOException if the channel does not start with a RAR signature.
+     */
+    RarHeaderParser(final SeekableByteChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer signature = ByteBuffer.allocate(RAR5_SIGNATURE.length);
+        channel.position(0);
+        while (signature.hasRemaining() && channel.read(signature) >= 0) {
+            // fill
+        }
+        byte[] bytes = signature.array();
+        if (startsWith(bytes, signature.position(), RAR5_SIGNATURE)) {
+            version = 5;
+            position = RAR5_SIGNATURE.length;
+        } else if (startsWith(bytes, signature.position(), RAR4_SIGNATURE)) {
+            version = 4;
+            position = RAR4_SIGNATURE.length;
+        } else {
+            throw new NotAnArchiveOrSupportedArchiveException("Not a RAR archive.");
+        }
+    }
+
+    /**
+     * @return 4 or 5.
+     */
+    int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return true if the main header marks the archive as solid, known once the first entry has been read.
+     */
+    boolean isSolid() {
+        return solid;
+    }
+
+    /**
+     * @return true if the headers are encrypted, in which case no entries can be read.
+     */
+    boolean isHeaderEncrypted() {
+        return headerEncrypted;
+    }
+
+    /**
+     * @return next file entry or null at the end of the archive or if the headers are encrypted.
+     * @throws IOException if reading fails or a header is corrupt.
+     */
+    Entry next() throws IOException {
+        Entry entry = null;
+        while (!end && Objects.isNull(entry)) {
+            entry = version == 5 ? nextRar5() : nextRar4();
+        }
+        return entry;
+    }
+
+    private Entry nextRar4() throws IOException {
+        ByteBuffer base = read(position, RAR4_BASE_HEADER_SIZE, true);
+        if (Objects.isNull(base)) {
+            end = true;
+            return null;
+        }
+        int type = base.get(2) & 0xff;
+        int flags = base.getShort(3) & 0xffff;
+        int headerSize = base.getShort(5) & 0xffff;
+        if (headerSize < RAR4_BASE_HEADER_SIZE) {
+            throw new IOException("Corrupt RAR header");
+        }
+        ByteBuffer header = read(position + RAR4_BASE_HEADER_SIZE, headerSize - RAR4_BASE_HEADER_SIZE, false);
+        long headerStart = position;
+        long dataSize = 0;
+        boolean file = type == RAR4_FILE_HEADER || type == RAR4_SERVICE_HEADER;
+        if (file || (flags & RAR4_ADD_SIZE) != 0) {
+            dataSize = uint32(header, 0);
+        }
+        if (file && (flags & RAR4_FILE_LARGE) != 0) {
+            dataSize |= uint32(header, 25) << 32;
+        }
+        position = headerStart + headerSize + dataSize;
+        if (type == RAR4_MAIN_HEADER) {
+            solid = (flags & RAR4_MAIN_SOLID) != 0;
+            if ((flags & RAR4_MAIN_ENCRYPTED) != 0) {
+                headerEncrypted = true;
+                end = true;
+            }
+        } else if (type == RAR4_END_HEADER) {
+            end = true;
+        } else if (type == RAR4_FILE_HEADER) {
+            long size = uint32(header, 4);
+            if ((flags & RAR4_FILE_LARGE) != 0) {
+                size |= uint32(header, 29) << 32;
+            }
+            long crc = uint32(header, 9);
+            Instant lastModified = dosTime(uint32(header, 13));
+            int method = header.get(18) & 0xff;
+            int nameSize = header.getShort(19) & 0xffff;
+            int nameOffset = 25 + ((flags & RAR4_FILE_LARGE) != 0 ? 8 : 0);
+            if (nameOffset + nameSize > header.limit()) {
+                throw new IOException("Corrupt RAR header");
+            }
+            String name = name(header, nameOffset, nameSize);
+            boolean directory = (flags & RAR4_FILE_DIRECTORY) == RAR4_FILE_DIRECTORY;
+            return new Entry(name, directory, size, dataSize, headerStart + headerSize, lastModified, crc, (flags & RAR4_FILE_ENCRYPTED) != 0, method == RAR4_METHOD_STORE, (flags & RAR4_FILE_SPLIT) != 0);
+        }
+        return null;
+    }
+
+    private Entry nextRar5() throws IOException {
+        ByteBuffer prefix = read(position, 4, true);
+        if (Objects.isNull(prefix)) {
+            end = true;
+            return null;
+        }
+        // header CRC32 is followed by the header size as a variable length integer of at most 3 bytes
+        ByteBuffer sizeBytes = read(position + 4, (int) Math.max(0, Math.min(3, channel.size() - position - 4)), false);
+        long headerSize = vint(sizeBytes);
+        if (headerSize <= 0 || headerSize > RAR5_MAX_HEADER_SIZE) {
+            throw new IOException("Corrupt RAR header");
+        }
+        long dataStart = position + 4 + sizeBytes.position();
+        ByteBuffer header = read(dataStart, (int) headerSize, false);
+        int type = (int) vint(header);
+        long flags = vint(header);
+        long extraSize = (flags & RAR5_EXTRA_AREA) != 0 ? vint(header) : 0;
+        long dataSize = (flags & RAR5_DATA_AREA) != 0 ? vint(header) : 0;
+        position = dataStart + headerSize + dataSize;
+        if (type == RAR5_MAIN_HEADER) {
+            solid = (vint(header) & RAR5_MAIN_SOLID) != 0;
+        } else if (type == RAR5_ENCRYPTION_HEADER) {
+            headerEncrypted = true;
+            end = true;
+        } else if (type == RAR5_END_HEADER) {
+            end = true;
+        } else if (type == RAR5_FILE_HEADER) {
+            long fileFlags = vint(header);
+            long size = vint(header);
+            if ((fileFlags & RAR5_FILE_UNKNOWN_SIZE) != 0) {
+                size = ArchiveEntryInfo.SIZE_UNKNOWN;
+            }
+            vint(header);
+            Instant lastModified = null;
+            if ((fileFlags & RAR5_FILE_MTIME) != 0) {
+                lastModified = Instant.ofEpochSecond(uint32(header, header.position()));
+                header.position(header.position() + 4);
+            }
+            long crc = -1;
+            if ((fileFlags & RAR5_FILE_CRC) != 0) {
+                crc = uint32(header, header.position());
+                header.position(header.position() + 4);
+            }
+            long compression = vint(header);
+            vint(header);
+            int nameSize = (int) vint(header);
+            if (nameSize < 0 || header.position() + nameSize > header.limit() - extraSize) {
+                throw new IOException("Corrupt RAR header");
+            }
+            String name = name(header, header.position(), nameSize);
+            boolean encrypted = hasRar5Record(header, (int) (header.limit() - extraSize), RAR5_EXTRA_ENCRYPTION);
+            // compression method is stored in bits 7 to 9 of the compression information
+            boolean stored = ((compression >>> 7) & 0x7) == 0;
+            return new Entry(name, (fileFlags & RAR5_FILE_DIRECTORY) != 0, size, dataSize, dataStart + headerSize, lastModified, crc, encrypted, stored, (flags & RAR5_SPLIT) != 0);
+        }
+        return null;
+    }
+
+    private static boolean hasRar5Record(final ByteBuffer header, final int extraStart, final int recordType) throws IOException {
+        header.position(extraStart);
+        while (header.hasRemaining()) {
+            long recordSize = vint(header);
+            int recordStart = header.position();
+            if (recordSize <= 0 || recordStart + recordSize > header.limit()) {
+                throw new IOException("Corrupt RAR header");
+            }
+            if (vint(header) == recordType) {
+                return true;
+            }
+            header.position((int) (recordStart + recordSize));
+        }
+        return false;
+    }
+
+    /**
+     * @return little endian buffer of the bytes, null if the channel ends at the position and eofAllowed.
+     */
+    private ByteBuffer read(final long at, final int length, final boolean eofAllowed) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        channel.position(at);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (eofAllowed && buffer.position() == 0) {
+                    return null;
+                }
+                throw new EOFException("Unexpected end of RAR archive");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static long vint(final ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                throw new IOException("Corrupt RAR header");
+            }
+            int b = buffer.get() & 0xff;
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt RAR header");
+    }
+
+    private static long uint32(final ByteBuffer buffer, final int index) throws IOException {
+        if (index + 4 > buffer.limit()) {
+            throw new IOException("Corrupt RAR header");
+        }
+        return buffer.getInt(index) & 0xffffffffL;
+    }
+
+    private static String name(final ByteBuffer header, final int offset, final int size) {
+        int length = 0;
+        // RAR 4 appends the encoded unicode name after a zero byte
+        while (length < size && header.get(offset + length) != 0) {
+            length++;
+        }
+        return new String(header.array(), offset, length, StandardCharsets.UTF_8);
+    }
+
+    private static Instant dosTime(final long time) {
+        try {
+            LocalDateTime local = LocalDateTime.of((int) ((time >>> 25) & 0x7f) + 1980, (int) ((time >>> 21) & 0x0f), (int) ((time >>> 16) & 0x1f), (int) ((time >>> 11) & 0x1f), (int) ((time >>> 5) & 0x3f), (int) ((time << 1) & 0x3e));
+            return local.atZone(ZoneId.systemDefault()).toInstant();
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static boolean startsWith(final byte[] bytes, final int length, final byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * File entry of a RAR archive.
+     */
+    static final class Entry {
+        private final String name;
+        private final boolean directory;
+        private final long size;
+        private final long packedSize;
+        private final long dataOffset;
+        private final Instant lastModified;
+        private final long crc;
+        private final boolean encrypted;
+        private final boolean stored;
+        private final boolean split;
+
+        private Entry(final String name, final boolean directory, final long size, final long packedSize, final long dataOffset, final Instant lastModified, final long crc, final boolean encrypted, final boolean stored, final boolean split) {
+            this.name = name;
+            this.directory = directory;
+            this.size = size;
+            this.packedSize = packedSize;
+            this.dataOffset = dataOffset;
+            this.lastModified = lastModified;
+            this.crc = crc;
+            this.encrypted = encrypted;
+            this.stored = stored;
+            this.split = split;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        boolean isDirectory() {
+            return directory;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        long getPackedSize() {
+            return packedSize;
+        }
+
+        /**
+         * @return position of the packed data in the archive.
+         */
+        long getDataOffset() {
+            return dataOffset;
+        }
+
+        Instant getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * @return CRC32 of the unpacked data or {@code -1} if not recorded.
+         */
+        long getCrc() {
+            return crc;
+        }
+
+        boolean isEncrypted() {
+            return encrypted;
+        }
+
+        /**
+         * @return true if the data is stored without compression.
+         */
+        boolean isStored() {
+            return stored;
+        }
+
+        /**
+         * @return true if the data continues from or in another volume.
+         */
+        boolean isSplit() {
+            return split;
+        }
+    }
+}
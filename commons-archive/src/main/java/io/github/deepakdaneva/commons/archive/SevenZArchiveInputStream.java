@@ -14,29 +14,102 @@ package io.github.deepakdaneva.commons.archive;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.sevenz.SevenZFile;
-import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.commons.compress.archivers.sevenz.SevenZFileOptions;
 import org.apache.commons.io.IOUtils;
 
 /**
+ * {@link ArchiveInputStream} view of a 7z archive. 7z archives need random access, so the archive is read through a
+ * {@link SeekableByteChannel}. Archives provided as {@link Path} or channel are read in place, archives provided as
+ * {@link InputStream} are kept in memory up to a threshold and spilled to a temporary file beyond it, so heap usage stays
+ * bounded regardless of the archive size.
+ *
  * @author Deepak Kumar Jangir
  * @version 1
  * @since 1
  */
 public class SevenZArchiveInputStream extends ArchiveInputStream {
+    /** Default number of bytes of an InputStream based archive kept in memory before it is spilled to a temporary file. */
+    public static final long DEFAULT_IN_MEMORY_THRESHOLD = EntryStreamOptions.DEFAULT_SPILL_THRESHOLD;
+
     private final SevenZFile sevenZFile;
 
     /**
      * If the input stream is already detected as a 7z, An instance of 7z InputStream can be provided to work with it.
+     * Archives larger than {@link #DEFAULT_IN_MEMORY_THRESHOLD} are spilled to a temporary file.
      * 
      * @param inputStream underlysing input stream of the 7z file
      * @throws IOException any IO exception raised during the construction of the instance
      */
     public SevenZArchiveInputStream(final InputStream inputStream) throws IOException {
-        SeekableInMemoryByteChannel inMemoryByteChannel = new SeekableInMemoryByteChannel(IOUtils.toByteArray(inputStream));
-        this.sevenZFile = new SevenZFile(inMemoryByteChannel);
+        this(inputStream, DEFAULT_IN_MEMORY_THRESHOLD);
+    }
+
+    /**
+     * If the input stream is already detected as a 7z, An instance of 7z InputStream can be provided to work with it.
+     * 
+     * @param inputStream underlysing input stream of the 7z file
+     * @param inMemoryThreshold maximum number of bytes kept in memory, larger archives are spilled to a temporary file
+     * which is deleted when this stream is closed
+     * @throws IOException any IO exception raised during the construction of the instance
+     */
+    public SevenZArchiveInputStream(final InputStream inputStream, final long inMemoryThreshold) throws IOException {
+        this(spill(inputStream, inMemoryThreshold));
+    }
+
+    /**
+     * Reads the 7z archive in place from the file system without loading it into memory.
+     * 
+     * @param path of the 7z file
+     * @throws IOException any IO exception raised during the construction of the instance
+     */
+    public SevenZArchiveInputStream(final Path path) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Reads the 7z archive through the provided channel, for example a {@link FileChannel}, without loading it into
+     * memory. The channel is closed when this stream is closed.
+     * 
+     * @param channel of the 7z file
+     * @throws IOException any IO exception raised during the construction of the instance
+     */
+    public SevenZArchiveInputStream(final SeekableByteChannel channel) throws IOException {
+        this(channel, SevenZFileOptions.DEFAULT);
+    }
+
+    /**
+     * Reads the 7z archive in place, decoders which need more memory than the limit of the options fail with a
+     * {@link org.apache.commons.compress.MemoryLimitException}.
+     */
+    SevenZArchiveInputStream(final Path path, final SevenZFileOptions options) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.READ), options);
+    }
+
+    private SevenZArchiveInputStream(final SeekableByteChannel channel, final SevenZFileOptions options) throws IOException {
+        try {
+            this.sevenZFile = new SevenZFile(channel, options);
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    private static SeekableByteChannel spill(final InputStream inputStream, final long inMemoryThreshold) throws IOException {
+        SpillBuffer buffer = new SpillBuffer(inMemoryThreshold, null, BufferPool.DEFAULT);
+        try {
+            buffer.transferFrom(inputStream);
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(buffer);
+            throw e;
+        }
+        return new SpillBufferChannel(buffer);
     }
 
     public int read() throws IOException {
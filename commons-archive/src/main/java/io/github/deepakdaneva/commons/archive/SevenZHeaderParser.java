@@ -0,0 +1,435 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import org.apache.commons.compress.compressors.lzma.LZMACompressorInputStream;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Reads the folder of every entry from the header of a 7z archive without reading any file data. A folder, also called
+ * a solid block, is compressed as one stream, so reading an entry decodes its folder from the start up to the entry.
+ * Headers compressed with LZMA are decoded, other header encodings are not supported.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class SevenZHeaderParser {
+
+    private static final byte[] SIGNATURE = {'7', 'z', (byte) 0xBC, (byte) 0xAF, 0x27, 0x1C};
+    private static final int START_HEADER_SIZE = 32;
+    private static final int MAX_HEADER_SIZE = 64 * 1024 * 1024;
+
+    private static final int END = 0x00;
+    private static final int HEADER = 0x01;
+    private static final int ARCHIVE_PROPERTIES = 0x02;
+    private static final int ADDITIONAL_STREAMS_INFO = 0x03;
+    private static final int MAIN_STREAMS_INFO = 0x04;
+    private static final int FILES_INFO = 0x05;
+    private static final int PACK_INFO = 0x06;
+    private static final int UNPACK_INFO = 0x07;
+    private static final int SUB_STREAMS_INFO = 0x08;
+    private static final int SIZE = 0x09;
+    private static final int CRC = 0x0A;
+    private static final int FOLDER = 0x0B;
+    private static final int CODERS_UNPACK_SIZE = 0x0C;
+    private static final int NUM_UNPACK_STREAM = 0x0D;
+    private static final int EMPTY_STREAM = 0x0E;
+    private static final int ENCODED_HEADER = 0x17;
+
+    private static final int CODER_ID_SIZE = 0x0F;
+    private static final int CODER_COMPLEX = 0x10;
+    private static final int CODER_PROPERTIES = 0x20;
+    private static final int CODER_ALTERNATIVES = 0x80;
+    private static final byte[] LZMA = {3, 1, 1};
+    private static final int LZMA_PROPERTIES_SIZE = 5;
+
+    private SevenZHeaderParser() {
+    }
+
+    /**
+     * @param channel of the archive.
+     * @param entries number of entries of the archive as read by {@link org.apache.commons.compress.archivers.sevenz.SevenZFile}.
+     * @return folder index per entry, -1 for entries without content, or null if the header encoding is not supported or
+     * does not describe the expected number of entries.
+     * @throws IOException if reading fails or the header is corrupt.
+     */
+    static int[] folderIndexes(final SeekableByteChannel channel, final int entries) throws IOException {
+        try {
+            ByteBuffer start = read(channel, 0, START_HEADER_SIZE);
+            for (int i = 0; i < SIGNATURE.length; i++) {
+                if (start.get(i) != SIGNATURE[i]) {
+                    throw new NotAnArchiveOrSupportedArchiveException("Not a 7z archive.");
+                }
+            }
+            long offset = start.getLong(12);
+            long size = start.getLong(20);
+            if (offset < 0 || size <= 0 || size > MAX_HEADER_SIZE) {
+                throw corrupt();
+            }
+            ByteBuffer header = read(channel, START_HEADER_SIZE + offset, (int) size);
+            int type = header.get() & 0xff;
+            if (type == ENCODED_HEADER) {
+                header = decode(channel, readStreamsInfo(header));
+                if (Objects.isNull(header)) {
+                    return null;
+                }
+                type = header.get() & 0xff;
+            }
+            if (type != HEADER) {
+                throw corrupt();
+            }
+            return readHeader(header, entries);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt 7z header", e);
+        }
+    }
+
+    /**
+     * @return header decoded from the only folder of the streams, null if it is not a single LZMA coder.
+     */
+    private static ByteBuffer decode(final SeekableByteChannel channel, final Streams streams) throws IOException {
+        if (streams.folders.size() != 1 || streams.packSizes.length != 1) {
+            return null;
+        }
+        Folder folder = streams.folders.get(0);
+        if (folder.coders.size() != 1 || !Arrays.equals(LZMA, folder.coders.get(0).id) || folder.coders.get(0).properties.length != LZMA_PROPERTIES_SIZE) {
+            return null;
+        }
+        long unpackSize = folder.unpackSizes[0];
+        if (streams.packSizes[0] > MAX_HEADER_SIZE || unpackSize <= 0 || unpackSize > MAX_HEADER_SIZE) {
+            throw corrupt();
+        }
+        ByteBuffer packed = read(channel, START_HEADER_SIZE + streams.packPos, (int) streams.packSizes[0]);
+        // properties and dictionary size followed by the uncompressed size form the header of the .lzma format
+        ByteBuffer lzmaHeader = ByteBuffer.allocate(LZMA_PROPERTIES_SIZE + 8).order(ByteOrder.LITTLE_ENDIAN);
+        lzmaHeader.put(folder.coders.get(0).properties).putLong(unpackSize);
+        byte[] header = new byte[(int) unpackSize];
+        try (InputStream in = new LZMACompressorInputStream(new SequenceInputStream(new ByteArrayInputStream(lzmaHeader.array()), new ByteArrayInputStream(packed.array())))) {
+            IOUtils.readFully(in, header);
+        }
+        return ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int[] readHeader(final ByteBuffer header, final int entries) throws IOException {
+        int type = header.get() & 0xff;
+        if (type == ARCHIVE_PROPERTIES) {
+            while (header.get() != END) {
+                skip(header, number(header));
+            }
+            type = header.get() & 0xff;
+        }
+        if (type == ADDITIONAL_STREAMS_INFO) {
+            readStreamsInfo(header);
+            type = header.get() & 0xff;
+        }
+        Streams streams = new Streams();
+        if (type == MAIN_STREAMS_INFO) {
+            streams = readStreamsInfo(header);
+            type = header.get() & 0xff;
+        }
+        if (type != FILES_INFO) {
+            return entries == 0 ? new int[0] : null;
+        }
+        long files = number(header);
+        if (files != entries) {
+            return null;
+        }
+        BitSet empty = new BitSet();
+        int property;
+        while ((property = header.get() & 0xff) != END) {
+            long size = number(header);
+            if (property == EMPTY_STREAM) {
+                int position = header.position();
+                empty = bits(header, entries);
+                header.position(position);
+            }
+            skip(header, size);
+        }
+        int[] indexes = new int[entries];
+        int folder = 0;
+        long remaining = streams.folders.isEmpty() ? 0 : streams.folders.get(0).unpackStreams;
+        for (int i = 0; i < entries; i++) {
+            if (empty.get(i)) {
+                indexes[i] = -1;
+                continue;
+            }
+            while (remaining == 0) {
+                if (++folder >= streams.folders.size()) {
+                    throw corrupt();
+                }
+                remaining = streams.folders.get(folder).unpackStreams;
+            }
+            indexes[i] = folder;
+            remaining--;
+        }
+        return indexes;
+    }
+
+    private static Streams readStreamsInfo(final ByteBuffer header) throws IOException {
+        Streams streams = new Streams();
+        int type = header.get() & 0xff;
+        if (type == PACK_INFO) {
+            streams.packPos = number(header);
+            int count = count(header);
+            streams.packSizes = new long[count];
+            type = header.get() & 0xff;
+            if (type == SIZE) {
+                for (int i = 0; i < count; i++) {
+                    streams.packSizes[i] = number(header);
+                }
+                type = header.get() & 0xff;
+            }
+            if (type == CRC) {
+                skipDigests(header, count);
+                type = header.get() & 0xff;
+            }
+            expect(type, END);
+            type = header.get() & 0xff;
+        }
+        if (type == UNPACK_INFO) {
+            expect(header.get() & 0xff, FOLDER);
+            int count = count(header);
+            if (header.get() != 0) {
+                // folders stored in an additional stream
+                throw corrupt();
+            }
+            for (int i = 0; i < count; i++) {
+                streams.folders.add(readFolder(header));
+            }
+            expect(header.get() & 0xff, CODERS_UNPACK_SIZE);
+            for (Folder folder : streams.folders) {
+                for (int i = 0; i < folder.unpackSizes.length; i++) {
+                    folder.unpackSizes[i] = number(header);
+                }
+            }
+            type = header.get() & 0xff;
+            if (type == CRC) {
+                BitSet defined = skipDigests(header, count);
+                for (int i = 0; i < count; i++) {
+                    streams.folders.get(i).hasCrc = defined.get(i);
+                }
+                type = header.get() & 0xff;
+            }
+            expect(type, END);
+            type = header.get() & 0xff;
+        }
+        if (type == SUB_STREAMS_INFO) {
+            type = header.get() & 0xff;
+            if (type == NUM_UNPACK_STREAM) {
+                for (Folder folder : streams.folders) {
+                    folder.unpackStreams = number(header);
+                }
+                type = header.get() & 0xff;
+            }
+            if (type == SIZE) {
+                for (Folder folder : streams.folders) {
+                    for (long i = 1; i < folder.unpackStreams; i++) {
+                        number(header);
+                    }
+                }
+                type = header.get() & 0xff;
+            }
+            if (type == CRC) {
+                long digests = 0;
+                for (Folder folder : streams.folders) {
+                    if (folder.unpackStreams != 1 || !folder.hasCrc) {
+                        digests += folder.unpackStreams;
+                    }
+                }
+                if (digests > header.remaining() * 8L) {
+                    throw corrupt();
+                }
+                skipDigests(header, (int) digests);
+                type = header.get() & 0xff;
+            }
+            expect(type, END);
+            type = header.get() & 0xff;
+        }
+        expect(type, END);
+        return streams;
+    }
+
+    private static Folder readFolder(final ByteBuffer header) throws IOException {
+        Folder folder = new Folder();
+        int count = count(header);
+        long inStreams = 0;
+        long outStreams = 0;
+        for (int i = 0; i < count; i++) {
+            int flags = header.get() & 0xff;
+            if ((flags & CODER_ALTERNATIVES) != 0) {
+                throw corrupt();
+            }
+            Coder coder = new Coder();
+            coder.id = new byte[flags & CODER_ID_SIZE];
+            header.get(coder.id);
+            if ((flags & CODER_COMPLEX) != 0) {
+                inStreams += number(header);
+                outStreams += number(header);
+            } else {
+                inStreams++;
+                outStreams++;
+            }
+            if ((flags & CODER_PROPERTIES) != 0) {
+                coder.properties = new byte[count(header)];
+                header.get(coder.properties);
+            }
+            folder.coders.add(coder);
+        }
+        if (outStreams <= 0 || outStreams > header.remaining() || inStreams < outStreams - 1) {
+            throw corrupt();
+        }
+        // bind pairs connect all but one output stream, the remaining input streams are packed streams
+        for (long i = 1; i < outStreams; i++) {
+            number(header);
+            number(header);
+        }
+        long packedStreams = inStreams - (outStreams - 1);
+        if (packedStreams > 1) {
+            for (long i = 0; i < packedStreams; i++) {
+                number(header);
+            }
+        }
+        folder.unpackSizes = new long[(int) outStreams];
+        return folder;
+    }
+
+    /**
+     * @return which of the digests are defined, their values are skipped.
+     */
+    private static BitSet skipDigests(final ByteBuffer header, final int count) throws IOException {
+        BitSet defined;
+        if (header.get() == 0) {
+            defined = bits(header, count);
+        } else {
+            defined = new BitSet(count);
+            defined.set(0, count);
+        }
+        skip(header, 4L * defined.cardinality());
+        return defined;
+    }
+
+    private static BitSet bits(final ByteBuffer header, final int count) {
+        BitSet bits = new BitSet(count);
+        int cache = 0;
+        int mask = 0;
+        for (int i = 0; i < count; i++) {
+            if (mask == 0) {
+                mask = 0x80;
+                cache = header.get() & 0xff;
+            }
+            bits.set(i, (cache & mask) != 0);
+            mask >>>= 1;
+        }
+        return bits;
+    }
+
+    /**
+     * @return number in the variable length encoding of 7z, the leading one bits of the first byte tell the number of
+     * following little endian bytes.
+     */
+    private static long number(final ByteBuffer header) {
+        int first = header.get() & 0xff;
+        int mask = 0x80;
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            if ((first & mask) == 0) {
+                return value | (long) (first & (mask - 1)) << (8 * i);
+            }
+            value |= (long) (header.get() & 0xff) << (8 * i);
+            mask >>>= 1;
+        }
+        return value;
+    }
+
+    /**
+     * @return number of items, each of which occupies at least one byte of the remaining header.
+     */
+    private static int count(final ByteBuffer header) throws IOException {
+        long count = number(header);
+        if (count < 0 || count > header.remaining()) {
+            throw corrupt();
+        }
+        return (int) count;
+    }
+
+    private static void skip(final ByteBuffer header, final long length) throws IOException {
+        if (length < 0 || length > header.remaining()) {
+            throw corrupt();
+        }
+        header.position(header.position() + (int) length);
+    }
+
+    private static void expect(final int type, final int expected) throws IOException {
+        if (type != expected) {
+            throw corrupt();
+        }
+    }
+
+    private static IOException corrupt() {
+        return new IOException("Corrupt 7z header");
+    }
+
+    private static ByteBuffer read(final SeekableByteChannel channel, final long at, final int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        channel.position(at);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Unexpected end of 7z archive");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Packed streams and folders of a streams info block.
+     */
+    private static final class Streams {
+        private long packPos;
+        private long[] packSizes = new long[0];
+        private final List<Folder> folders = new ArrayList<>();
+    }
+
+    /**
+     * Coders of a folder and the number of entries stored in it.
+     */
+    private static final class Folder {
+        private final List<Coder> coders = new ArrayList<>();
+        private long[] unpackSizes = new long[0];
+        private long unpackStreams = 1;
+        private boolean hasCrc;
+    }
+
+    /**
+     * Method id and properties of a coder.
+     */
+    private static final class Coder {
+        private byte[] id;
+        private byte[] properties = new byte[0];
+    }
+}
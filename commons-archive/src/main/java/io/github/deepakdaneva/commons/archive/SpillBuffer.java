@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Random access byte store which keeps its content in pooled memory chunks until a threshold is reached and continues
+ * in a temporary file afterwards. Content is written once and can then be read at any position any number of times.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class SpillBuffer implements Closeable {
+
+    /** Size of a single memory mapped region of a spill file. */
+    private static final int MAPPED_REGION_SIZE = 1 << 30;
+
+    private final long threshold;
+    private final Path tempDirectory;
+    private final BufferPool pool;
+    private final List<byte[]> chunks = new ArrayList<>();
+    private long length;
+    private Path file;
+    private FileChannel channel;
+    private ByteBuffer[] regions;
+    private boolean closed;
+
+    /**
+     * @param threshold maximum number of bytes kept in memory.
+     * @param tempDirectory directory of the spill file or null for the default temporary directory.
+     * @param pool pool from which memory chunks are taken.
+     */
+    SpillBuffer(final long threshold, final Path tempDirectory, final BufferPool pool) {
+        this.threshold = threshold;
+        this.tempDirectory = tempDirectory;
+        this.pool = pool;
+    }
+
+    /**
+     * Copies the remaining content of the input stream into this buffer, memory chunks are filled directly by the input
+     * stream so no intermediate copy is made.
+     *
+     * @param in stream to drain.
+     * @return number of bytes transferred.
+     * @throws IOException if reading or spilling fails.
+     */
+    long transferFrom(final InputStream in) throws IOException {
+        final long start = length;
+        final int chunkSize = pool.chunkSize();
+        while (Objects.isNull(channel)) {
+            final int offset = (int) (length % chunkSize);
+            final long memoryLeft = threshold - length;
+            if (memoryLeft <= 0) {
+                // probe for more data before paying for a spill file
+                final byte[] probe = pool.acquire();
+                try {
+                    final int n = in.read(probe);
+                    if (n < 0) {
+                        return length - start;
+                    }
+                    spill();
+                    writeToChannel(probe, 0, n);
+                } finally {
+                    pool.release(probe);
+                }
+                break;
+            }
+            if (offset == 0 && chunks.size() * (long) chunkSize == length) {
+                chunks.add(pool.acquire());
+            }
+            final byte[] chunk = chunks.get(chunks.size() - 1);
+            final int n = in.read(chunk, offset, (int) Math.min(chunkSize - offset, memoryLeft));
+            if (n < 0) {
+                return length - start;
+            }
+            length += n;
+        }
+        final byte[] transfer = pool.acquire();
+        try {
+            int n;
+            while ((n = in.read(transfer)) >= 0) {
+                writeToChannel(transfer, 0, n);
+            }
+        } finally {
+            pool.release(transfer);
+        }
+        return length - start;
+    }
+
+    /**
+     * Maps the spill file into memory so that subsequent reads are served from the mapping, has no effect if the content
+     * is still in memory.
+     *
+     * @throws IOException if mapping fails.
+     */
+    void map() throws IOException {
+        if (Objects.isNull(channel) || Objects.nonNull(regions)) {
+            return;
+        }
+        final int count = (int) ((length + MAPPED_REGION_SIZE - 1) / MAPPED_REGION_SIZE);
+        final ByteBuffer[] mapped = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            final long position = (long) i * MAPPED_REGION_SIZE;
+            mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPED_REGION_SIZE, length - position));
+        }
+        regions = mapped;
+    }
+
+    /**
+     * Reads up to {@code len} bytes starting at the given position.
+     *
+     * @param position position in the buffer.
+     * @param b destination array.
+     * @param off offset in the destination array.
+     * @param len maximum number of bytes to read.
+     * @return number of bytes read or -1 if position is at or after the end of the buffer.
+     * @throws IOException if reading the spill file fails.
+     */
+    int read(final long position, final byte[] b, final int off, final int len) throws IOException {
+        if (closed) {
+            throw new IOException("Buffer already closed");
+        }
+        if (position >= length) {
+            return -1;
+        }
+        final int n = (int) Math.min(len, length - position);
+        if (Objects.nonNull(regions)) {
+            final ByteBuffer region = regions[(int) (position / MAPPED_REGION_SIZE)];
+            final int regionOffset = (int) (position % MAPPED_REGION_SIZE);
+            final int count = Math.min(n, region.limit() - regionOffset);
+            region.position(regionOffset);
+            region.get(b, off, count);
+            return count;
+        } else if (Objects.nonNull(channel)) {
+            final ByteBuffer target = ByteBuffer.wrap(b, off, n);
+            int read;
+            do {
+                read = channel.read(target, position);
+            } while (read == 0);
+            return read;
+        } else {
+            final int chunkSize = pool.chunkSize();
+            final int chunkOffset = (int) (position % chunkSize);
+            final int count = Math.min(n, chunkSize - chunkOffset);
+            System.arraycopy(chunks.get((int) (position / chunkSize)), chunkOffset, b, off, count);
+            return count;
+        }
+    }
+
+    /**
+     * @return number of bytes stored in this buffer.
+     */
+    long length() {
+        return length;
+    }
+
+    /**
+     * @return true if the content has been spilled to a temporary file.
+     */
+    boolean isSpilled() {
+        return Objects.nonNull(channel);
+    }
+
+    /**
+     * Releases the memory chunks back to the pool and deletes the spill file.
+     *
+     * @throws IOException if the spill file could not be deleted.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        ArchiveMetrics metrics = ArchiveUtil.getMetrics();
+        if (!ArchiveMetrics.NOOP.equals(metrics)) {
+            metrics.bufferReleased(length, isSpilled());
+        }
+        releaseChunks();
+        regions = null;
+        if (Objects.nonNull(channel)) {
+            try {
+                channel.close();
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private void spill() throws IOException {
+        file = Objects.isNull(tempDirectory) ? Files.createTempFile("commons-archive-", ".spill") : Files.createTempFile(tempDirectory, "commons-archive-", ".spill");
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        final int chunkSize = pool.chunkSize();
+        final long inMemory = length;
+        length = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            writeToChannel(chunks.get(i), 0, (int) Math.min(chunkSize, inMemory - (long) i * chunkSize));
+        }
+        releaseChunks();
+    }
+
+    private void writeToChannel(final byte[] b, final int off, final int len) throws IOException {
+        final ByteBuffer source = ByteBuffer.wrap(b, off, len);
+        while (source.hasRemaining()) {
+            length += channel.write(source, length);
+        }
+    }
+
+    private void releaseChunks() {
+        chunks.forEach(pool::release);
+        chunks.clear();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Re-readable InputStream of a buffered archive entry. Small entries are served from pooled memory chunks, large
+ * entries from a temporary file (optionally memory mapped) which is deleted when this stream is closed. Closing the
+ * stream also returns the memory chunks to the pool, so it should always be closed after use.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public final class SpillableEntryInputStream extends InputStream {
+
+    private final SpillBuffer buffer;
+    private final EntryDigests digests;
+    private final byte[] single = new byte[1];
+    private long position;
+    private long mark;
+
+    /**
+     * @param buffer filled buffer which is owned by this stream from now on.
+     */
+    SpillableEntryInputStream(final SpillBuffer buffer) {
+        this(buffer, null);
+    }
+
+    /**
+     * @param buffer filled buffer which is owned by this stream from now on.
+     * @param digests computed while the buffer was filled, null if none were requested.
+     */
+    SpillableEntryInputStream(final SpillBuffer buffer, final EntryDigests digests) {
+        this.buffer = buffer;
+        this.digests = digests;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        final int n = buffer.read(position, b, off, len);
+        if (n > 0) {
+            position += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        final long skipped = Math.max(0, Math.min(n, buffer.length() - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, buffer.length() - position);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    /**
+     * Marks the current position, the read limit is ignored because the whole entry stays available.
+     *
+     * @param readlimit ignored.
+     */
+    @Override
+    public synchronized void mark(final int readlimit) {
+        mark = position;
+    }
+
+    @Override
+    public synchronized void reset() {
+        position = mark;
+    }
+
+    /**
+     * @return total number of bytes of the entry.
+     */
+    public long length() {
+        return buffer.length();
+    }
+
+    /**
+     * @return true if the entry was larger than the spill threshold and is backed by a temporary file.
+     */
+    public boolean isSpilled() {
+        return buffer.isSpilled();
+    }
+
+    /**
+     * @return digests computed while the entry was buffered or null if none were requested.
+     */
+    public EntryDigests getDigests() {
+        return digests;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.close();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.apache.commons.compress.archivers.zip.UnsupportedZipFeatureException;
+
+/**
+ * Pass-through view of the current entry of an archive stream. Reads go straight to the archive stream, encrypted zip
+ * entries are reported as {@link PasswordProtectedArchiveException} and closing this stream leaves the archive stream
+ * open.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class StreamingEntryInputStream extends FilterInputStream {
+
+    /**
+     * @param currentArcInStream archive stream positioned at the current entry.
+     */
+    StreamingEntryInputStream(final InputStream currentArcInStream) {
+        super(currentArcInStream);
+    }
+
+    @Override
+    public int read() throws IOException {
+        try {
+            return in.read();
+        } catch (UnsupportedZipFeatureException e) {
+            throw ArchiveUtil.translate(e);
+        }
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        try {
+            return in.read(b, off, len);
+        } catch (UnsupportedZipFeatureException e) {
+            throw ArchiveUtil.translate(e);
+        }
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        try {
+            return in.skip(n);
+        } catch (UnsupportedZipFeatureException e) {
+            throw ArchiveUtil.translate(e);
+        }
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        // the archive stream is owned by the caller
+    }
+}
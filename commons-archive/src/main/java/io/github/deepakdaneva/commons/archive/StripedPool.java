@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free and allocation-free pool of reusable objects. Slots are split into stripes selected by the id of
+ * the calling thread, so threads mostly work on their own stripe and do not contend with each other. Each stripe is
+ * padded to a full cache line to avoid false sharing between stripes. Only when its own stripe is empty (or full) a
+ * thread searches the other stripes, so a single thread can still use the whole capacity.
+ *
+ * @param <T> type of the pooled objects.
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class StripedPool<T> {
+
+    /** Minimum distance of two stripes in slots, 16 references fill a 64 byte cache line. */
+    private static final int MIN_STRIDE = 16;
+
+    private final AtomicReferenceArray<T> slots;
+    private final int stripeMask;
+    private final int perStripe;
+    private final int stride;
+
+    /**
+     * @param stripes number of stripes, rounded up to a power of two.
+     * @param capacity maximum number of pooled objects of all stripes together.
+     */
+    StripedPool(final int stripes, final int capacity) {
+        int stripeCount = Integer.highestOneBit(Math.max(1, stripes) * 2 - 1);
+        while (stripeCount > 1 && stripeCount > capacity) {
+            stripeCount >>= 1;
+        }
+        this.stripeMask = stripeCount - 1;
+        this.perStripe = Math.max(0, capacity) / stripeCount;
+        this.stride = Math.max(perStripe, MIN_STRIDE);
+        this.slots = new AtomicReferenceArray<>(perStripe == 0 ? 0 : stripeCount * stride);
+    }
+
+    /**
+     * @return stripes rounded up to a power of two, as used by the pools of this package by default.
+     */
+    static int defaultStripes() {
+        return Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+    }
+
+    /**
+     * @return pooled object or null if the pool is empty.
+     */
+    T poll() {
+        int stripe = stripe();
+        for (int s = 0; s <= stripeMask; s++) {
+            int base = ((stripe + s) & stripeMask) * stride;
+            for (int i = 0; i < perStripe; i++) {
+                T value = slots.get(base + i);
+                if (Objects.nonNull(value) && slots.compareAndSet(base + i, value, null)) {
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param value which is not used by the caller anymore.
+     * @return false if the pool is full and the value has not been pooled.
+     */
+    boolean offer(final T value) {
+        int stripe = stripe();
+        for (int s = 0; s <= stripeMask; s++) {
+            int base = ((stripe + s) & stripeMask) * stride;
+            for (int i = 0; i < perStripe; i++) {
+                if (Objects.isNull(slots.get(base + i)) && slots.compareAndSet(base + i, null, value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("deprecation")
+    private int stripe() {
+        // Thread.threadId() is not available on Java 11
+        long id = Thread.currentThread().getId();
+        return (int) (id ^ (id >>> 32)) & stripeMask;
+    }
+}
@@ -0,0 +1,470 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.input.CloseShieldInputStream;
+
+/**
+ * Splits an xz stream, including concatenated streams, into frames of single blocks. Blocks can only be located if
+ * their headers record the compressed and uncompressed size, as written by multi threaded xz compressors. A frame is
+ * decoded as a synthetic stream consisting of a stream header, the block, an index with a single record and a stream
+ * footer, so the check of the block and both sizes are verified by the regular decoder. The index of the original
+ * stream is verified against the block headers.
+ * <p>
+ * If the first block of a stream does not record its sizes or exceeds the maximum frame size, for example when the
+ * output of a single threaded compressor follows the output of a multi threaded one, this stream and the rest of the
+ * input are decoded sequentially. If such a block follows blocks of the same stream which were already handed out,
+ * the rest of the stream is decoded block by block on the consuming thread, every block streamed through its own
+ * synthetic stream so its size is not bounded, and the streams which follow are decoded sequentially. Only a block
+ * without recorded sizes in the middle of a stream can not be located this way, multi threaded compressors record
+ * the sizes of all blocks and single threaded ones of none.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+final class XZFrameSplitter implements FrameSplitter {
+
+    private static final byte[] HEADER_MAGIC = { (byte) 0xfd, '7', 'z', 'X', 'Z', 0 };
+    private static final byte[] FOOTER_MAGIC = { 'Y', 'Z' };
+    private static final int STREAM_HEADER_SIZE = 12;
+    private static final int SIZES_PRESENT = 0xc0;
+    private static final int MARK_LIMIT = STREAM_HEADER_SIZE + 1024;
+
+    private final InputStream in;
+    private final int maxFrameSize;
+    private final List<long[]> records = new ArrayList<>();
+    private int checkType;
+    private boolean inStream;
+    private long position;
+    /** Header of the block at which the rest of the current stream falls back to block by block decoding. */
+    private byte[] pendingHeader;
+
+    /**
+     * @param in xz stream.
+     * @param maxFrameSize maximum number of compressed bytes of a block.
+     */
+    XZFrameSplitter(final InputStream in, final int maxFrameSize) {
+        this.in = new BufferedInputStream(in);
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    @Override
+    public Frame next() throws IOException {
+        while (true) {
+            if (!inStream && !readStreamHeader()) {
+                return null;
+            }
+            int indicator = readUnsigned();
+            if (indicator != 0) {
+                return readBlock(indicator);
+            }
+            readIndex();
+            readFooter();
+            inStream = false;
+        }
+    }
+
+    @Override
+    public InputStream decode(final Frame frame) throws IOException {
+        return new XZCompressorInputStream(new ByteArrayInputStream(frame.getData()));
+    }
+
+    @Override
+    public Frame merge(final Frame first, final Frame second, final IOException failure) throws IOException {
+        // block boundaries are recorded, a failing block is corrupt
+        throw failure;
+    }
+
+    @Override
+    public InputStream sequential(final List<Frame> frames) throws IOException {
+        if (Objects.nonNull(pendingHeader)) {
+            return new RemainderInputStream();
+        }
+        return new XZCompressorInputStream(in, true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private Frame readBlock(final int indicator) throws IOException {
+        long blockPosition = position - 1;
+        byte[] header = readBlockHeader(indicator);
+        long[] sizes = (header[1] & SIZES_PRESENT) == SIZES_PRESENT ? readSizes(header) : null;
+        long blockSize = sizes == null ? -1 : header.length + ((sizes[0] + 3) & ~3L) + checkSize();
+        if (sizes == null || blockSize > maxFrameSize) {
+            if (records.isEmpty()) {
+                // back to the start of this stream, which is marked while its header is read
+                in.reset();
+            } else {
+                pendingHeader = header;
+            }
+            return new Frame(new byte[0], 0, 0, true);
+        }
+        byte[] block = new byte[(int) blockSize];
+        System.arraycopy(header, 0, block, 0, header.length);
+        readFully(block, header.length, block.length - header.length);
+        long unpaddedSize = header.length + sizes[0] + checkSize();
+        records.add(new long[] { unpaddedSize, sizes[1] });
+        return new Frame(synthetic(block, unpaddedSize, sizes[1]), blockPosition * 8, position * 8, false);
+    }
+
+    private byte[] readBlockHeader(final int indicator) throws IOException {
+        byte[] header = new byte[(indicator + 1) * 4];
+        header[0] = (byte) indicator;
+        readFully(header, 1, header.length - 1);
+        CRC32 crc = new CRC32();
+        crc.update(header, 0, header.length - 4);
+        if (crc.getValue() != readIntLE(header, header.length - 4)) {
+            throw new IOException("Invalid xz block header");
+        }
+        return header;
+    }
+
+    private int checkSize() {
+        return checkType == 0 ? 0 : 4 << ((checkType - 1) / 3);
+    }
+
+    /**
+     * @return compressed and uncompressed size recorded in the block header.
+     */
+    private static long[] readSizes(final byte[] header) throws IOException {
+        int[] offset = { 2 };
+        return new long[] { readVarLong(header, offset), readVarLong(header, offset) };
+    }
+
+    private byte[] synthetic(final byte[] block, final long unpaddedSize, final long uncompressedSize) {
+        byte[] header = syntheticHeader();
+        byte[] trailer = syntheticTrailer(unpaddedSize, uncompressedSize);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(header.length + block.length + trailer.length);
+        out.write(header, 0, header.length);
+        out.write(block, 0, block.length);
+        out.write(trailer, 0, trailer.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * @return stream header with the check type of the current stream.
+     */
+    private byte[] syntheticHeader() {
+        byte[] flags = { 0, (byte) checkType };
+        ByteArrayOutputStream out = new ByteArrayOutputStream(STREAM_HEADER_SIZE);
+        out.write(HEADER_MAGIC, 0, HEADER_MAGIC.length);
+        out.write(flags, 0, flags.length);
+        writeIntLE(out, crc32(flags));
+        return out.toByteArray();
+    }
+
+    /**
+     * @return index with a single record and the stream footer.
+     */
+    private byte[] syntheticTrailer(final long unpaddedSize, final long uncompressedSize) {
+        byte[] flags = { 0, (byte) checkType };
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        index.write(0);
+        writeVarLong(index, 1);
+        writeVarLong(index, unpaddedSize);
+        writeVarLong(index, uncompressedSize);
+        while (index.size() % 4 != 0) {
+            index.write(0);
+        }
+        writeIntLE(index, crc32(index.toByteArray()));
+        ByteArrayOutputStream footer = new ByteArrayOutputStream();
+        writeIntLE(footer, index.size() / 4 - 1);
+        footer.write(flags, 0, flags.length);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(index.size() + STREAM_HEADER_SIZE);
+        out.write(index.toByteArray(), 0, index.size());
+        writeIntLE(out, crc32(footer.toByteArray()));
+        out.write(footer.toByteArray(), 0, footer.size());
+        out.write(FOOTER_MAGIC, 0, FOOTER_MAGIC.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads the next stream header, skipping stream padding.
+     *
+     * @return false at the end of the input.
+     */
+    private boolean readStreamHeader() throws IOException {
+        byte[] header = new byte[STREAM_HEADER_SIZE];
+        while (true) {
+            // a stream whose first block can not be split is decoded sequentially from here
+            in.mark(MARK_LIMIT);
+            int first = in.read();
+            if (first < 0 && position > 0) {
+                return false;
+            }
+            if (first == 0 && position > 0) {
+                // stream padding
+                position++;
+                byte[] padding = new byte[3];
+                readFully(padding, 0, padding.length);
+                continue;
+            }
+            if (first < 0) {
+                throw new IOException("Input is not in the XZ format");
+            }
+            position++;
+            header[0] = (byte) first;
+            readFully(header, 1, header.length - 1);
+            break;
+        }
+        for (int i = 0; i < HEADER_MAGIC.length; i++) {
+            if (header[i] != HEADER_MAGIC[i]) {
+                throw new IOException("Input is not in the XZ format");
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(header, 6, 2);
+        if (header[6] != 0 || (header[7] & 0xf0) != 0 || crc.getValue() != readIntLE(header, 8)) {
+            throw new IOException("Unsupported options in XZ stream header");
+        }
+        checkType = header[7] & 0x0f;
+        records.clear();
+        inStream = true;
+        return true;
+    }
+
+    private void readIndex() throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(0);
+        long start = position - 1;
+        long count = readVarLong(crc);
+        if (count != records.size()) {
+            throw new IOException("XZ index does not match the blocks");
+        }
+        for (long[] record : records) {
+            if (readVarLong(crc) != record[0] || readVarLong(crc) != record[1]) {
+                throw new IOException("XZ index does not match the blocks");
+            }
+        }
+        while ((position - start) % 4 != 0) {
+            int padding = readUnsigned();
+            if (padding != 0) {
+                throw new IOException("Invalid XZ index padding");
+            }
+            crc.update(padding);
+        }
+        byte[] stored = new byte[4];
+        readFully(stored, 0, stored.length);
+        if (crc.getValue() != readIntLE(stored, 0)) {
+            throw new IOException("XZ index is corrupt");
+        }
+    }
+
+    private void readFooter() throws IOException {
+        byte[] footer = new byte[STREAM_HEADER_SIZE];
+        readFully(footer, 0, footer.length);
+        CRC32 crc = new CRC32();
+        crc.update(footer, 4, 6);
+        if (crc.getValue() != readIntLE(footer, 0) || footer[10] != FOOTER_MAGIC[0] || footer[11] != FOOTER_MAGIC[1] || (footer[9] & 0x0f) != checkType) {
+            throw new IOException("XZ stream footer is corrupt");
+        }
+    }
+
+    private long readVarLong(final CRC32 crc) throws IOException {
+        long value = 0;
+        for (int i = 0; i < 9; i++) {
+            int b = readUnsigned();
+            crc.update(b);
+            value |= (long) (b & 0x7f) << (i * 7);
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid XZ variable length integer");
+    }
+
+    private static long readVarLong(final byte[] data, final int[] offset) throws IOException {
+        long value = 0;
+        for (int i = 0; i < 9 && offset[0] < data.length; i++) {
+            int b = data[offset[0]++] & 0xff;
+            value |= (long) (b & 0x7f) << (i * 7);
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid XZ variable length integer");
+    }
+
+    private static void writeVarLong(final ByteArrayOutputStream out, final long value) {
+        long remaining = value;
+        while (remaining >= 0x80) {
+            out.write((int) (remaining & 0x7f | 0x80));
+            remaining >>>= 7;
+        }
+        out.write((int) remaining);
+    }
+
+    private static void writeIntLE(final ByteArrayOutputStream out, final long value) {
+        for (int i = 0; i < 4; i++) {
+            out.write((int) (value >>> (i * 8)));
+        }
+    }
+
+    private static long readIntLE(final byte[] data, final int offset) {
+        return (data[offset] & 0xffL) | (data[offset + 1] & 0xffL) << 8 | (data[offset + 2] & 0xffL) << 16 | (data[offset + 3] & 0xffL) << 24;
+    }
+
+    private static long crc32(final byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    private int readUnsigned() throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Truncated XZ stream");
+        }
+        position++;
+        return b;
+    }
+
+    private void readFully(final byte[] data, final int offset, final int length) throws IOException {
+        if (IOUtils.read(in, data, offset, length) != length) {
+            throw new EOFException("Truncated XZ stream");
+        }
+        position += length;
+    }
+
+    /**
+     * Decodes the rest of the current stream block by block, starting with the pending block, and the following
+     * streams sequentially.
+     */
+    private final class RemainderInputStream extends InputStream {
+        private final byte[] single = new byte[1];
+        private InputStream decoder;
+        private BoundedInputStream block;
+        private long blockSize;
+        private long[] record;
+        private boolean following;
+        private boolean ended;
+
+        @Override
+        public int read() throws IOException {
+            int n = read(single, 0, 1);
+            return n <= 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (!ended) {
+                if (Objects.isNull(decoder)) {
+                    nextDecoder();
+                    continue;
+                }
+                int n = decoder.read(b, off, len);
+                if (n >= 0) {
+                    return n;
+                }
+                if (following) {
+                    ended = true;
+                } else {
+                    finishBlock();
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            ended = true;
+            if (Objects.nonNull(decoder)) {
+                decoder.close();
+            }
+        }
+
+        private void nextDecoder() throws IOException {
+            byte[] header = pendingHeader;
+            pendingHeader = null;
+            if (Objects.isNull(header)) {
+                int indicator = readUnsigned();
+                if (indicator == 0) {
+                    readIndex();
+                    readFooter();
+                    inStream = false;
+                    following = true;
+                    if (hasMoreStreams()) {
+                        decoder = new XZCompressorInputStream(in, true);
+                    } else {
+                        ended = true;
+                    }
+                    return;
+                }
+                header = readBlockHeader(indicator);
+            }
+            if ((header[1] & SIZES_PRESENT) != SIZES_PRESENT) {
+                throw new IOException("xz block without recorded sizes follows blocks which were decoded in parallel");
+            }
+            long[] sizes = readSizes(header);
+            blockSize = ((sizes[0] + 3) & ~3L) + checkSize();
+            record = new long[] { header.length + sizes[0] + checkSize(), sizes[1] };
+            block = new BoundedInputStream(CloseShieldInputStream.wrap(in), blockSize);
+            List<InputStream> parts = List.of(new ByteArrayInputStream(syntheticHeader()), new ByteArrayInputStream(header), block, new ByteArrayInputStream(syntheticTrailer(record[0], record[1])));
+            decoder = new XZCompressorInputStream(new SequenceInputStream(Collections.enumeration(parts)));
+        }
+
+        private void finishBlock() throws IOException {
+            // the synthetic trailer is only reached once the block has been read completely
+            if (block.getCount() != blockSize) {
+                throw new EOFException("Truncated XZ stream");
+            }
+            decoder.close();
+            decoder = null;
+            position += blockSize;
+            records.add(record);
+        }
+
+        /**
+         * Skips stream padding.
+         *
+         * @return false at the end of the input.
+         */
+        private boolean hasMoreStreams() throws IOException {
+            while (true) {
+                in.mark(4);
+                int first = in.read();
+                if (first < 0) {
+                    return false;
+                }
+                if (first != 0) {
+                    in.reset();
+                    return true;
+                }
+                byte[] padding = new byte[3];
+                readFully(padding, 0, padding.length);
+            }
+        }
+    }
+}
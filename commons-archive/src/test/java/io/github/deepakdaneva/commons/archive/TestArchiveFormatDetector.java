@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public class TestArchiveFormatDetector {
+
+    private static final Map<String, byte[]> ENTRIES = TestFixtures.entries("a.txt", "b.txt");
+
+    /**
+     * Test detection of generated archives and compressed tarballs
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testArchives() throws IOException, CompressorException, ArchiveException {
+        byte[] tar = TestFixtures.archive(ArchiveStreamFactory.TAR, ENTRIES);
+        assertDetected(ArchiveFormat.ZIP, TestFixtures.archive(ArchiveStreamFactory.ZIP, ENTRIES));
+        assertDetected(ArchiveFormat.TAR, tar);
+        assertDetected(ArchiveFormat.AR, TestFixtures.archive(ArchiveStreamFactory.AR, ENTRIES));
+        assertDetected(ArchiveFormat.CPIO, TestFixtures.archive(ArchiveStreamFactory.CPIO, ENTRIES));
+        assertDetected(ArchiveFormat.TAR_GZIP, TestFixtures.compress(CompressorStreamFactory.GZIP, tar));
+        assertDetected(ArchiveFormat.TAR_BZIP2, TestFixtures.compress(CompressorStreamFactory.BZIP2, tar));
+        assertDetected(ArchiveFormat.TAR_XZ, TestFixtures.compress(CompressorStreamFactory.XZ, tar));
+    }
+
+    /**
+     * Test detection of compressed tarballs whose first tar header is only decoded after more than 64 KiB of compressed
+     * data, i.e. full bzip2 blocks and LZMA2 chunks
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testLargeArchives() throws IOException, CompressorException, ArchiveException {
+        for (int size : new int[] {300 * 1024, 2 * 1024 * 1024}) {
+            byte[] tar = TestFixtures.archive(ArchiveStreamFactory.TAR, TestFixtures.largeEntries(2, size / 2));
+            assertDetected(ArchiveFormat.TAR_GZIP, TestFixtures.compress(CompressorStreamFactory.GZIP, tar));
+            assertDetected(ArchiveFormat.TAR_BZIP2, TestFixtures.compress(CompressorStreamFactory.BZIP2, tar));
+            assertDetected(ArchiveFormat.TAR_XZ, TestFixtures.compress(CompressorStreamFactory.XZ, tar));
+        }
+        // a window too small for the first bzip2 block reports the plain compressor
+        byte[] bzip2 = TestFixtures.compress(CompressorStreamFactory.BZIP2, TestFixtures.archive(ArchiveStreamFactory.TAR, TestFixtures.largeEntries(1, 1024 * 1024)));
+        Assertions.assertEquals(ArchiveFormat.BZIP2, ArchiveFormatDetector.detect(new BufferedInputStream(new ByteArrayInputStream(bzip2)), 64 * 1024));
+    }
+
+    /**
+     * Test detection of plain compressed streams
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     */
+    @Test
+    public void testCompressors() throws IOException, CompressorException {
+        byte[] text = "Hello World".getBytes(StandardCharsets.UTF_8);
+        assertDetected(ArchiveFormat.GZIP, TestFixtures.compress(CompressorStreamFactory.GZIP, text));
+        assertDetected(ArchiveFormat.BZIP2, TestFixtures.compress(CompressorStreamFactory.BZIP2, text));
+        assertDetected(ArchiveFormat.XZ, TestFixtures.compress(CompressorStreamFactory.XZ, text));
+        assertDetected(ArchiveFormat.LZMA, TestFixtures.compress(CompressorStreamFactory.LZMA, text));
+        assertDetected(ArchiveFormat.LZ4_FRAMED, TestFixtures.compress(CompressorStreamFactory.LZ4_FRAMED, text));
+        assertDetected(ArchiveFormat.SNAPPY_FRAMED, TestFixtures.compress(CompressorStreamFactory.SNAPPY_FRAMED, text));
+        assertDetected(ArchiveFormat.DEFLATE, TestFixtures.compress(CompressorStreamFactory.DEFLATE, text));
+        assertDetected(ArchiveFormat.UNKNOWN, text);
+        assertDetected(ArchiveFormat.UNKNOWN, new byte[0]);
+    }
+
+    /**
+     * Test detection of checked-in fixtures and opening them without a mime type
+     *
+     * @param tempDir temporary directory
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testOpenWithoutMimeType(@TempDir Path tempDir) throws IOException, CompressorException, ArchiveException {
+        Path sevenZ = TestFixtures.sevenZ(tempDir.resolve("test.7z"), ENTRIES);
+        assertDetected(ArchiveFormat.SEVEN_Z, Files.readAllBytes(sevenZ));
+        for (String file : new String[] { "testfiles/txt_file_zip", "testfiles/txt_file_tar_gz", "testfiles/txt_file_7z" }) {
+            InputStream is = new BufferedInputStream(new FileInputStream(TestConstants.TEST_FILES_PATH.resolve(file).toString()));
+            ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(is);
+            Assertions.assertEquals("txt_file", ais.getNextEntry().getName());
+            Assertions.assertEquals("Hello World", new String(IOUtils.toByteArray(ais), StandardCharsets.UTF_8));
+            IOUtils.closeQuietly(ais, is);
+        }
+        InputStream is = new BufferedInputStream(new FileInputStream(TestConstants.TEST_FILES_PATH.resolve("testfiles/txt_file").toString()));
+        Assertions.assertThrows(NotAnArchiveOrSupportedArchiveException.class, () -> ArchiveUtil.getArchiveInputStream(is));
+        IOUtils.closeQuietly(is);
+    }
+
+    private static void assertDetected(ArchiveFormat expected, byte[] content) throws IOException {
+        InputStream is = new BufferedInputStream(new ByteArrayInputStream(content));
+        Assertions.assertEquals(expected, ArchiveFormatDetector.detect(is));
+        Assertions.assertArrayEquals(content, IOUtils.toByteArray(is));
+    }
+}
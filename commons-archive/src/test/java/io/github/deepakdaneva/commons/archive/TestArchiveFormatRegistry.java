@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorInputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public class TestArchiveFormatRegistry {
+
+    private static final String FRAMED_MIME_TYPE = "application/x-test-framed";
+    private static final byte[] FRAMED_MAGIC = "CAXT".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Test that providers registered as a service are found by mime type and signature.
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testServiceProvider() throws IOException, CompressorException, ArchiveException {
+        ArchiveFormatRegistry registry = ArchiveFormatRegistry.getDefault();
+        Assertions.assertTrue(registry.forMimeType(" Application/X-Test-Framed; level=3") instanceof FramedProvider);
+        Assertions.assertEquals(ArchiveKind.COMPRESSOR, ArchiveUtil.getArchiveKind(FRAMED_MIME_TYPE));
+        Assertions.assertEquals(ArchiveKind.ARCHIVE, ArchiveUtil.getArchiveKind("application/zip"));
+        Assertions.assertNull(registry.forMimeType("text/plain"));
+
+        Map<String, byte[]> entries = TestFixtures.entries("a.txt", "b.txt");
+        byte[] framed = framed(TestFixtures.archive(ArchiveStreamFactory.TAR, entries));
+        Assertions.assertTrue(registry.forSignature(framed, framed.length) instanceof FramedProvider);
+        for (boolean detect : new boolean[] {true, false}) {
+            InputStream in = new BufferedInputStream(new ByteArrayInputStream(framed));
+            try (ArchiveInputStream ais = detect ? ArchiveUtil.getArchiveInputStream(in) : ArchiveUtil.getArchiveInputStream(in, FRAMED_MIME_TYPE)) {
+                Assertions.assertEquals("a.txt", ais.getNextEntry().getName());
+                Assertions.assertArrayEquals(entries.get("a.txt"), IOUtils.toByteArray(ais));
+                Assertions.assertEquals("b.txt", ais.getNextEntry().getName());
+            }
+        }
+        try (CompressorInputStream cis = ArchiveUtil.getCompressorInputStream(new BufferedInputStream(new ByteArrayInputStream(framed(entries.get("a.txt")))), null)) {
+            Assertions.assertArrayEquals(entries.get("a.txt"), IOUtils.toByteArray(cis));
+        }
+    }
+
+    /**
+     * Test that a provider with a higher priority replaces the built-in provider of a mime type.
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testPriority() throws IOException, CompressorException, ArchiveException {
+        FramedProvider lower = new FramedProvider(-1, "application/gzip");
+        FramedProvider higher = new FramedProvider(10, "application/gzip");
+        Assertions.assertEquals(BuiltInFormatProvider.COMPRESSOR, ArchiveFormatRegistry.builder().add(lower).build().forMimeType("application/gzip"));
+        ArchiveFormatRegistry registry = ArchiveFormatRegistry.builder().add(lower).add(higher).build();
+        Assertions.assertSame(higher, registry.forMimeType("application/gzip"));
+        Assertions.assertSame(higher, registry.getProviders().get(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ArchiveFormatRegistry.builder().add(new FramedProvider(0, "text/plain") {
+            @Override
+            public ArchiveKind getKind() {
+                return ArchiveKind.NONE;
+            }
+        }));
+
+        Map<String, byte[]> entries = TestFixtures.entries("a.txt");
+        byte[] framed = framed(TestFixtures.archive(ArchiveStreamFactory.TAR, entries));
+        ArchiveUtil.setFormatRegistry(registry);
+        try {
+            try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(framed)), "application/gzip")) {
+                Assertions.assertEquals("a.txt", ais.getNextEntry().getName());
+            }
+            try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(framed)), ArchiveFormat.TAR_GZIP)) {
+                Assertions.assertEquals("a.txt", ais.getNextEntry().getName());
+            }
+        } finally {
+            ArchiveUtil.setFormatRegistry(ArchiveFormatRegistry.getDefault());
+        }
+        Assertions.assertEquals(ArchiveFormatRegistry.getDefault(), ArchiveUtil.getFormatRegistry());
+    }
+
+    /**
+     * Test that a provider with a higher priority replaces the built-in compressor when limits are enforced and that the
+     * streams are measured.
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testPriorityWithLimits() throws IOException, CompressorException, ArchiveException {
+        Map<String, byte[]> entries = TestFixtures.entries("a.txt");
+        byte[] framed = framed(TestFixtures.archive(ArchiveStreamFactory.TAR, entries));
+        ArchiveLimits limits = ArchiveLimits.builder().maxEntries(1).build();
+        InMemoryArchiveMetrics metrics = new InMemoryArchiveMetrics();
+        ArchiveUtil.setFormatRegistry(ArchiveFormatRegistry.builder().add(new FramedProvider(10, "application/gzip")).build());
+        ArchiveUtil.setMetrics(metrics);
+        try {
+            try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(framed)), "application/gzip", limits)) {
+                Assertions.assertEquals("a.txt", ais.getNextEntry().getName());
+                Assertions.assertArrayEquals(entries.get("a.txt"), IOUtils.toByteArray(ais));
+            }
+            try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(framed)), ArchiveFormat.TAR_GZIP, limits)) {
+                Assertions.assertEquals("a.txt", ais.getNextEntry().getName());
+            }
+            try (CompressorInputStream cis = ArchiveUtil.getCompressorInputStream(new BufferedInputStream(new ByteArrayInputStream(framed("framed".getBytes(StandardCharsets.UTF_8)))), "gz", limits)) {
+                Assertions.assertEquals("framed", new String(IOUtils.toByteArray(cis), StandardCharsets.UTF_8));
+            }
+            Assertions.assertThrows(ArchiveLimitExceededException.class, () -> {
+                try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(framed)), ArchiveFormat.TAR_GZIP, ArchiveLimits.builder().maxEntryBytes(1).build())) {
+                    ais.getNextEntry();
+                    IOUtils.toByteArray(ais);
+                }
+            });
+        } finally {
+            ArchiveUtil.setMetrics(ArchiveMetrics.NOOP);
+            ArchiveUtil.setFormatRegistry(ArchiveFormatRegistry.getDefault());
+        }
+        Assertions.assertEquals(3, metrics.getArchives(ArchiveFormat.TAR_GZIP));
+        Assertions.assertEquals(1, metrics.getArchives(ArchiveFormat.GZIP));
+    }
+
+    private static byte[] framed(byte[] content) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        bos.write(FRAMED_MAGIC);
+        bos.write(content);
+        return bos.toByteArray();
+    }
+
+    /**
+     * Compressor provider of a test format which prefixes the content with a magic.
+     */
+    public static class FramedProvider implements ArchiveFormatProvider {
+        private final int priority;
+        private final String mimeType;
+
+        /**
+         * Constructor used by the service loader.
+         */
+        public FramedProvider() {
+            this(ArchiveFormatProvider.DEFAULT_PRIORITY, FRAMED_MIME_TYPE);
+        }
+
+        FramedProvider(int priority, String mimeType) {
+            this.priority = priority;
+            this.mimeType = mimeType;
+        }
+
+        @Override
+        public String getName() {
+            return "framed";
+        }
+
+        @Override
+        public ArchiveKind getKind() {
+            return ArchiveKind.COMPRESSOR;
+        }
+
+        @Override
+        public Set<String> getMimeTypes() {
+            return Set.of(mimeType);
+        }
+
+        @Override
+        public List<byte[]> getSignatures() {
+            return List.of(FRAMED_MAGIC);
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public CompressorInputStream createCompressorInputStream(InputStream inputStream) throws IOException {
+            if (inputStream.skip(FRAMED_MAGIC.length) != FRAMED_MAGIC.length) {
+                throw new IOException("Not a framed stream");
+            }
+            return new CompressorInputStream() {
+                @Override
+                public int read() throws IOException {
+                    return inputStream.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return inputStream.read(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    inputStream.close();
+                }
+            };
+        }
+    }
+}
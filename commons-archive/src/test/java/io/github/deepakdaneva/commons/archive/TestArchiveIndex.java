@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public class TestArchiveIndex {
+
+    /**
+     * Test that entries of a zip archive are opened through an index which has been written and read again.
+     *
+     * @param dir temporary directory.
+     * @throws IOException io excepion
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testZip(@TempDir Path dir) throws IOException, ArchiveException {
+        Map<String, byte[]> entries = TestFixtures.entries("a.txt", "dir/b.txt", "c.txt");
+        Path archive = Files.write(dir.resolve("test.zip"), TestFixtures.archive(ArchiveStreamFactory.ZIP, entries));
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ArchiveIndex.build(archive).write(bos);
+        ArchiveIndex index = ArchiveIndex.read(new ByteArrayInputStream(bos.toByteArray()));
+        Assertions.assertEquals(ArchiveFormat.ZIP, index.getFormat());
+        Assertions.assertEquals(3, index.getEntries().size());
+        assertContent(index, archive, entries);
+    }
+
+    /**
+     * Test that entries of a plain tar archive are opened at their offsets.
+     *
+     * @param dir temporary directory.
+     * @throws IOException io excepion
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testTar(@TempDir Path dir) throws IOException, ArchiveException {
+        Map<String, byte[]> entries = TestFixtures.entries("a.txt", "b.txt", "c.txt");
+        Path archive = Files.write(dir.resolve("test.tar"), TestFixtures.archive(ArchiveStreamFactory.TAR, entries));
+        ArchiveIndex index = ArchiveIndex.build(archive);
+        Assertions.assertEquals(ArchiveFormat.TAR, index.getFormat());
+        assertContent(index, archive, entries);
+    }
+
+    /**
+     * Test that entries of a tar.gz archive made of two gzip members are opened from the seek points of the index and
+     * extracted in one pass, with compressible and incompressible (stored deflate blocks) content.
+     *
+     * @param dir temporary directory.
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testTarGzip(@TempDir Path dir) throws IOException, CompressorException, ArchiveException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        Random random = new Random(13);
+        for (int i = 0; i < 40; i++) {
+            byte[] content;
+            if (i % 4 == 0) {
+                content = new byte[20000 + i];
+                random.nextBytes(content);
+            } else {
+                StringBuilder text = new StringBuilder();
+                for (int line = 0; line < 1000 + i * 50; line++) {
+                    text.append("entry ").append(i).append(" line ").append(line).append('\n');
+                }
+                content = text.toString().getBytes(StandardCharsets.UTF_8);
+            }
+            entries.put("entry-" + i + ".txt", content);
+        }
+        byte[] tar = TestFixtures.archive(ArchiveStreamFactory.TAR, entries);
+        // split in the middle of an entry into two gzip members
+        int split = tar.length / 2 + 100;
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        bos.write(TestFixtures.compress(CompressorStreamFactory.GZIP, Arrays.copyOfRange(tar, 0, split)));
+        bos.write(TestFixtures.compress(CompressorStreamFactory.GZIP, Arrays.copyOfRange(tar, split, tar.length)));
+        Path archive = Files.write(dir.resolve("test.tar.gz"), bos.toByteArray());
+
+        ArchiveIndex built = ArchiveIndex.build(archive, 16 * 1024);
+        Path indexFile = dir.resolve("test.tar.gz.idx");
+        built.write(indexFile);
+        ArchiveIndex index = ArchiveIndex.read(indexFile);
+        Assertions.assertEquals(ArchiveFormat.TAR_GZIP, index.getFormat());
+        Assertions.assertEquals(entries.size(), index.getEntries().size());
+        assertContent(index, archive, entries);
+        // read once from the start across both members
+        Path target = dir.resolve("out");
+        Assertions.assertEquals(entries.values().stream().mapToLong(b -> b.length).sum(), index.extractAll(archive, target));
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            Assertions.assertArrayEquals(entry.getValue(), Files.readAllBytes(target.resolve(entry.getKey())), entry.getKey());
+        }
+    }
+
+    /**
+     * Test that entries of zip, tar and tar.gz archives are extracted to files and channels.
+     *
+     * @param dir temporary directory.
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testExtract(@TempDir Path dir) throws IOException, CompressorException, ArchiveException {
+        Map<String, byte[]> entries = TestFixtures.entries("a.txt", "dir/b.txt", "dir/sub/c.txt");
+        byte[] tar = TestFixtures.archive(ArchiveStreamFactory.TAR, entries);
+        Path[] archives = {Files.write(dir.resolve("test.zip"), TestFixtures.archive(ArchiveStreamFactory.ZIP, entries)), Files.write(dir.resolve("test.tar"), tar), Files.write(dir.resolve("test.tar.gz"), TestFixtures.compress(CompressorStreamFactory.GZIP, tar))};
+        for (Path archive : archives) {
+            ArchiveIndex index = ArchiveIndex.build(archive);
+            Path target = dir.resolve(archive.getFileName() + ".out");
+            long total = index.extractAll(archive, target);
+            Assertions.assertEquals(entries.values().stream().mapToLong(b -> b.length).sum(), total, archive.toString());
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                Assertions.assertArrayEquals(entry.getValue(), Files.readAllBytes(target.resolve(entry.getKey())), entry.getKey());
+            }
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            Assertions.assertEquals(entries.get("dir/b.txt").length, index.extractTo(archive, index.getEntry("dir/b.txt"), Channels.newChannel(bos)));
+            Assertions.assertArrayEquals(entries.get("dir/b.txt"), bos.toByteArray());
+            Path single = dir.resolve(archive.getFileName() + ".a.txt");
+            index.extractTo(archive, "a.txt", single);
+            Assertions.assertArrayEquals(entries.get("a.txt"), Files.readAllBytes(single));
+        }
+        // layout written by tar -C dir .
+        Map<String, byte[]> dotted = new LinkedHashMap<>();
+        dotted.put("./", new byte[0]);
+        dotted.put("./dir/", new byte[0]);
+        dotted.putAll(TestFixtures.entries("./a.txt", "./dir/b.txt"));
+        byte[] dottedTar = TestFixtures.archive(ArchiveStreamFactory.TAR, dotted);
+        for (Path archive : List.of(Files.write(dir.resolve("dotted.tar"), dottedTar), Files.write(dir.resolve("dotted.tar.gz"), TestFixtures.compress(CompressorStreamFactory.GZIP, dottedTar)))) {
+            Path target = dir.resolve(archive.getFileName() + ".out");
+            Assertions.assertEquals(dotted.get("./a.txt").length + dotted.get("./dir/b.txt").length, ArchiveIndex.build(archive).extractAll(archive, target), archive.toString());
+            Assertions.assertArrayEquals(dotted.get("./a.txt"), Files.readAllBytes(target.resolve("a.txt")));
+            Assertions.assertArrayEquals(dotted.get("./dir/b.txt"), Files.readAllBytes(target.resolve("dir/b.txt")));
+        }
+        Path slip = Files.write(dir.resolve("slip.tar"), TestFixtures.archive(ArchiveStreamFactory.TAR, TestFixtures.entries("../evil.txt")));
+        Assertions.assertThrows(IOException.class, () -> ArchiveIndex.build(slip).extractAll(slip, dir.resolve("slip")));
+        Assertions.assertFalse(Files.exists(dir.resolve("evil.txt")));
+    }
+
+    /**
+     * Test that unknown names and an index of another archive are rejected.
+     *
+     * @param dir temporary directory.
+     * @throws IOException io excepion
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testInvalidLookups(@TempDir Path dir) throws IOException, ArchiveException {
+        Path archive = Files.write(dir.resolve("test.tar"), TestFixtures.archive(ArchiveStreamFactory.TAR, TestFixtures.entries("a.txt")));
+        ArchiveIndex index = ArchiveIndex.build(archive);
+        Assertions.assertNull(index.getEntry("missing.txt"));
+        Assertions.assertThrows(NoSuchFileException.class, () -> index.open(archive, "missing.txt"));
+        Path other = Files.write(dir.resolve("other.tar"), TestFixtures.archive(ArchiveStreamFactory.TAR, TestFixtures.entries("a.txt", "b.txt")));
+        Assertions.assertThrows(IOException.class, () -> index.open(other, "a.txt"));
+        Assertions.assertThrows(IOException.class, () -> ArchiveIndex.read(new ByteArrayInputStream("not an index".getBytes(StandardCharsets.UTF_8))));
+        Path text = Files.write(dir.resolve("test.txt"), "Hello World".getBytes(StandardCharsets.UTF_8));
+        Assertions.assertThrows(NotAnArchiveOrSupportedArchiveException.class, () -> ArchiveIndex.build(text));
+    }
+
+    private static void assertContent(ArchiveIndex index, Path archive, Map<String, byte[]> entries) throws IOException {
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            Assertions.assertEquals(entry.getValue().length, index.getEntry(entry.getKey()).getSize());
+            try (InputStream in = index.open(archive, entry.getKey())) {
+                Assertions.assertArrayEquals(entry.getValue(), IOUtils.toByteArray(in), entry.getKey());
+            }
+        }
+    }
+}
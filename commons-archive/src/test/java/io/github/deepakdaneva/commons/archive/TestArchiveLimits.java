@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Map;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public class TestArchiveLimits {
+
+    private static final byte[] ZEROS = new byte[4 * 1024 * 1024];
+
+    /**
+     * Test that a highly compressed gzip stream is stopped by the compression ratio and size limits
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     */
+    @Test
+    public void testCompressor() throws IOException, CompressorException {
+        byte[] bomb = TestFixtures.compress(CompressorStreamFactory.GZIP, ZEROS);
+        ArchiveLimits ratio = ArchiveLimits.builder().maxCompressionRatio(100).build();
+        Assertions.assertEquals(ArchiveLimitExceededException.Limit.COMPRESSION_RATIO, assertExceeded(() -> drain(ArchiveUtil.getCompressorInputStream(new ByteArrayInputStream(bomb), CompressorStreamFactory.GZIP, ratio))));
+        ArchiveLimits size = ArchiveLimits.builder().maxEntryBytes(ZEROS.length - 1).build();
+        Assertions.assertEquals(ArchiveLimitExceededException.Limit.ENTRY_BYTES, assertExceeded(() -> drain(ArchiveUtil.getCompressorInputStream(new ByteArrayInputStream(bomb), CompressorStreamFactory.GZIP, size))));
+        ArchiveLimits enough = ArchiveLimits.builder().maxEntryBytes(ZEROS.length).maxCompressionRatio(10000).build();
+        Assertions.assertEquals(ZEROS.length, drain(ArchiveUtil.getCompressorInputStream(new ByteArrayInputStream(bomb), CompressorStreamFactory.GZIP, enough)));
+    }
+
+    /**
+     * Test entry count, entry size and archive size limits of archives and compressed tarballs
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testArchive() throws IOException, CompressorException, ArchiveException {
+        byte[] zip = TestFixtures.archive(ArchiveStreamFactory.ZIP, Map.of("a.bin", ZEROS, "b.bin", ZEROS));
+        byte[] tarGz = TestFixtures.compress(CompressorStreamFactory.GZIP, TestFixtures.archive(ArchiveStreamFactory.TAR, Map.of("a.bin", ZEROS, "b.bin", ZEROS)));
+        for (byte[] archive : new byte[][] { zip, tarGz }) {
+            ArchiveFormat format = ArchiveFormatDetector.detect(new BufferedInputStream(new ByteArrayInputStream(archive)));
+            Assertions.assertEquals(ArchiveLimitExceededException.Limit.ENTRIES, assertExceeded(() -> readAll(ArchiveUtil.getArchiveInputStream(new ByteArrayInputStream(archive), format, ArchiveLimits.builder().maxEntries(1).build()))));
+            Assertions.assertEquals(ArchiveLimitExceededException.Limit.ENTRY_BYTES, assertExceeded(() -> readAll(ArchiveUtil.getArchiveInputStream(new ByteArrayInputStream(archive), format, ArchiveLimits.builder().maxEntryBytes(1024).build()))));
+            Assertions.assertEquals(ArchiveLimitExceededException.Limit.ARCHIVE_BYTES, assertExceeded(() -> readAll(ArchiveUtil.getArchiveInputStream(new ByteArrayInputStream(archive), format, ArchiveLimits.builder().maxArchiveBytes(ZEROS.length + 1).build()))));
+            Assertions.assertEquals(ArchiveLimitExceededException.Limit.COMPRESSION_RATIO, assertExceeded(() -> readAll(ArchiveUtil.getArchiveInputStream(new ByteArrayInputStream(archive), format, ArchiveLimits.builder().maxCompressionRatio(10).build()))));
+            // skipping entries of a compressed tarball still decodes them
+            ArchiveLimits limits = ArchiveLimits.builder().maxArchiveBytes(ZEROS.length).build();
+            Assertions.assertEquals(ArchiveLimitExceededException.Limit.ARCHIVE_BYTES, assertExceeded(() -> {
+                try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(new ByteArrayInputStream(archive), format, limits)) {
+                    while (ais.getNextEntry() != null) {
+                        IOUtils.skip(ais, Long.MAX_VALUE);
+                    }
+                }
+            }));
+            Assertions.assertEquals(2, readAll(ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(archive)), format.getMimeType(), ArchiveLimits.builder().maxEntries(2).maxEntryBytes(ZEROS.length).build())));
+        }
+    }
+
+    /**
+     * Test the nesting depth limit of the walker
+     *
+     * @param tempDir temporary directory
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testWalkerDepth(@TempDir Path tempDir) throws IOException, CompressorException, ArchiveException {
+        Path zip = TestArchiveWalker.nestedZip(tempDir);
+        ArchiveWalker walker = ArchiveWalker.builder().limits(ArchiveLimits.builder().maxDepth(1).build()).build();
+        Assertions.assertEquals(ArchiveLimitExceededException.Limit.DEPTH, assertExceeded(() -> walker.walk(zip, (entry, content) -> ArchiveVisitResult.CONTINUE)));
+        ArchiveWalker.builder().limits(ArchiveLimits.builder().maxDepth(2).maxEntries(10).build()).build().walk(zip, (entry, content) -> ArchiveVisitResult.CONTINUE);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ArchiveLimits.builder().maxCompressionRatio(0.5));
+    }
+
+    private static ArchiveLimitExceededException.Limit assertExceeded(Executable executable) {
+        return Assertions.assertThrows(ArchiveLimitExceededException.class, executable).getLimit();
+    }
+
+    private static long drain(InputStream is) throws IOException {
+        try (is) {
+            return IOUtils.copyLarge(is, NullOutputStream.INSTANCE);
+        }
+    }
+
+    private static int readAll(ArchiveInputStream ais) throws IOException {
+        int entries = 0;
+        try (ais) {
+            ArchiveEntry entry;
+            while ((entry = ais.getNextEntry()) != null) {
+                Assertions.assertNotNull(entry.getName());
+                IOUtils.copyLarge(ais, NullOutputStream.INSTANCE);
+                entries++;
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public class TestArchiveMetrics {
+
+    private static final Map<String, byte[]> ENTRIES = TestFixtures.entries("a.txt", "b.txt", "c.txt");
+
+    private final InMemoryArchiveMetrics metrics = new InMemoryArchiveMetrics();
+
+    /**
+     * Registers the in-memory metrics
+     */
+    @BeforeEach
+    public void setUp() {
+        ArchiveUtil.setMetrics(metrics);
+    }
+
+    /**
+     * Disables the metrics again
+     */
+    @AfterEach
+    public void tearDown() {
+        ArchiveUtil.setMetrics(ArchiveMetrics.NOOP);
+    }
+
+    /**
+     * Test bytes, entries and time reported for archives, compressed tarballs, compressor streams and 7z files
+     *
+     * @param tempDir temporary directory
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testArchiveRead(@TempDir Path tempDir) throws IOException, CompressorException, ArchiveException {
+        byte[] zip = TestFixtures.archive(ArchiveStreamFactory.ZIP, ENTRIES);
+        long bytesOut = readAll(ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(zip)), "application/zip"));
+        Assertions.assertEquals(1, metrics.getArchives(ArchiveFormat.ZIP));
+        Assertions.assertEquals(3, metrics.getEntries(ArchiveFormat.ZIP));
+        Assertions.assertEquals(bytesOut, metrics.getBytesOut(ArchiveFormat.ZIP));
+        Assertions.assertTrue(metrics.getBytesIn(ArchiveFormat.ZIP) > 0 && metrics.getBytesIn(ArchiveFormat.ZIP) <= zip.length);
+        Assertions.assertTrue(metrics.getDecompressionNanos(ArchiveFormat.ZIP) > 0);
+
+        byte[] tarGz = TestFixtures.compress(CompressorStreamFactory.GZIP, TestFixtures.archive(ArchiveStreamFactory.TAR, ENTRIES));
+        readAll(ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(tarGz))));
+        Assertions.assertEquals(3, metrics.getEntries(ArchiveFormat.TAR_GZIP));
+        Assertions.assertEquals(tarGz.length, metrics.getBytesIn(ArchiveFormat.TAR_GZIP));
+        Assertions.assertEquals(0, metrics.getArchives(ArchiveFormat.GZIP));
+
+        byte[] text = "Hello World".getBytes(StandardCharsets.UTF_8);
+        try (InputStream is = ArchiveUtil.getCompressorInputStream(new BufferedInputStream(new ByteArrayInputStream(TestFixtures.compress(CompressorStreamFactory.BZIP2, text))), null)) {
+            Assertions.assertArrayEquals(text, IOUtils.toByteArray(is));
+        }
+        Assertions.assertEquals(text.length, metrics.getBytesOut(ArchiveFormat.BZIP2));
+
+        Path sevenZ = TestFixtures.sevenZ(tempDir.resolve("test.7z"), ENTRIES);
+        readAll(ArchiveUtil.getArchiveInputStream(sevenZ, "application/x-7z-compressed"));
+        Assertions.assertEquals(3, metrics.getEntries(ArchiveFormat.SEVEN_Z));
+        Assertions.assertEquals(sevenZ.toFile().length(), metrics.getBytesIn(ArchiveFormat.SEVEN_Z));
+    }
+
+    /**
+     * Test detection failures, password protected entries and buffer high-water marks
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testFailuresAndBuffers() throws IOException, CompressorException, ArchiveException {
+        InputStream text = new BufferedInputStream(new ByteArrayInputStream("Hello World".getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertThrows(NotAnArchiveOrSupportedArchiveException.class, () -> ArchiveUtil.getArchiveInputStream(text));
+        Assertions.assertEquals(ArchiveFormat.UNKNOWN, ArchiveUtil.detectFormat(text));
+        Assertions.assertThrows(NotAnArchiveOrSupportedArchiveException.class, () -> ArchiveUtil.getCompressorInputStream(text, null));
+        Assertions.assertEquals(3, metrics.getDetectionFailures());
+
+        byte[] zip = TestFixtures.archive(ArchiveStreamFactory.ZIP, ENTRIES);
+        // flag the first entry as encrypted in its local file header
+        zip[6] |= 1;
+        try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(zip)), ArchiveFormat.ZIP)) {
+            ais.getNextEntry();
+            Assertions.assertThrows(PasswordProtectedArchiveException.class, () -> ArchiveUtil.getEntryInputStream(ais, EntryStreamOptions.DEFAULT));
+        }
+        Assertions.assertEquals(1, metrics.getPasswordProtected(ArchiveFormat.ZIP));
+
+        byte[] content = new byte[100_000];
+        try (InputStream entry = ArchiveUtil.getEntryInputStream(new ByteArrayInputStream(content), EntryStreamOptions.builder().spillThreshold(1024).build())) {
+            Assertions.assertEquals(content.length, IOUtils.toByteArray(entry).length);
+        }
+        Assertions.assertEquals(content.length, metrics.getBufferHighWaterMark());
+        Assertions.assertEquals(1, metrics.getSpilledBuffers());
+        metrics.reset();
+        Assertions.assertEquals(0, metrics.getBufferHighWaterMark());
+    }
+
+    private static long readAll(ArchiveInputStream ais) throws IOException {
+        long bytes = 0;
+        try (ais) {
+            while (ais.getNextEntry() != null) {
+                bytes += IOUtils.toByteArray(ais).length;
+            }
+        }
+        return bytes;
+    }
+}
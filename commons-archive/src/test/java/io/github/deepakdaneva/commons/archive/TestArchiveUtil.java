@@ -13,15 +13,28 @@
 package io.github.deepakdaneva.commons.archive;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
 import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
 import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /**
  * @author Deepak Kumar Jangir
@@ -122,4 +135,219 @@ public class TestArchiveUtil {
         });
         IOUtils.closeQuietly(is);
     }
+
+    /**
+     * Test {@link EntryStreamMode#STREAMING} entry stream of {@code 'application/zip'} file
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testStreamingEntry() throws IOException, CompressorException, ArchiveException {
+        InputStream is = new BufferedInputStream(new FileInputStream(TestConstants.TEST_FILES_PATH.resolve("testfiles/txt_file_zip").toString()));
+        ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(is, "application/zip");
+        Assertions.assertNotNull(ais.getNextEntry());
+        InputStream entry = ArchiveUtil.getEntryInputStream(ais, EntryStreamOptions.STREAMING);
+        Assertions.assertEquals("Hello World", new String(IOUtils.toByteArray(entry), StandardCharsets.UTF_8));
+        entry.close();
+        Assertions.assertNull(ais.getNextEntry());
+        IOUtils.closeQuietly(ais, is);
+    }
+
+    /**
+     * Test buffered entry streams which are kept in memory or spilled to a temporary file
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testBufferedEntry() throws IOException, CompressorException, ArchiveException {
+        for (EntryStreamOptions options : List.of(EntryStreamOptions.DEFAULT, EntryStreamOptions.builder().spillThreshold(4).build(), EntryStreamOptions.builder().mode(EntryStreamMode.MAPPED).spillThreshold(0).build())) {
+            InputStream is = new BufferedInputStream(new FileInputStream(TestConstants.TEST_FILES_PATH.resolve("testfiles/txt_file_tar_gz").toString()));
+            ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(is, "application/gzip");
+            Assertions.assertNotNull(ais.getNextEntry());
+            SpillableEntryInputStream entry = (SpillableEntryInputStream) ArchiveUtil.getEntryInputStream(ais, options);
+            Assertions.assertNull(ais.getNextEntry());
+            Assertions.assertEquals(11, entry.length());
+            Assertions.assertEquals(options.getSpillThreshold() < 11, entry.isSpilled());
+            entry.mark(0);
+            Assertions.assertEquals("Hello World", new String(IOUtils.toByteArray(entry), StandardCharsets.UTF_8));
+            entry.reset();
+            Assertions.assertEquals('H', entry.read());
+            Assertions.assertEquals("ello World", new String(IOUtils.toByteArray(entry), StandardCharsets.UTF_8));
+            IOUtils.closeQuietly(entry, ais, is);
+        }
+    }
+
+    /**
+     * Test that the entry stream of the single argument overload is re-readable without being closed
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testUnclosedEntry() throws IOException, CompressorException, ArchiveException {
+        try (InputStream is = new BufferedInputStream(new FileInputStream(TestConstants.TEST_FILES_PATH.resolve("testfiles/txt_file_tar_gz").toString())); ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(is, "application/gzip")) {
+            Assertions.assertNotNull(ais.getNextEntry());
+            InputStream entry = ArchiveUtil.getEntryInputStream(ais);
+            // callers of this overload do not close the stream, so it must not hold pooled chunks
+            Assertions.assertFalse(entry instanceof SpillableEntryInputStream);
+            Assertions.assertEquals(11, entry.available());
+            entry.mark(0);
+            Assertions.assertEquals("Hello World", new String(IOUtils.toByteArray(entry), StandardCharsets.UTF_8));
+            entry.reset();
+            Assertions.assertEquals("Hello World", new String(IOUtils.toByteArray(entry), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Test {@code 'application/x-7z-compressed'} file read in place, through a channel and spilled to a temporary file
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void test7ZipSeekable() throws IOException, CompressorException, ArchiveException {
+        Path path = TestConstants.TEST_FILES_PATH.resolve("testfiles/txt_file_7z");
+        List<ArchiveInputStream> aisList = new ArrayList<>();
+        aisList.add(ArchiveUtil.getArchiveInputStream(path, "application/x-7z-compressed"));
+        aisList.add(ArchiveUtil.getArchiveInputStream(FileChannel.open(path), "application/x-7z-compressed"));
+        aisList.add(new SevenZArchiveInputStream(new BufferedInputStream(new FileInputStream(path.toString())), 0));
+        for (ArchiveInputStream ais : aisList) {
+            Assertions.assertEquals("txt_file", ais.getNextEntry().getName());
+            Assertions.assertEquals("Hello World", new String(IOUtils.toByteArray(ais), StandardCharsets.UTF_8));
+            Assertions.assertNull(ais.getNextEntry());
+        }
+        ArchiveUtil.closeQuietly(aisList);
+        Assertions.assertThrows(NotAnArchiveOrSupportedArchiveException.class, () -> ArchiveUtil.getArchiveInputStream(TestConstants.TEST_FILES_PATH.resolve("testfiles/txt_file"), "application/x-7z-compressed"));
+    }
+
+    /**
+     * Test mime type classification ignoring case, whitespace and parameters
+     */
+    @Test
+    public void testMimeTypeKind() {
+        Assertions.assertEquals(ArchiveKind.ARCHIVE, ArchiveUtil.getArchiveKind("application/zip"));
+        Assertions.assertEquals(ArchiveKind.ARCHIVE, ArchiveUtil.getArchiveKind(" Application/ZIP ; charset=binary"));
+        Assertions.assertEquals(ArchiveKind.SEVENZ, ArchiveUtil.getArchiveKind("application/x-7z-compressed;"));
+        Assertions.assertEquals(ArchiveKind.RAR, ArchiveUtil.getArchiveKind("APPLICATION/X-RAR-COMPRESSED"));
+        Assertions.assertEquals(ArchiveKind.COMPRESSOR, ArchiveUtil.getArchiveKind("application/gzip"));
+        Assertions.assertEquals(ArchiveKind.NONE, ArchiveUtil.getArchiveKind("application/zipx"));
+        Assertions.assertEquals(ArchiveKind.NONE, ArchiveUtil.getArchiveKind("text/plain"));
+        Assertions.assertEquals(ArchiveKind.NONE, ArchiveUtil.getArchiveKind(""));
+        Assertions.assertEquals(ArchiveKind.NONE, ArchiveUtil.getArchiveKind(null));
+        Assertions.assertTrue(ArchiveUtil.isArchiveMimeType("application/x-rar-compressed"));
+        Assertions.assertTrue(ArchiveUtil.isAnyArchiveMimeType("application/x-xz; foo=bar"));
+        Assertions.assertFalse(ArchiveUtil.isCompressorMimeType("application/zip"));
+        Assertions.assertTrue(ArchiveUtil.is7zMimeType("application/x-7z-compressed"));
+    }
+
+    /**
+     * Test listing the entries of zip, 7z, tar and tar.gz files without reading their content
+     *
+     * @param dir temporary directory.
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testListEntries(@TempDir Path dir) throws IOException, CompressorException, ArchiveException {
+        Map<String, byte[]> entries = TestFixtures.entries("a.txt", "dir/b.txt");
+        byte[] tar = TestFixtures.archive(ArchiveStreamFactory.TAR, entries);
+        List<Path> archives = new ArrayList<>();
+        archives.add(Files.write(dir.resolve("test.zip"), TestFixtures.archive(ArchiveStreamFactory.ZIP, entries)));
+        archives.add(TestFixtures.sevenZ(dir.resolve("test.7z"), entries));
+        archives.add(Files.write(dir.resolve("test.tar"), tar));
+        archives.add(Files.write(dir.resolve("test.tar.gz"), TestFixtures.compress(CompressorStreamFactory.GZIP, tar)));
+        for (Path archive : archives) {
+            List<ArchiveEntryInfo> infos = ArchiveUtil.listEntries(archive);
+            Assertions.assertEquals(2, infos.size(), archive.toString());
+            Assertions.assertEquals("a.txt", infos.get(0).getName());
+            Assertions.assertEquals("dir/b.txt", infos.get(1).getName());
+            Assertions.assertEquals(entries.get("dir/b.txt").length, infos.get(1).getSize());
+            Assertions.assertFalse(infos.get(1).isEncrypted());
+            Assertions.assertFalse(infos.get(1).isDirectory());
+        }
+        Assertions.assertNotNull(ArchiveUtil.listEntries(archives.get(0)).get(0).getLastModified());
+        Assertions.assertThrows(NotAnArchiveOrSupportedArchiveException.class, () -> ArchiveUtil.listEntries(TestConstants.TEST_FILES_PATH.resolve("testfiles/txt_file")));
+    }
+
+    /**
+     * Test that the current entry of an archive stream is written to a file.
+     *
+     * @param dir temporary directory.
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testExtractTo(@TempDir Path dir) throws IOException, CompressorException, ArchiveException {
+        Map<String, byte[]> entries = TestFixtures.entries("a.txt", "b.txt");
+        try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(TestFixtures.archive(ArchiveStreamFactory.ZIP, entries))))) {
+            ArchiveEntry entry;
+            while (Objects.nonNull(entry = ais.getNextEntry())) {
+                Path target = dir.resolve(entry.getName());
+                Assertions.assertEquals(entries.get(entry.getName()).length, ArchiveUtil.extractTo(ais, target));
+                Assertions.assertArrayEquals(entries.get(entry.getName()), Files.readAllBytes(target));
+            }
+        }
+    }
+
+    /**
+     * Test that streams are probed and opened without exceptions for inputs which are not archives.
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testProbe() throws IOException, CompressorException, ArchiveException {
+        byte[] zip = TestFixtures.archive(ArchiveStreamFactory.ZIP, TestFixtures.entries("a.txt"));
+        byte[] tar = TestFixtures.archive(ArchiveStreamFactory.TAR, TestFixtures.entries("a.txt"));
+        byte[] text = "Hello World, this is not an archive".getBytes(StandardCharsets.UTF_8);
+        byte[] gzip = TestFixtures.compress(CompressorStreamFactory.GZIP, text);
+
+        ArchiveProbe probe = ArchiveUtil.probe(new BufferedInputStream(new ByteArrayInputStream(zip)));
+        Assertions.assertEquals(ArchiveFormat.ZIP, probe.getFormat());
+        Assertions.assertTrue(probe.isArchive());
+        Assertions.assertFalse(probe.isCompressed());
+        probe = ArchiveUtil.probe(new BufferedInputStream(new ByteArrayInputStream(TestFixtures.compress(CompressorStreamFactory.GZIP, tar))));
+        Assertions.assertEquals(ArchiveFormat.TAR_GZIP, probe.getFormat());
+        Assertions.assertTrue(probe.isArchive());
+        Assertions.assertTrue(probe.isCompressed());
+        probe = ArchiveUtil.probe(new BufferedInputStream(new ByteArrayInputStream(gzip)));
+        Assertions.assertFalse(probe.isArchive());
+        Assertions.assertTrue(probe.isCompressed());
+        Assertions.assertSame(ArchiveProbe.UNRECOGNIZED, ArchiveUtil.probe(new BufferedInputStream(new ByteArrayInputStream(text))));
+        // large compressed tarballs need more than one bzip2 block or LZMA2 chunk to decode their first header
+        byte[] largeTar = TestFixtures.archive(ArchiveStreamFactory.TAR, TestFixtures.largeEntries(5, 512 * 1024));
+        for (String compressorName : new String[] {CompressorStreamFactory.BZIP2, CompressorStreamFactory.XZ}) {
+            byte[] compressed = TestFixtures.compress(compressorName, largeTar);
+            Assertions.assertTrue(ArchiveUtil.probe(new BufferedInputStream(new ByteArrayInputStream(compressed))).isArchive(), compressorName);
+            try (ArchiveInputStream ais = ArchiveUtil.tryGetArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(compressed))).orElseThrow()) {
+                int count = 0;
+                while (Objects.nonNull(ais.getNextEntry())) {
+                    count++;
+                }
+                Assertions.assertEquals(5, count);
+            }
+        }
+
+        try (ArchiveInputStream ais = ArchiveUtil.tryGetArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(zip))).orElseThrow()) {
+            Assertions.assertEquals("a.txt", ais.getNextEntry().getName());
+        }
+        Assertions.assertTrue(ArchiveUtil.tryGetArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(text))).isEmpty());
+        Assertions.assertTrue(ArchiveUtil.tryGetArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(gzip))).isEmpty());
+        Assertions.assertArrayEquals(text, IOUtils.toByteArray(ArchiveUtil.tryGetCompressorInputStream(new BufferedInputStream(new ByteArrayInputStream(gzip))).orElseThrow()));
+        Assertions.assertTrue(ArchiveUtil.tryGetCompressorInputStream(new BufferedInputStream(new ByteArrayInputStream(zip))).isEmpty());
+        Assertions.assertNull(ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(text)), "application/zip", true));
+
+        // where an exception is still raised it does not carry a stack trace
+        NotAnArchiveOrSupportedArchiveException e = Assertions.assertThrows(NotAnArchiveOrSupportedArchiveException.class, () -> ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(text))));
+        Assertions.assertEquals(0, e.getStackTrace().length);
+    }
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public class TestArchiveWalker {
+
+    /**
+     * Creates {@code outer.zip} containing {@code a.txt} and {@code inner.tar.gz}, which contains {@code b.txt} and
+     * {@code deep.7z} containing {@code c.txt}.
+     */
+    static Path nestedZip(Path tempDir) throws IOException, ArchiveException, CompressorException {
+        Map<String, byte[]> deep = TestFixtures.entries("c.txt");
+        Map<String, byte[]> inner = TestFixtures.entries("b.txt");
+        inner.put("deep.7z", Files.readAllBytes(TestFixtures.sevenZ(tempDir.resolve("deep.7z"), deep)));
+        Map<String, byte[]> outer = TestFixtures.entries("a.txt");
+        outer.put("inner.tar.gz", TestFixtures.compress(CompressorStreamFactory.GZIP, TestFixtures.archive(ArchiveStreamFactory.TAR, inner)));
+        Path path = tempDir.resolve("outer.zip");
+        Files.write(path, TestFixtures.archive(ArchiveStreamFactory.ZIP, outer));
+        return path;
+    }
+
+    /**
+     * Test walking through all nested levels
+     *
+     * @param tempDir temporary directory
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testNestedWalk(@TempDir Path tempDir) throws IOException, CompressorException, ArchiveException {
+        Path zip = nestedZip(tempDir);
+        Map<String, String> visited = new LinkedHashMap<>();
+        ArchiveVisitor visitor = (entry, content) -> {
+            visited.put(entry.getPath() + "@" + entry.getDepth(), new String(IOUtils.toByteArray(content), StandardCharsets.UTF_8));
+            return ArchiveVisitResult.CONTINUE;
+        };
+        ArchiveWalker.builder().build().walk(zip, visitor);
+        Assertions.assertEquals(Map.of("a.txt@0", "content of a.txt", "inner.tar.gz!/b.txt@1", "content of b.txt", "inner.tar.gz!/deep.7z!/c.txt@2", "content of c.txt"), visited);
+
+        visited.clear();
+        try (InputStream in = new BufferedInputStream(new ByteArrayInputStream(Files.readAllBytes(zip)))) {
+            ArchiveWalker.builder().maxDepth(1).inMemoryThreshold(0).build().walk(in, visitor);
+        }
+        Assertions.assertEquals(3, visited.size());
+        Assertions.assertTrue(visited.containsKey("inner.tar.gz!/deep.7z@1"));
+    }
+
+    /**
+     * Test visitor results and the total bytes limit
+     *
+     * @param tempDir temporary directory
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testVisitResults(@TempDir Path tempDir) throws IOException, CompressorException, ArchiveException {
+        Path zip = nestedZip(tempDir);
+        Map<String, ArchiveFormat> nested = new LinkedHashMap<>();
+        ArchiveWalker.builder().build().walk(zip, new ArchiveVisitor() {
+            @Override
+            public ArchiveVisitResult visitEntry(ArchiveWalkEntry entry, InputStream content) {
+                return ArchiveVisitResult.TERMINATE;
+            }
+
+            @Override
+            public ArchiveVisitResult preVisitArchive(ArchiveWalkEntry entry, ArchiveFormat format) {
+                nested.put(entry.getPath(), format);
+                return ArchiveVisitResult.SKIP_SUBTREE;
+            }
+        });
+        Assertions.assertTrue(nested.isEmpty());
+
+        int[] count = new int[1];
+        ArchiveWalker.builder().build().walk(zip, new ArchiveVisitor() {
+            @Override
+            public ArchiveVisitResult visitEntry(ArchiveWalkEntry entry, InputStream content) {
+                count[0]++;
+                return ArchiveVisitResult.CONTINUE;
+            }
+
+            @Override
+            public ArchiveVisitResult preVisitArchive(ArchiveWalkEntry entry, ArchiveFormat format) {
+                nested.put(entry.getPath(), format);
+                return ArchiveVisitResult.SKIP_SUBTREE;
+            }
+        });
+        Assertions.assertEquals(Map.of("inner.tar.gz", ArchiveFormat.TAR_GZIP), nested);
+        Assertions.assertEquals(2, count[0]);
+
+        Assertions.assertThrows(ArchiveLimitExceededException.class, () -> ArchiveWalker.builder().maxTotalBytes(100).build().walk(zip, (entry, content) -> ArchiveVisitResult.CONTINUE));
+    }
+
+    /**
+     * Test that 7z archives are opened through the library, large compressed tarballs are walked and encrypted 7z
+     * archives are reported as password protected
+     *
+     * @param tempDir temporary directory
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testFormats(@TempDir Path tempDir) throws IOException, CompressorException, ArchiveException {
+        Path tarBzip2 = Files.write(tempDir.resolve("large.tar.bz2"), TestFixtures.compress(CompressorStreamFactory.BZIP2, TestFixtures.archive(ArchiveStreamFactory.TAR, TestFixtures.largeEntries(3, 512 * 1024))));
+        int[] count = new int[1];
+        ArchiveWalker.builder().build().walk(tarBzip2, (entry, content) -> {
+            count[0]++;
+            return ArchiveVisitResult.CONTINUE;
+        });
+        Assertions.assertEquals(3, count[0]);
+
+        Path encrypted = Files.write(tempDir.resolve("encrypted.7z"), TestFixtures.encryptedSevenZ());
+        Assertions.assertThrows(PasswordProtectedArchiveException.class, () -> ArchiveWalker.builder().build().walk(encrypted, (entry, content) -> ArchiveVisitResult.CONTINUE));
+        Map<String, byte[]> outer = TestFixtures.entries("a.txt");
+        outer.put("encrypted.7z", TestFixtures.encryptedSevenZ());
+        Path zip = Files.write(tempDir.resolve("outer.zip"), TestFixtures.archive(ArchiveStreamFactory.ZIP, outer));
+        Assertions.assertThrows(PasswordProtectedArchiveException.class, () -> ArchiveWalker.builder().build().walk(zip, (entry, content) -> ArchiveVisitResult.CONTINUE));
+
+        InMemoryArchiveMetrics metrics = new InMemoryArchiveMetrics();
+        ArchiveUtil.setMetrics(metrics);
+        try {
+            ArchiveWalker.builder().build().walk(nestedZip(tempDir), (entry, content) -> ArchiveVisitResult.CONTINUE);
+            ArchiveWalker.builder().build().walk(TestFixtures.sevenZ(tempDir.resolve("test.7z"), TestFixtures.entries("a.txt")), (entry, content) -> ArchiveVisitResult.CONTINUE);
+        } finally {
+            ArchiveUtil.setMetrics(ArchiveMetrics.NOOP);
+        }
+        Assertions.assertEquals(2, metrics.getArchives(ArchiveFormat.SEVEN_Z));
+    }
+}
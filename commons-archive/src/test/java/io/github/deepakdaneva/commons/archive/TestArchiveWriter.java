@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tukaani.xz.SeekableFileInputStream;
+import org.tukaani.xz.SeekableXZInputStream;
+
+/**
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public class TestArchiveWriter {
+
+    private static final byte[] CONTENT = lines(20000);
+    private static ExecutorService executor;
+
+    /**
+     * Creates the executor for parallel compression.
+     */
+    @BeforeAll
+    public static void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    /**
+     * Shuts the executor down.
+     */
+    @AfterAll
+    public static void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Test that every writable format is read back with all kinds of added entries.
+     *
+     * @param dir temporary directory.
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testFormats(@TempDir Path dir) throws IOException, CompressorException, ArchiveException {
+        Path file = Files.write(dir.resolve("file.txt"), "content of file".getBytes(StandardCharsets.UTF_8));
+        for (ArchiveFormat format : List.of(ArchiveFormat.ZIP, ArchiveFormat.TAR, ArchiveFormat.TAR_GZIP, ArchiveFormat.TAR_BZIP2, ArchiveFormat.TAR_XZ, ArchiveFormat.SEVEN_Z)) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (ArchiveOutput archive = ArchiveWriter.builder().format(format).build().open(bos)) {
+                archive.addDirectory("dir");
+                archive.addEntry("dir/bytes.txt", "content of bytes".getBytes(StandardCharsets.UTF_8));
+                archive.addEntry("stream.txt", new ByteArrayInputStream(CONTENT));
+                archive.addEntry("sized.txt", 5, new ByteArrayInputStream("sized".getBytes(StandardCharsets.UTF_8)));
+                archive.addEntry("file.txt", file);
+            }
+            Map<String, byte[]> entries = read(dir, format, bos.toByteArray());
+            Assertions.assertEquals(List.of("dir", "dir/bytes.txt", "stream.txt", "sized.txt", "file.txt"), List.copyOf(entries.keySet()), format.name());
+            Assertions.assertEquals("content of bytes", new String(entries.get("dir/bytes.txt"), StandardCharsets.UTF_8));
+            Assertions.assertArrayEquals(CONTENT, entries.get("stream.txt"), format.name());
+            Assertions.assertEquals("sized", new String(entries.get("sized.txt"), StandardCharsets.UTF_8));
+            Assertions.assertEquals("content of file", new String(entries.get("file.txt"), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Test that multi-MB output of every writable format is detected by the probe and read back without a format hint.
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testProbeRoundTrip() throws IOException, CompressorException, ArchiveException {
+        Map<String, byte[]> expected = TestFixtures.largeEntries(2, 1024 * 1024);
+        for (ArchiveFormat format : List.of(ArchiveFormat.ZIP, ArchiveFormat.TAR, ArchiveFormat.TAR_GZIP, ArchiveFormat.TAR_BZIP2, ArchiveFormat.TAR_XZ, ArchiveFormat.SEVEN_Z)) {
+            // compressed tarballs are also written with parallel compression which produces independent blocks
+            for (int parallelism : format.isCompressedTar() ? new int[] {1, 3} : new int[] {1}) {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                try (ArchiveOutput archive = ArchiveWriter.builder().format(format).parallelism(parallelism).executor(executor).build().open(bos)) {
+                    for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+                        archive.addEntry(entry.getKey(), entry.getValue());
+                    }
+                }
+                String message = format.name() + " with parallelism " + parallelism;
+                InputStream in = new BufferedInputStream(new ByteArrayInputStream(bos.toByteArray()));
+                Assertions.assertEquals(format, ArchiveUtil.probe(in).getFormat(), message);
+                Map<String, byte[]> entries = new LinkedHashMap<>();
+                try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(in)) {
+                    ArchiveEntry entry;
+                    while ((entry = ais.getNextEntry()) != null) {
+                        entries.put(entry.getName(), IOUtils.toByteArray(ais));
+                    }
+                }
+                Assertions.assertEquals(List.copyOf(expected.keySet()), List.copyOf(entries.keySet()), message);
+                expected.forEach((name, content) -> Assertions.assertArrayEquals(content, entries.get(name), message));
+            }
+        }
+    }
+
+    /**
+     * Test that zip entries deflated in parallel are written in the order they were added.
+     *
+     * @param dir temporary directory.
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testParallelZip(@TempDir Path dir) throws IOException, CompressorException, ArchiveException {
+        Path zip = dir.resolve("test.zip");
+        Map<String, byte[]> expected = new LinkedHashMap<>();
+        try (ArchiveOutput archive = ArchiveWriter.builder().format(ArchiveFormat.ZIP).parallelism(3).executor(executor).spillThreshold(1024).build().open(zip)) {
+            for (int i = 0; i < 20; i++) {
+                byte[] content = lines(i * 300);
+                expected.put("entry-" + i + ".txt", content);
+                if (i % 2 == 0) {
+                    archive.addEntry("entry-" + i + ".txt", content);
+                } else {
+                    archive.addEntry("entry-" + i + ".txt", new ByteArrayInputStream(content));
+                }
+            }
+        }
+        Map<String, byte[]> entries = read(dir, ArchiveFormat.ZIP, Files.readAllBytes(zip));
+        Assertions.assertEquals(List.copyOf(expected.keySet()), List.copyOf(entries.keySet()));
+        expected.forEach((name, content) -> Assertions.assertArrayEquals(content, entries.get(name), name));
+    }
+
+    /**
+     * Test that gzip and xz streams compressed in parallel are read by sequential and parallel decoders.
+     *
+     * @param dir temporary directory.
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     */
+    @Test
+    public void testParallelCompressors(@TempDir Path dir) throws IOException, CompressorException {
+        ArchiveWriter.Builder builder = ArchiveWriter.builder().parallelism(3).executor(executor).blockSize(16 * 1024);
+        ParallelDecompression parallel = ParallelDecompression.builder().executor(executor).parallelism(3).frameSize(1024).build();
+
+        byte[] gzip = compress(builder.format(ArchiveFormat.GZIP).build(), CONTENT);
+        Assertions.assertArrayEquals(CONTENT, IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(gzip))));
+        Assertions.assertArrayEquals(CONTENT, IOUtils.toByteArray(ArchiveUtil.getCompressorInputStream(new BufferedInputStream(new ByteArrayInputStream(gzip)), CompressorStreamFactory.GZIP)));
+        Assertions.assertArrayEquals(new byte[0], IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compress(builder.build(), new byte[0])))));
+
+        Path xz = Files.write(dir.resolve("test.xz"), compress(builder.format(ArchiveFormat.XZ).build(), CONTENT));
+        try (SeekableXZInputStream in = new SeekableXZInputStream(new SeekableFileInputStream(xz.toFile()))) {
+            Assertions.assertEquals((CONTENT.length + 16 * 1024 - 1) / (16 * 1024), in.getBlockCount());
+            Assertions.assertArrayEquals(CONTENT, IOUtils.toByteArray(in));
+        }
+        try (InputStream in = ArchiveUtil.getCompressorInputStream(new BufferedInputStream(Files.newInputStream(xz)), CompressorStreamFactory.XZ, parallel)) {
+            Assertions.assertArrayEquals(CONTENT, IOUtils.toByteArray(in));
+        }
+    }
+
+    /**
+     * Test the validation of the configuration.
+     */
+    @Test
+    public void testInvalidConfiguration() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ArchiveWriter.builder().compressionLevel(10));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ArchiveWriter.builder().parallelism(0));
+        Assertions.assertThrows(IllegalStateException.class, () -> ArchiveWriter.builder().format(ArchiveFormat.GZIP).build().open(new ByteArrayOutputStream()));
+        Assertions.assertThrows(IllegalStateException.class, () -> ArchiveWriter.builder().format(ArchiveFormat.ZIP).build().openCompressor(new ByteArrayOutputStream()));
+        Assertions.assertEquals(ArchiveFormat.TAR_GZIP, ArchiveWriter.builder().mimeType("application/gzip").build().getFormat());
+    }
+
+    private static byte[] compress(ArchiveWriter writer, byte[] content) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (OutputStream out = writer.openCompressor(bos)) {
+            out.write(content);
+        }
+        return bos.toByteArray();
+    }
+
+    private static Map<String, byte[]> read(Path dir, ArchiveFormat format, byte[] archive) throws IOException, CompressorException, ArchiveException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        Path path = Files.write(dir.resolve("read-" + format.name()), archive);
+        try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(path, format.getMimeType())) {
+            ArchiveEntry entry;
+            while ((entry = ais.getNextEntry()) != null) {
+                String name = entry.isDirectory() && entry.getName().endsWith("/") ? entry.getName().substring(0, entry.getName().length() - 1) : entry.getName();
+                entries.put(name, IOUtils.toByteArray(ais));
+            }
+        }
+        return entries;
+    }
+
+    private static byte[] lines(int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
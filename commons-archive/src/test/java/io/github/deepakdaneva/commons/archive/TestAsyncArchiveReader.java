@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public class TestAsyncArchiveReader {
+
+    private static final Map<String, byte[]> ENTRIES = TestFixtures.entries("a.txt", "b.txt", "c.txt");
+
+    /**
+     * Test publishing zip, tar.gz and 7z files in small chunks
+     *
+     * @param tempDir temporary directory
+     * @throws Exception if publishing fails
+     */
+    @Test
+    public void testPublish(@TempDir Path tempDir) throws Exception {
+        Path zip = Files.write(tempDir.resolve("test.zip"), TestFixtures.archive(ArchiveStreamFactory.ZIP, ENTRIES));
+        Path tgz = Files.write(tempDir.resolve("test.tgz"), TestFixtures.compress(CompressorStreamFactory.GZIP, TestFixtures.archive(ArchiveStreamFactory.TAR, ENTRIES)));
+        Path sevenZ = TestFixtures.sevenZ(tempDir.resolve("test.7z"), ENTRIES);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            AsyncArchiveReader reader = AsyncArchiveReader.builder().executor(executor).chunkSize(5).build();
+            for (Path archive : new Path[] { zip, tgz, sevenZ }) {
+                CollectingSubscriber subscriber = new CollectingSubscriber(1);
+                reader.publish(archive).subscribe(subscriber);
+                Map<String, byte[]> contents = subscriber.done.get(10, TimeUnit.SECONDS);
+                Assertions.assertEquals(new ArrayList<>(ENTRIES.keySet()), new ArrayList<>(contents.keySet()));
+                ENTRIES.forEach((name, content) -> Assertions.assertArrayEquals(content, contents.get(name)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test that chunks are only read on demand and that cancelling closes the archive
+     *
+     * @throws Exception if publishing fails
+     */
+    @Test
+    public void testBackpressure() throws Exception {
+        byte[] zip = TestFixtures.archive(ArchiveStreamFactory.ZIP, ENTRIES);
+        AtomicBoolean closed = new AtomicBoolean();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AsyncArchiveReader reader = AsyncArchiveReader.builder().executor(executor).chunkSize(1).build();
+            CollectingSubscriber subscriber = new CollectingSubscriber(0);
+            reader.publish(() -> ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(zip) {
+                @Override
+                public void close() throws IOException {
+                    closed.set(true);
+                    super.close();
+                }
+            }))).subscribe(subscriber);
+            subscriber.subscription.request(2);
+            executor.submit(() -> null).get();
+            Assertions.assertEquals(2, subscriber.chunks.size());
+            Assertions.assertTrue(subscriber.chunks.get(0).isFirst());
+            Assertions.assertFalse(closed.get());
+            subscriber.subscription.cancel();
+            executor.submit(() -> null).get();
+            Assertions.assertTrue(closed.get());
+            Assertions.assertEquals(2, subscriber.chunks.size());
+            Assertions.assertFalse(subscriber.done.isDone());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test that requests made within onSubscribe are not served before it returned, even by a synchronous executor
+     *
+     * @throws Exception if publishing fails
+     */
+    @Test
+    public void testSubscribeOrder() throws Exception {
+        byte[] zip = TestFixtures.archive(ArchiveStreamFactory.ZIP, ENTRIES);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (Executor e : List.<Executor> of(Runnable::run, executor)) {
+                AsyncArchiveReader reader = AsyncArchiveReader.builder().executor(e).chunkSize(1).build();
+                for (int i = 0; i < 20; i++) {
+                    CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+                    reader.publish(() -> ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(zip)))).subscribe(subscriber);
+                    Assertions.assertEquals(ENTRIES.keySet(), subscriber.done.get(10, TimeUnit.SECONDS).keySet());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test the future variant and failures signalled to subscribers
+     *
+     * @throws IOException io excepion
+     * @throws ArchiveException archive exception
+     * @throws InterruptedException if interrupted while waiting
+     * @throws ExecutionException if processing fails
+     */
+    @Test
+    public void testProcess() throws IOException, ArchiveException, InterruptedException, ExecutionException {
+        byte[] tar = TestFixtures.archive(ArchiveStreamFactory.TAR, ENTRIES);
+        AsyncArchiveReader reader = AsyncArchiveReader.builder().build();
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        CompletableFuture<Long> future = reader.process(() -> ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(tar))), (entry, content) -> IOUtils.toByteArray(content), (entry, content) -> contents.put(entry.getName(), content));
+        Assertions.assertEquals(ENTRIES.size(), future.get());
+        ENTRIES.forEach((name, content) -> Assertions.assertArrayEquals(content, contents.get(name)));
+
+        byte[] text = "Hello World".getBytes(StandardCharsets.UTF_8);
+        ArchiveSource notAnArchive = () -> ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(text)));
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> reader.process(notAnArchive, (entry, content) -> null, (entry, result) -> {
+        }).get());
+        Assertions.assertInstanceOf(NotAnArchiveOrSupportedArchiveException.class, e.getCause());
+        CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+        reader.publish(notAnArchive).subscribe(subscriber);
+        e = Assertions.assertThrows(ExecutionException.class, () -> subscriber.done.get());
+        Assertions.assertInstanceOf(NotAnArchiveOrSupportedArchiveException.class, e.getCause());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AsyncArchiveReader.builder().chunkSize(0));
+    }
+
+    /**
+     * Subscriber which collects the content of all entries and requests a fixed number of chunks after every chunk.
+     */
+    private static final class CollectingSubscriber implements Flow.Subscriber<ArchiveChunk> {
+        private final long batch;
+        private final List<ArchiveChunk> chunks = new ArrayList<>();
+        private final Map<String, ByteArrayOutputStream> contents = new LinkedHashMap<>();
+        private final CompletableFuture<Map<String, byte[]>> done = new CompletableFuture<>();
+        private volatile Flow.Subscription subscription;
+        private volatile boolean subscribing;
+
+        private CollectingSubscriber(long batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscribing = true;
+            this.subscription = subscription;
+            if (batch > 0) {
+                subscription.request(batch);
+            }
+            // give a drain started by the request the chance to signal too early
+            Thread.yield();
+            subscribing = false;
+        }
+
+        @Override
+        public void onNext(ArchiveChunk chunk) {
+            if (subscribing) {
+                done.completeExceptionally(new IllegalStateException("onNext before onSubscribe returned"));
+            }
+            chunks.add(chunk);
+            if (chunk.isFirst()) {
+                contents.put(chunk.getEntry().getName(), new ByteArrayOutputStream());
+            }
+            ByteBuffer data = chunk.getData();
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            contents.get(chunk.getEntry().getName()).writeBytes(bytes);
+            if (batch > 0 && batch < Long.MAX_VALUE) {
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            Map<String, byte[]> result = new LinkedHashMap<>();
+            contents.forEach((name, content) -> result.put(name, content.toByteArray()));
+            done.complete(result);
+        }
+    }
+}
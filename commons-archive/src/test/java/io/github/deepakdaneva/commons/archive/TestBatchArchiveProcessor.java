@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.compress.MemoryLimitException;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public class TestBatchArchiveProcessor {
+
+    /**
+     * Test that a directory of archives is processed smallest first within the memory budget and that failing archives
+     * do not stop the batch
+     *
+     * @param tempDir temporary directory
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testProcess(@TempDir Path tempDir) throws IOException, CompressorException, ArchiveException {
+        Files.write(tempDir.resolve("large.tar"), TestFixtures.archive(ArchiveStreamFactory.TAR, TestFixtures.entries("t1.txt", "t2.txt", "t3.txt")));
+        Files.write(tempDir.resolve("small.zip"), TestFixtures.archive(ArchiveStreamFactory.ZIP, TestFixtures.entries("z1.txt")));
+        TestFixtures.sevenZ(tempDir.resolve("medium.7z"), TestFixtures.entries("s1.txt", "s2.txt"));
+        Files.write(tempDir.resolve("notes.txt"), "Hello World".getBytes(StandardCharsets.UTF_8));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (long memoryBudget : new long[] {1024 * 1024 + 64 * 1024, 64 * 1024 * 1024}) {
+                BatchArchiveProcessor processor = BatchArchiveProcessor.builder().executor(executor).parallelism(4).memoryBudget(memoryBudget).entryOptions(EntryStreamOptions.builder().spillThreshold(1024 * 1024).build()).build();
+                AtomicInteger running = new AtomicInteger();
+                AtomicInteger maxRunning = new AtomicInteger();
+                List<String> names = Collections.synchronizedList(new ArrayList<>());
+                BatchArchiveReport report = processor.process(tempDir, (entry, content) -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        return new String(IOUtils.toByteArray(content), StandardCharsets.UTF_8);
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                }, (entry, result) -> names.add(entry.getName()));
+                Assertions.assertEquals(4, report.getResults().size());
+                Assertions.assertEquals(3, report.getSucceeded());
+                Assertions.assertEquals(6, report.getEntries());
+                Assertions.assertTrue(report.getPeakReservedBytes() <= memoryBudget);
+                BatchArchiveResult failed = report.getResults().stream().filter(result -> !result.isSucceeded()).findFirst().orElseThrow();
+                Assertions.assertEquals("notes.txt", failed.getArchive().getFileName().toString());
+                Assertions.assertEquals(1, failed.getAttempts());
+                Assertions.assertTrue(failed.getFailure() instanceof NotAnArchiveOrSupportedArchiveException);
+                for (int i = 1; i < report.getResults().size(); i++) {
+                    Assertions.assertTrue(report.getResults().get(i - 1).getSize() <= report.getResults().get(i).getSize());
+                }
+                if (memoryBudget < 2 * 1024 * 1024) {
+                    // the budget only fits one buffering archive at a time, so entries arrive smallest archive first
+                    Assertions.assertEquals(1, maxRunning.get());
+                    Assertions.assertEquals(List.of("z1.txt", "s1.txt", "s2.txt", "t1.txt", "t2.txt", "t3.txt"), names);
+                } else {
+                    Assertions.assertEquals(6, names.size());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test that transient failures are retried without delivering entries twice and that retries are bounded
+     *
+     * @param tempDir temporary directory
+     * @throws IOException io excepion
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testRetry(@TempDir Path tempDir) throws IOException, ArchiveException {
+        Map<String, byte[]> entries = TestFixtures.entries("a.txt", "b.txt", "c.txt");
+        Path zip = Files.write(tempDir.resolve("test.zip"), TestFixtures.archive(ArchiveStreamFactory.ZIP, entries));
+        for (int maxAttempts : new int[] {1, 3}) {
+            AtomicInteger failures = new AtomicInteger();
+            List<String> names = new ArrayList<>();
+            BatchArchiveProcessor processor = BatchArchiveProcessor.builder().maxAttempts(maxAttempts).retryDelayMillis(0).build();
+            BatchArchiveReport report = processor.process(List.of(zip), (entry, content) -> {
+                if ("b.txt".equals(entry.getName()) && failures.getAndIncrement() == 0) {
+                    throw new IOException("Connection reset");
+                }
+                return IOUtils.toByteArray(content);
+            }, (entry, result) -> names.add(entry.getName()));
+            BatchArchiveResult result = report.getResults().get(0);
+            if (maxAttempts == 1) {
+                Assertions.assertFalse(result.isSucceeded());
+                Assertions.assertEquals("Connection reset", result.getFailure().getMessage());
+                Assertions.assertEquals(List.of("a.txt"), names);
+            } else {
+                Assertions.assertTrue(result.isSucceeded());
+                Assertions.assertEquals(2, result.getAttempts());
+                Assertions.assertEquals(3, result.getEntries());
+                Assertions.assertEquals(List.of("a.txt", "b.txt", "c.txt"), names);
+            }
+        }
+        Assertions.assertFalse(BatchArchiveProcessor.isTransient(new EOFException()));
+    }
+
+    /**
+     * Test that the reservation of an archive covers its decoder as read from the header and that 7z archives are
+     * opened with the reserved limit
+     *
+     * @param tempDir temporary directory
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testDecoderMemory(@TempDir Path tempDir) throws IOException, CompressorException, ArchiveException {
+        byte[] tar = TestFixtures.archive(ArchiveStreamFactory.TAR, TestFixtures.entries("a.txt", "b.txt"));
+        ByteArrayOutputStream bzip2 = new ByteArrayOutputStream();
+        try (BZip2CompressorOutputStream out = new BZip2CompressorOutputStream(bzip2, 1)) {
+            out.write(tar);
+        }
+        Path tarXz = Files.write(tempDir.resolve("test.tar.xz"), TestFixtures.compress(CompressorStreamFactory.XZ, tar));
+        Path tarBzip2 = Files.write(tempDir.resolve("test.tar.bz2"), TestFixtures.compress(CompressorStreamFactory.BZIP2, tar));
+        Path fastBzip2 = Files.write(tempDir.resolve("fast.tar.bz2"), bzip2.toByteArray());
+        Path sevenZ = TestFixtures.sevenZ(tempDir.resolve("test.7z"), TestFixtures.entries("a.txt", "b.txt"));
+        BatchArchiveProcessor.Builder builder = BatchArchiveProcessor.builder().parallelism(1).memoryBudget(128L * 1024 * 1024).entryOptions(EntryStreamOptions.STREAMING);
+        // the default xz preset decodes with an 8 MiB dictionary, bzip2 with 500 kB per level
+        assertReserved(8 * 1024 * 1024, 9 * 1024 * 1024, process(builder.build(), tarXz));
+        assertReserved(9 * 500_000, 5 * 1024 * 1024, process(builder.build(), tarBzip2));
+        assertReserved(500_000, 1024 * 1024, process(builder.build(), fastBzip2));
+        assertReserved(64 * 1024 * 1024, 65 * 1024 * 1024, process(builder.build(), sevenZ));
+        // an archive which needs more than the budget runs alone within it
+        BatchArchiveReport small = process(BatchArchiveProcessor.builder().memoryBudget(1024 * 1024).build(), tarXz);
+        Assertions.assertTrue(small.getResults().get(0).isSucceeded());
+        Assertions.assertEquals(1024 * 1024, small.getPeakReservedBytes());
+        // commons-compress writes 7z entries with an 8 MiB LZMA2 dictionary
+        BatchArchiveReport limited = process(builder.sevenZMemoryLimit(1024 * 1024).build(), sevenZ);
+        assertReserved(1024 * 1024, 2 * 1024 * 1024, limited);
+        BatchArchiveResult result = limited.getResults().get(0);
+        Assertions.assertTrue(result.getFailure() instanceof MemoryLimitException, String.valueOf(result.getFailure()));
+        Assertions.assertEquals(1, result.getAttempts());
+    }
+
+    private static BatchArchiveReport process(BatchArchiveProcessor processor, Path archive) throws IOException {
+        return processor.process(List.of(archive), (entry, content) -> IOUtils.toByteArray(content), (entry, result) -> {
+        });
+    }
+
+    private static void assertReserved(long min, long max, BatchArchiveReport report) {
+        Assertions.assertTrue(report.getPeakReservedBytes() >= min && report.getPeakReservedBytes() < max, String.valueOf(report.getPeakReservedBytes()));
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.Inflater;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorInputStream;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public class TestDecompressionPool {
+
+    private static final byte[] CONTENT = TestFixtures.entries("a.txt").get("a.txt");
+
+    /**
+     * Test gzip and zlib streams inflated with pooled inflaters, repeatedly to reuse them
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     */
+    @Test
+    public void testCompressors() throws IOException, CompressorException {
+        DecompressionPool pool = DecompressionPool.builder().bufferSize(512).maxInflaters(1).maxBuffers(1).build();
+        byte[] gzip = TestFixtures.compress(CompressorStreamFactory.GZIP, CONTENT);
+        byte[] deflate = TestFixtures.compress(CompressorStreamFactory.DEFLATE, CONTENT);
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertArrayEquals(CONTENT, decompress(gzip, null, pool));
+            Assertions.assertArrayEquals(CONTENT, decompress(gzip, CompressorStreamFactory.GZIP, pool));
+            Assertions.assertArrayEquals(CONTENT, decompress(deflate, CompressorStreamFactory.DEFLATE, pool));
+        }
+        // other formats are created by the factory
+        Assertions.assertArrayEquals(CONTENT, decompress(TestFixtures.compress(CompressorStreamFactory.BZIP2, CONTENT), null, pool));
+    }
+
+    /**
+     * Test gzip compressed tarballs read through the pooled archive overloads
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testTarGzip() throws IOException, CompressorException, ArchiveException {
+        Map<String, byte[]> entries = TestFixtures.entries("a.txt", "b.txt", "c.txt");
+        byte[] tgz = TestFixtures.compress(CompressorStreamFactory.GZIP, TestFixtures.archive(ArchiveStreamFactory.TAR, entries));
+        try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(tgz)), ArchiveFormat.TAR_GZIP, DecompressionPool.DEFAULT)) {
+            assertEntries(entries, ais);
+        }
+        try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(tgz)), "application/gzip", DecompressionPool.DEFAULT)) {
+            assertEntries(entries, ais);
+        }
+    }
+
+    /**
+     * Test corrupt and foreign input
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     */
+    @Test
+    public void testInvalid() throws IOException, CompressorException {
+        byte[] gzip = TestFixtures.compress(CompressorStreamFactory.GZIP, CONTENT);
+        gzip[gzip.length - 8] ^= 0xff;
+        Assertions.assertThrows(IOException.class, () -> decompress(gzip, CompressorStreamFactory.GZIP, DecompressionPool.DEFAULT));
+        byte[] truncated = new byte[gzip.length - 4];
+        System.arraycopy(gzip, 0, truncated, 0, truncated.length);
+        Assertions.assertThrows(IOException.class, () -> decompress(truncated, CompressorStreamFactory.GZIP, DecompressionPool.DEFAULT));
+        byte[] text = "Hello World".getBytes(StandardCharsets.UTF_8);
+        Assertions.assertThrows(CompressorException.class, () -> decompress(text, CompressorStreamFactory.GZIP, DecompressionPool.DEFAULT));
+        Assertions.assertThrows(NotAnArchiveOrSupportedArchiveException.class, () -> decompress(text, null, DecompressionPool.DEFAULT));
+    }
+
+    /**
+     * Test that pools never hold more than their capacity and hand out released objects
+     */
+    @Test
+    public void testPoolCapacity() {
+        StripedPool<Inflater> pool = new StripedPool<>(8, 3);
+        Inflater[] inflaters = { new Inflater(), new Inflater(), new Inflater(), new Inflater() };
+        int pooled = 0;
+        for (Inflater inflater : inflaters) {
+            pooled += pool.offer(inflater) ? 1 : 0;
+        }
+        Assertions.assertTrue(pooled > 0 && pooled <= 3);
+        for (int i = 0; i < pooled; i++) {
+            Assertions.assertNotNull(pool.poll());
+        }
+        Assertions.assertNull(pool.poll());
+        for (Inflater inflater : inflaters) {
+            inflater.end();
+        }
+        BufferPool buffers = new BufferPool(64, 2);
+        byte[] chunk = buffers.acquire();
+        buffers.release(chunk);
+        Assertions.assertSame(chunk, buffers.acquire());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DecompressionPool.builder().bufferSize(0));
+    }
+
+    private static byte[] decompress(byte[] content, String name, DecompressionPool pool) throws IOException, CompressorException {
+        try (CompressorInputStream cis = ArchiveUtil.getCompressorInputStream(new BufferedInputStream(new ByteArrayInputStream(content)), name, pool)) {
+            return IOUtils.toByteArray(cis);
+        }
+    }
+
+    private static void assertEntries(Map<String, byte[]> entries, ArchiveInputStream ais) throws IOException {
+        int count = 0;
+        ArchiveEntry entry;
+        while ((entry = ais.getNextEntry()) != null) {
+            Assertions.assertArrayEquals(entries.get(entry.getName()), IOUtils.toByteArray(ais));
+            count++;
+        }
+        Assertions.assertEquals(entries.size(), count);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public class TestEncryptionDetector {
+
+    private static final Path ENCRYPTED_ZIP = TestConstants.TEST_FILES_PATH.resolve("testfiles/txt_file_encrypted_zip");
+
+    /**
+     * Test that encrypted zip entries are detected from the central directory and are still rejected when read.
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testZip() throws IOException, CompressorException, ArchiveException {
+        EncryptionReport report = EncryptionDetector.scan(ENCRYPTED_ZIP);
+        Assertions.assertEquals(ArchiveFormat.ZIP, report.getFormat());
+        Assertions.assertTrue(report.isEncrypted());
+        Assertions.assertFalse(report.isHeaderEncrypted());
+        Assertions.assertEquals(List.of("txt_file"), report.getEncryptedEntries());
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(ENCRYPTED_ZIP)); ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(in, "application/zip")) {
+            Assertions.assertEquals("txt_file", ais.getNextEntry().getName());
+            Assertions.assertThrows(PasswordProtectedArchiveException.class, () -> ArchiveUtil.getEntryInputStream(ais));
+        }
+    }
+
+    /**
+     * Test that archives without encryption are reported as not encrypted and other files are rejected.
+     *
+     * @param dir temporary directory.
+     * @throws IOException io excepion
+     * @throws ArchiveException archive exception
+     * @throws CompressorException compress exception
+     */
+    @Test
+    public void testNotEncrypted(@TempDir Path dir) throws IOException, ArchiveException, CompressorException {
+        Path zip = Files.write(dir.resolve("test.zip"), TestFixtures.archive(ArchiveStreamFactory.ZIP, TestFixtures.entries("a.txt")));
+        Path tar = Files.write(dir.resolve("test.tar"), TestFixtures.archive(ArchiveStreamFactory.TAR, TestFixtures.entries("a.txt")));
+        Path sevenZ = TestFixtures.sevenZ(dir.resolve("test.7z"), TestFixtures.entries("a.txt"));
+        Path tarXz = Files.write(dir.resolve("large.tar.xz"), TestFixtures.compress(CompressorStreamFactory.XZ, TestFixtures.archive(ArchiveStreamFactory.TAR, TestFixtures.largeEntries(3, 512 * 1024))));
+        Path bzip2 = Files.write(dir.resolve("text.bz2"), TestFixtures.compress(CompressorStreamFactory.BZIP2, "Hello World".getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertEquals(ArchiveFormat.TAR_XZ, EncryptionDetector.scan(tarXz).getFormat());
+        Assertions.assertEquals(ArchiveFormat.BZIP2, EncryptionDetector.scan(bzip2).getFormat());
+        for (Path path : List.of(zip, tar, sevenZ, tarXz, bzip2)) {
+            Assertions.assertFalse(EncryptionDetector.scan(path).isEncrypted(), path.toString());
+        }
+        Assertions.assertThrows(NotAnArchiveOrSupportedArchiveException.class, () -> EncryptionDetector.scan(TestConstants.TEST_FILES_PATH.resolve("testfiles/txt_file")));
+    }
+
+    /**
+     * Test RAR 5 entries with and without a file encryption record.
+     *
+     * @param dir temporary directory.
+     * @throws IOException io excepion
+     */
+    @Test
+    public void testRar5(@TempDir Path dir) throws IOException {
+        ByteArrayOutputStream rar = new ByteArrayOutputStream();
+        rar.write(new byte[] {'R', 'a', 'r', '!', 0x1A, 0x07, 0x01, 0x00});
+        rar5Block(rar, 1, 0, 0);
+        rar5File(rar, "plain.txt", false);
+        rar5File(rar, "secret.txt", true);
+        rar5Block(rar, 5, 0, 0);
+        EncryptionReport report = EncryptionDetector.scan(Files.write(dir.resolve("test.rar"), rar.toByteArray()));
+        Assertions.assertEquals(ArchiveFormat.RAR, report.getFormat());
+        Assertions.assertFalse(report.isHeaderEncrypted());
+        Assertions.assertEquals(List.of("secret.txt"), report.getEncryptedEntries());
+    }
+
+    /**
+     * Test a RAR 4 archive whose main header marks the block headers as encrypted.
+     *
+     * @param dir temporary directory.
+     * @throws IOException io excepion
+     */
+    @Test
+    public void testRar4EncryptedHeaders(@TempDir Path dir) throws IOException {
+        // marker block followed by a main header (crc, type, flags, size and 6 reserved bytes)
+        byte[] rar = {'R', 'a', 'r', '!', 0x1A, 0x07, 0x00, 0, 0, 0x73, (byte) 0x80, 0x00, 13, 0, 0, 0, 0, 0, 0, 0};
+        EncryptionReport report = EncryptionDetector.scan(Files.write(dir.resolve("test.rar"), rar));
+        Assertions.assertTrue(report.isEncrypted());
+        Assertions.assertTrue(report.isHeaderEncrypted());
+        Assertions.assertTrue(report.getEncryptedEntries().isEmpty());
+    }
+
+    private static void rar5Block(ByteArrayOutputStream rar, int... header) {
+        rar.writeBytes(new byte[4]);
+        rar.write(header.length);
+        for (int b : header) {
+            rar.write(b);
+        }
+    }
+
+    private static void rar5File(ByteArrayOutputStream rar, String name, boolean encrypted) {
+        byte[] data = "Hello World".getBytes(StandardCharsets.UTF_8);
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        // type, flags (extra area, data area), extra area size, data size
+        header.write(2);
+        header.write(encrypted ? 0x03 : 0x02);
+        if (encrypted) {
+            header.write(3);
+        }
+        header.write(data.length);
+        // file flags, unpacked size, attributes, compression, host os, name
+        header.write(0);
+        header.write(data.length);
+        header.write(0);
+        header.write(0);
+        header.write(0);
+        header.write(nameBytes.length);
+        header.writeBytes(nameBytes);
+        if (encrypted) {
+            // record size, record type (file encryption) and one byte of record data
+            header.writeBytes(new byte[] {2, 1, 0});
+        }
+        rar.writeBytes(new byte[4]);
+        rar.write(header.size());
+        rar.writeBytes(header.toByteArray());
+        rar.writeBytes(data);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public class TestEntryDigests {
+
+    private static final EntryStreamOptions DIGESTS = EntryStreamOptions.builder().digests(DigestAlgorithm.SHA_256, DigestAlgorithm.CRC32C).verifyChecksums(true).build();
+
+    /**
+     * Test that digests are computed inline in streaming and buffered mode and while extracting.
+     *
+     * @param dir temporary directory.
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     * @throws NoSuchAlgorithmException if SHA-256 is not available
+     */
+    @Test
+    public void testDigests(@TempDir Path dir) throws IOException, CompressorException, ArchiveException, NoSuchAlgorithmException {
+        Map<String, byte[]> entries = TestFixtures.entries("a.txt", "b.txt", "c.txt");
+        byte[] zip = TestFixtures.archive(ArchiveStreamFactory.ZIP, entries);
+        EntryStreamOptions streaming = EntryStreamOptions.builder().mode(EntryStreamMode.STREAMING).digests(DigestAlgorithm.SHA_256, DigestAlgorithm.CRC32C).verifyChecksums(true).build();
+        try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(zip)))) {
+            ArchiveEntry entry = ais.getNextEntry();
+            try (SpillableEntryInputStream in = (SpillableEntryInputStream) ArchiveUtil.getEntryInputStream(ais, entry, DIGESTS)) {
+                Assertions.assertArrayEquals(entries.get("a.txt"), IOUtils.toByteArray(in));
+                assertDigests(entries.get("a.txt"), in.getDigests());
+            }
+            entry = ais.getNextEntry();
+            DigestingInputStream in = (DigestingInputStream) ArchiveUtil.getEntryInputStream(ais, entry, streaming);
+            Assertions.assertThrows(IllegalStateException.class, in::getDigests);
+            Assertions.assertArrayEquals(entries.get("b.txt"), IOUtils.toByteArray(in));
+            assertDigests(entries.get("b.txt"), in.getDigests());
+            entry = ais.getNextEntry();
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            EntryDigests digests = ArchiveUtil.extractTo(ais, entry, Channels.newChannel(bos), DIGESTS);
+            Assertions.assertArrayEquals(entries.get("c.txt"), bos.toByteArray());
+            assertDigests(entries.get("c.txt"), digests);
+        }
+        Path sevenZ = TestFixtures.sevenZ(dir.resolve("test.7z"), entries);
+        try (ArchiveInputStream ais = new SevenZArchiveInputStream(sevenZ)) {
+            ArchiveEntry entry = ais.getNextEntry();
+            assertDigests(entries.get(entry.getName()), ArchiveUtil.extractTo(ais, entry, dir.resolve("out.txt"), DIGESTS));
+        }
+    }
+
+    /**
+     * Test that a zip entry which does not match its stored CRC is rejected.
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testChecksumMismatch() throws IOException, CompressorException, ArchiveException {
+        byte[] content = "Hello World".getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(bos)) {
+            ZipArchiveEntry entry = new ZipArchiveEntry("hello.txt");
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(content.length);
+            entry.setCrc(crc.getValue());
+            zos.putArchiveEntry(entry);
+            zos.write(content);
+            zos.closeArchiveEntry();
+        }
+        byte[] zip = bos.toByteArray();
+        String text = new String(zip, StandardCharsets.ISO_8859_1);
+        zip[text.indexOf("Hello World") + 10] = 'e';
+        for (EntryStreamOptions options : new EntryStreamOptions[] {DIGESTS, EntryStreamOptions.builder().mode(EntryStreamMode.STREAMING).verifyChecksums(true).build()}) {
+            try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(zip)))) {
+                ArchiveEntry entry = ais.getNextEntry();
+                ChecksumMismatchException e = Assertions.assertThrows(ChecksumMismatchException.class, () -> {
+                    try (InputStream in = ArchiveUtil.getEntryInputStream(ais, entry, options)) {
+                        IOUtils.toByteArray(in);
+                    }
+                });
+                Assertions.assertEquals("hello.txt", e.getEntryName());
+                Assertions.assertEquals(crc.getValue(), e.getExpected());
+            }
+        }
+        // without verification the corrupt content is returned as is
+        try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(zip)))) {
+            ArchiveEntry entry = ais.getNextEntry();
+            try (InputStream in = ArchiveUtil.getEntryInputStream(ais, entry, EntryStreamOptions.DEFAULT)) {
+                Assertions.assertEquals("Hello Worle", new String(IOUtils.toByteArray(in), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * Test that the CRC of zip entries with a data descriptor is verified once the archive stream has moved past the
+     * entry.
+     *
+     * @param dir temporary directory.
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testDataDescriptor(@TempDir Path dir) throws IOException, CompressorException, ArchiveException {
+        Map<String, byte[]> entries = TestFixtures.entries("a.txt", "b.txt");
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(bos)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zos.putNextEntry(new ZipEntry(entry.getKey()));
+                zos.write(entry.getValue());
+                zos.closeEntry();
+            }
+        }
+        byte[] zip = bos.toByteArray();
+        try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(zip)))) {
+            ArchiveEntry entry = ais.getNextEntry();
+            EntryDigests digests;
+            try (SpillableEntryInputStream in = (SpillableEntryInputStream) ArchiveUtil.getEntryInputStream(ais, entry, DIGESTS)) {
+                digests = in.getDigests();
+            }
+            Assertions.assertTrue(digests.isChecksumPending());
+            Assertions.assertThrows(IllegalStateException.class, digests::verifyChecksum);
+            ais.getNextEntry();
+            digests.verifyChecksum();
+        }
+        // CRC of the first data descriptor
+        zip[new String(zip, StandardCharsets.ISO_8859_1).indexOf("PK\u0007\u0008") + 4] ^= 0x55;
+        try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(zip)))) {
+            ArchiveEntry entry = ais.getNextEntry();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            EntryDigests digests = ArchiveUtil.extractTo(ais, entry, Channels.newChannel(out), DIGESTS);
+            Assertions.assertArrayEquals(entries.get("a.txt"), out.toByteArray());
+            ais.getNextEntry();
+            ChecksumMismatchException e = Assertions.assertThrows(ChecksumMismatchException.class, digests::verifyChecksum);
+            Assertions.assertEquals("a.txt", e.getEntryName());
+        }
+        Path archive = Files.write(dir.resolve("descriptor.zip"), zip);
+        for (EntryStreamOptions options : new EntryStreamOptions[] {DIGESTS, EntryStreamOptions.builder().mode(EntryStreamMode.STREAMING).verifyChecksums(true).build()}) {
+            BatchArchiveReport report = BatchArchiveProcessor.builder().parallelism(1).entryOptions(options).build().process(List.of(archive), (entry, content) -> IOUtils.toByteArray(content), (entry, result) -> {
+            });
+            Throwable failure = report.getResults().get(0).getFailure();
+            Assertions.assertTrue(failure instanceof ChecksumMismatchException, String.valueOf(failure));
+        }
+    }
+
+    private static void assertDigests(byte[] content, EntryDigests digests) throws NoSuchAlgorithmException {
+        CRC32C crc = new CRC32C();
+        crc.update(content);
+        Assertions.assertEquals(content.length, digests.getLength());
+        Assertions.assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(content), digests.get(DigestAlgorithm.SHA_256));
+        Assertions.assertEquals(String.format("%08x", crc.getValue()), digests.getHex(DigestAlgorithm.CRC32C));
+        Assertions.assertNull(digests.get(DigestAlgorithm.MD5));
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.archivers.ar.ArArchiveEntry;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+import org.apache.commons.compress.archivers.cpio.CpioConstants;
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZOutputFile;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.LZMAOutputStream;
+
+/**
+ * Generates archive fixtures in memory so tests do not depend on checked-in binaries.
+ *
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public class TestFixtures {
+
+    /**
+     * @param names entry names, the content of each entry is {@code "content of <name>"}.
+     * @return ordered map of entry names to their content.
+     */
+    public static Map<String, byte[]> entries(String... names) {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (String name : names) {
+            entries.put(name, ("content of " + name).getBytes(StandardCharsets.UTF_8));
+        }
+        return entries;
+    }
+
+    /**
+     * @param count number of entries named {@code file<i>.txt}.
+     * @param size number of bytes of every entry.
+     * @return ordered map of entry names to pseudo random text which compresses like natural text.
+     */
+    public static Map<String, byte[]> largeEntries(int count, int size) {
+        Random random = new Random(count * 31L + size);
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            byte[] content = new byte[size];
+            for (int j = 0; j < size; j++) {
+                int letter = random.nextInt(32);
+                content[j] = (byte) (letter < 26 ? 'a' + letter : letter < 30 ? ' ' : '\n');
+            }
+            entries.put("file" + i + ".txt", content);
+        }
+        return entries;
+    }
+
+    /**
+     * @param archiverName name of the archiver as used by {@link ArchiveStreamFactory}.
+     * @param entries entry names and their content.
+     * @return archive bytes.
+     * @throws IOException io exception
+     * @throws ArchiveException archive exception
+     */
+    public static byte[] archive(String archiverName, Map<String, byte[]> entries) throws IOException, ArchiveException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ArchiveOutputStream aos = ArchiveStreamFactory.DEFAULT.createArchiveOutputStream(archiverName, bos)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                aos.putArchiveEntry(newEntry(archiverName, entry.getKey(), entry.getValue().length));
+                aos.write(entry.getValue());
+                aos.closeArchiveEntry();
+            }
+            aos.finish();
+        }
+        return bos.toByteArray();
+    }
+
+    private static ArchiveEntry newEntry(String archiverName, String name, long size) {
+        switch (archiverName) {
+            case ArchiveStreamFactory.TAR:
+                TarArchiveEntry tarEntry = new TarArchiveEntry(name);
+                tarEntry.setSize(size);
+                return tarEntry;
+            case ArchiveStreamFactory.AR:
+                return new ArArchiveEntry(name, size);
+            case ArchiveStreamFactory.CPIO:
+                CpioArchiveEntry cpioEntry = new CpioArchiveEntry(name, size);
+                cpioEntry.setMode(CpioConstants.C_ISREG | 0644);
+                return cpioEntry;
+            default:
+                ZipArchiveEntry zipEntry = new ZipArchiveEntry(name);
+                zipEntry.setSize(size);
+                return zipEntry;
+        }
+    }
+
+    /**
+     * @param compressorName name of the compressor as used by {@link CompressorStreamFactory}.
+     * @param content bytes to compress.
+     * @return compressed bytes.
+     * @throws IOException io exception
+     * @throws CompressorException compressor exception
+     */
+    public static byte[] compress(String compressorName, byte[] content) throws IOException, CompressorException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (OutputStream os = CompressorStreamFactory.getSingleton().createCompressorOutputStream(compressorName, bos)) {
+            os.write(content);
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * @return 7z archive whose header is encoded with AES, reading it requires a password.
+     */
+    public static byte[] encryptedSevenZ() {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        // encoded header: pack info (one stream of 16 bytes), one folder with the AES coder (2 bytes of properties
+        // without salt and iv) and its unpacked size
+        header.writeBytes(new byte[] {0x17, 0x06, 0x00, 0x01, 0x09, 0x10, 0x00});
+        header.writeBytes(new byte[] {0x07, 0x0B, 0x01, 0x00, 0x01, 0x24, 0x06, (byte) 0xF1, 0x07, 0x01, 0x02, 0x13, 0x00, 0x0C, 0x10, 0x00, 0x00});
+        byte[] nextHeader = header.toByteArray();
+        ByteBuffer start = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN);
+        start.putLong(16).putLong(nextHeader.length).putInt((int) crc(nextHeader));
+        ByteBuffer archive = ByteBuffer.allocate(32 + 16 + nextHeader.length).order(ByteOrder.LITTLE_ENDIAN);
+        archive.put(new byte[] {'7', 'z', (byte) 0xBC, (byte) 0xAF, 0x27, 0x1C, 0x00, 0x04});
+        archive.putInt((int) crc(start.array()));
+        archive.put(start.array());
+        archive.put(new byte[16]);
+        archive.put(nextHeader);
+        return archive.array();
+    }
+
+    /**
+     * Writes a 7z archive of solid folders stored with the copy method, followed by an empty entry. Every folder holds
+     * several entries in a single stream, which {@link SevenZOutputFile} never writes.
+     *
+     * @param path file to write the 7z archive to.
+     * @param folders entry names and their content per folder.
+     * @param encodeHeader true to compress the header with LZMA.
+     * @return the path.
+     * @throws IOException io exception
+     */
+    public static Path solidSevenZ(Path path, List<Map<String, byte[]>> folders, boolean encodeHeader) throws IOException {
+        ByteArrayOutputStream packed = new ByteArrayOutputStream();
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        List<String> names = new ArrayList<>();
+        header.write(0x01);
+        // main streams info: one packed stream per folder
+        header.writeBytes(new byte[] {0x04, 0x06, 0x00});
+        number(header, folders.size());
+        header.write(0x09);
+        for (Map<String, byte[]> folder : folders) {
+            long size = folder.values().stream().mapToLong(content -> content.length).sum();
+            number(header, size);
+            folder.values().forEach(packed::writeBytes);
+        }
+        header.writeBytes(new byte[] {0x00, 0x07, 0x0B});
+        number(header, folders.size());
+        header.write(0x00);
+        for (int i = 0; i < folders.size(); i++) {
+            // one copy coder
+            header.writeBytes(new byte[] {0x01, 0x01, 0x00});
+        }
+        header.write(0x0C);
+        for (Map<String, byte[]> folder : folders) {
+            number(header, folder.values().stream().mapToLong(content -> content.length).sum());
+        }
+        header.writeBytes(new byte[] {0x00, 0x08, 0x0D});
+        for (Map<String, byte[]> folder : folders) {
+            number(header, folder.size());
+        }
+        header.write(0x09);
+        for (Map<String, byte[]> folder : folders) {
+            List<byte[]> contents = new ArrayList<>(folder.values());
+            for (byte[] content : contents.subList(0, contents.size() - 1)) {
+                number(header, content.length);
+            }
+        }
+        header.writeBytes(new byte[] {0x0A, 0x01});
+        for (Map<String, byte[]> folder : folders) {
+            names.addAll(folder.keySet());
+            for (byte[] content : folder.values()) {
+                header.writeBytes(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt((int) crc(content)).array());
+            }
+        }
+        header.writeBytes(new byte[] {0x00, 0x00});
+        // files info: names, the last entry is an empty file without a stream
+        names.add("empty.txt");
+        header.write(0x05);
+        number(header, names.size());
+        int emptyBits = (names.size() + 7) / 8;
+        byte[] emptyStream = new byte[emptyBits];
+        emptyStream[(names.size() - 1) / 8] = (byte) (0x80 >>> ((names.size() - 1) % 8));
+        header.write(0x0E);
+        number(header, emptyBits);
+        header.writeBytes(emptyStream);
+        header.writeBytes(new byte[] {0x0F, 0x01, (byte) 0x80});
+        ByteArrayOutputStream nameBytes = new ByteArrayOutputStream();
+        nameBytes.write(0x00);
+        for (String name : names) {
+            nameBytes.writeBytes((name + '\0').getBytes(StandardCharsets.UTF_16LE));
+        }
+        header.write(0x11);
+        number(header, nameBytes.size());
+        header.writeBytes(nameBytes.toByteArray());
+        header.writeBytes(new byte[] {0x00, 0x00});
+        byte[] nextHeader = header.toByteArray();
+        if (encodeHeader) {
+            LZMA2Options options = new LZMA2Options();
+            long headerPosition = packed.size();
+            ByteArrayOutputStream lzma = new ByteArrayOutputStream();
+            byte[] properties;
+            try (LZMAOutputStream out = new LZMAOutputStream(lzma, options, false)) {
+                properties = ByteBuffer.allocate(5).order(ByteOrder.LITTLE_ENDIAN).put((byte) out.getProps()).putInt(options.getDictSize()).array();
+                out.write(nextHeader);
+            }
+            packed.writeBytes(lzma.toByteArray());
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            encoded.writeBytes(new byte[] {0x17, 0x06});
+            number(encoded, headerPosition);
+            encoded.writeBytes(new byte[] {0x01, 0x09});
+            number(encoded, lzma.size());
+            encoded.writeBytes(new byte[] {0x00, 0x07, 0x0B, 0x01, 0x00, 0x01, 0x23, 0x03, 0x01, 0x01, 0x05});
+            encoded.writeBytes(properties);
+            encoded.write(0x0C);
+            number(encoded, nextHeader.length);
+            encoded.writeBytes(new byte[] {0x0A, 0x01});
+            encoded.writeBytes(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt((int) crc(nextHeader)).array());
+            encoded.writeBytes(new byte[] {0x00, 0x00});
+            nextHeader = encoded.toByteArray();
+        }
+        ByteBuffer start = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN);
+        start.putLong(packed.size()).putLong(nextHeader.length).putInt((int) crc(nextHeader));
+        ByteBuffer archive = ByteBuffer.allocate(32 + packed.size() + nextHeader.length).order(ByteOrder.LITTLE_ENDIAN);
+        archive.put(new byte[] {'7', 'z', (byte) 0xBC, (byte) 0xAF, 0x27, 0x1C, 0x00, 0x04});
+        archive.putInt((int) crc(start.array()));
+        archive.put(start.array());
+        archive.put(packed.toByteArray());
+        archive.put(nextHeader);
+        return Files.write(path, archive.array());
+    }
+
+    /**
+     * Writes a number in the variable length encoding of 7z.
+     */
+    private static void number(ByteArrayOutputStream out, long value) {
+        int first = 0;
+        int mask = 0x80;
+        int bytes;
+        for (bytes = 0; bytes < 8; bytes++) {
+            if (value < 1L << (7 * (bytes + 1))) {
+                first |= (int) (value >>> (8 * bytes));
+                break;
+            }
+            first |= mask;
+            mask >>>= 1;
+        }
+        out.write(first);
+        for (int i = 0; i < bytes; i++) {
+            out.write((int) (value >>> (8 * i)));
+        }
+    }
+
+    private static long crc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    /**
+     * @param path file to write the 7z archive to.
+     * @param entries entry names and their content.
+     * @return the path.
+     * @throws IOException io exception
+     */
+    public static Path sevenZ(Path path, Map<String, byte[]> entries) throws IOException {
+        try (SevenZOutputFile out = new SevenZOutputFile(path.toFile())) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                SevenZArchiveEntry archiveEntry = new SevenZArchiveEntry();
+                archiveEntry.setName(entry.getKey());
+                archiveEntry.setSize(entry.getValue().length);
+                out.putArchiveEntry(archiveEntry);
+                out.write(entry.getValue());
+                out.closeArchiveEntry();
+            }
+        }
+        return path;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZFile;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public class TestParallelArchiveExtractor {
+
+    private static final Map<String, byte[]> ENTRIES = TestFixtures.entries(names(64));
+
+    /**
+     * Test ordered and unordered extraction of zip, 7z and sequentially extracted tar archives
+     *
+     * @param tempDir temporary directory
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testExtract(@TempDir Path tempDir) throws IOException, CompressorException, ArchiveException {
+        Path zip = Files.write(tempDir.resolve("test.zip"), TestFixtures.archive(ArchiveStreamFactory.ZIP, ENTRIES));
+        Path tar = Files.write(tempDir.resolve("test.tar"), TestFixtures.archive(ArchiveStreamFactory.TAR, ENTRIES));
+        Path sevenZ = TestFixtures.sevenZ(tempDir.resolve("test.7z"), ENTRIES);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (Path archive : new Path[] { zip, tar, sevenZ }) {
+                for (boolean ordered : new boolean[] { true, false }) {
+                    ParallelArchiveExtractor extractor = ParallelArchiveExtractor.builder().executor(executor).parallelism(3).maxInFlight(5).ordered(ordered).build();
+                    List<String> names = new ArrayList<>();
+                    Map<String, byte[]> contents = new HashMap<>();
+                    long count = extractor.extract(archive, (entry, content) -> IOUtils.toByteArray(content), (entry, content) -> {
+                        names.add(entry.getName());
+                        contents.put(entry.getName(), content);
+                    });
+                    Assertions.assertEquals(ENTRIES.size(), count);
+                    Assertions.assertEquals(ENTRIES.size(), contents.size());
+                    ENTRIES.forEach((name, content) -> Assertions.assertArrayEquals(content, contents.get(name)));
+                    if (ordered) {
+                        Assertions.assertEquals(new ArrayList<>(ENTRIES.keySet()), names);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test that a failing processor stops the extraction and its exception is thrown
+     *
+     * @param tempDir temporary directory
+     * @throws IOException io excepion
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testFailure(@TempDir Path tempDir) throws IOException, ArchiveException {
+        Path zip = Files.write(tempDir.resolve("test.zip"), TestFixtures.archive(ArchiveStreamFactory.ZIP, ENTRIES));
+        Path sevenZ = TestFixtures.sevenZ(tempDir.resolve("test.7z"), ENTRIES);
+        ParallelArchiveExtractor extractor = ParallelArchiveExtractor.builder().parallelism(2).build();
+        for (Path archive : new Path[] { zip, sevenZ }) {
+            IOException e = Assertions.assertThrows(IOException.class, () -> extractor.extract(archive, (entry, content) -> {
+                if ("entry-10.txt".equals(entry.getName())) {
+                    throw new IOException("failed " + entry.getName());
+                }
+                return new String(IOUtils.toByteArray(content), StandardCharsets.UTF_8);
+            }));
+            Assertions.assertEquals("failed entry-10.txt", e.getMessage());
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ParallelArchiveExtractor.builder().parallelism(0));
+        Path text = Files.write(tempDir.resolve("test.txt"), "Hello World".getBytes(StandardCharsets.UTF_8));
+        Assertions.assertThrows(NotAnArchiveOrSupportedArchiveException.class, () -> extractor.extract(text, (entry, content) -> null));
+    }
+
+    /**
+     * Test that 7z ranges consist of whole folders, so entries of a solid block are decoded by a single range
+     *
+     * @param tempDir temporary directory
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testSolidSevenZ(@TempDir Path tempDir) throws IOException, CompressorException, ArchiveException {
+        List<Map<String, byte[]>> folders = List.of(TestFixtures.entries("a-0.txt", "a-1.txt", "a-2.txt"), TestFixtures.entries("b-0.txt", "b-1.txt", "b-2.txt"), TestFixtures.entries("c-0.txt", "c-1.txt"));
+        Map<String, byte[]> expected = new LinkedHashMap<>();
+        folders.forEach(expected::putAll);
+        expected.put("empty.txt", new byte[0]);
+        ParallelArchiveExtractor extractor = ParallelArchiveExtractor.builder().parallelism(4).build();
+        for (boolean encodeHeader : new boolean[] { false, true }) {
+            Path solid = TestFixtures.solidSevenZ(tempDir.resolve("solid-" + encodeHeader + ".7z"), folders, encodeHeader);
+            int[] indexes;
+            try (SeekableByteChannel channel = Files.newByteChannel(solid)) {
+                indexes = SevenZHeaderParser.folderIndexes(channel, expected.size());
+            }
+            Assertions.assertArrayEquals(new int[] { 0, 0, 0, 1, 1, 1, 2, 2, -1 }, indexes);
+            List<SevenZArchiveEntry> entries = new ArrayList<>();
+            try (SevenZFile sevenZFile = new SevenZFile(solid.toFile())) {
+                sevenZFile.getEntries().forEach(entries::add);
+            }
+            for (int bound : ParallelArchiveExtractor.ranges(entries, indexes, 4)) {
+                Assertions.assertTrue(bound == 0 || bound == expected.size() || indexes[bound - 1] != indexes[bound], "range starts inside a folder at " + bound);
+            }
+            Assertions.assertArrayEquals(new int[] { 0, entries.size() }, ParallelArchiveExtractor.ranges(entries, new int[] { 0, 0, 0, 0, 0, 0, 0, 0, -1 }, 4));
+            Map<String, byte[]> contents = new HashMap<>();
+            Assertions.assertEquals(expected.size(), extractor.extract(solid, (entry, content) -> IOUtils.toByteArray(content), (entry, content) -> contents.put(entry.getName(), content)));
+            expected.forEach((name, content) -> Assertions.assertArrayEquals(content, contents.get(name), name));
+        }
+        Path sevenZ = TestFixtures.sevenZ(tempDir.resolve("test.7z"), ENTRIES);
+        try (SeekableByteChannel channel = Files.newByteChannel(sevenZ); SevenZFile sevenZFile = new SevenZFile(sevenZ.toFile())) {
+            int[] indexes = SevenZHeaderParser.folderIndexes(channel, ENTRIES.size());
+            Assertions.assertEquals(ENTRIES.size() - 1, indexes[ENTRIES.size() - 1]);
+            List<SevenZArchiveEntry> entries = new ArrayList<>();
+            sevenZFile.getEntries().forEach(entries::add);
+            Assertions.assertEquals(4, ParallelArchiveExtractor.ranges(entries, indexes, 3).length);
+        }
+    }
+
+    private static String[] names(int count) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = "entry-" + i + ".txt";
+        }
+        return names;
+    }
+}
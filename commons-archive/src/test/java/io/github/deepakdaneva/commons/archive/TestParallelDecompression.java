@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2023 Deepak Kumar Jangir
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.github.deepakdaneva.commons.archive;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorInputStream;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Deepak Kumar Jangir
+ * @version 1
+ * @since 1
+ */
+public class TestParallelDecompression {
+
+    private static final byte[] CONTENT = lines(20000);
+    private static ExecutorService executor;
+    private static ParallelDecompression parallel;
+
+    /**
+     * Creates the executor and the configuration with small frames.
+     */
+    @BeforeAll
+    public static void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        parallel = ParallelDecompression.builder().executor(executor).parallelism(3).frameSize(1024).maxFrameSize(64 * 1024).build();
+    }
+
+    /**
+     * Shuts the executor down.
+     */
+    @AfterAll
+    public static void tearDown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Test multi member gzip streams, including stored members which contain false member headers, and the sequential
+     * fallback for single member streams
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     */
+    @Test
+    public void testGzip() throws IOException, CompressorException {
+        ByteArrayOutputStream members = new ByteArrayOutputStream();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Random random = new Random(42);
+        for (int i = 0; i < 40; i++) {
+            byte[] member = new byte[random.nextInt(4096) + 1];
+            random.nextBytes(member);
+            // a gzip member header in the content of a stored member
+            member[member.length / 2] = 0x1f;
+            if (member.length / 2 + 3 < member.length) {
+                member[member.length / 2 + 1] = (byte) 0x8b;
+                member[member.length / 2 + 2] = 8;
+                member[member.length / 2 + 3] = 0;
+            }
+            members.write(gzip(member, i % 2 == 0 ? 0 : 6));
+            expected.write(member);
+        }
+        Assertions.assertArrayEquals(expected.toByteArray(), decompress(members.toByteArray(), CompressorStreamFactory.GZIP));
+        Assertions.assertArrayEquals(expected.toByteArray(), decompress(members.toByteArray(), null));
+        // single member larger than the maximum frame size
+        byte[] large = new byte[256 * 1024];
+        random.nextBytes(large);
+        Assertions.assertArrayEquals(large, decompress(gzip(large, 1), CompressorStreamFactory.GZIP));
+        Assertions.assertArrayEquals(CONTENT, decompress(gzip(CONTENT, 6), CompressorStreamFactory.GZIP));
+    }
+
+    /**
+     * Test bzip2 streams of several blocks and concatenated streams
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     */
+    @Test
+    public void testBZip2() throws IOException, CompressorException {
+        byte[] data = new byte[300 * 1024];
+        Random random = new Random(7);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + random.nextInt(8));
+        }
+        ByteArrayOutputStream streams = new ByteArrayOutputStream();
+        for (int i = 0; i < 2; i++) {
+            try (BZip2CompressorOutputStream bzip2 = new BZip2CompressorOutputStream(streams, 1)) {
+                bzip2.write(data);
+            }
+        }
+        byte[] compressed = streams.toByteArray();
+        try (BZip2FrameSplitter splitter = new BZip2FrameSplitter(new ByteArrayInputStream(compressed), parallel.getMaxFrameSize())) {
+            int frames = 0;
+            while (splitter.next() != null) {
+                frames++;
+            }
+            Assertions.assertTrue(frames >= 6, "blocks " + frames);
+        }
+        byte[] decompressed = decompress(compressed, CompressorStreamFactory.BZIP2);
+        Assertions.assertEquals(2 * data.length, decompressed.length);
+        for (int i = 0; i < decompressed.length; i++) {
+            Assertions.assertEquals(data[i % data.length], decompressed[i]);
+        }
+    }
+
+    /**
+     * Test xz streams with blocks which record their sizes and the sequential fallback for those which do not
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     */
+    @Test
+    public void testXZ() throws IOException, CompressorException {
+        byte[] multiBlock;
+        try (InputStream in = new FileInputStream(TestConstants.TEST_FILES_PATH.resolve("testfiles/txt_file_multi_block_xz").toFile())) {
+            multiBlock = IOUtils.toByteArray(in);
+        }
+        try (XZFrameSplitter splitter = new XZFrameSplitter(new ByteArrayInputStream(multiBlock), parallel.getMaxFrameSize())) {
+            int frames = 0;
+            FrameSplitter.Frame frame;
+            while ((frame = splitter.next()) != null) {
+                Assertions.assertFalse(frame.isTail());
+                frames++;
+            }
+            Assertions.assertEquals(7, frames);
+        }
+        byte[] expected = lines(10000);
+        Assertions.assertArrayEquals(expected, decompress(multiBlock, CompressorStreamFactory.XZ));
+        Assertions.assertArrayEquals(CONTENT, decompress(TestFixtures.compress(CompressorStreamFactory.XZ, CONTENT), CompressorStreamFactory.XZ));
+    }
+
+    /**
+     * Test xz input whose blocks can not all be split: a single threaded stream concatenated to a multi threaded one and
+     * a block larger than the maximum frame size which follows blocks that were decoded in parallel
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     */
+    @Test
+    public void testXZFallback() throws IOException, CompressorException {
+        byte[] text = lines(5000);
+        byte[] noise = new byte[128 * 1024];
+        new Random(11).nextBytes(noise);
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(text);
+        content.write(noise);
+        content.write(text);
+        byte[] mixed = content.toByteArray();
+        byte[] multiThreaded = parallelXZ(mixed, 128 * 1024);
+        byte[] singleThreaded = TestFixtures.compress(CompressorStreamFactory.XZ, text);
+        // the noise block does not fit into a frame
+        Assertions.assertArrayEquals(mixed, decompress(multiThreaded, CompressorStreamFactory.XZ));
+        ByteArrayOutputStream concatenated = new ByteArrayOutputStream();
+        concatenated.write(parallelXZ(text, 16 * 1024));
+        concatenated.write(singleThreaded);
+        concatenated.write(new byte[4]);
+        concatenated.write(multiThreaded);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(text);
+        expected.write(text);
+        expected.write(mixed);
+        Assertions.assertArrayEquals(expected.toByteArray(), decompress(concatenated.toByteArray(), CompressorStreamFactory.XZ));
+        // the single threaded stream follows a block which does not fit into a frame
+        concatenated.reset();
+        concatenated.write(multiThreaded);
+        concatenated.write(singleThreaded);
+        expected.reset();
+        expected.write(mixed);
+        expected.write(text);
+        Assertions.assertArrayEquals(expected.toByteArray(), decompress(concatenated.toByteArray(), CompressorStreamFactory.XZ));
+        // a truncated block which is decoded on its own
+        byte[] truncated = Arrays.copyOf(multiThreaded, multiThreaded.length - 200);
+        Assertions.assertThrows(IOException.class, () -> decompress(truncated, CompressorStreamFactory.XZ));
+    }
+
+    /**
+     * Test tarballs, formats which are decoded sequentially and corrupt input
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     * @throws ArchiveException archive exception
+     */
+    @Test
+    public void testArchivesAndCorruption() throws IOException, CompressorException, ArchiveException {
+        Map<String, byte[]> entries = TestFixtures.entries("a.txt", "b.txt", "c.txt");
+        byte[] tar = TestFixtures.archive(ArchiveStreamFactory.TAR, entries);
+        for (ArchiveFormat format : new ArchiveFormat[] { ArchiveFormat.TAR_GZIP, ArchiveFormat.TAR_BZIP2, ArchiveFormat.TAR_XZ }) {
+            byte[] compressed = TestFixtures.compress(format.getCompressorName(), tar);
+            try (ArchiveInputStream ais = ArchiveUtil.getArchiveInputStream(new BufferedInputStream(new ByteArrayInputStream(compressed)), format, parallel)) {
+                int count = 0;
+                ArchiveEntry entry;
+                while ((entry = ais.getNextEntry()) != null) {
+                    Assertions.assertArrayEquals(entries.get(entry.getName()), IOUtils.toByteArray(ais));
+                    count++;
+                }
+                Assertions.assertEquals(entries.size(), count);
+            }
+        }
+        byte[] text = "Hello World".getBytes(StandardCharsets.UTF_8);
+        Assertions.assertArrayEquals(text, decompress(TestFixtures.compress(CompressorStreamFactory.LZ4_FRAMED, text), null));
+        byte[] corrupt = gzip(CONTENT, 6);
+        corrupt[corrupt.length - 6] ^= 0xff;
+        Assertions.assertThrows(IOException.class, () -> decompress(corrupt, CompressorStreamFactory.GZIP));
+        Assertions.assertThrows(CompressorException.class, () -> decompress(text, CompressorStreamFactory.BZIP2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ParallelDecompression.builder().parallelism(0));
+    }
+
+    /**
+     * Test frames which decode to more than the maximum decoded frame size
+     *
+     * @throws IOException io excepion
+     * @throws CompressorException compress exception
+     */
+    @Test
+    public void testMaxDecodedFrameSize() throws IOException, CompressorException {
+        ParallelDecompression capped = ParallelDecompression.builder().executor(executor).parallelism(3).frameSize(1024).maxFrameSize(64 * 1024).maxDecodedFrameSize(4096).build();
+        byte[] zeros = new byte[256 * 1024];
+        byte[] text = lines(20000);
+        ByteArrayOutputStream members = new ByteArrayOutputStream();
+        members.write(gzip(zeros, 9));
+        members.write(gzip(text, 6));
+        members.write(gzip(CONTENT, 6));
+        members.write(gzip(zeros, 1));
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(zeros);
+        expected.write(text);
+        expected.write(CONTENT);
+        expected.write(zeros);
+        Assertions.assertArrayEquals(expected.toByteArray(), decompress(members.toByteArray(), CompressorStreamFactory.GZIP, capped));
+
+        ByteArrayOutputStream bzip2 = new ByteArrayOutputStream();
+        try (BZip2CompressorOutputStream out = new BZip2CompressorOutputStream(bzip2, 1)) {
+            out.write(text);
+        }
+        Assertions.assertArrayEquals(text, decompress(bzip2.toByteArray(), CompressorStreamFactory.BZIP2, capped));
+        Assertions.assertArrayEquals(text, decompress(parallelXZ(text, 16 * 1024), CompressorStreamFactory.XZ, capped));
+
+        byte[] corrupt = members.toByteArray();
+        corrupt[corrupt.length - 6] ^= 0x55;
+        Assertions.assertThrows(IOException.class, () -> decompress(corrupt, CompressorStreamFactory.GZIP, capped));
+    }
+
+    private static byte[] decompress(byte[] content, String name) throws IOException, CompressorException {
+        return decompress(content, name, parallel);
+    }
+
+    private static byte[] decompress(byte[] content, String name, ParallelDecompression config) throws IOException, CompressorException {
+        try (CompressorInputStream cis = ArchiveUtil.getCompressorInputStream(new BufferedInputStream(new ByteArrayInputStream(content)), name, config)) {
+            return IOUtils.toByteArray(cis);
+        }
+    }
+
+    private static byte[] parallelXZ(byte[] content, int blockSize) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ParallelXZOutputStream xz = new ParallelXZOutputStream(bos, executor, 2, blockSize, 1)) {
+            xz.write(content);
+        }
+        return bos.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] content, int level) throws IOException {
+        GzipParameters parameters = new GzipParameters();
+        parameters.setCompressionLevel(level);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GzipCompressorOutputStream gzip = new GzipCompressorOutputStream(out, parameters)) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] lines(int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}